@@ -1,12 +1,15 @@
 package com.example.ecommerce;
 
+import com.example.ecommerce.repositories.ExtendedRepositoryImpl;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
 /**
  * This launches the Spring Boot Application
  */
 @SpringBootApplication
+@EnableJpaRepositories(repositoryBaseClass = ExtendedRepositoryImpl.class)
 public class WildlifeToursApplication {
 
   public static void main(String[] args) {
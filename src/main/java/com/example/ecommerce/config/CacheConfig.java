@@ -0,0 +1,75 @@
+package com.example.ecommerce.config;
+
+import static com.example.ecommerce.constants.StringConstants.ACCOUNT_STATUS_CACHE;
+import static com.example.ecommerce.constants.StringConstants.AVAILABILITY_CACHE;
+import static com.example.ecommerce.constants.StringConstants.IDEMPOTENCY_CACHE;
+import static com.example.ecommerce.constants.StringConstants.TOURS_CACHE;
+import static com.example.ecommerce.constants.StringConstants.TOUR_QUERIES_CACHE;
+import static com.example.ecommerce.constants.StringConstants.USER_DETAILS_CACHE;
+import static com.example.ecommerce.constants.StringConstants.VERIFIED_TOKENS_CACHE;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.Collections;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * This class configures the bounded in-process caches used by the services. Each cache is built
+ * from a Caffeine spec in application.yml (size and TTL eviction) and always records statistics,
+ * which are exposed through the CacheStatsController.
+ *
+ * <p>The caching advice wraps the transaction advice, so a cache hit does not open a transaction
+ * and annotated puts and evictions happen after the commit. Puts and evictions made in code
+ * inside a transaction are also deferred until it commits, so no other request can cache the
+ * data the transaction is replacing in between.
+ */
+@Configuration
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+public class CacheConfig {
+
+  @Value("${wildlife-tours.cache.tours}")
+  private String toursCacheSpec;
+
+  @Value("${wildlife-tours.cache.tour-queries}")
+  private String tourQueriesCacheSpec;
+
+  @Value("${wildlife-tours.cache.verified-tokens}")
+  private String verifiedTokensCacheSpec;
+
+  @Value("${wildlife-tours.cache.user-details}")
+  private String userDetailsCacheSpec;
+
+  @Value("${wildlife-tours.cache.idempotency-keys}")
+  private String idempotencyKeysCacheSpec;
+
+  @Value("${wildlife-tours.cache.account-status}")
+  private String accountStatusCacheSpec;
+
+  @Value("${wildlife-tours.cache.availability}")
+  private String availabilityCacheSpec;
+
+  @Bean
+  public CacheManager cacheManager() {
+    CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+    // no dynamic caches: every cache must be declared here with its own bounds
+    cacheManager.setCacheNames(Collections.emptyList());
+    cacheManager.registerCustomCache(TOURS_CACHE, buildCache(toursCacheSpec));
+    cacheManager.registerCustomCache(TOUR_QUERIES_CACHE, buildCache(tourQueriesCacheSpec));
+    cacheManager.registerCustomCache(VERIFIED_TOKENS_CACHE, buildCache(verifiedTokensCacheSpec));
+    cacheManager.registerCustomCache(USER_DETAILS_CACHE, buildCache(userDetailsCacheSpec));
+    cacheManager.registerCustomCache(IDEMPOTENCY_CACHE, buildCache(idempotencyKeysCacheSpec));
+    cacheManager.registerCustomCache(ACCOUNT_STATUS_CACHE, buildCache(accountStatusCacheSpec));
+    cacheManager.registerCustomCache(AVAILABILITY_CACHE, buildCache(availabilityCacheSpec));
+    return new TransactionAwareCacheManagerProxy(cacheManager);
+  }
+
+  private com.github.benmanes.caffeine.cache.Cache<Object, Object> buildCache(String spec) {
+    return Caffeine.from(spec).recordStats().build();
+  }
+}
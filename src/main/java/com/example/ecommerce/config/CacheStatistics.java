@@ -0,0 +1,85 @@
+package com.example.ecommerce.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * This class contains the hit/miss/eviction counters of a single cache, as returned by the
+ * CacheStatsController.
+ */
+public class CacheStatistics {
+
+  private String name;
+  private long size;
+  private long hitCount;
+  private long missCount;
+  private double hitRate;
+  private long evictionCount;
+
+  public CacheStatistics() {
+  }
+
+  public CacheStatistics(String name, long size, long hitCount, long missCount, double hitRate,
+      long evictionCount) {
+    this.name = name;
+    this.size = size;
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.hitRate = hitRate;
+    this.evictionCount = evictionCount;
+  }
+
+  public static CacheStatistics of(String name, Cache<?, ?> nativeCache) {
+    CacheStats stats = nativeCache.stats();
+    return new CacheStatistics(name, nativeCache.estimatedSize(), stats.hitCount(),
+        stats.missCount(), stats.hitRate(), stats.evictionCount());
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  public void setSize(long size) {
+    this.size = size;
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public void setHitCount(long hitCount) {
+    this.hitCount = hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  public void setMissCount(long missCount) {
+    this.missCount = missCount;
+  }
+
+  public double getHitRate() {
+    return hitRate;
+  }
+
+  public void setHitRate(double hitRate) {
+    this.hitRate = hitRate;
+  }
+
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  public void setEvictionCount(long evictionCount) {
+    this.evictionCount = evictionCount;
+  }
+}
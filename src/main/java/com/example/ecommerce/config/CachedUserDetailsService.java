@@ -0,0 +1,61 @@
+package com.example.ecommerce.config;
+
+import static com.example.ecommerce.constants.StringConstants.USER_DETAILS_CACHE;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Primary;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+/**
+ * This class caches the accounts loaded by MyAppUserDetailsService, so that a login (which loads
+ * the same account twice) and the stateful authorization mode do not query the database each
+ * time. Entries are bounded by the userDetails cache spec and evicted by the UserAccountService
+ * whenever an account is updated or deleted. Unknown usernames are never cached.
+ */
+@Primary
+@Service
+public class CachedUserDetailsService implements UserDetailsService {
+
+  @Autowired
+  private MyAppUserDetailsService userDetailsService;
+
+  @Autowired
+  private CacheManager cacheManager;
+
+  @Override
+  public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+    Cache userDetailsCache = cacheManager.getCache(USER_DETAILS_CACHE);
+    UserDetails userDetails = userDetailsCache.get(username, UserDetails.class);
+    if (userDetails == null) {
+      userDetails = userDetailsService.loadUserByUsername(username);
+      userDetailsCache.put(username, userDetails);
+    }
+    return copyOf(userDetails);
+  }
+
+  /**
+   * Evicts a cached account. Within a transaction, the entry is only evicted once the transaction
+   * commits (the CacheManager is transaction-aware, see CacheConfig), so a login in between cannot
+   * cache the account as it was before the write.
+   *
+   * @param username the username of the account that changed.
+   */
+  public void evict(String username) {
+    if (username != null) {
+      cacheManager.getCache(USER_DETAILS_CACHE).evict(username);
+    }
+  }
+
+  // callers get a copy: the ProviderManager erases the password of the principal it authenticated
+  private UserDetails copyOf(UserDetails userDetails) {
+    return new User(userDetails.getUsername(), userDetails.getPassword(), userDetails.isEnabled(),
+        userDetails.isAccountNonExpired(), userDetails.isCredentialsNonExpired(),
+        userDetails.isAccountNonLocked(), userDetails.getAuthorities());
+  }
+}
@@ -2,10 +2,8 @@ package com.example.ecommerce.config;
 
 import com.example.ecommerce.models.UserAccount;
 import com.example.ecommerce.repositories.UserAccountRepository;
-import java.util.List;
+import com.example.ecommerce.security.RoleAuthorities;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -21,9 +19,11 @@ public class MyAppUserDetailsService implements UserDetailsService {
   @Override
   public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
     UserAccount userAccount = userAccountRepository.findByUsername(username);
+    if (userAccount == null) {
+      throw new UsernameNotFoundException(username);
+    }
 
-    List<GrantedAuthority> grantedAuthorities = List.of(
-        new SimpleGrantedAuthority(userAccount.getRole()));
-    return new User(userAccount.getUsername(), userAccount.getPassword(), grantedAuthorities);
+    return new User(userAccount.getUsername(), userAccount.getPassword(),
+        RoleAuthorities.of(userAccount.getRole()));
   }
 }
@@ -2,6 +2,7 @@ package com.example.ecommerce.config;
 
 import static com.example.ecommerce.constants.StringConstants.ADMIN;
 import static com.example.ecommerce.constants.StringConstants.BASIC_USER;
+import static com.example.ecommerce.constants.StringConstants.CONTEXT_CACHE_STATS;
 import static com.example.ecommerce.constants.StringConstants.CONTEXT_TOURS;
 import static com.example.ecommerce.constants.StringConstants.CONTEXT_TOUR_BOOKINGS;
 import static com.example.ecommerce.constants.StringConstants.CONTEXT_USER_ACCOUNTS;
@@ -52,29 +53,48 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
         .antMatchers("/login").permitAll()
         .antMatchers("/logout").permitAll()
         .antMatchers(HttpMethod.GET, CONTEXT_TOURS).permitAll()
+        .antMatchers(HttpMethod.GET, CONTEXT_TOURS + "/{id}").permitAll()
+        .antMatchers(HttpMethod.GET, CONTEXT_TOURS + "/{id}/availability").permitAll()
         .antMatchers(HttpMethod.POST, CONTEXT_USER_ACCOUNTS).permitAll()
 
         .antMatchers(HttpMethod.POST, CONTEXT_TOUR_BOOKINGS)
         .hasAnyAuthority(BASIC_USER, ADMIN, EMPLOYEE)
+        .antMatchers(HttpMethod.POST, CONTEXT_TOUR_BOOKINGS + "/bulk")
+        .hasAnyAuthority(ADMIN, EMPLOYEE)
         .antMatchers(HttpMethod.GET, CONTEXT_TOUR_BOOKINGS + "/tourcode/{tourcode}")
         .hasAnyAuthority(BASIC_USER, ADMIN, EMPLOYEE)
+        .antMatchers(CONTEXT_TOUR_BOOKINGS + "/holds/**")
+        .hasAnyAuthority(BASIC_USER, ADMIN, EMPLOYEE)
 
         .antMatchers(HttpMethod.PUT, CONTEXT_TOURS + "/{id}").hasAnyAuthority(ADMIN, EMPLOYEE)
+        .antMatchers(HttpMethod.PATCH, CONTEXT_TOURS + "/{id}").hasAnyAuthority(ADMIN, EMPLOYEE)
         .antMatchers(HttpMethod.GET, CONTEXT_USER_ACCOUNTS).hasAnyAuthority(ADMIN, EMPLOYEE)
         .antMatchers(HttpMethod.GET, CONTEXT_USER_ACCOUNTS + "/{id}")
         .hasAnyAuthority(ADMIN, EMPLOYEE)
         .antMatchers(HttpMethod.PUT, CONTEXT_USER_ACCOUNTS + "{id}")
         .hasAnyAuthority(ADMIN, EMPLOYEE)
+        .antMatchers(HttpMethod.PATCH, CONTEXT_USER_ACCOUNTS + "/{id}")
+        .hasAnyAuthority(ADMIN, EMPLOYEE)
         .antMatchers(HttpMethod.GET, CONTEXT_TOUR_BOOKINGS).hasAnyAuthority(ADMIN, EMPLOYEE)
+        .antMatchers(HttpMethod.GET, CONTEXT_TOUR_BOOKINGS + "/details")
+        .hasAnyAuthority(ADMIN, EMPLOYEE)
+        .antMatchers(HttpMethod.GET, CONTEXT_TOURS + "/{id}/bookings")
+        .hasAnyAuthority(ADMIN, EMPLOYEE)
+        .antMatchers(HttpMethod.GET, CONTEXT_TOUR_BOOKINGS + "/export")
+        .hasAnyAuthority(ADMIN, EMPLOYEE)
         .antMatchers(HttpMethod.GET, CONTEXT_TOUR_BOOKINGS + "{id}")
         .hasAnyAuthority(ADMIN, EMPLOYEE)
         .antMatchers(HttpMethod.PUT, CONTEXT_TOUR_BOOKINGS + "{id}")
         .hasAnyAuthority(ADMIN, EMPLOYEE)
+        .antMatchers(HttpMethod.PATCH, CONTEXT_TOUR_BOOKINGS + "/{id}")
+        .hasAnyAuthority(ADMIN, EMPLOYEE)
 
         .antMatchers(HttpMethod.DELETE, CONTEXT_USER_ACCOUNTS + "{id}").hasAnyAuthority(ADMIN)
         .antMatchers(HttpMethod.DELETE, CONTEXT_TOURS + "/{id}").hasAnyAuthority(ADMIN)
         .antMatchers(HttpMethod.DELETE, CONTEXT_TOUR_BOOKINGS + "{id}").hasAnyAuthority(ADMIN)
         .antMatchers(HttpMethod.POST, CONTEXT_TOURS).hasAnyAuthority(ADMIN)
+        .antMatchers(HttpMethod.POST, CONTEXT_TOURS + "/bulk").hasAnyAuthority(ADMIN)
+        .antMatchers(HttpMethod.GET, CONTEXT_CACHE_STATS).hasAnyAuthority(ADMIN)
 
         .anyRequest().authenticated()
         .and().sessionManagement().sessionCreationPolicy(
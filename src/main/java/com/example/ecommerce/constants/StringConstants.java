@@ -19,6 +19,8 @@ public class StringConstants {
   public static final String UNEXPECTED_ERROR = "Unexpected server error";
 
   public static final String CONFLICT = "Conflict";
+  public static final String UNPROCESSABLE_ENTITY = "Unprocessable entity";
+  public static final String PRECONDITION_FAILED = "Precondition failed";
 
   //endpoint constants
   public static final String CONTEXT_CUSTOMERS = "/customers";
@@ -26,6 +28,52 @@ public class StringConstants {
   public static final String CONTEXT_TOURS = "/tours";
   public static final String CONTEXT_TOUR_BOOKINGS = "/tourbookings";
   public static final String CONTEXT_USER_ACCOUNTS = "/useraccounts";
+  public static final String CONTEXT_CACHE_STATS = "/cachestats";
+
+  //pagination
+  public static final String DEFAULT_PAGE_LIMIT = "50";
+  public static final int MAX_PAGE_LIMIT = 500;
+  public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+  public static final String ID_ATTRIBUTE = "id";
+
+  //bulk
+  public static final int MAX_BULK_SIZE = 1000;
+
+  //tour facets
+  public static final String FACET_PRICE = "price";
+  public static final String FACET_NUMBER_OF_DAYS = "numberOfDays";
+  public static final String FACET_RATING = "rating";
+  public static final String FACET_VACCINATIONS = "vaccinations";
+
+  //autocomplete
+  public static final String DEFAULT_COMPLETIONS = "10";
+  // completions cached per prefix, so also the most a request can ask for
+  public static final int MAX_COMPLETIONS = 10;
+
+  //id generation
+  // ids handed out per sequence round trip; the same as the JDBC batch size in application.yml
+  public static final int ID_ALLOCATION_SIZE = 100;
+
+  //export
+  public static final String EXPORT_FORMAT_NDJSON = "ndjson";
+  public static final String EXPORT_FORMAT_CSV = "csv";
+  public static final String EXPORT_FETCH_SIZE = "500";
+  public static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+  public static final String CSV_MEDIA_TYPE = "text/csv";
+  public static final String MERGE_PATCH_MEDIA_TYPE = "application/merge-patch+json";
+
+  //cache names
+  public static final String TOURS_CACHE = "tours";
+  public static final String TOUR_QUERIES_CACHE = "tourQueries";
+  public static final String VERIFIED_TOKENS_CACHE = "verifiedTokens";
+  public static final String USER_DETAILS_CACHE = "userDetails";
+  public static final String IDEMPOTENCY_CACHE = "idempotencyKeys";
+  public static final String ACCOUNT_STATUS_CACHE = "accountStatus";
+  public static final String AVAILABILITY_CACHE = "availability";
+
+  //idempotency constants
+  public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+  public static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
 
   //roles
   public static final String EMPLOYEE = "employee";
@@ -42,6 +90,7 @@ public class StringConstants {
   public static final String CLAIMS_ATTRIBUTE = "claims";
   public static final String EMAIL_ATTRIBUTE = "email";
   public static final String ROLES_ATTRIBUTE = "roles";
+  public static final String AUTHORITY_ATTRIBUTE = "authority";
 
   public static final String BAD_CREDENTIALS = "Invalid user credentials";
   public static final String MANAGER_ROLE_TYPE = "manager";
@@ -0,0 +1,61 @@
+package com.example.ecommerce.controllers;
+
+import static com.example.ecommerce.constants.StringConstants.CONTEXT_CACHE_STATS;
+import static com.example.ecommerce.constants.StringConstants.QUERY_REQUEST;
+
+import com.example.ecommerce.config.CacheStatistics;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.swagger.annotations.Api;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * This controller exposes the hit/miss/eviction counters of the in-process caches, so that they
+ * can be sized from production traffic.
+ */
+@Api(value = "Cache Stats Controller")
+@RestController
+@RequestMapping(CONTEXT_CACHE_STATS)
+public class CacheStatsController {
+
+  private final Logger logger = LoggerFactory.getLogger(CacheStatsController.class);
+
+  @Autowired
+  private CacheManager cacheManager;
+
+  /**
+   * Retrieves the statistics of every configured cache.
+   *
+   * @return a list with the size, hit, miss and eviction counts of each cache.
+   */
+  @GetMapping
+  @Operation(summary = "Query cache statistics",
+      description = "get hit/miss/eviction counters for every in-process cache",
+      responses = {
+          @ApiResponse(responseCode = "200", description = "List of cache statistics")
+      })
+  public ResponseEntity<List<CacheStatistics>> getCacheStatistics() {
+    logger.info(new Date() + QUERY_REQUEST + "cache statistics");
+
+    List<CacheStatistics> statistics = new ArrayList<>();
+    for (String name : cacheManager.getCacheNames()) {
+      Object nativeCache = cacheManager.getCache(name).getNativeCache();
+      if (nativeCache instanceof Cache) {
+        statistics.add(CacheStatistics.of(name, (Cache<?, ?>) nativeCache));
+      }
+    }
+    return new ResponseEntity<>(statistics, HttpStatus.OK);
+  }
+}
@@ -1,32 +1,45 @@
 package com.example.ecommerce.controllers;
 
 import static com.example.ecommerce.constants.StringConstants.CONTEXT_CUSTOMERS;
+import static com.example.ecommerce.constants.StringConstants.DEFAULT_COMPLETIONS;
+import static com.example.ecommerce.constants.StringConstants.DEFAULT_PAGE_LIMIT;
 import static com.example.ecommerce.constants.StringConstants.DELETE_REQUEST;
+import static com.example.ecommerce.constants.StringConstants.IDEMPOTENCY_KEY_HEADER;
+import static com.example.ecommerce.constants.StringConstants.MERGE_PATCH_MEDIA_TYPE;
 import static com.example.ecommerce.constants.StringConstants.POST_REQUEST;
 import static com.example.ecommerce.constants.StringConstants.QUERY_REQUEST;
 import static com.example.ecommerce.constants.StringConstants.UPDATE_REQUEST;
 
+import com.example.ecommerce.models.CursorPage;
 import com.example.ecommerce.models.Customer;
+import com.example.ecommerce.models.CustomerFilter;
 import com.example.ecommerce.services.CustomerService;
+import com.example.ecommerce.services.IdempotencyService;
 import io.swagger.annotations.Api;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import javax.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
@@ -44,23 +57,60 @@ public class CustomerController {
   @Autowired
   private CustomerService customerService;
 
+  @Autowired
+  private IdempotencyService idempotencyService;
+
   /**
-   * Queries Customers.
+   * Queries Customers, one keyset page at a time. The cursor of the next page is returned in the
+   * {@code X-Next-Cursor} and {@code Link} headers.
    *
-   * @param customer the Customer(s) matching the user's supplied information.
-   * @return a list of Customers, containing Objects which match the information supplied, or a list
-   * of all Customers if the query is empty.
+   * @param filter   the filters on Customer fields; unset ones match any value.
+   * @param after    the id of the last Customer of the previous page, if any.
+   * @param limit    the maximum number of Customers to return.
+   * @param unpaged  opts in to retrieving every matching Customer in a single response.
+   * @return a list of Customers, containing Objects which match the information supplied, or a
+   * list of all Customers if the query is empty.
    */
   @GetMapping
   @Operation(summary = "Query Customers",
-      description = "get all customers, or customers filtered according to custom query",
+      description = "get all customers, or customers filtered according to custom query"
+          + ", paginated with ?after=<id>&limit=N",
       responses = {
-          @ApiResponse(responseCode = "200", description = "List of Customers")
+          @ApiResponse(responseCode = "200", description = "List of Customers"),
+          @ApiResponse(responseCode = "400", description = "Invalid cursor or limit")
       })
-  public ResponseEntity<List<Customer>> queryCustomers(Customer customer) {
-    logger.info(new Date() + QUERY_REQUEST + customer.toString());
+  public ResponseEntity<List<Customer>> queryCustomers(CustomerFilter filter,
+      @RequestParam(required = false) Long after,
+      @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+      @RequestParam(defaultValue = "false") boolean unpaged) {
+    logger.info(new Date() + QUERY_REQUEST + filter.toString());
+
+    if (unpaged) {
+      return new ResponseEntity<>(customerService.queryCustomers(filter), HttpStatus.OK);
+    }
+    CursorPage<Customer> page = customerService.queryCustomers(filter, after, limit);
+    return new ResponseEntity<>(page.getItems(), PageHeaders.of(page), HttpStatus.OK);
+  }
 
-    return new ResponseEntity<>(customerService.queryCustomers(customer), HttpStatus.OK);
+  /**
+   * Completes a customer name as it is typed, from any word of the name on. Served from memory,
+   * so it can be called on every keystroke.
+   *
+   * @param prefix the text typed so far.
+   * @param limit  the maximum number of names to return.
+   * @return the matching customer names, most common first.
+   */
+  @GetMapping("/autocomplete")
+  @Operation(summary = "complete Customer names",
+      description = "type-ahead completion of customer names, most common first",
+      responses = {
+          @ApiResponse(responseCode = "200", description = "Matching customer names"),
+          @ApiResponse(responseCode = "400", description = "Blank prefix or invalid limit")
+      })
+  public ResponseEntity<List<String>> completeCustomerNames(@RequestParam String prefix,
+      @RequestParam(defaultValue = DEFAULT_COMPLETIONS) int limit) {
+    return new ResponseEntity<>(customerService.completeCustomerNames(prefix, limit),
+        HttpStatus.OK);
   }
 
   /**
@@ -83,13 +133,16 @@ public class CustomerController {
   public ResponseEntity<Customer> getCustomerById(@PathVariable Long id) {
     logger.info(new Date() + QUERY_REQUEST + "customer with id " + id);
 
-    return new ResponseEntity<>(customerService.getCustomerById(id), HttpStatus.OK);
+    Customer customer = customerService.getCustomerById(id);
+    return new ResponseEntity<>(customer, EntityTags.of(customer.getVersion()), HttpStatus.OK);
   }
 
   /**
-   * Saves a Customer Object with the data/state provided by the user to the database.
+   * Saves a Customer Object with the data/state provided by the user to the database. Retries
+   * that send the same Idempotency-Key get the first response replayed.
    *
-   * @param customer the Customer to be saved.
+   * @param idempotencyKey an optional client key that makes the request safe to retry.
+   * @param customer       the Customer to be saved.
    * @return the dta of the Customer that was saved to the database, if successful.
    */
   @PostMapping
@@ -97,12 +150,16 @@ public class CustomerController {
       responses = {
           @ApiResponse(responseCode = "201", description = "Customer created"),
           @ApiResponse(responseCode = "400", description = "Invalid Customer data"),
-          @ApiResponse(responseCode = "409", description = "Customer email already in use")
+          @ApiResponse(responseCode = "409", description = "Customer email already in use"),
+          @ApiResponse(responseCode = "422", description = "Idempotency-Key reused with another body")
       })
-  public ResponseEntity<Customer> postCustomer(@Valid @RequestBody Customer customer) {
+  public ResponseEntity<Customer> postCustomer(
+      @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+      @Valid @RequestBody Customer customer) {
     logger.info(new Date() + POST_REQUEST + "customer");
 
-    return new ResponseEntity<Customer>(customerService.addCustomer(customer), HttpStatus.CREATED);
+    return idempotencyService.execute(CONTEXT_CUSTOMERS, idempotencyKey, customer,
+        () -> new ResponseEntity<>(customerService.addCustomer(customer), HttpStatus.CREATED));
   }
 
   /**
@@ -110,6 +167,7 @@ public class CustomerController {
    * the user.
    *
    * @param id       the id of the Customer to be updated.
+   * @param ifMatch  the ETag of the version being replaced, to fail with 412 if it changed.
    * @param customer the Customer data which will replace the old Customer data.
    * @return the successfully updated Customer
    */
@@ -119,16 +177,49 @@ public class CustomerController {
           @ApiResponse(responseCode = "200", description = "Customer updated successfully"),
           @ApiResponse(responseCode = "400", description = "Invalid Customer data"),
           @ApiResponse(responseCode = "409", description = "Customer email already in use"),
-          @ApiResponse(responseCode = "404", description = "Customer not found")
+          @ApiResponse(responseCode = "404", description = "Customer not found"),
+          @ApiResponse(responseCode = "412", description = "Stale If-Match version")
       })
   public ResponseEntity<Customer> updateCustomerById(@PathVariable Long id,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
       @Valid @RequestBody Customer customer) {
     logger.info(new Date() + UPDATE_REQUEST + "customer with id " + id);
 
-    return new ResponseEntity<Customer>(customerService.updateCustomerById(id, customer),
+    Customer updatedCustomer = customerService.updateCustomerById(id, customer,
+        EntityTags.expectedVersion(ifMatch));
+    return new ResponseEntity<>(updatedCustomer, EntityTags.of(updatedCustomer.getVersion()),
         HttpStatus.OK);
   }
 
+  /**
+   * Changes only the fields of a Customer that are present in the request body, e.g.
+   * {@code {"email": ...}}. At most the new version is read back, so the response has no body.
+   *
+   * @param id      the id of the Customer to be updated.
+   * @param ifMatch the ETag of the version being replaced, to fail with 412 if it changed.
+   * @param patch   the fields to change and their new values.
+   * @return a no content status, if the id exists in the database.
+   */
+  @PatchMapping(value = "/{id}", consumes = {MediaType.APPLICATION_JSON_VALUE,
+      MERGE_PATCH_MEDIA_TYPE})
+  @Operation(summary = "patch Customer", description = "Updates only the given fields of a Customer",
+      responses = {
+          @ApiResponse(responseCode = "204", description = "Customer updated successfully"),
+          @ApiResponse(responseCode = "400", description = "Invalid or unknown Customer field"),
+          @ApiResponse(responseCode = "409", description = "Customer email already in use"),
+          @ApiResponse(responseCode = "404", description = "Customer not found"),
+          @ApiResponse(responseCode = "412", description = "Stale If-Match version")
+      })
+  public ResponseEntity<Customer> patchCustomerById(@PathVariable Long id,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+      @RequestBody Map<String, Object> patch) {
+    logger.info(new Date() + UPDATE_REQUEST + "customer with id " + id + ", fields " + patch.keySet());
+
+    Long version = customerService.patchCustomerById(id, patch,
+        EntityTags.expectedVersion(ifMatch));
+    return new ResponseEntity<>(EntityTags.of(version), HttpStatus.NO_CONTENT);
+  }
+
   /**
    * Finds and deletes a Customer from the database with the id given by the user.
    *
@@ -0,0 +1,78 @@
+package com.example.ecommerce.controllers;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * This class maps entity versions to and from entity tags: the ETag header of a response carries
+ * the version of the entity, and the If-Match header of an update names the version the client
+ * expects to overwrite.
+ */
+public class EntityTags {
+
+  // versions start at 0, so an update conditional on this one never matches
+  private static final Long UNMATCHABLE_VERSION = -1L;
+
+  private EntityTags() {
+  }
+
+  /**
+   * @return headers with the ETag of the version, or no headers if the version is not known.
+   */
+  public static HttpHeaders of(Long version) {
+    HttpHeaders headers = new HttpHeaders();
+    if (version != null) {
+      headers.setETag("\"" + version + "\"");
+    }
+    return headers;
+  }
+
+  /**
+   * Reads the version an update is conditional on. Only a single strong tag issued by this API can
+   * match; a weak or foreign tag never matches, so it fails the precondition, unless the entity
+   * does not exist at all.
+   *
+   * @param ifMatch the If-Match header, if any.
+   * @return the expected version, or null for an unconditional update (no header, or "*").
+   */
+  public static Long expectedVersion(String ifMatch) {
+    if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+      return null;
+    }
+    String tag = ifMatch.trim();
+    if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+      try {
+        return Long.valueOf(tag.substring(1, tag.length() - 1));
+      } catch (NumberFormatException e) {
+        // not a version, falls through
+      }
+    }
+    // left to the update, which tells a missing entity (404) from a changed one (412)
+    return UNMATCHABLE_VERSION;
+  }
+
+  /**
+   * Evaluates If-None-Match against the current tag of a resource, with the weak comparison that
+   * RFC 7232 prescribes for it.
+   *
+   * @param ifNoneMatch the If-None-Match header, if any.
+   * @param etag        the current entity tag, quoted.
+   * @return true if the client's copy is current and a 304 can be sent instead of the resource.
+   */
+  public static boolean isNotModified(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null || etag == null) {
+      return false;
+    }
+    String opaqueTag = opaqueTag(etag);
+    for (String tag : ifNoneMatch.split(",")) {
+      String trimmed = tag.trim();
+      if (trimmed.equals("*") || opaqueTag(trimmed).equals(opaqueTag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String opaqueTag(String tag) {
+    return tag.startsWith("W/") ? tag.substring(2) : tag;
+  }
+}
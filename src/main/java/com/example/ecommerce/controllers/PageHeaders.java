@@ -0,0 +1,30 @@
+package com.example.ecommerce.controllers;
+
+import static com.example.ecommerce.constants.StringConstants.NEXT_CURSOR_HEADER;
+
+import com.example.ecommerce.models.CursorPage;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * This class builds the response headers that carry the keyset pagination metadata of a page: the
+ * next cursor, and a 'next' Link to the following page of the current request.
+ */
+public class PageHeaders {
+
+  private PageHeaders() {
+  }
+
+  public static HttpHeaders of(CursorPage<?> page) {
+    HttpHeaders headers = new HttpHeaders();
+    if (page.hasNext()) {
+      String nextPage = ServletUriComponentsBuilder.fromCurrentRequest()
+          .replaceQueryParam("after", page.getNextCursor())
+          .replaceQueryParam("limit", page.getLimit())
+          .toUriString();
+      headers.add(NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+      headers.add(HttpHeaders.LINK, "<" + nextPage + ">; rel=\"next\"");
+    }
+    return headers;
+  }
+}
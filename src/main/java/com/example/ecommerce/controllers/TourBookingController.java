@@ -1,33 +1,60 @@
 package com.example.ecommerce.controllers;
 
 import static com.example.ecommerce.constants.StringConstants.CONTEXT_TOUR_BOOKINGS;
+import static com.example.ecommerce.constants.StringConstants.CSV_MEDIA_TYPE;
+import static com.example.ecommerce.constants.StringConstants.DEFAULT_PAGE_LIMIT;
 import static com.example.ecommerce.constants.StringConstants.DELETE_REQUEST;
+import static com.example.ecommerce.constants.StringConstants.EXPORT_FORMAT_CSV;
+import static com.example.ecommerce.constants.StringConstants.EXPORT_FORMAT_NDJSON;
+import static com.example.ecommerce.constants.StringConstants.IDEMPOTENCY_KEY_HEADER;
+import static com.example.ecommerce.constants.StringConstants.MAX_BULK_SIZE;
+import static com.example.ecommerce.constants.StringConstants.MERGE_PATCH_MEDIA_TYPE;
+import static com.example.ecommerce.constants.StringConstants.NDJSON_MEDIA_TYPE;
 import static com.example.ecommerce.constants.StringConstants.POST_REQUEST;
 import static com.example.ecommerce.constants.StringConstants.QUERY_REQUEST;
 import static com.example.ecommerce.constants.StringConstants.UPDATE_REQUEST;
 
+import com.example.ecommerce.exceptions.BadDataResponse;
+import com.example.ecommerce.exceptions.BadRequest;
+import com.example.ecommerce.models.BookingHold;
+import com.example.ecommerce.models.BulkResult;
+import com.example.ecommerce.models.CursorPage;
 import com.example.ecommerce.models.TourBooking;
+import com.example.ecommerce.models.TourBookingDetails;
+import com.example.ecommerce.models.TourBookingFilter;
+import com.example.ecommerce.services.BookingHoldService;
+import com.example.ecommerce.services.IdempotencyService;
 import com.example.ecommerce.services.TourBookingService;
 import io.swagger.annotations.Api;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import java.time.LocalDate;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import javax.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Api(value = "Tour Booking Controller")
 @RestController
@@ -39,23 +66,68 @@ public class TourBookingController {
   @Autowired
   private TourBookingService tourBookingService;
 
+  @Autowired
+  private IdempotencyService idempotencyService;
+
+  @Autowired
+  private BookingHoldService bookingHoldService;
+
   /**
-   * Queries TourBookings.
+   * Queries TourBookings, one keyset page at a time. The cursor of the next page is returned in the
+   * {@code X-Next-Cursor} and {@code Link} headers.
    *
-   * @param tourBooking the TourBooking(s) matching the user's supplied information.
+   * @param filter      the filters on TourBooking fields; unset ones match any value.
+   * @param after       the id of the last TourBooking of the previous page, if any.
+   * @param limit       the maximum number of TourBookings to return.
+   * @param unpaged     opts in to retrieving every matching TourBooking in a single response.
    * @return a list of TourBookings, containing Objects which match the information supplied, or a
    * list of all TourBookings if the query is empty.
    */
   @GetMapping
   @Operation(summary = "Query TourBookings",
-      description = "get all tourBookings, or tourBookings filtered according to custom query",
+      description = "get all tourBookings, or tourBookings filtered according to custom query"
+          + ", paginated with ?after=<id>&limit=N",
+      responses = {
+          @ApiResponse(responseCode = "200", description = "List of TourBookings"),
+          @ApiResponse(responseCode = "400", description = "Invalid cursor or limit")
+      })
+  public ResponseEntity<List<TourBooking>> queryTourBookings(TourBookingFilter filter,
+      @RequestParam(required = false) Long after,
+      @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+      @RequestParam(defaultValue = "false") boolean unpaged) {
+    logger.info(new Date() + QUERY_REQUEST + filter.toString());
+
+    if (unpaged) {
+      return new ResponseEntity<>(tourBookingService.queryTourBookings(filter), HttpStatus.OK);
+    }
+    CursorPage<TourBooking> page = tourBookingService.queryTourBookings(filter, after, limit);
+    return new ResponseEntity<>(page.getItems(), PageHeaders.of(page), HttpStatus.OK);
+  }
+
+  /**
+   * Queries TourBookings like queryTourBookings, along with a summary of the Tour of each.
+   *
+   * @param filter the filters on TourBooking fields; unset ones match any value.
+   * @param after  the id of the last TourBooking of the previous page, if any.
+   * @param limit  the maximum number of TourBookings to return.
+   * @return a list of TourBookings with their Tours, one page at a time.
+   */
+  @GetMapping("/details")
+  @Operation(summary = "Query TourBookings with their Tours",
+      description = "get tourBookings filtered according to custom query, each with the id, "
+          + "description, length, price and rating of its tour, paginated with ?after=<id>&limit=N",
       responses = {
-          @ApiResponse(responseCode = "200", description = "List of TourBookings")
+          @ApiResponse(responseCode = "200", description = "List of TourBookings with Tours"),
+          @ApiResponse(responseCode = "400", description = "Invalid cursor or limit")
       })
-  public ResponseEntity<List<TourBooking>> queryTourBookings(TourBooking tourBooking) {
-    logger.info(new Date() + QUERY_REQUEST + tourBooking.toString());
+  public ResponseEntity<List<TourBookingDetails>> queryTourBookingDetails(
+      TourBookingFilter filter, @RequestParam(required = false) Long after,
+      @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit) {
+    logger.info(new Date() + QUERY_REQUEST + filter.toString());
 
-    return new ResponseEntity<>(tourBookingService.queryTourBookings(tourBooking), HttpStatus.OK);
+    CursorPage<TourBookingDetails> page =
+        tourBookingService.queryTourBookingDetails(filter, after, limit);
+    return new ResponseEntity<>(page.getItems(), PageHeaders.of(page), HttpStatus.OK);
   }
 
   /**
@@ -78,7 +150,9 @@ public class TourBookingController {
   public ResponseEntity<TourBooking> getTourBookingById(@PathVariable Long id) {
     logger.info(new Date() + QUERY_REQUEST + "tourBooking with id " + id);
 
-    return new ResponseEntity<>(tourBookingService.getTourBookingById(id), HttpStatus.OK);
+    TourBooking tourBooking = tourBookingService.getTourBookingById(id);
+    return new ResponseEntity<>(tourBooking, EntityTags.of(tourBooking.getVersion()),
+        HttpStatus.OK);
   }
 
   @GetMapping("/tourcode/{tourcode}")
@@ -99,9 +173,54 @@ public class TourBookingController {
   }
 
   /**
-   * Saves a TourBooking Object with the data/state provided by the user to the database.
+   * Streams every TourBooking reserved within an optional date range, one row at a time, so the
+   * export uses constant heap regardless of the size of the table. Card numbers are masked to
+   * their last four digits, and CSV cells that a spreadsheet would run as formulas are escaped.
    *
-   * @param tourBooking the TourBooking to be saved.
+   * @param format the export format, either ndjson (default) or csv.
+   * @param from   the first reserved date to include (yyyy-MM-dd), if any.
+   * @param to     the last reserved date to include (yyyy-MM-dd), if any.
+   * @return a streamed NDJSON or CSV body.
+   */
+  @GetMapping("/export")
+  @Operation(summary = "export TourBookings",
+      description = "streams tourBookings as NDJSON or CSV, optionally filtered by reserved date",
+      responses = {
+          @ApiResponse(responseCode = "200", description = "Streamed TourBookings"),
+          @ApiResponse(responseCode = "400", description = "Invalid format or date range")
+      })
+  public ResponseEntity<StreamingResponseBody> exportTourBookings(
+      @RequestParam(defaultValue = EXPORT_FORMAT_NDJSON) String format,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate to) {
+    logger.info(new Date() + QUERY_REQUEST + "tourBooking export from " + from + " to " + to);
+
+    MediaType mediaType;
+    if (EXPORT_FORMAT_NDJSON.equals(format)) {
+      mediaType = MediaType.parseMediaType(NDJSON_MEDIA_TYPE);
+    } else if (EXPORT_FORMAT_CSV.equals(format)) {
+      mediaType = MediaType.parseMediaType(CSV_MEDIA_TYPE);
+    } else {
+      throw new BadRequest("format must be " + EXPORT_FORMAT_NDJSON + " or " + EXPORT_FORMAT_CSV);
+    }
+    if (from != null && to != null && from.isAfter(to)) {
+      throw new BadDataResponse("from must not be after to");
+    }
+
+    StreamingResponseBody body = outputStream -> tourBookingService.exportTourBookings(from, to,
+        format, outputStream);
+    return ResponseEntity.ok().contentType(mediaType)
+        .header(HttpHeaders.CONTENT_DISPOSITION,
+            "attachment; filename=\"tourbookings." + format + "\"")
+        .body(body);
+  }
+
+  /**
+   * Saves a TourBooking Object with the data/state provided by the user to the database. Retries
+   * that send the same Idempotency-Key get the first response replayed.
+   *
+   * @param idempotencyKey an optional client key that makes the request safe to retry.
+   * @param tourBooking    the TourBooking to be saved.
    * @return the dta of the TourBooking that was saved to the database, if successful.
    */
   @PostMapping
@@ -109,19 +228,120 @@ public class TourBookingController {
       responses = {
           @ApiResponse(responseCode = "201", description = "TourBooking created"),
           @ApiResponse(responseCode = "400", description = "Invalid TourBooking data"),
+          @ApiResponse(responseCode = "422", description = "Idempotency-Key reused with another body")
       })
-  public ResponseEntity<TourBooking> postTourBooking(@Valid @RequestBody TourBooking tourBooking) {
+  public ResponseEntity<TourBooking> postTourBooking(
+      @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+      @Valid @RequestBody TourBooking tourBooking) {
     logger.info(new Date() + POST_REQUEST + "tourBooking");
 
-    return new ResponseEntity<TourBooking>(tourBookingService.addTourBooking(tourBooking),
+    return idempotencyService.execute(CONTEXT_TOUR_BOOKINGS, idempotencyKey, tourBooking,
+        () -> new ResponseEntity<>(tourBookingService.addTourBooking(tourBooking), HttpStatus.CREATED));
+  }
+
+  /**
+   * Saves many TourBookings at once, e.g. a group booking. Each TourBooking is validated and
+   * checked for a free tour code and seat on its own; the accepted ones are saved in one
+   * transaction and the rejected ones are reported with their status and errors.
+   *
+   * @param idempotencyKey optional key that makes a retried request return the first result.
+   * @param tourBookings   the TourBookings to be saved.
+   * @return the outcome of every TourBooking, in request order.
+   */
+  @PostMapping("/bulk")
+  @Operation(summary = "post TourBookings in bulk",
+      description = "Creates up to " + MAX_BULK_SIZE + " tourBookings, with a result per booking",
+      responses = {
+          @ApiResponse(responseCode = "201", description = "All TourBookings created"),
+          @ApiResponse(responseCode = "207", description = "Some TourBookings rejected, see results"),
+          @ApiResponse(responseCode = "400", description = "Empty or oversized request"),
+          @ApiResponse(responseCode = "422", description = "Idempotency-Key reused with another body")
+      })
+  public ResponseEntity<BulkResult<TourBooking>> postTourBookings(
+      @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+      @RequestBody List<TourBooking> tourBookings) {
+    logger.info(new Date() + POST_REQUEST + tourBookings.size() + " tourBookings");
+
+    return idempotencyService.execute(CONTEXT_TOUR_BOOKINGS + "/bulk", idempotencyKey,
+        tourBookings, () -> {
+          BulkResult<TourBooking> result = tourBookingService.addTourBookings(tourBookings);
+          return new ResponseEntity<>(result,
+              result.getRejected() == 0 ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS);
+        });
+  }
+
+  /**
+   * Holds a seat on a tour date for a limited time, e.g. while a payment completes. The hold must
+   * be confirmed before it expires, or its seat is given back. Only the user who placed a hold, or
+   * an admin or employee, can confirm or release it.
+   *
+   * @param bookingHold the tour id and reserved date to hold.
+   * @return the hold, with its id and expiry time.
+   */
+  @PostMapping("/holds")
+  @Operation(summary = "post hold", description = "Holds a seat on a tour date until it expires",
+      responses = {
+          @ApiResponse(responseCode = "201", description = "Seat held"),
+          @ApiResponse(responseCode = "400", description = "Invalid hold data"),
+          @ApiResponse(responseCode = "404", description = "Tour not found"),
+          @ApiResponse(responseCode = "409",
+              description = "Tour date sold out or too many outstanding holds")
+      })
+  public ResponseEntity<BookingHold> postHold(@Valid @RequestBody BookingHold bookingHold) {
+    logger.info(new Date() + POST_REQUEST + "hold on tour " + bookingHold.getTourId());
+
+    return new ResponseEntity<>(bookingHoldService.placeHold(bookingHold), HttpStatus.CREATED);
+  }
+
+  /**
+   * Confirms a hold into a TourBooking, which keeps the held seat.
+   *
+   * @param id          the id of the hold.
+   * @param tourBooking the TourBooking to save; its tour id and reserved date must match the hold.
+   * @return the saved TourBooking.
+   */
+  @PostMapping("/holds/{id}/confirm")
+  @Operation(summary = "confirm hold", description = "Turns a hold into a tourBooking",
+      responses = {
+          @ApiResponse(responseCode = "201", description = "TourBooking created"),
+          @ApiResponse(responseCode = "400", description = "Invalid TourBooking data"),
+          @ApiResponse(responseCode = "404", description = "Hold not found or not the caller's"),
+          @ApiResponse(responseCode = "409", description = "Hold expired or tour code already in use")
+      })
+  public ResponseEntity<TourBooking> confirmHold(@PathVariable Long id,
+      @Valid @RequestBody TourBooking tourBooking) {
+    logger.info(new Date() + POST_REQUEST + "confirmation of hold " + id);
+
+    return new ResponseEntity<>(bookingHoldService.confirmHold(id, tourBooking),
         HttpStatus.CREATED);
   }
 
+  /**
+   * Releases a hold before it expires, giving its seat back.
+   *
+   * @param id the id of the hold.
+   * @return a no content status, if the hold existed.
+   */
+  @DeleteMapping("/holds/{id}")
+  @Operation(summary = "release hold", description = "Releases a hold and its seat",
+      responses = {
+          @ApiResponse(responseCode = "204", description = "No Content. Hold released"),
+          @ApiResponse(responseCode = "404",
+              description = "Hold not found, expired or not the caller's")
+      })
+  public ResponseEntity<Void> releaseHold(@PathVariable Long id) {
+    logger.info(new Date() + DELETE_REQUEST + "hold with id " + id);
+
+    bookingHoldService.releaseHold(id);
+    return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+  }
+
   /**
    * Finds and replaces a TourBooking Object with another, based on the id and data/state supplied
    * by the user.
    *
    * @param id          the id of the TourBooking to be updated.
+   * @param ifMatch     the ETag of the version being replaced, to fail with 412 if it changed.
    * @param tourBooking the TourBooking data which will replace the old TourBooking data.
    * @return the successfully updated TourBooking
    */
@@ -130,17 +350,50 @@ public class TourBookingController {
       responses = {
           @ApiResponse(responseCode = "200", description = "TourBooking updated successfully"),
           @ApiResponse(responseCode = "400", description = "Invalid TourBooking data"),
-          @ApiResponse(responseCode = "404", description = "TourBooking not found")
+          @ApiResponse(responseCode = "404", description = "TourBooking not found"),
+          @ApiResponse(responseCode = "412", description = "Stale If-Match version")
       })
   public ResponseEntity<TourBooking> updateTourBookingById(@PathVariable Long id,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
       @Valid @RequestBody TourBooking tourBooking) {
     logger.info(new Date() + UPDATE_REQUEST + "tourBooking with id " + id);
 
-    return new ResponseEntity<TourBooking>(
-        tourBookingService.updateTourBookingById(id, tourBooking),
+    TourBooking updatedTourBooking = tourBookingService.updateTourBookingById(id, tourBooking,
+        EntityTags.expectedVersion(ifMatch));
+    return new ResponseEntity<>(updatedTourBooking, EntityTags.of(updatedTourBooking.getVersion()),
         HttpStatus.OK);
   }
 
+  /**
+   * Changes only the fields of a TourBooking that are present in the request body, e.g.
+   * {@code {"reservedDate": ...}}. At most the new version is read back, so the response has no
+   * body.
+   *
+   * @param id      the id of the TourBooking to be updated.
+   * @param ifMatch the ETag of the version being replaced, to fail with 412 if it changed.
+   * @param patch   the fields to change and their new values.
+   * @return a no content status, if the id exists in the database.
+   */
+  @PatchMapping(value = "/{id}", consumes = {MediaType.APPLICATION_JSON_VALUE,
+      MERGE_PATCH_MEDIA_TYPE})
+  @Operation(summary = "patch TourBooking", description = "Updates only the given fields of a TourBooking",
+      responses = {
+          @ApiResponse(responseCode = "204", description = "TourBooking updated successfully"),
+          @ApiResponse(responseCode = "400", description = "Invalid or unknown TourBooking field"),
+          @ApiResponse(responseCode = "409", description = "Tour code already in use"),
+          @ApiResponse(responseCode = "404", description = "TourBooking not found"),
+          @ApiResponse(responseCode = "412", description = "Stale If-Match version")
+      })
+  public ResponseEntity<TourBooking> patchTourBookingById(@PathVariable Long id,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+      @RequestBody Map<String, Object> patch) {
+    logger.info(new Date() + UPDATE_REQUEST + "tourBooking with id " + id + ", fields " + patch.keySet());
+
+    Long version = tourBookingService.patchTourBookingById(id, patch,
+        EntityTags.expectedVersion(ifMatch));
+    return new ResponseEntity<>(EntityTags.of(version), HttpStatus.NO_CONTENT);
+  }
+
   /**
    * Finds and deletes a TourBooking from the database with the id given by the user.
    *
@@ -1,32 +1,64 @@
 package com.example.ecommerce.controllers;
 
 import static com.example.ecommerce.constants.StringConstants.CONTEXT_TOURS;
+import static com.example.ecommerce.constants.StringConstants.DEFAULT_COMPLETIONS;
+import static com.example.ecommerce.constants.StringConstants.DEFAULT_PAGE_LIMIT;
 import static com.example.ecommerce.constants.StringConstants.DELETE_REQUEST;
+import static com.example.ecommerce.constants.StringConstants.FACET_NUMBER_OF_DAYS;
+import static com.example.ecommerce.constants.StringConstants.FACET_PRICE;
+import static com.example.ecommerce.constants.StringConstants.FACET_RATING;
+import static com.example.ecommerce.constants.StringConstants.FACET_VACCINATIONS;
+import static com.example.ecommerce.constants.StringConstants.MAX_BULK_SIZE;
+import static com.example.ecommerce.constants.StringConstants.MERGE_PATCH_MEDIA_TYPE;
 import static com.example.ecommerce.constants.StringConstants.POST_REQUEST;
 import static com.example.ecommerce.constants.StringConstants.QUERY_REQUEST;
 import static com.example.ecommerce.constants.StringConstants.UPDATE_REQUEST;
 
+import com.example.ecommerce.models.BulkResult;
+import com.example.ecommerce.models.CursorPage;
+import com.example.ecommerce.models.FacetedTours;
+import com.example.ecommerce.models.SeatAvailability;
 import com.example.ecommerce.models.Tour;
+import com.example.ecommerce.models.TourBooking;
+import com.example.ecommerce.models.TourFilter;
+import com.example.ecommerce.services.CatalogSnapshot.Snapshot;
+import com.example.ecommerce.services.CatalogSnapshot;
+import com.example.ecommerce.services.CatalogVersion;
+import com.example.ecommerce.services.SeatInventoryService;
+import com.example.ecommerce.services.TourBookingService;
 import com.example.ecommerce.services.TourService;
 import io.swagger.annotations.Api;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import javax.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @Api(value = "Tour Controller")
@@ -34,34 +66,284 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping(CONTEXT_TOURS)
 public class TourController {
 
+  private static final String GZIP_ENCODING = "gzip";
+
   private final Logger logger = LoggerFactory.getLogger(TourController.class);
 
   @Autowired
   private TourService tourService;
 
+  @Autowired
+  private SeatInventoryService seatInventoryService;
+
+  @Autowired
+  private TourBookingService tourBookingService;
+
+  @Autowired
+  private CatalogVersion catalogVersion;
+
+  @Autowired
+  private CatalogSnapshot catalogSnapshot;
+
+  @Value("${wildlife-tours.catalog.max-age}")
+  private Duration catalogMaxAge;
+
   /**
-   * Queries Tours.
+   * Queries Tours, one keyset page at a time. The cursor of the next page is returned in the
+   * {@code X-Next-Cursor} and {@code Link} headers. The response is tagged with the version of the
+   * whole catalog, so a valid request with a current If-None-Match gets a 304 without any query.
    *
-   * @param tour the Tour(s) matching the user's supplied information.
-   * @return a list of Tours, containing Objects which match the information supplied, or a list of
-   * all Tours if the query is empty.
+   * @param filter      the filters, e.g. {@code minPrice=1000&maxPrice=3000&active=true}; unset
+   *                    ones match any value.
+   * @param after       the id of the last Tour of the previous page, if any.
+   * @param limit       the maximum number of Tours to return.
+   * @param unpaged     opts in to retrieving every matching Tour in a single response.
+   * @param ifNoneMatch the ETag of the client's copy, if any.
+   * @return a list of Tours, containing Objects which match the information supplied, or a
+   * list of all Tours if the query is empty.
    */
   @GetMapping
   @Operation(summary = "Query Tours",
-      description = "get all tours, or tours filtered according to custom query",
+      description = "get all tours, or tours filtered according to custom query"
+          + ", paginated with ?after=<id>&limit=N",
+      responses = {
+          @ApiResponse(responseCode = "200", description = "List of Tours"),
+          @ApiResponse(responseCode = "304", description = "Catalog unchanged since If-None-Match"),
+          @ApiResponse(responseCode = "400", description = "Invalid cursor, limit or filter range")
+      })
+  public ResponseEntity<List<Tour>> queryTours(TourFilter filter,
+      @RequestParam(required = false) Long after,
+      @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+      @RequestParam(defaultValue = "false") boolean unpaged,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    logger.info(new Date() + QUERY_REQUEST + filter.toString());
+
+    // an invalid query is rejected even when the client's copy of the catalog is current
+    tourService.validateQuery(filter, after, limit);
+    HttpHeaders headers = catalogHeaders(catalogVersion.etag());
+    if (EntityTags.isNotModified(ifNoneMatch, headers.getETag())) {
+      return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+    }
+    if (unpaged) {
+      return new ResponseEntity<>(tourService.queryTours(filter), headers, HttpStatus.OK);
+    }
+    CursorPage<Tour> page = tourService.queryTours(filter, after, limit);
+    headers.addAll(PageHeaders.of(page));
+    return new ResponseEntity<>(page.getItems(), headers, HttpStatus.OK);
+  }
+
+  /**
+   * Filters the active Tours by facets, and counts how many Tours each facet value would match.
+   * Several values of one facet match any of them; filters on different facets must all match.
+   * The count of a value applies the filters of the other facets only, so it is the number of
+   * Tours that selecting the value would add or keep. Pages follow the {@code after} cursor like
+   * the other Tour queries.
+   *
+   * @param price        price bands, e.g. {@code 1000-2000} or {@code 5000+}.
+   * @param numberOfDays numbers of days.
+   * @param rating       ratings.
+   * @param vaccinations required vaccinations, matched regardless of case.
+   * @param after        the id of the last Tour of the previous page, if any.
+   * @param limit        the maximum number of Tours to return.
+   * @return one page of the matching Tours, their total, and the counts of every facet value.
+   */
+  @GetMapping("/facets")
+  @Operation(summary = "Query Tours by facets",
+      description = "filter active tours by price band, number of days, rating and required "
+          + "vaccinations, with the tour count of every facet value",
+      responses = {
+          @ApiResponse(responseCode = "200", description = "Matching Tours and facet counts"),
+          @ApiResponse(responseCode = "400", description = "Invalid cursor or limit")
+      })
+  public ResponseEntity<FacetedTours> queryTourFacets(
+      @RequestParam(required = false) List<String> price,
+      @RequestParam(required = false) List<String> numberOfDays,
+      @RequestParam(required = false) List<String> rating,
+      @RequestParam(required = false) List<String> vaccinations,
+      @RequestParam(required = false) Long after,
+      @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit) {
+    Map<String, List<String>> filters = new HashMap<>();
+    filters.put(FACET_PRICE, price);
+    filters.put(FACET_NUMBER_OF_DAYS, numberOfDays);
+    filters.put(FACET_RATING, rating);
+    filters.put(FACET_VACCINATIONS, vaccinations);
+    logger.info(new Date() + QUERY_REQUEST + "tours with facets " + filters);
+
+    FacetedTours page = tourService.queryTourFacets(filters, after, limit);
+    return new ResponseEntity<>(page, PageHeaders.of(page), HttpStatus.OK);
+  }
+
+  /**
+   * Finds the active Tours that a traveler can join, i.e. those whose required vaccinations are
+   * all among the traveler's. Vaccinations match regardless of case. Pages follow the
+   * {@code after} cursor like the other Tour queries.
+   *
+   * @param vaccinations the vaccinations of the traveler; without any, only Tours that require
+   *                     none are eligible.
+   * @param after        the id of the last Tour of the previous page, if any.
+   * @param limit        the maximum number of Tours to return.
+   * @return one page of the eligible Tours.
+   */
+  @GetMapping("/eligible")
+  @Operation(summary = "Query Tours a traveler is eligible for",
+      description = "active tours whose required vaccinations the traveler all has",
+      responses = {
+          @ApiResponse(responseCode = "200", description = "Eligible Tours"),
+          @ApiResponse(responseCode = "400", description = "Invalid vaccinations, cursor or limit")
+      })
+  public ResponseEntity<CursorPage<Tour>> queryEligibleTours(
+      @RequestParam(required = false) List<String> vaccinations,
+      @RequestParam(required = false) Long after,
+      @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit) {
+    logger.info(new Date() + QUERY_REQUEST + "tours eligible with vaccinations " + vaccinations);
+
+    CursorPage<Tour> page = tourService.queryEligibleTours(vaccinations, after, limit);
+    return new ResponseEntity<>(page, PageHeaders.of(page), HttpStatus.OK);
+  }
+
+  /**
+   * Searches the Tours by keywords in their descriptions. Words are matched by their stem, so
+   * "hiking" also finds "hikes", and the results are ranked by BM25 relevance.
+   *
+   * @param q     the keywords; a Tour matches if its description contains any of them.
+   * @param limit the maximum number of Tours to return.
+   * @return the best matching Tours, best match first.
+   */
+  @GetMapping("/search")
+  @Operation(summary = "search Tours",
+      description = "full-text search over tour descriptions, best match first",
+      responses = {
+          @ApiResponse(responseCode = "200", description = "Tours ranked by relevance"),
+          @ApiResponse(responseCode = "400", description = "Blank query or invalid limit")
+      })
+  public ResponseEntity<List<Tour>> searchTours(@RequestParam String q,
+      @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit) {
+    logger.info(new Date() + QUERY_REQUEST + "tours matching " + q);
+
+    return new ResponseEntity<>(tourService.searchTours(q, limit), HttpStatus.OK);
+  }
+
+  /**
+   * Completes the word being typed into a tour search. Served from memory, so it can be called on
+   * every keystroke.
+   *
+   * @param prefix the text typed so far; only its last word is completed.
+   * @param limit  the maximum number of words to return.
+   * @return the words of the tour descriptions that complete the prefix, from the best rated Tours
+   * first.
+   */
+  @GetMapping("/autocomplete")
+  @Operation(summary = "complete Tour search words",
+      description = "type-ahead completion of tour description words, best rated tours first",
+      responses = {
+          @ApiResponse(responseCode = "200", description = "Matching words"),
+          @ApiResponse(responseCode = "400", description = "Blank prefix or invalid limit")
+      })
+  public ResponseEntity<List<String>> completeTourTerms(@RequestParam String prefix,
+      @RequestParam(defaultValue = DEFAULT_COMPLETIONS) int limit) {
+    return new ResponseEntity<>(tourService.completeTourTerms(prefix, limit), HttpStatus.OK);
+  }
+
+  /**
+   * Retrieves every active Tour, sorted by id. The catalog is kept serialized in memory and
+   * written to the response as is, gzip compressed when the client accepts it; it follows tour
+   * changes within moments of their commit.
+   *
+   * @param ifNoneMatch    the ETag of the client's copy, if any.
+   * @param acceptEncoding the encodings the client accepts, if any.
+   * @return the active Tours as a JSON array.
+   */
+  @GetMapping(value = "/catalog", produces = MediaType.APPLICATION_JSON_VALUE)
+  @Operation(summary = "get the Tour catalog",
+      description = "get all active tours, served pre-serialized (gzip on Accept-Encoding)",
+      responses = {
+          @ApiResponse(responseCode = "200", description = "List of active Tours"),
+          @ApiResponse(responseCode = "304", description = "Catalog unchanged since If-None-Match")
+      })
+  public ResponseEntity<byte[]> getCatalog(
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+          String acceptEncoding) {
+    Snapshot snapshot = catalogSnapshot.current();
+    boolean gzip = acceptsGzip(acceptEncoding);
+    HttpHeaders headers = catalogHeaders(gzip ? snapshot.getGzipEtag() : snapshot.getEtag());
+    headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+    if (EntityTags.isNotModified(ifNoneMatch, headers.getETag())) {
+      return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+    }
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    if (gzip) {
+      headers.set(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING);
+      return new ResponseEntity<>(snapshot.getGzip(), headers, HttpStatus.OK);
+    }
+    return new ResponseEntity<>(snapshot.getJson(), headers, HttpStatus.OK);
+  }
+
+  /**
+   * Retrieves the seats left on a Tour for one reserved date. Booked dates are served from the
+   * in-memory seat counters, so polling them does not load the database; other dates are read
+   * from it without adding a counter.
+   *
+   * @param id   the id of the Tour.
+   * @param date the reserved date to check, as yyyy-MM-dd, from today up to the horizon.
+   * @return the capacity and remaining seats of the Tour on that date.
+   */
+  @GetMapping("/{id}/availability")
+  @Operation(summary = "get Tour availability",
+      description = "get the capacity and remaining seats of a tour on a reserved date",
       responses = {
-          @ApiResponse(responseCode = "200", description = "List of Tours")
+          @ApiResponse(responseCode = "200", description = "Seats left on the date"),
+          @ApiResponse(responseCode = "400",
+              description = "Id must be positive and date between today and the horizon"),
+          @ApiResponse(responseCode = "404", description = "Tour with given id not found")
+      })
+  public ResponseEntity<SeatAvailability> getAvailability(@PathVariable Long id,
+      @RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate date) {
+    logger.info(new Date() + QUERY_REQUEST + "availability of tour " + id + " on " + date);
+
+    return new ResponseEntity<>(seatInventoryService.getAvailability(id, date), HttpStatus.OK);
+  }
+
+  /**
+   * Queries the TourBookings of one Tour, optionally within a range of reserved dates, one keyset
+   * page at a time. The cursor of the next page is returned in the {@code X-Next-Cursor} and
+   * {@code Link} headers.
+   *
+   * @param id    the id of the Tour.
+   * @param from  the first reserved date to include (yyyy-MM-dd), if any.
+   * @param to    the last reserved date to include (yyyy-MM-dd), if any.
+   * @param after the id of the last TourBooking of the previous page, if any.
+   * @param limit the maximum number of TourBookings to return.
+   * @return a list of the TourBookings of the Tour.
+   */
+  @GetMapping("/{id}/bookings")
+  @Operation(summary = "Query the TourBookings of a Tour",
+      description = "get the tourBookings of one tour, optionally between two reserved dates"
+          + ", paginated with ?after=<id>&limit=N",
+      responses = {
+          @ApiResponse(responseCode = "200", description = "List of TourBookings"),
+          @ApiResponse(responseCode = "400", description = "Invalid id, dates, cursor or limit"),
+          @ApiResponse(responseCode = "404", description = "Tour with given id not found")
       })
-  public ResponseEntity<List<Tour>> queryTours(Tour tour) {
-    logger.info(new Date() + QUERY_REQUEST + tour.toString());
+  public ResponseEntity<List<TourBooking>> queryTourBookings(@PathVariable Long id,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate to,
+      @RequestParam(required = false) Long after,
+      @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit) {
+    logger.info(new Date() + QUERY_REQUEST + "tourBookings of tour " + id + " from " + from
+        + " to " + to);
 
-    return new ResponseEntity<>(tourService.queryTours(tour), HttpStatus.OK);
+    CursorPage<TourBooking> page = tourBookingService.queryTourBookingsOfTour(id, from, to, after,
+        limit);
+    return new ResponseEntity<>(page.getItems(), PageHeaders.of(page), HttpStatus.OK);
   }
 
   /**
-   * Retrieves the Tour tht has the given id.
+   * Retrieves the Tour tht has the given id. The Tour comes from the tours cache, and a request
+   * with a current If-None-Match gets a 304 without the Tour being serialized.
    *
-   * @param id the id of the Tour to be retrieved.
+   * @param id          the id of the Tour to be retrieved.
+   * @param ifNoneMatch the ETag of the client's copy, if any.
    * @return a Tour Object with the given id, if it exists.
    */
   @GetMapping("/{id}")
@@ -72,13 +354,20 @@ public class TourController {
       },
       responses = {
           @ApiResponse(responseCode = "200", description = "Tour with identical id"),
+          @ApiResponse(responseCode = "304", description = "Tour unchanged since If-None-Match"),
           @ApiResponse(responseCode = "400", description = "Id must be positive"),
           @ApiResponse(responseCode = "404", description = "Tour with given id not found")
       })
-  public ResponseEntity<Tour> getTourById(@PathVariable Long id) {
+  public ResponseEntity<Tour> getTourById(@PathVariable Long id,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
     logger.info(new Date() + QUERY_REQUEST + "tour with id " + id);
 
-    return new ResponseEntity<>(tourService.getTourById(id), HttpStatus.OK);
+    Tour tour = tourService.getTourById(id);
+    HttpHeaders headers = catalogHeaders(EntityTags.of(tour.getVersion()).getETag());
+    if (EntityTags.isNotModified(ifNoneMatch, headers.getETag())) {
+      return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+    }
+    return new ResponseEntity<>(tour, headers, HttpStatus.OK);
   }
 
   /**
@@ -99,29 +388,85 @@ public class TourController {
     return new ResponseEntity<Tour>(tourService.addTour(tour), HttpStatus.CREATED);
   }
 
+  /**
+   * Saves many Tours at once, e.g. a seasonal catalog. Each Tour is validated on its own; the
+   * valid ones are saved in one transaction and the invalid ones are reported with their errors.
+   *
+   * @param tours the Tours to be saved.
+   * @return the outcome of every Tour, in request order.
+   */
+  @PostMapping("/bulk")
+  @Operation(summary = "post Tours in bulk",
+      description = "Creates up to " + MAX_BULK_SIZE + " tours, with a result per tour",
+      responses = {
+          @ApiResponse(responseCode = "201", description = "All Tours created"),
+          @ApiResponse(responseCode = "207", description = "Some Tours rejected, see results"),
+          @ApiResponse(responseCode = "400", description = "Empty or oversized request")
+      })
+  public ResponseEntity<BulkResult<Tour>> postTours(@RequestBody List<Tour> tours) {
+    logger.info(new Date() + POST_REQUEST + tours.size() + " tours");
+
+    BulkResult<Tour> result = tourService.addTours(tours);
+    return new ResponseEntity<>(result,
+        result.getRejected() == 0 ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS);
+  }
+
   /**
    * Finds and replaces a Tour Object with another, based on the id and data/state supplied by the
    * user.
    *
-   * @param id   the id of the Tour to be updated.
-   * @param tour the Tour data which will replace the old Tour data.
-   * @return the successfully updated Tour
+   * @param id      the id of the Tour to be updated.
+   * @param ifMatch the ETag of the version being replaced, to fail with 412 if it changed.
+   * @param tour    the Tour data which will replace the old Tour data.
+   * @return the successfully updated Tour, with the ETag of its new version.
    */
   @PutMapping("/{id}")
   @Operation(summary = "put Tour", description = "Updates a Tour based on the request body",
       responses = {
           @ApiResponse(responseCode = "200", description = "Tour updated successfully"),
           @ApiResponse(responseCode = "400", description = "Invalid Tour data"),
-          @ApiResponse(responseCode = "404", description = "Tour not found")
+          @ApiResponse(responseCode = "404", description = "Tour not found"),
+          @ApiResponse(responseCode = "412", description = "Stale If-Match version")
       })
   public ResponseEntity<Tour> updateTourById(@PathVariable Long id,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
       @Valid @RequestBody Tour tour) {
     logger.info(new Date() + UPDATE_REQUEST + "tour with id " + id);
 
-    return new ResponseEntity<Tour>(tourService.updateTourById(id, tour),
+    Tour updatedTour = tourService.updateTourById(id, tour,
+        EntityTags.expectedVersion(ifMatch));
+    return new ResponseEntity<>(updatedTour, EntityTags.of(updatedTour.getVersion()),
         HttpStatus.OK);
   }
 
+  /**
+   * Changes only the fields of a Tour that are present in the request body, e.g.
+   * {@code {"price": ...}}. At most the new version is read back, so the response has no body.
+   *
+   * @param id      the id of the Tour to be updated.
+   * @param ifMatch the ETag of the version being replaced, to fail with 412 if it changed.
+   * @param patch   the fields to change and their new values.
+   * @return a no content status with the ETag of the new version, if the id exists in the
+   * database.
+   */
+  @PatchMapping(value = "/{id}", consumes = {MediaType.APPLICATION_JSON_VALUE,
+      MERGE_PATCH_MEDIA_TYPE})
+  @Operation(summary = "patch Tour", description = "Updates only the given fields of a Tour",
+      responses = {
+          @ApiResponse(responseCode = "204", description = "Tour updated successfully"),
+          @ApiResponse(responseCode = "400", description = "Invalid or unknown Tour field"),
+          @ApiResponse(responseCode = "404", description = "Tour not found"),
+          @ApiResponse(responseCode = "412", description = "Stale If-Match version")
+      })
+  public ResponseEntity<Tour> patchTourById(@PathVariable Long id,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+      @RequestBody Map<String, Object> patch) {
+    logger.info(new Date() + UPDATE_REQUEST + "tour with id " + id + ", fields " + patch.keySet());
+
+    Long version = tourService.patchTourById(id, patch, EntityTags.expectedVersion(ifMatch));
+    return new ResponseEntity<>(EntityTags.of(version), HttpStatus.NO_CONTENT);
+  }
+
   /**
    * Finds and deletes a Tour from the database with the id given by the user.
    *
@@ -133,7 +478,8 @@ public class TourController {
       responses = {
           @ApiResponse(responseCode = "204", description = "No Content. Tour deleted"),
           @ApiResponse(responseCode = "404", description = "Tour not found"),
-          @ApiResponse(responseCode = "400", description = "id must be positive")
+          @ApiResponse(responseCode = "400", description = "id must be positive"),
+          @ApiResponse(responseCode = "409", description = "Tour has bookings")
       })
   public ResponseEntity<Tour> deleteTourById(@PathVariable Long id) {
     logger.info(new Date() + DELETE_REQUEST + "tour with id " + id);
@@ -141,4 +487,27 @@ public class TourController {
     tourService.deleteTourById(id);
     return new ResponseEntity<>(HttpStatus.NO_CONTENT);
   }
+
+  // the catalog is public and the same for every caller, so shared caches may keep it too
+  private HttpHeaders catalogHeaders(String etag) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setETag(etag);
+    headers.setCacheControl(CacheControl.maxAge(catalogMaxAge).cachePublic());
+    return headers;
+  }
+
+  // true if gzip (or any encoding) is listed without q=0
+  private static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.split(";");
+      String name = parts[0].trim();
+      if (name.equalsIgnoreCase(GZIP_ENCODING) || name.equals("*")) {
+        return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+      }
+    }
+    return false;
+  }
 }
@@ -1,12 +1,16 @@
 package com.example.ecommerce.controllers;
 
 import static com.example.ecommerce.constants.StringConstants.CONTEXT_USER_ACCOUNTS;
+import static com.example.ecommerce.constants.StringConstants.DEFAULT_PAGE_LIMIT;
 import static com.example.ecommerce.constants.StringConstants.DELETE_REQUEST;
+import static com.example.ecommerce.constants.StringConstants.MERGE_PATCH_MEDIA_TYPE;
 import static com.example.ecommerce.constants.StringConstants.POST_REQUEST;
 import static com.example.ecommerce.constants.StringConstants.QUERY_REQUEST;
 import static com.example.ecommerce.constants.StringConstants.UPDATE_REQUEST;
 
+import com.example.ecommerce.models.CursorPage;
 import com.example.ecommerce.models.UserAccount;
+import com.example.ecommerce.models.UserAccountFilter;
 import com.example.ecommerce.services.UserAccountService;
 import io.swagger.annotations.Api;
 import io.swagger.v3.oas.annotations.Operation;
@@ -14,19 +18,25 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import javax.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @Api(value = "UserAccount account Controller")
@@ -41,22 +51,35 @@ public class UserAccountController {
   private UserAccountService userAccountService;
 
   /**
-   * Queries UserAccounts.
+   * Queries UserAccounts, one keyset page at a time. The cursor of the next page is returned in the
+   * {@code X-Next-Cursor} and {@code Link} headers.
    *
-   * @param userAccount the UserAccount(s) matching the userAccount's supplied information.
+   * @param filter      the filters on UserAccount fields; unset ones match any value.
+   * @param after       the id of the last UserAccount of the previous page, if any.
+   * @param limit       the maximum number of UserAccounts to return.
+   * @param unpaged     opts in to retrieving every matching UserAccount in a single response.
    * @return a list of UserAccounts, containing Objects which match the information supplied, or a
    * list of all UserAccounts if the query is empty.
    */
   @GetMapping
   @Operation(summary = "Query UserAccounts",
-      description = "get all userAccounts, or userAccounts filtered according to custom query",
+      description = "get all userAccounts, or userAccounts filtered according to custom query"
+          + ", paginated with ?after=<id>&limit=N",
       responses = {
-          @ApiResponse(responseCode = "200", description = "List of UserAccounts")
+          @ApiResponse(responseCode = "200", description = "List of UserAccounts"),
+          @ApiResponse(responseCode = "400", description = "Invalid cursor or limit")
       })
-  public ResponseEntity<List<UserAccount>> queryUserAccounts(UserAccount userAccount) {
-    logger.info(new Date() + QUERY_REQUEST + userAccount.toString());
+  public ResponseEntity<List<UserAccount>> queryUserAccounts(UserAccountFilter filter,
+      @RequestParam(required = false) Long after,
+      @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+      @RequestParam(defaultValue = "false") boolean unpaged) {
+    logger.info(new Date() + QUERY_REQUEST + filter.toString());
 
-    return new ResponseEntity<>(userAccountService.queryUserAccounts(userAccount), HttpStatus.OK);
+    if (unpaged) {
+      return new ResponseEntity<>(userAccountService.queryUserAccounts(filter), HttpStatus.OK);
+    }
+    CursorPage<UserAccount> page = userAccountService.queryUserAccounts(filter, after, limit);
+    return new ResponseEntity<>(page.getItems(), PageHeaders.of(page), HttpStatus.OK);
   }
 
   /**
@@ -79,7 +102,9 @@ public class UserAccountController {
   public ResponseEntity<UserAccount> getUserAccountById(@PathVariable Long id) {
     logger.info(new Date() + QUERY_REQUEST + "userAccount with id " + id);
 
-    return new ResponseEntity<>(userAccountService.getUserAccountById(id), HttpStatus.OK);
+    UserAccount userAccount = userAccountService.getUserAccountById(id);
+    return new ResponseEntity<>(userAccount, EntityTags.of(userAccount.getVersion()),
+        HttpStatus.OK);
   }
 
   /**
@@ -106,6 +131,7 @@ public class UserAccountController {
    * by the userAccount.
    *
    * @param id          the id of the UserAccount to be updated.
+   * @param ifMatch     the ETag of the version being replaced, to fail with 412 if it changed.
    * @param userAccount the UserAccount data which will replace the old UserAccount data.
    * @return the successfully updated UserAccount
    */
@@ -114,17 +140,49 @@ public class UserAccountController {
       responses = {
           @ApiResponse(responseCode = "200", description = "UserAccount updated successfully"),
           @ApiResponse(responseCode = "400", description = "Invalid UserAccount data"),
-          @ApiResponse(responseCode = "404", description = "UserAccount not found")
+          @ApiResponse(responseCode = "404", description = "UserAccount not found"),
+          @ApiResponse(responseCode = "412", description = "Stale If-Match version")
       })
   public ResponseEntity<UserAccount> updateUserAccountById(@PathVariable Long id,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
       @Valid @RequestBody UserAccount userAccount) {
     logger.info(new Date() + UPDATE_REQUEST + "userAccount with id " + id);
 
-    return new ResponseEntity<UserAccount>(
-        userAccountService.updateUserAccountById(id, userAccount),
+    UserAccount updatedUserAccount = userAccountService.updateUserAccountById(id, userAccount,
+        EntityTags.expectedVersion(ifMatch));
+    return new ResponseEntity<>(updatedUserAccount, EntityTags.of(updatedUserAccount.getVersion()),
         HttpStatus.OK);
   }
 
+  /**
+   * Changes only the fields of a UserAccount that are present in the request body, e.g.
+   * {@code {"active": ...}}. At most the new version is read back, so the response has no body.
+   *
+   * @param id      the id of the UserAccount to be updated.
+   * @param ifMatch the ETag of the version being replaced, to fail with 412 if it changed.
+   * @param patch   the fields to change and their new values.
+   * @return a no content status, if the id exists in the database.
+   */
+  @PatchMapping(value = "/{id}", consumes = {MediaType.APPLICATION_JSON_VALUE,
+      MERGE_PATCH_MEDIA_TYPE})
+  @Operation(summary = "patch UserAccount", description = "Updates only the given fields of a UserAccount",
+      responses = {
+          @ApiResponse(responseCode = "204", description = "UserAccount updated successfully"),
+          @ApiResponse(responseCode = "400", description = "Invalid or unknown UserAccount field"),
+          @ApiResponse(responseCode = "409", description = "Username already in use"),
+          @ApiResponse(responseCode = "404", description = "UserAccount not found"),
+          @ApiResponse(responseCode = "412", description = "Stale If-Match version")
+      })
+  public ResponseEntity<UserAccount> patchUserAccountById(@PathVariable Long id,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+      @RequestBody Map<String, Object> patch) {
+    logger.info(new Date() + UPDATE_REQUEST + "userAccount with id " + id + ", fields " + patch.keySet());
+
+    Long version = userAccountService.patchUserAccountById(id, patch,
+        EntityTags.expectedVersion(ifMatch));
+    return new ResponseEntity<>(EntityTags.of(version), HttpStatus.NO_CONTENT);
+  }
+
   /**
    * Finds and deletes a UserAccount from the database with the id given by the userAccount.
    *
@@ -1,12 +1,16 @@
 package com.example.ecommerce.controllers;
 
 import static com.example.ecommerce.constants.StringConstants.CONTEXT_USERS;
+import static com.example.ecommerce.constants.StringConstants.DEFAULT_PAGE_LIMIT;
 import static com.example.ecommerce.constants.StringConstants.DELETE_REQUEST;
+import static com.example.ecommerce.constants.StringConstants.MERGE_PATCH_MEDIA_TYPE;
 import static com.example.ecommerce.constants.StringConstants.POST_REQUEST;
 import static com.example.ecommerce.constants.StringConstants.QUERY_REQUEST;
 import static com.example.ecommerce.constants.StringConstants.UPDATE_REQUEST;
 
+import com.example.ecommerce.models.CursorPage;
 import com.example.ecommerce.models.User;
+import com.example.ecommerce.models.UserFilter;
 import com.example.ecommerce.services.UserService;
 import io.swagger.annotations.Api;
 import io.swagger.v3.oas.annotations.Operation;
@@ -14,19 +18,25 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import javax.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
@@ -45,22 +55,35 @@ public class UserController {
   private UserService userService;
 
   /**
-   * Queries Users.
+   * Queries Users, one keyset page at a time. The cursor of the next page is returned in the
+   * {@code X-Next-Cursor} and {@code Link} headers.
    *
-   * @param user the User(s) matching the user's supplied information.
-   * @return a list of Users, containing Objects which match the information supplied, or a list of
-   * all Users if the query is empty.
+   * @param filter  the filters on User fields; unset ones match any value.
+   * @param after   the id of the last User of the previous page, if any.
+   * @param limit   the maximum number of Users to return.
+   * @param unpaged opts in to retrieving every matching User in a single response.
+   * @return a list of Users, containing Objects which match the information supplied, or a
+   * list of all Users if the query is empty.
    */
   @GetMapping
   @Operation(summary = "Query Users",
-      description = "get all users, or users filtered according to custom query",
+      description = "get all users, or users filtered according to custom query"
+          + ", paginated with ?after=<id>&limit=N",
       responses = {
-          @ApiResponse(responseCode = "200", description = "List of Users")
+          @ApiResponse(responseCode = "200", description = "List of Users"),
+          @ApiResponse(responseCode = "400", description = "Invalid cursor or limit")
       })
-  public ResponseEntity<List<User>> queryUsers(User user) {
-    logger.info(new Date() + QUERY_REQUEST + user.toString());
+  public ResponseEntity<List<User>> queryUsers(UserFilter filter,
+      @RequestParam(required = false) Long after,
+      @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+      @RequestParam(defaultValue = "false") boolean unpaged) {
+    logger.info(new Date() + QUERY_REQUEST + filter.toString());
 
-    return new ResponseEntity<>(userService.queryUsers(user), HttpStatus.OK);
+    if (unpaged) {
+      return new ResponseEntity<>(userService.queryUsers(filter), HttpStatus.OK);
+    }
+    CursorPage<User> page = userService.queryUsers(filter, after, limit);
+    return new ResponseEntity<>(page.getItems(), PageHeaders.of(page), HttpStatus.OK);
   }
 
   /**
@@ -83,7 +106,8 @@ public class UserController {
   public ResponseEntity<User> getUserById(@PathVariable Long id) {
     logger.info(new Date() + QUERY_REQUEST + "user with id " + id);
 
-    return new ResponseEntity<>(userService.getUserById(id), HttpStatus.OK);
+    User user = userService.getUserById(id);
+    return new ResponseEntity<>(user, EntityTags.of(user.getVersion()), HttpStatus.OK);
   }
 
   /**
@@ -109,8 +133,9 @@ public class UserController {
    * Finds and replaces a User Object with another, based on the id and data/state supplied by the
    * user.
    *
-   * @param id   the id of the User to be updated.
-   * @param user the User data which will replace the old User data.
+   * @param id      the id of the User to be updated.
+   * @param ifMatch the ETag of the version being replaced, to fail with 412 if it changed.
+   * @param user    the User data which will replace the old User data.
    * @return the successfully updated User
    */
   @PutMapping("/{id}")
@@ -119,16 +144,48 @@ public class UserController {
           @ApiResponse(responseCode = "200", description = "User updated successfully"),
           @ApiResponse(responseCode = "400", description = "Invalid User data"),
           @ApiResponse(responseCode = "409", description = "User email already in use"),
-          @ApiResponse(responseCode = "404", description = "User not found")
+          @ApiResponse(responseCode = "404", description = "User not found"),
+          @ApiResponse(responseCode = "412", description = "Stale If-Match version")
       })
   public ResponseEntity<User> updateUserById(@PathVariable Long id,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
       @Valid @RequestBody User user) {
     logger.info(new Date() + UPDATE_REQUEST + "user with id " + id);
 
-    return new ResponseEntity<User>(userService.updateUserById(id, user),
+    User updatedUser = userService.updateUserById(id, user,
+        EntityTags.expectedVersion(ifMatch));
+    return new ResponseEntity<>(updatedUser, EntityTags.of(updatedUser.getVersion()),
         HttpStatus.OK);
   }
 
+  /**
+   * Changes only the fields of a User that are present in the request body, e.g.
+   * {@code {"title": ...}}. At most the new version is read back, so the response has no body.
+   *
+   * @param id      the id of the User to be updated.
+   * @param ifMatch the ETag of the version being replaced, to fail with 412 if it changed.
+   * @param patch   the fields to change and their new values.
+   * @return a no content status, if the id exists in the database.
+   */
+  @PatchMapping(value = "/{id}", consumes = {MediaType.APPLICATION_JSON_VALUE,
+      MERGE_PATCH_MEDIA_TYPE})
+  @Operation(summary = "patch User", description = "Updates only the given fields of a User",
+      responses = {
+          @ApiResponse(responseCode = "204", description = "User updated successfully"),
+          @ApiResponse(responseCode = "400", description = "Invalid or unknown User field"),
+          @ApiResponse(responseCode = "409", description = "User email already in use"),
+          @ApiResponse(responseCode = "404", description = "User not found"),
+          @ApiResponse(responseCode = "412", description = "Stale If-Match version")
+      })
+  public ResponseEntity<User> patchUserById(@PathVariable Long id,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+      @RequestBody Map<String, Object> patch) {
+    logger.info(new Date() + UPDATE_REQUEST + "user with id " + id + ", fields " + patch.keySet());
+
+    Long version = userService.patchUserById(id, patch, EntityTags.expectedVersion(ifMatch));
+    return new ResponseEntity<>(EntityTags.of(version), HttpStatus.NO_CONTENT);
+  }
+
   /**
    * Finds and deletes a User from the database with the id given by the user.
    *
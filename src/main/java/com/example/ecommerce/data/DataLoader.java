@@ -19,6 +19,7 @@ import com.example.ecommerce.repositories.UserRepository;
 import java.math.BigDecimal;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -87,12 +88,11 @@ public class DataLoader implements CommandLineRunner {
   }
   
   private void loadTours() {
-    tourRepository.save(
+    tourRepository.saveAll(List.of(
         new Tour(10, new String[]{},
-            "description", BigDecimal.valueOf(2099.99), 5, true));
-    tourRepository.save(
+            "description", BigDecimal.valueOf(2099.99), 5, true),
         new Tour(10, new String[]{"TB"},
-            "description", BigDecimal.valueOf(2099.99), 5, true));
+            "description", BigDecimal.valueOf(2099.99), 5, true)));
   }
 
   private void loadTourBookings() {
@@ -102,38 +102,37 @@ public class DataLoader implements CommandLineRunner {
   }
 
   private void loadCustomers() {
-    customer = customerRepository.save(
-        new Customer("Lucy Vrombaut", "lvrombaut@hotmail.com", addressOne));
-    customerTwo = customerRepository.save(
-        new Customer("Arthur Reed", "a_reed@student.uml.edu", addressTwo));
-    customerThree = customerRepository.save(
-        new Customer("Spongebob Squarepants", "imready@krustykrab.com", addressThree));
-    customerFour = customerRepository.save(
-        new Customer("Timmy Turner", "timothy_turner@outlook.com", addressFour));
-
+    List<Customer> customers = customerRepository.saveAll(List.of(
+        new Customer("Lucy Vrombaut", "lvrombaut@hotmail.com", addressOne),
+        new Customer("Arthur Reed", "a_reed@student.uml.edu", addressTwo),
+        new Customer("Spongebob Squarepants", "imready@krustykrab.com", addressThree),
+        new Customer("Timmy Turner", "timothy_turner@outlook.com", addressFour)));
+    customer = customers.get(0);
+    customerTwo = customers.get(1);
+    customerThree = customers.get(2);
+    customerFour = customers.get(3);
   }
 
   private void loadUsers() { //todo possibly replace user and customer with useraccount?
-    user = userRepository.save(
+    List<User> users = userRepository.saveAll(List.of(
         new User("Claire Redfield", "employee", EMPLOYEE, "credfield@ecommerce.com",
-            "password12345"));
-    userTwo = userRepository.save(
+            "password12345"),
         new User("Colby Jack", "employee", EMPLOYEE, "cheesewizard@ecommerce.com",
-            "pastrami25"));
-    userThree = userRepository.save(
+            "pastrami25"),
         new User("Duragin Fohrs", "Systems Administrator", ADMIN,
-            "dfohrs@ecommerce.com", "theseventhseal1"));
-    userFour = userRepository.save(
+            "dfohrs@ecommerce.com", "theseventhseal1"),
         new User("Michael Scott", "Boss", ADMIN, "mscott@ecommerce.com",
-            "supersecretpassword1!"));
+            "supersecretpassword1!")));
+    user = users.get(0);
+    userTwo = users.get(1);
+    userThree = users.get(2);
+    userFour = users.get(3);
 
     String encodedPassword = bCryptPasswordEncoder.encode("password");
-    UserAccount userAccount = userAccountRepository.save(
-        new UserAccount("user", encodedPassword, true, ADMIN));
-    UserAccount userAccountTwo = userAccountRepository.save(
-        new UserAccount("userTwo", encodedPassword, true, EMPLOYEE));
-    UserAccount userAccountThree = userAccountRepository.save(
-        new UserAccount("user", encodedPassword, true, BASIC_USER));
+    userAccountRepository.saveAll(List.of(
+        new UserAccount("user", encodedPassword, true, ADMIN),
+        new UserAccount("userTwo", encodedPassword, true, EMPLOYEE),
+        new UserAccount("userThree", encodedPassword, true, BASIC_USER)));
   }
 
 
@@ -5,8 +5,10 @@ import static com.example.ecommerce.constants.StringConstants.BAD_DATA;
 import static com.example.ecommerce.constants.StringConstants.BAD_REQUEST;
 import static com.example.ecommerce.constants.StringConstants.CONFLICT;
 import static com.example.ecommerce.constants.StringConstants.NOT_FOUND;
+import static com.example.ecommerce.constants.StringConstants.PRECONDITION_FAILED;
 import static com.example.ecommerce.constants.StringConstants.SERVER_ERROR;
 import static com.example.ecommerce.constants.StringConstants.UNEXPECTED_ERROR;
+import static com.example.ecommerce.constants.StringConstants.UNPROCESSABLE_ENTITY;
 import static com.example.ecommerce.constants.StringConstants.VALIDATION_ERROR;
 
 import java.util.ArrayList;
@@ -81,6 +83,22 @@ public class ExceptionController {
     return new ResponseEntity<>(response, HttpStatus.CONFLICT);
   }
 
+  @ExceptionHandler(UnprocessableEntity.class)
+  protected ResponseEntity<ExceptionResponse> unprocessableEntity(UnprocessableEntity exception) {
+    ExceptionResponse response = new ExceptionResponse(UNPROCESSABLE_ENTITY, new Date(),
+        exception.getMessage());
+
+    return new ResponseEntity<>(response, HttpStatus.UNPROCESSABLE_ENTITY);
+  }
+
+  @ExceptionHandler(PreconditionFailed.class)
+  protected ResponseEntity<ExceptionResponse> preconditionFailed(PreconditionFailed exception) {
+    ExceptionResponse response = new ExceptionResponse(PRECONDITION_FAILED, new Date(),
+        exception.getMessage());
+
+    return new ResponseEntity<>(response, HttpStatus.PRECONDITION_FAILED);
+  }
+
   @ExceptionHandler(BadCredentialsException.class)
   protected ResponseEntity<ExceptionResponse> badCredentials(BadCredentialsException exception) {
     ExceptionResponse response = new ExceptionResponse(BAD_CREDENTIALS, new Date(),
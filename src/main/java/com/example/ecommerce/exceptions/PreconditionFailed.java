@@ -0,0 +1,12 @@
+package com.example.ecommerce.exceptions;
+
+/**
+ * This class contains custom exception info to be incorporated in the Exception Controller.
+ */
+public class PreconditionFailed extends RuntimeException {
+
+  public PreconditionFailed(String message) {
+    super(message);
+  }
+
+}
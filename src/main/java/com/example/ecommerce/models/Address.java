@@ -3,7 +3,6 @@ package com.example.ecommerce.models;
 import static com.example.ecommerce.constants.StringConstants.REQUIRED_FIELD;
 
 import com.example.ecommerce.validators.State;
-import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.Objects;
 import javax.persistence.Embeddable;
 import javax.persistence.Table;
@@ -102,13 +101,4 @@ public class Address {
   public int hashCode() {
     return Objects.hash(street, city, state, zipcode);
   }
-
-  @JsonIgnore
-  public boolean isEmpty() {
-    return
-        Objects.isNull(street) &&
-            Objects.isNull(city) &&
-            Objects.isNull(state) &&
-            Objects.isNull(zipcode);
-  }
 }
@@ -0,0 +1,125 @@
+package com.example.ecommerce.models;
+
+import static com.example.ecommerce.constants.StringConstants.ID_ALLOCATION_SIZE;
+import static com.example.ecommerce.constants.StringConstants.REQUIRED_FIELD;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonProperty.Access;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.OptBoolean;
+import java.util.Date;
+import java.util.Objects;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+
+/**
+ * This class holds a seat on a tour date for a limited time, e.g. while a payment completes. A
+ * hold only exists until it is confirmed into a TourBooking, released or expired, and only the user
+ * who placed it, or an admin or employee, may confirm or release it.
+ */
+@Entity
+@Table(name = "booking_holds", indexes =
+    // serves the count of a user's outstanding holds
+    @Index(name = "booking_holds_username_expires_at_idx", columnList = "username, expiresAt"))
+public class BookingHold {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "booking_holds_seq")
+  @SequenceGenerator(name = "booking_holds_seq", sequenceName = "booking_holds_seq",
+      allocationSize = ID_ALLOCATION_SIZE)
+  private Long id;
+  @NotNull(message = "Tour id " + REQUIRED_FIELD)
+  private Long tourId;
+  @NotNull(message = "Reserved date " + REQUIRED_FIELD)
+  @JsonFormat(pattern = "yyyy-MM-dd", lenient = OptBoolean.FALSE)
+  private Date reservedDate;
+  @JsonProperty(access = Access.READ_ONLY)
+  private Date expiresAt;
+  @JsonProperty(access = Access.READ_ONLY)
+  private String username;
+
+  public BookingHold() {
+  }
+
+  public BookingHold(Long tourId, Date reservedDate, Date expiresAt) {
+    this.tourId = tourId;
+    this.reservedDate = reservedDate;
+    this.expiresAt = expiresAt;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public Long getTourId() {
+    return tourId;
+  }
+
+  public void setTourId(Long tourId) {
+    this.tourId = tourId;
+  }
+
+  public Date getReservedDate() {
+    return reservedDate;
+  }
+
+  public void setReservedDate(Date reservedDate) {
+    this.reservedDate = reservedDate;
+  }
+
+  public Date getExpiresAt() {
+    return expiresAt;
+  }
+
+  public void setExpiresAt(Date expiresAt) {
+    this.expiresAt = expiresAt;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public void setUsername(String username) {
+    this.username = username;
+  }
+
+  @Override
+  public String toString() {
+    return "BookingHold{" +
+        "id=" + id +
+        ", tourId=" + tourId +
+        ", reservedDate=" + reservedDate +
+        ", expiresAt=" + expiresAt +
+        ", username='" + username + '\'' +
+        '}';
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    BookingHold that = (BookingHold) o;
+    return Objects.equals(id, that.id) && Objects.equals(tourId, that.tourId)
+        && Objects.equals(reservedDate, that.reservedDate) && Objects.equals(expiresAt,
+        that.expiresAt) && Objects.equals(username, that.username);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(id, tourId, reservedDate, expiresAt, username);
+  }
+}
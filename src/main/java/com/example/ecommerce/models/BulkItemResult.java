@@ -0,0 +1,77 @@
+package com.example.ecommerce.models;
+
+import java.util.List;
+
+/**
+ * This class reports the outcome of one item of a bulk request: the HTTP status the item would
+ * have received on its own, the saved item if it was created, or the reasons it was rejected.
+ *
+ * @param <T> the type of the items.
+ */
+public class BulkItemResult<T> {
+
+  private int index;
+  private int status;
+  private T item;
+  private List<String> errors;
+
+  public BulkItemResult() {
+  }
+
+  public BulkItemResult(int index, int status, T item, List<String> errors) {
+    this.index = index;
+    this.status = status;
+    this.item = item;
+    this.errors = errors;
+  }
+
+  public static <T> BulkItemResult<T> created(int index, T item) {
+    return new BulkItemResult<>(index, 201, item, List.of());
+  }
+
+  public static <T> BulkItemResult<T> rejected(int index, int status, List<String> errors) {
+    return new BulkItemResult<>(index, status, null, errors);
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public void setIndex(int index) {
+    this.index = index;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+
+  public void setStatus(int status) {
+    this.status = status;
+  }
+
+  public T getItem() {
+    return item;
+  }
+
+  public void setItem(T item) {
+    this.item = item;
+  }
+
+  public List<String> getErrors() {
+    return errors;
+  }
+
+  public void setErrors(List<String> errors) {
+    this.errors = errors;
+  }
+
+  @Override
+  public String toString() {
+    return "BulkItemResult{" +
+        "index=" + index +
+        ", status=" + status +
+        ", item=" + item +
+        ", errors=" + errors +
+        '}';
+  }
+}
@@ -0,0 +1,58 @@
+package com.example.ecommerce.models;
+
+import java.util.List;
+
+/**
+ * This class contains the per-item report of a bulk create request, in the order of the request
+ * body, with the number of created and rejected items.
+ *
+ * @param <T> the type of the items.
+ */
+public class BulkResult<T> {
+
+  private int created;
+  private int rejected;
+  private List<BulkItemResult<T>> results;
+
+  public BulkResult() {
+  }
+
+  public BulkResult(List<BulkItemResult<T>> results) {
+    this.results = results;
+    this.created = (int) results.stream().filter(result -> result.getItem() != null).count();
+    this.rejected = results.size() - created;
+  }
+
+  public int getCreated() {
+    return created;
+  }
+
+  public void setCreated(int created) {
+    this.created = created;
+  }
+
+  public int getRejected() {
+    return rejected;
+  }
+
+  public void setRejected(int rejected) {
+    this.rejected = rejected;
+  }
+
+  public List<BulkItemResult<T>> getResults() {
+    return results;
+  }
+
+  public void setResults(List<BulkItemResult<T>> results) {
+    this.results = results;
+  }
+
+  @Override
+  public String toString() {
+    return "BulkResult{" +
+        "created=" + created +
+        ", rejected=" + rejected +
+        ", results=" + results +
+        '}';
+  }
+}
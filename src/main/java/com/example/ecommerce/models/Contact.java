@@ -3,7 +3,6 @@ package com.example.ecommerce.models;
 import static com.example.ecommerce.constants.StringConstants.REQUIRED_FIELD;
 
 import com.example.ecommerce.validators.Phone;
-import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.Objects;
 import javax.persistence.Embeddable;
 import javax.persistence.Table;
@@ -101,13 +100,4 @@ public class Contact {
   public int hashCode() {
     return Objects.hash(firstName, lastName, phoneNo, email);
   }
-
-  @JsonIgnore
-  public boolean isEmpty() {
-    return
-        Objects.isNull(firstName) &&
-            Objects.isNull(lastName) &&
-            Objects.isNull(phoneNo) &&
-            Objects.isNull(email);
-  }
 }
@@ -0,0 +1,51 @@
+package com.example.ecommerce.models;
+
+import java.util.List;
+
+/**
+ * This class contains one page of a keyset (cursor) paginated query: the items of the page, and
+ * the id to pass as the 'after' cursor to fetch the next page, if there is one.
+ */
+public class CursorPage<T> {
+
+  private List<T> items;
+  private Long nextCursor;
+  private int limit;
+
+  public CursorPage() {
+  }
+
+  public CursorPage(List<T> items, Long nextCursor, int limit) {
+    this.items = items;
+    this.nextCursor = nextCursor;
+    this.limit = limit;
+  }
+
+  public List<T> getItems() {
+    return items;
+  }
+
+  public void setItems(List<T> items) {
+    this.items = items;
+  }
+
+  public Long getNextCursor() {
+    return nextCursor;
+  }
+
+  public void setNextCursor(Long nextCursor) {
+    this.nextCursor = nextCursor;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  public void setLimit(int limit) {
+    this.limit = limit;
+  }
+
+  public boolean hasNext() {
+    return nextCursor != null;
+  }
+}
@@ -1,5 +1,6 @@
 package com.example.ecommerce.models;
 
+import static com.example.ecommerce.constants.StringConstants.ID_ALLOCATION_SIZE;
 import static com.example.ecommerce.constants.StringConstants.REQUIRED_FIELD;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -10,7 +11,9 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.Valid;
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
@@ -23,9 +26,15 @@ import javax.validation.constraints.NotBlank;
 public class Customer {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customers_seq")
+  @SequenceGenerator(name = "customers_seq", sequenceName = "customers_seq",
+      allocationSize = ID_ALLOCATION_SIZE)
   private Long id;
 
+  @Version
+  @JsonIgnore // exposed as the ETag header
+  private Long version;
+
   @NotBlank(message = "name " + REQUIRED_FIELD)
   @Column(name = "customer_name")
   private String name;
@@ -56,6 +65,14 @@ public class Customer {
     this.id = id;
   }
 
+  public Long getVersion() {
+    return version;
+  }
+
+  public void setVersion(Long version) {
+    this.version = version;
+  }
+
   public String getName() {
     return name;
   }
@@ -108,13 +125,4 @@ public class Customer {
   public int hashCode() {
     return Objects.hash(id, name, email, address);
   }
-
-  @JsonIgnore
-  public boolean isEmpty() {
-    return
-        Objects.isNull(id) &&
-            Objects.isNull(name) &&
-            Objects.isNull(email) &&
-            Objects.isNull(address);
-  }
 }
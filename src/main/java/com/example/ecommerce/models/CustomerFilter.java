@@ -0,0 +1,68 @@
+package com.example.ecommerce.models;
+
+/**
+ * This class contains the typed filters of a Customer query, bound from the query parameters. A
+ * filter that is not set does not restrict the query.
+ */
+public class CustomerFilter {
+
+  private String name;
+  private String email;
+  private String city;
+  private String state;
+  private String zipcode;
+
+  public CustomerFilter() {
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public String getEmail() {
+    return email;
+  }
+
+  public void setEmail(String email) {
+    this.email = email;
+  }
+
+  public String getCity() {
+    return city;
+  }
+
+  public void setCity(String city) {
+    this.city = city;
+  }
+
+  public String getState() {
+    return state;
+  }
+
+  public void setState(String state) {
+    this.state = state;
+  }
+
+  public String getZipcode() {
+    return zipcode;
+  }
+
+  public void setZipcode(String zipcode) {
+    this.zipcode = zipcode;
+  }
+
+  @Override
+  public String toString() {
+    return "CustomerFilter{" +
+        "name='" + name + '\'' +
+        ", email='" + email + '\'' +
+        ", city='" + city + '\'' +
+        ", state='" + state + '\'' +
+        ", zipcode='" + zipcode + '\'' +
+        '}';
+  }
+}
@@ -0,0 +1,41 @@
+package com.example.ecommerce.models;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class contains one page of the Tours that match a faceted filter, along with the number of
+ * matching Tours over all pages, and for every facet the number of Tours each of its values would
+ * match given the filters on the other facets.
+ */
+public class FacetedTours extends CursorPage<Tour> {
+
+  private int total;
+  private Map<String, Map<String, Integer>> facets;
+
+  public FacetedTours() {
+  }
+
+  public FacetedTours(List<Tour> items, Long nextCursor, int limit, int total,
+      Map<String, Map<String, Integer>> facets) {
+    super(items, nextCursor, limit);
+    this.total = total;
+    this.facets = facets;
+  }
+
+  public int getTotal() {
+    return total;
+  }
+
+  public void setTotal(int total) {
+    this.total = total;
+  }
+
+  public Map<String, Map<String, Integer>> getFacets() {
+    return facets;
+  }
+
+  public void setFacets(Map<String, Map<String, Integer>> facets) {
+    this.facets = facets;
+  }
+}
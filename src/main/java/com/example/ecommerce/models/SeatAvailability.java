@@ -0,0 +1,63 @@
+package com.example.ecommerce.models;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import java.time.LocalDate;
+
+/**
+ * This class contains the seats left on a tour for one reserved date, as returned by the
+ * availability endpoint.
+ */
+public class SeatAvailability {
+
+  private Long tourId;
+  @JsonFormat(pattern = "yyyy-MM-dd")
+  private LocalDate reservedDate;
+  private int capacity;
+  private int remaining;
+
+  public SeatAvailability() {
+  }
+
+  public SeatAvailability(Long tourId, LocalDate reservedDate, int capacity, int remaining) {
+    this.tourId = tourId;
+    this.reservedDate = reservedDate;
+    this.capacity = capacity;
+    this.remaining = remaining;
+  }
+
+  public Long getTourId() {
+    return tourId;
+  }
+
+  public void setTourId(Long tourId) {
+    this.tourId = tourId;
+  }
+
+  public LocalDate getReservedDate() {
+    return reservedDate;
+  }
+
+  public void setReservedDate(LocalDate reservedDate) {
+    this.reservedDate = reservedDate;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public void setCapacity(int capacity) {
+    this.capacity = capacity;
+  }
+
+  public int getRemaining() {
+    return remaining;
+  }
+
+  public void setRemaining(int remaining) {
+    this.remaining = remaining;
+  }
+
+  public boolean isAvailable() {
+    return remaining > 0;
+  }
+}
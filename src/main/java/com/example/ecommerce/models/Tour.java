@@ -1,5 +1,6 @@
 package com.example.ecommerce.models;
 
+import static com.example.ecommerce.constants.StringConstants.ID_ALLOCATION_SIZE;
 import static com.example.ecommerce.constants.StringConstants.REQUIRED_FIELD;
 
 import com.example.ecommerce.validators.Vaccinations;
@@ -11,22 +12,34 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
 import org.hibernate.validator.constraints.Length;
-import org.springframework.format.annotation.NumberFormat;
 import org.springframework.format.annotation.NumberFormat.Style;
+import org.springframework.format.annotation.NumberFormat;
 
 @Entity
-@Table(name = "tours")
+@Table(name = "tours", indexes = {
+    // the columns of the typed range filters; queries page by id within their matches
+    @Index(name = "tours_active_price_idx", columnList = "isActive, price"),
+    @Index(name = "tours_number_of_days_idx", columnList = "numberOfDays"),
+    @Index(name = "tours_rating_idx", columnList = "rating")})
 public class Tour {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tours_seq")
+  @SequenceGenerator(name = "tours_seq", sequenceName = "tours_seq",
+      allocationSize = ID_ALLOCATION_SIZE)
   private Long id;
+  @Version
+  @JsonIgnore // exposed as the ETag header
+  private Long version;
   @Positive
   @Min(1)
   private int numberOfDays;
@@ -43,6 +56,8 @@ public class Tour {
   private int rating;
   //@NotNull()
   private boolean isActive;
+  @Min(1)
+  private Integer capacity; // seats per reserved date, defaults to the inventory's default capacity
 
   public Tour() {
   }
@@ -65,6 +80,14 @@ public class Tour {
     this.id = id;
   }
 
+  public Long getVersion() {
+    return version;
+  }
+
+  public void setVersion(Long version) {
+    this.version = version;
+  }
+
   public int getNumberOfDays() {
     return numberOfDays;
   }
@@ -113,6 +136,14 @@ public class Tour {
     isActive = active;
   }
 
+  public Integer getCapacity() {
+    return capacity;
+  }
+
+  public void setCapacity(Integer capacity) {
+    this.capacity = capacity;
+  }
+
   @Override
   public String toString() {
     return "Tour{" +
@@ -123,6 +154,7 @@ public class Tour {
         ", price=" + price +
         ", rating=" + rating +
         ", isActive=" + isActive +
+        ", capacity=" + capacity +
         '}';
   }
 
@@ -138,24 +170,14 @@ public class Tour {
     return numberOfDays == tour.numberOfDays && rating == tour.rating && isActive == tour.isActive
         && Objects.equals(id, tour.id) && Arrays.equals(vaccinations,
         tour.vaccinations) && Objects.equals(description, tour.description)
-        && Objects.equals(price, tour.price);
+        && Objects.equals(price, tour.price) && Objects.equals(capacity, tour.capacity);
   }
 
   @Override
   public int hashCode() {
-    int result = Objects.hash(id, numberOfDays, description, price, rating, isActive);
+    int result = Objects.hash(id, numberOfDays, description, price, rating, isActive,
+        capacity);
     result = 31 * result + Arrays.hashCode(vaccinations);
     return result;
   }
-
-  @JsonIgnore
-  public boolean isEmpty() {
-    return
-        Objects.isNull(id) &&
-            Objects.isNull(numberOfDays) &&
-            Objects.isNull(description) &&
-            Objects.isNull(price) &&
-            Objects.isNull(rating) &&
-            Objects.isNull(isActive);
-  }
 }
@@ -1,5 +1,6 @@
 package com.example.ecommerce.models;
 
+import static com.example.ecommerce.constants.StringConstants.ID_ALLOCATION_SIZE;
 import static com.example.ecommerce.constants.StringConstants.REQUIRED_FIELD;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
@@ -7,23 +8,46 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.OptBoolean;
 import java.util.Date;
 import java.util.Objects;
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.ForeignKey;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.Valid;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import org.hibernate.validator.constraints.CreditCardNumber;
 
 @Entity
-@Table(name = "tour_bookings")
+@NamedEntityGraph(name = TourBooking.WITH_TOUR, attributeNodes = @NamedAttributeNode("tour"))
+@Table(name = "tour_bookings", indexes =
+    // serves the bookings of one tour within a date range, and the seat counts per tour date
+    @Index(name = "tour_bookings_tour_id_reserved_date_idx", columnList = "tourId, reservedDate"))
 public class TourBooking {
 
+  /**
+   * The entity graph that fetches the booked Tour along with the TourBooking, in the same query.
+   */
+  public static final String WITH_TOUR = "TourBooking.withTour";
+
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tour_bookings_seq")
+  @SequenceGenerator(name = "tour_bookings_seq", sequenceName = "tour_bookings_seq",
+      allocationSize = ID_ALLOCATION_SIZE)
   private Long id;
+  @Version
+  @JsonIgnore // exposed as the ETag header
+  private Long version;
   @NotNull(message = "Contact " + REQUIRED_FIELD)
   private Contact contact;
   @NotBlank(message = "Payment method must include card number")
@@ -33,6 +57,7 @@ public class TourBooking {
   @CreditCardNumber // todo test this
   private String cardNo;
   @NotNull(message = "Tour Code " + REQUIRED_FIELD)
+  @Column(unique = true)
   private String tourCode;
   @NotNull(message = "Reserved date " + REQUIRED_FIELD)
   @JsonFormat(pattern = "yyyy-MM-dd", lenient = OptBoolean.FALSE)// todo test this
@@ -41,6 +66,12 @@ public class TourBooking {
   @NotNull(message = "Tour id " + REQUIRED_FIELD)
   @Valid
   private Long tourId;
+  // read-only view of tourId, which stays the attribute that is written and serialized
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "tourId", insertable = false, updatable = false,
+      foreignKey = @ForeignKey(name = "tour_bookings_tour_id_fk"))
+  @JsonIgnore
+  private Tour tour;
 
   public TourBooking() {
   }
@@ -61,6 +92,14 @@ public class TourBooking {
     this.id = id;
   }
 
+  public Long getVersion() {
+    return version;
+  }
+
+  public void setVersion(Long version) {
+    this.version = version;
+  }
+
   public Contact getContact() {
     return contact;
   }
@@ -96,6 +135,14 @@ public class TourBooking {
     this.tourId = tourId;
   }
 
+  /**
+   * Returns the booked Tour. It is loaded lazily, on first access in the session that read the
+   * TourBooking, unless the TourBooking was read with the WITH_TOUR entity graph.
+   */
+  public Tour getTour() {
+    return tour;
+  }
+
   @Override
   public String toString() {
     return "TourBooking{" +
@@ -127,15 +174,4 @@ public class TourBooking {
   public int hashCode() {
     return Objects.hash(id, contact, cardNo, tourCode, reservedDate, tourId);
   }
-
-  @JsonIgnore
-  public boolean isEmpty() {
-    return
-        Objects.isNull(id) &&
-            Objects.isNull(contact) &&
-            Objects.isNull(cardNo) &&
-            Objects.isNull(tourCode) &&
-            Objects.isNull(reservedDate) &&
-            Objects.isNull(tourId);
-  }
 }
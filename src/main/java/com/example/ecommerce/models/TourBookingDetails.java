@@ -0,0 +1,38 @@
+package com.example.ecommerce.models;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+/**
+ * This class contains a TourBooking along with a summary of its Tour. It is serialized as the
+ * fields of the TourBooking plus a tour object.
+ */
+public class TourBookingDetails {
+
+  @JsonUnwrapped
+  private TourBooking tourBooking;
+  private TourSummary tour;
+
+  public TourBookingDetails() {
+  }
+
+  public TourBookingDetails(TourBooking tourBooking, TourSummary tour) {
+    this.tourBooking = tourBooking;
+    this.tour = tour;
+  }
+
+  public TourBooking getTourBooking() {
+    return tourBooking;
+  }
+
+  public void setTourBooking(TourBooking tourBooking) {
+    this.tourBooking = tourBooking;
+  }
+
+  public TourSummary getTour() {
+    return tour;
+  }
+
+  public void setTour(TourSummary tour) {
+    this.tour = tour;
+  }
+}
@@ -0,0 +1,84 @@
+package com.example.ecommerce.models;
+
+import java.time.LocalDate;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.format.annotation.DateTimeFormat;
+
+/**
+ * This class contains the typed filters of a TourBooking query, bound from the query parameters.
+ * A filter that is not set does not restrict the query; the reserved date bounds are inclusive.
+ */
+public class TourBookingFilter {
+
+  private Long tourId;
+  private String tourCode;
+  private String email;
+  private String lastName;
+  @DateTimeFormat(iso = ISO.DATE)
+  private LocalDate reservedFrom;
+  @DateTimeFormat(iso = ISO.DATE)
+  private LocalDate reservedTo;
+
+  public TourBookingFilter() {
+  }
+
+  public Long getTourId() {
+    return tourId;
+  }
+
+  public void setTourId(Long tourId) {
+    this.tourId = tourId;
+  }
+
+  public String getTourCode() {
+    return tourCode;
+  }
+
+  public void setTourCode(String tourCode) {
+    this.tourCode = tourCode;
+  }
+
+  public String getEmail() {
+    return email;
+  }
+
+  public void setEmail(String email) {
+    this.email = email;
+  }
+
+  public String getLastName() {
+    return lastName;
+  }
+
+  public void setLastName(String lastName) {
+    this.lastName = lastName;
+  }
+
+  public LocalDate getReservedFrom() {
+    return reservedFrom;
+  }
+
+  public void setReservedFrom(LocalDate reservedFrom) {
+    this.reservedFrom = reservedFrom;
+  }
+
+  public LocalDate getReservedTo() {
+    return reservedTo;
+  }
+
+  public void setReservedTo(LocalDate reservedTo) {
+    this.reservedTo = reservedTo;
+  }
+
+  @Override
+  public String toString() {
+    return "TourBookingFilter{" +
+        "tourId=" + tourId +
+        ", tourCode='" + tourCode + '\'' +
+        ", email='" + email + '\'' +
+        ", lastName='" + lastName + '\'' +
+        ", reservedFrom=" + reservedFrom +
+        ", reservedTo=" + reservedTo +
+        '}';
+  }
+}
@@ -0,0 +1,155 @@
+package com.example.ecommerce.models;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * This class contains the typed filters of a Tour query, bound from the query parameters. A
+ * filter that is not set does not restrict the query; the min and max bounds are inclusive.
+ */
+public class TourFilter {
+
+  private String description;
+  private BigDecimal price;
+  private BigDecimal minPrice;
+  private BigDecimal maxPrice;
+  private Integer numberOfDays;
+  private Integer minNumberOfDays;
+  private Integer maxNumberOfDays;
+  private Integer rating;
+  private Integer minRating;
+  private Integer maxRating;
+  private Boolean active;
+
+  public TourFilter() {
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public void setDescription(String description) {
+    this.description = description;
+  }
+
+  public BigDecimal getPrice() {
+    return price;
+  }
+
+  public void setPrice(BigDecimal price) {
+    this.price = price;
+  }
+
+  public BigDecimal getMinPrice() {
+    return minPrice;
+  }
+
+  public void setMinPrice(BigDecimal minPrice) {
+    this.minPrice = minPrice;
+  }
+
+  public BigDecimal getMaxPrice() {
+    return maxPrice;
+  }
+
+  public void setMaxPrice(BigDecimal maxPrice) {
+    this.maxPrice = maxPrice;
+  }
+
+  public Integer getNumberOfDays() {
+    return numberOfDays;
+  }
+
+  public void setNumberOfDays(Integer numberOfDays) {
+    this.numberOfDays = numberOfDays;
+  }
+
+  public Integer getMinNumberOfDays() {
+    return minNumberOfDays;
+  }
+
+  public void setMinNumberOfDays(Integer minNumberOfDays) {
+    this.minNumberOfDays = minNumberOfDays;
+  }
+
+  public Integer getMaxNumberOfDays() {
+    return maxNumberOfDays;
+  }
+
+  public void setMaxNumberOfDays(Integer maxNumberOfDays) {
+    this.maxNumberOfDays = maxNumberOfDays;
+  }
+
+  public Integer getRating() {
+    return rating;
+  }
+
+  public void setRating(Integer rating) {
+    this.rating = rating;
+  }
+
+  public Integer getMinRating() {
+    return minRating;
+  }
+
+  public void setMinRating(Integer minRating) {
+    this.minRating = minRating;
+  }
+
+  public Integer getMaxRating() {
+    return maxRating;
+  }
+
+  public void setMaxRating(Integer maxRating) {
+    this.maxRating = maxRating;
+  }
+
+  public Boolean getActive() {
+    return active;
+  }
+
+  public void setActive(Boolean active) {
+    this.active = active;
+  }
+
+  @Override
+  public String toString() {
+    return "TourFilter{" +
+        "description='" + description + '\'' +
+        ", price=" + price +
+        ", minPrice=" + minPrice +
+        ", maxPrice=" + maxPrice +
+        ", numberOfDays=" + numberOfDays +
+        ", minNumberOfDays=" + minNumberOfDays +
+        ", maxNumberOfDays=" + maxNumberOfDays +
+        ", rating=" + rating +
+        ", minRating=" + minRating +
+        ", maxRating=" + maxRating +
+        ", active=" + active +
+        '}';
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    TourFilter that = (TourFilter) o;
+    return Objects.equals(description, that.description) && Objects.equals(price, that.price)
+        && Objects.equals(minPrice, that.minPrice) && Objects.equals(maxPrice, that.maxPrice)
+        && Objects.equals(numberOfDays, that.numberOfDays)
+        && Objects.equals(minNumberOfDays, that.minNumberOfDays)
+        && Objects.equals(maxNumberOfDays, that.maxNumberOfDays)
+        && Objects.equals(rating, that.rating) && Objects.equals(minRating, that.minRating)
+        && Objects.equals(maxRating, that.maxRating) && Objects.equals(active, that.active);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(description, price, minPrice, maxPrice, numberOfDays, minNumberOfDays,
+        maxNumberOfDays, rating, minRating, maxRating, active);
+  }
+}
@@ -0,0 +1,117 @@
+package com.example.ecommerce.models;
+
+import static com.example.ecommerce.constants.StringConstants.ID_ALLOCATION_SIZE;
+
+import java.time.LocalDate;
+import java.util.Objects;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+/**
+ * This class holds the seat inventory of one tour on one reserved date. The remaining count is
+ * only ever changed by conditional updates in the TourInventoryRepository, so it can not drop
+ * below zero however many bookings race for the last seat.
+ */
+@Entity
+@Table(name = "tour_inventory",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"tourId", "reservedDate"}))
+public class TourInventory {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tour_inventory_seq")
+  @SequenceGenerator(name = "tour_inventory_seq", sequenceName = "tour_inventory_seq",
+      allocationSize = ID_ALLOCATION_SIZE)
+  private Long id;
+  @Column(nullable = false)
+  private Long tourId;
+  @Column(nullable = false)
+  private LocalDate reservedDate;
+  private int capacity;
+  private int remaining;
+
+  public TourInventory() {
+  }
+
+  public TourInventory(Long tourId, LocalDate reservedDate, int capacity, int remaining) {
+    this.tourId = tourId;
+    this.reservedDate = reservedDate;
+    this.capacity = capacity;
+    this.remaining = remaining;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public Long getTourId() {
+    return tourId;
+  }
+
+  public void setTourId(Long tourId) {
+    this.tourId = tourId;
+  }
+
+  public LocalDate getReservedDate() {
+    return reservedDate;
+  }
+
+  public void setReservedDate(LocalDate reservedDate) {
+    this.reservedDate = reservedDate;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public void setCapacity(int capacity) {
+    this.capacity = capacity;
+  }
+
+  public int getRemaining() {
+    return remaining;
+  }
+
+  public void setRemaining(int remaining) {
+    this.remaining = remaining;
+  }
+
+  @Override
+  public String toString() {
+    return "TourInventory{" +
+        "id=" + id +
+        ", tourId=" + tourId +
+        ", reservedDate=" + reservedDate +
+        ", capacity=" + capacity +
+        ", remaining=" + remaining +
+        '}';
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    TourInventory that = (TourInventory) o;
+    return capacity == that.capacity && remaining == that.remaining && Objects.equals(id,
+        that.id) && Objects.equals(tourId, that.tourId) && Objects.equals(reservedDate,
+        that.reservedDate);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(id, tourId, reservedDate, capacity, remaining);
+  }
+}
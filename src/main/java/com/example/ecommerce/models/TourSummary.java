@@ -0,0 +1,66 @@
+package com.example.ecommerce.models;
+
+import java.math.BigDecimal;
+
+/**
+ * This class contains the fields of a Tour that are shown next to its bookings.
+ */
+public class TourSummary {
+
+  private Long id;
+  private String description;
+  private int numberOfDays;
+  private BigDecimal price;
+  private int rating;
+
+  public TourSummary() {
+  }
+
+  public TourSummary(Tour tour) {
+    this.id = tour.getId();
+    this.description = tour.getDescription();
+    this.numberOfDays = tour.getNumberOfDays();
+    this.price = tour.getPrice();
+    this.rating = tour.getRating();
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public void setDescription(String description) {
+    this.description = description;
+  }
+
+  public int getNumberOfDays() {
+    return numberOfDays;
+  }
+
+  public void setNumberOfDays(int numberOfDays) {
+    this.numberOfDays = numberOfDays;
+  }
+
+  public BigDecimal getPrice() {
+    return price;
+  }
+
+  public void setPrice(BigDecimal price) {
+    this.price = price;
+  }
+
+  public int getRating() {
+    return rating;
+  }
+
+  public void setRating(int rating) {
+    this.rating = rating;
+  }
+}
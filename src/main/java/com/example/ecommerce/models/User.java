@@ -1,6 +1,7 @@
 package com.example.ecommerce.models;
 
 import static com.example.ecommerce.constants.StringConstants.BAD_DATA;
+import static com.example.ecommerce.constants.StringConstants.ID_ALLOCATION_SIZE;
 import static com.example.ecommerce.constants.StringConstants.REQUIRED_FIELD;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -10,7 +11,9 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
@@ -24,9 +27,15 @@ import org.hibernate.validator.constraints.Length;
 public class User {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+  @SequenceGenerator(name = "users_seq", sequenceName = "users_seq",
+      allocationSize = ID_ALLOCATION_SIZE)
   private Long id;
 
+  @Version
+  @JsonIgnore // exposed as the ETag header
+  private Long version;
+
   @NotBlank(message = "name " + REQUIRED_FIELD)
   @Column(name = "user_name")
   private String name;
@@ -67,6 +76,14 @@ public class User {
     this.id = id;
   }
 
+  public Long getVersion() {
+    return version;
+  }
+
+  public void setVersion(Long version) {
+    this.version = version;
+  }
+
   public String getName() {
     return name;
   }
@@ -138,15 +155,4 @@ public class User {
   public int hashCode() {
     return Objects.hash(id, name, title, role, email, password);
   }
-
-  @JsonIgnore
-  public boolean isEmpty() {
-    return
-        Objects.isNull(id) &&
-            Objects.isNull(name) &&
-            Objects.isNull(title) &&
-            Objects.isNull(role) &&
-            Objects.isNull(email) &&
-            Objects.isNull(password);
-  }
 }
@@ -1,12 +1,15 @@
 package com.example.ecommerce.models;
 
+import static com.example.ecommerce.constants.StringConstants.ID_ALLOCATION_SIZE;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import java.util.Objects;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Version;
 
 @Entity(name = "user_account")
 public class UserAccount {
@@ -14,8 +17,14 @@ public class UserAccount {
   //todo include validation for fields?? (i.e. notnull, etc.)
   @Id
   @Column(name = "user_account_id") // might change to "user_id"
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_account_seq")
+  @SequenceGenerator(name = "user_account_seq", sequenceName = "user_account_seq",
+      allocationSize = ID_ALLOCATION_SIZE)
   private Long id;
+  @Version
+  @JsonIgnore // exposed as the ETag header
+  private Long version;
+  @Column(unique = true)
   private String username;
   private String password;
   private String role;
@@ -40,6 +49,14 @@ public class UserAccount {
     this.id = id;
   }
 
+  public Long getVersion() {
+    return version;
+  }
+
+  public void setVersion(Long version) {
+    this.version = version;
+  }
+
   public String getUsername() {
     return username;
   }
@@ -71,14 +88,4 @@ public class UserAccount {
   public void setRole(String role) {
     this.role = role;
   }
-
-  @JsonIgnore
-  public boolean isEmpty() {
-    return
-        Objects.isNull(id) &&
-            Objects.isNull(username) &&
-            Objects.isNull(role) &&
-            Objects.isNull(isActive) &&
-            Objects.isNull(password);
-  }
 }
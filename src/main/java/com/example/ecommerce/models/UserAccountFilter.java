@@ -0,0 +1,48 @@
+package com.example.ecommerce.models;
+
+/**
+ * This class contains the typed filters of a UserAccount query, bound from the query parameters.
+ * A filter that is not set does not restrict the query.
+ */
+public class UserAccountFilter {
+
+  private String username;
+  private String role;
+  private Boolean active;
+
+  public UserAccountFilter() {
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public void setUsername(String username) {
+    this.username = username;
+  }
+
+  public String getRole() {
+    return role;
+  }
+
+  public void setRole(String role) {
+    this.role = role;
+  }
+
+  public Boolean getActive() {
+    return active;
+  }
+
+  public void setActive(Boolean active) {
+    this.active = active;
+  }
+
+  @Override
+  public String toString() {
+    return "UserAccountFilter{" +
+        "username='" + username + '\'' +
+        ", role='" + role + '\'' +
+        ", active=" + active +
+        '}';
+  }
+}
@@ -0,0 +1,58 @@
+package com.example.ecommerce.models;
+
+/**
+ * This class contains the typed filters of a User query, bound from the query parameters. A
+ * filter that is not set does not restrict the query.
+ */
+public class UserFilter {
+
+  private String name;
+  private String title;
+  private String role;
+  private String email;
+
+  public UserFilter() {
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public String getRole() {
+    return role;
+  }
+
+  public void setRole(String role) {
+    this.role = role;
+  }
+
+  public String getEmail() {
+    return email;
+  }
+
+  public void setEmail(String email) {
+    this.email = email;
+  }
+
+  @Override
+  public String toString() {
+    return "UserFilter{" +
+        "name='" + name + '\'' +
+        ", title='" + title + '\'' +
+        ", role='" + role + '\'' +
+        ", email='" + email + '\'' +
+        '}';
+  }
+}
@@ -0,0 +1,29 @@
+package com.example.ecommerce.repositories;
+
+import com.example.ecommerce.models.BookingHold;
+import java.util.Date;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface BookingHoldRepository extends ExtendedRepository<BookingHold> {
+
+  /**
+   * Counts the holds of a user which have not expired yet.
+   *
+   * @return the number of the user's outstanding holds.
+   */
+  long countByUsernameAndExpiresAtAfter(String username, Date now);
+
+  /**
+   * Deletes a hold. Confirming, releasing and expiring a hold all go through this statement, so
+   * exactly one of them wins when they race.
+   *
+   * @return 1 if the hold was deleted, 0 if it was already gone.
+   */
+  @Transactional
+  @Modifying
+  @Query("delete from BookingHold h where h.id = :id")
+  int deleteHoldById(@Param("id") Long id);
+}
@@ -3,7 +3,8 @@ package com.example.ecommerce.repositories;
 import com.example.ecommerce.models.Address;
 import com.example.ecommerce.models.Customer;
 import java.util.List;
-import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.stream.Stream;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -11,10 +12,20 @@ import org.springframework.stereotype.Repository;
  * Customer Objects.
  */
 @Repository
-public interface CustomerRepository extends JpaRepository<Customer, Long> {
+public interface CustomerRepository extends ExtendedRepository<Customer> {
 
   boolean existsByEmail(String email);
 
+  @Query("select c.email from Customer c")
+  Stream<String> streamAllEmails();
+
+  /**
+   * Streams the id and name of every Customer, as [id, name] rows. Must be consumed inside a
+   * transaction.
+   */
+  @Query("select c.id, c.name from Customer c")
+  Stream<Object[]> streamAllNames();
+
   List<Customer> findByAddressIn(List<Address> address);
 
   Customer findByEmail(String email);
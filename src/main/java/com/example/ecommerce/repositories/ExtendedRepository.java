@@ -0,0 +1,83 @@
+package com.example.ecommerce.repositories;
+
+import com.example.ecommerce.models.CursorPage;
+import java.util.Map;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.repository.NoRepositoryBean;
+
+/**
+ * This repository is the base of every entity repository. On top of the standard JPA operations
+ * it adds keyset pagination, which is implemented once for all entities in
+ * ExtendedRepositoryImpl.
+ */
+@NoRepositoryBean
+public interface ExtendedRepository<T> extends JpaRepository<T, Long>,
+    JpaSpecificationExecutor<T> {
+
+  /**
+   * Retrieves the entities with an id greater than the cursor, sorted by id in the database.
+   *
+   * @param specification the filter to apply, or null for all entities.
+   * @param after         the id of the last entity of the previous page, or null for the first.
+   * @param limit         the maximum number of entities in the page.
+   * @return the page, with the cursor of the next page if more entities exist.
+   */
+  CursorPage<T> findPageAfter(Specification<T> specification, Long after, int limit);
+
+  /**
+   * Retrieves a page like findPageAfter, and fetches the associations of an entity graph in the
+   * same query, so that reading them does not run one more query per entity.
+   *
+   * @param specification the filter to apply, or null for all entities.
+   * @param after         the id of the last entity of the previous page, or null for the first.
+   * @param limit         the maximum number of entities in the page.
+   * @param entityGraph   the name of an entity graph of the entity.
+   * @return the page, with the cursor of the next page if more entities exist.
+   */
+  CursorPage<T> findPageAfter(Specification<T> specification, Long after, int limit,
+      String entityGraph);
+
+  /**
+   * Changes some attributes of one entity with a single UPDATE statement, without loading it.
+   * The version of a versioned entity is incremented; given an expected version, the statement
+   * only matches the row while it still has that version. Entities already loaded in the current
+   * persistence context are not refreshed.
+   *
+   * @param id      the id of the entity.
+   * @param version the version the entity must still have, or null to update any version.
+   * @param changes the new values by attribute path, e.g. {@code address.city}.
+   * @return the number of updated rows, 0 if no entity has the id (and version).
+   */
+  int updateById(Long id, Long version, Map<String, Object> changes);
+
+  /**
+   * Overwrites every attribute of one entity, except its id and version, with those of the given
+   * entity, like updateById. This is a full replacement in one statement, where save would
+   * have to read the entity first.
+   *
+   * @param id      the id of the entity.
+   * @param version the version the entity must still have, or null to update any version.
+   * @param entity  the new state of the entity.
+   * @return the number of updated rows, 0 if no entity has the id (and version).
+   */
+  int replaceById(Long id, Long version, T entity);
+
+  /**
+   * Reads only the version of one entity, e.g. the one an unconditional update has just written.
+   *
+   * @param id the id of the entity.
+   * @return the version, or null if no entity has the id or the entity is not versioned.
+   */
+  Long findVersionById(Long id);
+
+  /**
+   * Deletes one entity with a single DELETE statement, without loading it first as deleteById
+   * does. Entities already loaded in the current persistence context are not detached.
+   *
+   * @param id the id of the entity.
+   * @return the number of deleted rows, 0 if no entity has the id.
+   */
+  int deleteOneById(Long id);
+}
@@ -0,0 +1,168 @@
+package com.example.ecommerce.repositories;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCHGRAPH;
+
+import com.example.ecommerce.models.CursorPage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaDelete;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.Attribute.PersistentAttributeType;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.SingularAttribute;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * This class is the repository base class registered in WildlifeToursApplication, and implements
+ * the operations of ExtendedRepository for every entity.
+ */
+public class ExtendedRepositoryImpl<T> extends SimpleJpaRepository<T, Long> implements
+    ExtendedRepository<T> {
+
+  private final JpaEntityInformation<T, ?> entityInformation;
+  private final EntityManager entityManager;
+
+  public ExtendedRepositoryImpl(JpaEntityInformation<T, ?> entityInformation,
+      EntityManager entityManager) {
+    super(entityInformation, entityManager);
+    this.entityInformation = entityInformation;
+    this.entityManager = entityManager;
+  }
+
+  @Override
+  public CursorPage<T> findPageAfter(Specification<T> specification, Long after, int limit) {
+    return findPageAfter(specification, after, limit, null);
+  }
+
+  @Override
+  public CursorPage<T> findPageAfter(Specification<T> specification, Long after, int limit,
+      String entityGraph) {
+    CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<T> query = criteriaBuilder.createQuery(getDomainClass());
+    Root<T> root = query.from(getDomainClass());
+    String idAttribute = entityInformation.getIdAttribute().getName();
+
+    List<Predicate> predicates = new ArrayList<>();
+    if (specification != null) {
+      Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+      if (predicate != null) {
+        predicates.add(predicate);
+      }
+    }
+    if (after != null) {
+      predicates.add(criteriaBuilder.greaterThan(root.get(idAttribute), after));
+    }
+    query.select(root)
+        .where(predicates.toArray(new Predicate[0]))
+        .orderBy(criteriaBuilder.asc(root.get(idAttribute)));
+
+    // one extra row tells whether a next page exists, without a count query
+    TypedQuery<T> typedQuery = entityManager.createQuery(query).setMaxResults(limit + 1);
+    if (entityGraph != null) {
+      typedQuery.setHint(HINT_FETCHGRAPH, entityManager.getEntityGraph(entityGraph));
+    }
+    List<T> rows = typedQuery.getResultList();
+    if (rows.size() <= limit) {
+      return new CursorPage<>(rows, null, limit);
+    }
+    List<T> items = new ArrayList<>(rows.subList(0, limit));
+    Long nextCursor = (Long) entityInformation.getId(items.get(limit - 1));
+    return new CursorPage<>(items, nextCursor, limit);
+  }
+
+  @Override
+  @Transactional
+  @SuppressWarnings("unchecked")
+  public int updateById(Long id, Long version, Map<String, Object> changes) {
+    CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+    CriteriaUpdate<T> update = criteriaBuilder.createCriteriaUpdate(getDomainClass());
+    Root<T> root = update.from(getDomainClass());
+    changes.forEach((attributePath, value) -> {
+      Path<?> path = root;
+      for (String attribute : attributePath.split("\\.")) {
+        path = path.get(attribute);
+      }
+      update.set((Path<Object>) path, value);
+    });
+    Predicate matchesId = criteriaBuilder.equal(
+        root.get(entityInformation.getIdAttribute().getName()), id);
+    EntityType<T> entityType = entityManager.getMetamodel().entity(getDomainClass());
+    if (entityType.hasVersionAttribute()) {
+      Path<Long> versionPath = root.get(entityType.getVersion(Long.class));
+      update.set(versionPath, criteriaBuilder.sum(versionPath, 1L));
+      if (version != null) {
+        matchesId = criteriaBuilder.and(matchesId, criteriaBuilder.equal(versionPath, version));
+      }
+    }
+    update.where(matchesId);
+    return entityManager.createQuery(update).executeUpdate();
+  }
+
+  @Override
+  public int replaceById(Long id, Long version, T entity) {
+    Map<String, Object> changes = new LinkedHashMap<>();
+    collectAttributes(entityManager.getMetamodel().entity(getDomainClass()), entity, "",
+        changes);
+    return updateById(id, version, changes);
+  }
+
+  @Override
+  public Long findVersionById(Long id) {
+    EntityType<T> entityType = entityManager.getMetamodel().entity(getDomainClass());
+    if (!entityType.hasVersionAttribute()) {
+      return null;
+    }
+    CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+    Root<T> root = query.from(getDomainClass());
+    query.select(root.get(entityType.getVersion(Long.class)))
+        .where(criteriaBuilder.equal(root.get(entityInformation.getIdAttribute().getName()), id));
+    List<Long> versions = entityManager.createQuery(query).getResultList();
+    return versions.isEmpty() ? null : versions.get(0);
+  }
+
+  // flattens embedded objects into paths like address.city; a null embedded object nulls its
+  // columns, as saving it would
+  private void collectAttributes(ManagedType<?> type, Object value, String prefix,
+      Map<String, Object> changes) {
+    for (SingularAttribute<?, ?> attribute : type.getSingularAttributes()) {
+      // an association is written through the attribute that holds its foreign key
+      if (attribute.isId() || attribute.isVersion() || attribute.isAssociation()) {
+        continue;
+      }
+      Object attributeValue = value == null ? null
+          : new DirectFieldAccessor(value).getPropertyValue(attribute.getName());
+      if (attribute.getPersistentAttributeType() == PersistentAttributeType.EMBEDDED) {
+        collectAttributes(entityManager.getMetamodel().embeddable(attribute.getJavaType()),
+            attributeValue, prefix + attribute.getName() + ".", changes);
+      } else {
+        changes.put(prefix + attribute.getName(), attributeValue);
+      }
+    }
+  }
+
+  @Override
+  @Transactional
+  public int deleteOneById(Long id) {
+    CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+    CriteriaDelete<T> delete = criteriaBuilder.createCriteriaDelete(getDomainClass());
+    Root<T> root = delete.from(getDomainClass());
+    delete.where(criteriaBuilder.equal(
+        root.get(entityInformation.getIdAttribute().getName()), id));
+    return entityManager.createQuery(delete).executeUpdate();
+  }
+}
@@ -0,0 +1,113 @@
+package com.example.ecommerce.repositories;
+
+import com.example.ecommerce.models.Customer;
+import com.example.ecommerce.models.CustomerFilter;
+import com.example.ecommerce.models.Tour;
+import com.example.ecommerce.models.TourBooking;
+import com.example.ecommerce.models.TourBookingFilter;
+import com.example.ecommerce.models.TourFilter;
+import com.example.ecommerce.models.User;
+import com.example.ecommerce.models.UserAccount;
+import com.example.ecommerce.models.UserAccountFilter;
+import com.example.ecommerce.models.UserFilter;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Date;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * This class compiles the typed query filters into Specifications. Every filter that is set
+ * becomes one equality or range predicate on its column, and the predicates are ANDed, so a query
+ * only constrains the columns it names and can use their indexes. Filters that are not set add
+ * nothing, and without any the Specification matches every entity.
+ */
+public final class FilterSpecifications {
+
+  private FilterSpecifications() {
+  }
+
+  public static Specification<Tour> of(TourFilter filter) {
+    return Specification.<Tour>where(equal("description", filter.getDescription()))
+        .and(equal("price", filter.getPrice()))
+        .and(atLeast("price", filter.getMinPrice()))
+        .and(atMost("price", filter.getMaxPrice()))
+        .and(equal("numberOfDays", filter.getNumberOfDays()))
+        .and(atLeast("numberOfDays", filter.getMinNumberOfDays()))
+        .and(atMost("numberOfDays", filter.getMaxNumberOfDays()))
+        .and(equal("rating", filter.getRating()))
+        .and(atLeast("rating", filter.getMinRating()))
+        .and(atMost("rating", filter.getMaxRating()))
+        .and(equal("isActive", filter.getActive()));
+  }
+
+  public static Specification<Customer> of(CustomerFilter filter) {
+    return Specification.<Customer>where(equal("name", filter.getName()))
+        .and(equal("email", filter.getEmail()))
+        .and(equal("address.city", filter.getCity()))
+        .and(equal("address.state", filter.getState()))
+        .and(equal("address.zipcode", filter.getZipcode()));
+  }
+
+  public static Specification<TourBooking> of(TourBookingFilter filter) {
+    return Specification.<TourBooking>where(equal("tourId", filter.getTourId()))
+        .and(equal("tourCode", filter.getTourCode()))
+        .and(equal("contact.email", filter.getEmail()))
+        .and(equal("contact.lastName", filter.getLastName()))
+        .and(atLeast("reservedDate", startOf(filter.getReservedFrom())))
+        .and(before("reservedDate",
+            filter.getReservedTo() == null ? null : startOf(filter.getReservedTo().plusDays(1))));
+  }
+
+  public static Specification<User> of(UserFilter filter) {
+    return Specification.<User>where(equal("name", filter.getName()))
+        .and(equal("title", filter.getTitle()))
+        .and(equal("role", filter.getRole()))
+        .and(equal("email", filter.getEmail()));
+  }
+
+  public static Specification<UserAccount> of(UserAccountFilter filter) {
+    return Specification.<UserAccount>where(equal("username", filter.getUsername()))
+        .and(equal("role", filter.getRole()))
+        .and(equal("isActive", filter.getActive()));
+  }
+
+  private static <T> Specification<T> equal(String attributePath, Object value) {
+    return value == null ? null
+        : (root, query, criteriaBuilder) -> criteriaBuilder.equal(path(root, attributePath), value);
+  }
+
+  private static <T, Y extends Comparable<? super Y>> Specification<T> atLeast(
+      String attributePath, Y bound) {
+    return bound == null ? null : (root, query, criteriaBuilder) ->
+        criteriaBuilder.greaterThanOrEqualTo(path(root, attributePath), bound);
+  }
+
+  private static <T, Y extends Comparable<? super Y>> Specification<T> atMost(
+      String attributePath, Y bound) {
+    return bound == null ? null : (root, query, criteriaBuilder) ->
+        criteriaBuilder.lessThanOrEqualTo(path(root, attributePath), bound);
+  }
+
+  private static <T, Y extends Comparable<? super Y>> Specification<T> before(
+      String attributePath, Y bound) {
+    return bound == null ? null : (root, query, criteriaBuilder) ->
+        criteriaBuilder.lessThan(path(root, attributePath), bound);
+  }
+
+  // reserved dates are read by Jackson as the start of their day in UTC
+  private static Date startOf(LocalDate date) {
+    return date == null ? null : Date.from(date.atStartOfDay(ZoneOffset.UTC).toInstant());
+  }
+
+  // resolves a path like address.city through embedded objects
+  @SuppressWarnings("unchecked")
+  private static <Y> Path<Y> path(Root<?> root, String attributePath) {
+    Path<?> path = root;
+    for (String attribute : attributePath.split("\\.")) {
+      path = path.get(attribute);
+    }
+    return (Path<Y>) path;
+  }
+}
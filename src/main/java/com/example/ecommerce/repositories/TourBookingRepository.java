@@ -1,10 +1,45 @@
 package com.example.ecommerce.repositories;
 
+import static com.example.ecommerce.constants.StringConstants.EXPORT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 import com.example.ecommerce.models.TourBooking;
-import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface TourBookingRepository extends JpaRepository<TourBooking, Long> {
+public interface TourBookingRepository extends ExtendedRepository<TourBooking> {
 
   boolean existsByTourCode(String tourCode);
   TourBooking findByTourCode(String tourCode);
+
+  @Query("select b.tourCode from TourBooking b")
+  Stream<String> streamAllTourCodes();
+
+  /**
+   * Finds which of the given tour codes are already booked, in a single IN query.
+   */
+  @Query("select b.tourCode from TourBooking b where b.tourCode in :tourCodes")
+  List<String> findExistingTourCodes(@Param("tourCodes") Collection<String> tourCodes);
+
+  /**
+   * Streams the TourBookings reserved between two dates (inclusive), fetching rows from the
+   * database cursor in batches of EXPORT_FETCH_SIZE. Must be consumed inside a transaction.
+   */
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+  Stream<TourBooking> streamByReservedDateBetweenOrderByIdAsc(Date from, Date to);
+
+  /**
+   * Counts the TourBookings of a tour reserved in [from, to), used to seed the seat inventory of
+   * a date that was booked before the inventory existed.
+   */
+  @Query("select count(b) from TourBooking b where b.tourId = :tourId "
+      + "and b.reservedDate >= :from and b.reservedDate < :to")
+  long countByTourIdAndReservedDateIn(@Param("tourId") Long tourId, @Param("from") Date from,
+      @Param("to") Date to);
 }
@@ -0,0 +1,56 @@
+package com.example.ecommerce.repositories;
+
+import com.example.ecommerce.models.TourInventory;
+import java.time.LocalDate;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface TourInventoryRepository extends ExtendedRepository<TourInventory> {
+
+  Optional<TourInventory> findByTourIdAndReservedDate(Long tourId, LocalDate reservedDate);
+
+  /**
+   * Takes seats from a tour date, but only if enough are left. The check and the decrement are a
+   * single statement, so the database serializes racing bookings on the row, not the table.
+   *
+   * @return 1 if the seats were taken, 0 if the date is sold out (or has no inventory row).
+   */
+  @Transactional
+  @Modifying
+  @Query("update TourInventory i set i.remaining = i.remaining - :seats "
+      + "where i.tourId = :tourId and i.reservedDate = :reservedDate and i.remaining >= :seats")
+  int reserveSeats(@Param("tourId") Long tourId, @Param("reservedDate") LocalDate reservedDate,
+      @Param("seats") int seats);
+
+  /**
+   * Gives seats back to a tour date, never beyond its capacity.
+   *
+   * @return 1 if the seats were returned, 0 otherwise.
+   */
+  @Transactional
+  @Modifying
+  @Query("update TourInventory i set i.remaining = i.remaining + :seats "
+      + "where i.tourId = :tourId and i.reservedDate = :reservedDate "
+      + "and i.remaining + :seats <= i.capacity")
+  int releaseSeats(@Param("tourId") Long tourId, @Param("reservedDate") LocalDate reservedDate,
+      @Param("seats") int seats);
+
+  /**
+   * Applies a new capacity to every date of a tour, keeping the seats already booked. A date
+   * that is booked beyond the new capacity is left with a negative remaining count and accepts
+   * no bookings until enough are cancelled.
+   */
+  @Transactional
+  @Modifying
+  @Query("update TourInventory i set i.remaining = i.remaining + :capacity - i.capacity, "
+      + "i.capacity = :capacity where i.tourId = :tourId")
+  int resizeTour(@Param("tourId") Long tourId, @Param("capacity") int capacity);
+
+  @Transactional
+  @Modifying
+  @Query("delete from TourInventory i where i.tourId = :tourId")
+  int deleteByTourId(@Param("tourId") Long tourId);
+}
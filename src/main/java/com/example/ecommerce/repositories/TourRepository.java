@@ -1,8 +1,35 @@
 package com.example.ecommerce.repositories;
 
 import com.example.ecommerce.models.Tour;
-import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface TourRepository extends JpaRepository<Tour, Long> {
+public interface TourRepository extends ExtendedRepository<Tour> {
 
+  List<Tour> findByIsActiveTrue(Sort sort);
+
+  /**
+   * Streams the id, description and rating of every Tour, as [id, description, rating] rows,
+   * without loading the Tours into the persistence context. Must be consumed inside a transaction.
+   */
+  @Query("select t.id, t.description, t.rating from Tour t")
+  Stream<Object[]> streamAllDescriptions();
+
+  /**
+   * Finds the id, description and rating of the given Tours, as [id, description, rating] rows.
+   */
+  @Query("select t.id, t.description, t.rating from Tour t where t.id in :ids")
+  List<Object[]> findDescriptionsByIdIn(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Sums up the state of the whole catalog, as one [count, sum of versions, max id] row. Every
+   * write that goes through JPA changes it: an update raises a version, an insert takes a new
+   * highest id from the sequence, and a delete lowers the count.
+   */
+  @Query("select count(t), coalesce(sum(t.version), 0), coalesce(max(t.id), 0) from Tour t")
+  List<Object[]> findCatalogState();
 }
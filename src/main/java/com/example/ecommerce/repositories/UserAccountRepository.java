@@ -1,13 +1,21 @@
 package com.example.ecommerce.repositories;
 
 import com.example.ecommerce.models.UserAccount;
-import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.stream.Stream;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface UserAccountRepository extends JpaRepository<UserAccount, Long> {
+public interface UserAccountRepository extends ExtendedRepository<UserAccount> {
 
   public UserAccount findByUsername(String username);
 
   boolean existsByUsername(String username);
+
+  @Query("select a.username from user_account a")
+  Stream<String> streamAllUsernames();
+
+  @Query("select a.username from user_account a where a.id = :id")
+  String findUsernameById(@Param("id") Long id);
 }
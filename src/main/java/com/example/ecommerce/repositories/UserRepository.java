@@ -1,7 +1,8 @@
 package com.example.ecommerce.repositories;
 
 import com.example.ecommerce.models.User;
-import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.stream.Stream;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -9,9 +10,12 @@ import org.springframework.stereotype.Repository;
  * User Objects.
  */
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends ExtendedRepository<User> {
 
   boolean existsByEmail(String email);
 
+  @Query("select u.email from User u")
+  Stream<String> streamAllEmails();
+
   User findByEmail(String email);
 }
@@ -0,0 +1,99 @@
+package com.example.ecommerce.security;
+
+import static com.example.ecommerce.constants.StringConstants.ACCOUNT_STATUS_CACHE;
+
+import com.example.ecommerce.models.UserAccount;
+import com.example.ecommerce.repositories.UserAccountRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class caches the active flag and role of user accounts, so that a stateless request can be
+ * checked for a deactivated, deleted or re-roled account without a database lookup on every
+ * request. Entries are bounded by the accountStatus cache spec and expire shortly after they are
+ * loaded, so a write made by another instance is seen within that TTL; a miss reads the account
+ * from the database. Writes made by this instance are applied by the UserAccountService at once,
+ * once they have committed.
+ */
+@Component
+public class AccountStatusRegistry {
+
+  private static final AccountStatus UNKNOWN = new AccountStatus(false, null);
+
+  @Autowired
+  private UserAccountRepository userAccountRepository;
+
+  @Autowired
+  private CacheManager cacheManager;
+
+  /**
+   * Tells whether a username belongs to an existing, active account.
+   *
+   * @param username the subject of a verified token.
+   * @return false if the account is inactive, deleted or unknown.
+   */
+  public boolean isActive(String username) {
+    return statusOf(username).active();
+  }
+
+  /**
+   * Looks up the current role of an account, which a token's roles claim may predate.
+   *
+   * @param username the subject of a verified token.
+   * @return the role, or null if the account is unknown.
+   */
+  public String roleOf(String username) {
+    return statusOf(username).role();
+  }
+
+  /**
+   * Records the current state of an account that has just been saved. Within a transaction, the
+   * state is only recorded once the transaction commits (the CacheManager is transaction-aware,
+   * see CacheConfig), so a rolled-back write leaves the cache as it was.
+   *
+   * @param previousUsername the username the account had before the write, or null if new.
+   * @param userAccount      the saved account.
+   */
+  public void update(String previousUsername, UserAccount userAccount) {
+    Cache accountStatusCache = cacheManager.getCache(ACCOUNT_STATUS_CACHE);
+    if (previousUsername != null && !previousUsername.equals(userAccount.getUsername())) {
+      accountStatusCache.evict(previousUsername);
+    }
+    accountStatusCache.put(userAccount.getUsername(),
+        new AccountStatus(userAccount.isActive(), userAccount.getRole()));
+  }
+
+  /**
+   * Forgets an account whose state is not fully known after a write, e.g. a deleted or patched
+   * one, so the next request reads it from the database. Within a transaction, the account is
+   * only forgotten once the transaction commits.
+   *
+   * @param username the username of the account, or null to do nothing.
+   */
+  public void evict(String username) {
+    if (username != null) {
+      cacheManager.getCache(ACCOUNT_STATUS_CACHE).evict(username);
+    }
+  }
+
+  // unknown usernames are not cached, so an account created by another instance is seen at once
+  private AccountStatus statusOf(String username) {
+    Cache accountStatusCache = cacheManager.getCache(ACCOUNT_STATUS_CACHE);
+    AccountStatus status = accountStatusCache.get(username, AccountStatus.class);
+    if (status != null) {
+      return status;
+    }
+    UserAccount userAccount = userAccountRepository.findByUsername(username);
+    if (userAccount == null) {
+      return UNKNOWN;
+    }
+    status = new AccountStatus(userAccount.isActive(), userAccount.getRole());
+    accountStatusCache.put(username, status);
+    return status;
+  }
+
+  private record AccountStatus(boolean active, String role) {
+  }
+}
@@ -2,12 +2,12 @@ package com.example.ecommerce.security;
 
 import static com.example.ecommerce.constants.StringConstants.BAD_CREDENTIALS;
 
-import com.example.ecommerce.config.MyAppUserDetailsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -21,7 +21,7 @@ public class AuthenticationController {
   AuthenticationManager authenticationManager;
 
   @Autowired
-  MyAppUserDetailsService userDetailsService;
+  UserDetailsService userDetailsService;
 
   @Autowired
   JwtUtils jwtUtils;
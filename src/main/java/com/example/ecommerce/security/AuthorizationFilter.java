@@ -1,15 +1,26 @@
 package com.example.ecommerce.security;
 
-import com.example.ecommerce.config.MyAppUserDetailsService;
+import static com.example.ecommerce.constants.StringConstants.AUTHORIZATION_HEADER_NAME;
+import static com.example.ecommerce.constants.StringConstants.TOKEN_PREFIX;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import java.io.IOException;
+import java.util.List;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -17,25 +28,37 @@ import org.springframework.web.filter.OncePerRequestFilter;
 @Component
 public class AuthorizationFilter extends OncePerRequestFilter {
 
+  private final Logger logger = LoggerFactory.getLogger(AuthorizationFilter.class);
+
   @Autowired
   JwtUtils jwtUtils;
   @Autowired
-  MyAppUserDetailsService userDetailsService;
+  UserDetailsService userDetailsService;
+  @Autowired
+  AccountStatusRegistry accountStatusRegistry;
+
+  @Value("${wildlife-tours.security.stateless}")
+  private boolean stateless;
 
   @Override
   protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
       FilterChain filterChain) throws ServletException, IOException {
-    String authorizationHeaderValue = request.getHeader("Authorization");
-    String jwt = null;
-    String userName = null; //username??
-    if (authorizationHeaderValue != null && authorizationHeaderValue.startsWith("Bearer ")) {
-      jwt = authorizationHeaderValue.substring(7);
-      userName = jwtUtils.extractUsername(jwt); //extract rolename??
+    String authorizationHeaderValue = request.getHeader(AUTHORIZATION_HEADER_NAME);
+    Claims claims = null; // parsed and verified once per request
+    if (authorizationHeaderValue != null && authorizationHeaderValue.startsWith(TOKEN_PREFIX)) {
+      String jwt = authorizationHeaderValue.substring(TOKEN_PREFIX.length());
+      try {
+        claims = jwtUtils.parseVerifiedClaims(jwt);
+      } catch (JwtException | IllegalArgumentException e) {
+        // an invalid token leaves the request unauthenticated, the same as no token at all
+        logger.warn("Rejected bearer token: " + e.getMessage());
+      }
     }
-    if (userName != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-      UserDetails userDetails = this.userDetailsService.loadUserByUsername(userName);
+    if (claims != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+      UserDetails userDetails = stateless ? userDetailsFromClaims(claims)
+          : this.userDetailsService.loadUserByUsername(claims.getSubject());
 
-      if (jwtUtils.validateToken(jwt, userDetails)) {
+      if (userDetails != null && jwtUtils.validateToken(claims, userDetails)) {
         UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
             userDetails, null, userDetails.getAuthorities()); //roles are authorities
         authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -46,4 +69,29 @@ public class AuthorizationFilter extends OncePerRequestFilter {
 
     filterChain.doFilter(request, response);
   }
+
+  /**
+   * Builds the principal straight from the verified roles claim. Deactivated and deleted accounts,
+   * and tokens whose roles claim no longer matches the account's role, are rejected from the
+   * cached AccountStatusRegistry, so a query is only needed on a cache miss. A role change takes
+   * effect at once on this instance and within the cache TTL on others: the account has to log in
+   * again for a token with its new role.
+   *
+   * @param claims verified claims.
+   * @return the principal, or null if the account may no longer authenticate.
+   */
+  private UserDetails userDetailsFromClaims(Claims claims) {
+    String username = claims.getSubject();
+    if (!accountStatusRegistry.isActive(username)) {
+      logger.warn("Rejected bearer token of inactive or deleted account " + username);
+      return null;
+    }
+    List<GrantedAuthority> authorities = jwtUtils.extractAuthorities(claims);
+    String role = accountStatusRegistry.roleOf(username);
+    if (role == null || !authorities.equals(RoleAuthorities.of(role))) {
+      logger.warn("Rejected bearer token with outdated roles of account " + username);
+      return null;
+    }
+    return new User(username, "", authorities); // no credentials: the token is the credential
+  }
 }
@@ -1,21 +1,38 @@
 package com.example.ecommerce.security;
 
+import static com.example.ecommerce.constants.StringConstants.AUTHORITY_ATTRIBUTE;
 import static com.example.ecommerce.constants.StringConstants.ROLES_ATTRIBUTE;
 import static com.example.ecommerce.constants.StringConstants.SECRET;
+import static com.example.ecommerce.constants.StringConstants.VERIFIED_TOKENS_CACHE;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 @Component
 public class JwtUtils {
 
+  @Autowired
+  private CacheManager cacheManager;
+
   public String extractUsername(String token) {
     return extractClaim(token, Claims::getSubject);
   }
@@ -25,16 +42,72 @@ public class JwtUtils {
   }
 
   public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-    final Claims claims = extractAllClaims(token);
+    final Claims claims = parseVerifiedClaims(token);
     return claimsResolver.apply(claims);
   }
 
+  /**
+   * Verifies the signature and expiration of a token, and returns its claims. This is the only
+   * place a token is parsed: verified tokens are cached by their SHA-256 digest until they expire,
+   * so repeated requests with the same token skip the HMAC check entirely.
+   *
+   * @param token the compact JWT, without the bearer prefix.
+   * @return the verified claims.
+   * @throws io.jsonwebtoken.JwtException if the token is malformed, forged or expired.
+   */
+  public Claims parseVerifiedClaims(String token) {
+    Cache verifiedTokens = cacheManager.getCache(VERIFIED_TOKENS_CACHE);
+    String digest = digest(token);
+
+    Claims claims = verifiedTokens.get(digest, Claims.class);
+    if (claims == null) {
+      claims = extractAllClaims(token);
+      verifiedTokens.put(digest, claims);
+    } else if (isTokenExpired(claims)) {
+      verifiedTokens.evict(digest);
+      throw new ExpiredJwtException(null, claims, "JWT expired at " + claims.getExpiration());
+    }
+    return claims;
+  }
+
+  /**
+   * Rebuilds the authorities that generateToken wrote into the roles claim. The claim holds the
+   * serialized GrantedAuthority objects ({"authority": "admin"}), but plain strings are accepted
+   * as well.
+   *
+   * @param claims verified claims.
+   * @return the granted authorities, empty if the claim is missing.
+   */
+  public List<GrantedAuthority> extractAuthorities(Claims claims) {
+    List<GrantedAuthority> authorities = new ArrayList<>();
+    Object roles = claims.get(ROLES_ATTRIBUTE);
+    if (roles instanceof Collection) {
+      for (Object role : (Collection<?>) roles) {
+        Object authority = role instanceof Map ? ((Map<?, ?>) role).get(AUTHORITY_ATTRIBUTE) : role;
+        if (authority != null) {
+          authorities.add(RoleAuthorities.authority(authority.toString()));
+        }
+      }
+    }
+    return authorities;
+  }
+
   private Claims extractAllClaims(String token) {
     return Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token).getBody();
   }
 
-  private Boolean isTokenExpired(String token) {
-    return extractExpiration(token).before(new Date());
+  private Boolean isTokenExpired(Claims claims) {
+    return claims.getExpiration().before(new Date());
+  }
+
+  private String digest(String token) {
+    try {
+      MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+      return Base64.getEncoder()
+          .encodeToString(messageDigest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e); // every JVM is required to provide SHA-256
+    }
   }
 
   public String generateToken(UserDetails userDetails) {
@@ -52,8 +125,11 @@ public class JwtUtils {
   }
 
   public Boolean validateToken(String token, UserDetails userDetails) {
-    final String username = extractUsername(token);
-    return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+    return validateToken(parseVerifiedClaims(token), userDetails);
+  }
+
+  public Boolean validateToken(Claims claims, UserDetails userDetails) {
+    return (claims.getSubject().equals(userDetails.getUsername()) && !isTokenExpired(claims));
   }
 
 }
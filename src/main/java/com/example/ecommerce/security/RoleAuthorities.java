@@ -0,0 +1,36 @@
+package com.example.ecommerce.security;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/**
+ * This class interns the granted authorities of each role. There are only a handful of roles, so
+ * every principal shares the same immutable authority instances instead of allocating new ones on
+ * each load.
+ */
+public final class RoleAuthorities {
+
+  private static final Map<String, List<GrantedAuthority>> AUTHORITIES_BY_ROLE =
+      new ConcurrentHashMap<>();
+
+  private RoleAuthorities() {
+  }
+
+  /**
+   * Returns the shared, immutable authority list of a role.
+   *
+   * @param role the role name, e.g. "admin".
+   * @return a single-element list holding the role's authority.
+   */
+  public static List<GrantedAuthority> of(String role) {
+    return AUTHORITIES_BY_ROLE.computeIfAbsent(role,
+        name -> List.of(new SimpleGrantedAuthority(name)));
+  }
+
+  public static GrantedAuthority authority(String role) {
+    return of(role).get(0);
+  }
+}
@@ -0,0 +1,14 @@
+package com.example.ecommerce.services;
+
+import com.example.ecommerce.models.BookingHold;
+import com.example.ecommerce.models.TourBooking;
+
+public interface BookingHoldService {
+
+  BookingHold placeHold(BookingHold bookingHold);
+
+  TourBooking confirmHold(Long id, TourBooking tourBooking);
+
+  void releaseHold(Long id);
+
+}
@@ -0,0 +1,282 @@
+package com.example.ecommerce.services;
+
+import static com.example.ecommerce.constants.StringConstants.ADMIN;
+import static com.example.ecommerce.constants.StringConstants.EMPLOYEE;
+import static com.example.ecommerce.constants.StringConstants.NOT_FOUND;
+
+import com.example.ecommerce.exceptions.BadDataResponse;
+import com.example.ecommerce.exceptions.Conflict;
+import com.example.ecommerce.exceptions.ResourceNotFound;
+import com.example.ecommerce.exceptions.ServiceUnavailable;
+import com.example.ecommerce.models.BookingHold;
+import com.example.ecommerce.models.TourBooking;
+import com.example.ecommerce.repositories.BookingHoldRepository;
+import com.example.ecommerce.repositories.TourBookingRepository;
+import com.example.ecommerce.security.RoleAuthorities;
+import com.example.ecommerce.services.UniqueValueFilters.UniqueKey;
+import com.example.ecommerce.utils.HierarchicalTimerWheel.Timeout;
+import com.example.ecommerce.utils.HierarchicalTimerWheel;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * This class places time-limited holds on tour seats. A hold takes its seat from the
+ * SeatInventoryService straight away; confirming it turns that seat into a TourBooking, while
+ * releasing or expiring it gives the seat back. Expiry is driven by a HierarchicalTimerWheel with
+ * one-second ticks, so outstanding holds cost one timeout entry each rather than a scheduled task.
+ * Holds are stored, and any still pending are rescheduled when the application starts. Each hold
+ * belongs to the user who placed it, and a user may only have a few outstanding at once.
+ */
+@Service
+public class BookingHoldServiceImpl implements BookingHoldService {
+
+  private static final int SEATS_PER_HOLD = 1;
+  private static final int WHEEL_SIZE = 64;
+  private static final int WHEEL_LEVELS = 4;
+  private static final int EXPIRY_THREADS = 2;
+  private static final long EXPIRY_RETRY_SECONDS = 60;
+
+  private final Logger logger = LoggerFactory.getLogger(BookingHoldService.class);
+
+  private final Map<Long, Timeout> timeouts = new ConcurrentHashMap<>();
+  private ExecutorService expiryExecutor;
+  private HierarchicalTimerWheel timerWheel;
+
+  @Value("${wildlife-tours.holds.ttl}")
+  private Duration holdTtl;
+
+  @Value("${wildlife-tours.holds.max-per-user}")
+  private long maxHoldsPerUser;
+
+  @Autowired
+  private BookingHoldRepository bookingHoldRepository;
+
+  @Autowired
+  private TourBookingRepository tourBookingRepository;
+
+  @Autowired
+  private SeatInventoryService seatInventoryService;
+
+  @Autowired
+  private UniqueValueFilters uniqueValueFilters;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @PostConstruct
+  public void startTimerWheel() {
+    expiryExecutor = Executors.newFixedThreadPool(EXPIRY_THREADS);
+    timerWheel = new HierarchicalTimerWheel(1, TimeUnit.SECONDS, WHEEL_SIZE, WHEEL_LEVELS,
+        expiryExecutor, "booking-hold-expiry");
+  }
+
+  @PreDestroy
+  public void stopTimerWheel() {
+    timerWheel.close();
+    expiryExecutor.shutdown();
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void scheduleStoredHolds() {
+    for (BookingHold bookingHold : bookingHoldRepository.findAll()) {
+      scheduleExpiry(bookingHold);
+    }
+  }
+
+  /**
+   * Holds a seat on a tour date for the current user until the hold's TTL runs out.
+   *
+   * @param bookingHold the tour and reserved date to hold.
+   * @return the saved hold, with its id, owner and expiry time.
+   */
+  @Override
+  @Transactional
+  public BookingHold placeHold(BookingHold bookingHold) {
+    String username = currentAuthentication().getName();
+    if (bookingHoldRepository.countByUsernameAndExpiresAtAfter(username, new Date())
+        >= maxHoldsPerUser) {
+      throw new Conflict(" User already has " + maxHoldsPerUser + " outstanding holds!");
+    }
+    seatInventoryService.reserveSeats(bookingHold.getTourId(), bookingHold.getReservedDate(),
+        SEATS_PER_HOLD);
+    bookingHold.setId(null);
+    bookingHold.setUsername(username);
+    bookingHold.setExpiresAt(Date.from(Instant.now().plus(holdTtl)));
+    BookingHold savedBookingHold;
+    try {
+      savedBookingHold = bookingHoldRepository.save(bookingHold);
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
+    }
+    scheduleExpiry(savedBookingHold);
+    return savedBookingHold;
+  }
+
+  /**
+   * Turns a hold into a TourBooking, which keeps the seat taken by the hold. A hold past its
+   * expiry time cannot be confirmed, even if its timeout has not run yet. Another user's hold is
+   * not found, unless the caller is an admin or employee.
+   *
+   * @param id          the id of the hold.
+   * @param tourBooking the booking; its tour and reserved date must match the hold.
+   * @return the saved TourBooking.
+   */
+  @Override
+  @Transactional
+  public TourBooking confirmHold(Long id, TourBooking tourBooking) {
+    BookingHold bookingHold = getOwnBookingHoldById(id);
+    if (!bookingHold.getExpiresAt().after(new Date())) {
+      throw new Conflict(" Hold with id " + id + " has expired!");
+    }
+    if (!Objects.equals(bookingHold.getTourId(), tourBooking.getTourId())
+        || !sameDay(bookingHold.getReservedDate(), tourBooking.getReservedDate())) {
+      throw new BadDataResponse("tourId and reservedDate must match the hold");
+    }
+    if (uniqueValueFilters.mightContain(UniqueKey.TOUR_CODE, tourBooking.getTourCode())
+        && tourBookingRepository.existsByTourCode(tourBooking.getTourCode())) {
+      throw new Conflict(" Tour code already in use!");
+    }
+    if (bookingHoldRepository.deleteHoldById(id) == 0) {
+      throw new ResourceNotFound(NOT_FOUND + " hold with id " + id);
+    }
+    TourBooking savedTourBooking;
+    try {
+      savedTourBooking = tourBookingRepository.saveAndFlush(tourBooking);
+    } catch (DataIntegrityViolationException e) {
+      throw new Conflict(" Tour code already in use!");
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
+    }
+    uniqueValueFilters.add(UniqueKey.TOUR_CODE, savedTourBooking.getTourCode());
+    cancelExpiryAfterCommit(id);
+    return savedTourBooking;
+  }
+
+  /**
+   * Releases a hold and gives its seat back. Another user's hold is not found, unless the caller
+   * is an admin or employee.
+   *
+   * @param id the id of the hold.
+   */
+  @Override
+  @Transactional
+  public void releaseHold(Long id) {
+    BookingHold bookingHold = getOwnBookingHoldById(id);
+    if (bookingHoldRepository.deleteHoldById(id) == 0) {
+      throw new ResourceNotFound(NOT_FOUND + " hold with id " + id);
+    }
+    seatInventoryService.releaseSeats(bookingHold.getTourId(), bookingHold.getReservedDate(),
+        SEATS_PER_HOLD);
+    cancelExpiryAfterCommit(id);
+  }
+
+  private BookingHold getBookingHoldById(Long id) {
+    if (id < 1) {
+      throw new BadDataResponse("id must be positive and cannot be zero");
+    }
+    try {
+      BookingHold bookingHold = bookingHoldRepository.findById(id).orElse(null);
+      if (bookingHold != null) {
+        return bookingHold;
+      }
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e.getMessage());
+    }
+    throw new ResourceNotFound(NOT_FOUND + " hold with id " + id);
+  }
+
+  // a foreign hold answers like a missing one, so hold ids cannot be probed
+  private BookingHold getOwnBookingHoldById(Long id) {
+    BookingHold bookingHold = getBookingHoldById(id);
+    Authentication authentication = currentAuthentication();
+    if (!Objects.equals(bookingHold.getUsername(), authentication.getName())
+        && !authentication.getAuthorities().contains(RoleAuthorities.authority(ADMIN))
+        && !authentication.getAuthorities().contains(RoleAuthorities.authority(EMPLOYEE))) {
+      throw new ResourceNotFound(NOT_FOUND + " hold with id " + id);
+    }
+    return bookingHold;
+  }
+
+  private Authentication currentAuthentication() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication == null) {
+      throw new IllegalStateException("Holds are only reachable by authenticated users");
+    }
+    return authentication;
+  }
+
+  private void scheduleExpiry(BookingHold bookingHold) {
+    long delay = bookingHold.getExpiresAt().getTime() - System.currentTimeMillis();
+    Long id = bookingHold.getId();
+    timeouts.put(id, timerWheel.schedule(() -> expire(bookingHold), delay,
+        TimeUnit.MILLISECONDS));
+  }
+
+  // if the transaction rolls back, the hold is still stored and must still expire
+  private void cancelExpiryAfterCommit(Long id) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      cancelExpiry(id);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        cancelExpiry(id);
+      }
+    });
+  }
+
+  private void cancelExpiry(Long id) {
+    Timeout timeout = timeouts.remove(id);
+    if (timeout != null) {
+      timeout.cancel();
+    }
+  }
+
+  private void expire(BookingHold bookingHold) {
+    timeouts.remove(bookingHold.getId());
+    try {
+      new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+        // a hold confirmed or released meanwhile is already gone, and keeps its seat accounting
+        if (bookingHoldRepository.deleteHoldById(bookingHold.getId()) > 0) {
+          seatInventoryService.releaseSeats(bookingHold.getTourId(),
+              bookingHold.getReservedDate(), SEATS_PER_HOLD);
+        }
+      });
+    } catch (Exception e) {
+      logger.error("Could not expire hold " + bookingHold.getId() + ": " + e.getMessage());
+      timeouts.put(bookingHold.getId(), timerWheel.schedule(() -> expire(bookingHold),
+          EXPIRY_RETRY_SECONDS, TimeUnit.SECONDS));
+    }
+  }
+
+  private boolean sameDay(Date first, Date second) {
+    return Instant.ofEpochMilli(first.getTime()).atZone(ZoneOffset.UTC).toLocalDate()
+        .equals(Instant.ofEpochMilli(second.getTime()).atZone(ZoneOffset.UTC).toLocalDate());
+  }
+}
@@ -0,0 +1,40 @@
+package com.example.ecommerce.services;
+
+import static com.example.ecommerce.constants.StringConstants.MAX_BULK_SIZE;
+
+import com.example.ecommerce.exceptions.BadDataResponse;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+/**
+ * This class contains the checks shared by the bulk create methods of the services.
+ */
+final class BulkRequests {
+
+  private BulkRequests() {
+  }
+
+  static void checkSize(List<?> items) {
+    if (items == null || items.isEmpty() || items.size() > MAX_BULK_SIZE) {
+      throw new BadDataResponse("a bulk request must contain between 1 and " + MAX_BULK_SIZE
+          + " items");
+    }
+  }
+
+  /**
+   * Validates one item the way @Valid does on the single-item endpoints.
+   *
+   * @return the messages of the violated constraints, empty if the item is valid.
+   */
+  static List<String> violationsOf(Validator validator, Object item) {
+    if (item == null) {
+      return List.of("item must not be null");
+    }
+    return validator.validate(item).stream()
+        .map(ConstraintViolation::getMessage)
+        .sorted()
+        .collect(Collectors.toList());
+  }
+}
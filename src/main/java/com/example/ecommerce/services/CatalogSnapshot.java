@@ -0,0 +1,161 @@
+package com.example.ecommerce.services;
+
+import static com.example.ecommerce.constants.StringConstants.ID_ATTRIBUTE;
+
+import com.example.ecommerce.models.Tour;
+import com.example.ecommerce.repositories.TourRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+/**
+ * This class keeps the active tour catalog as JSON that is already serialized, plus a gzip
+ * compressed copy, so that serving the catalog only copies bytes. The snapshot is immutable; it is
+ * rebuilt on a background thread whenever a TourChangedEvent is committed, and requests keep
+ * getting the previous one until the new one is ready. Changes that arrive during a rebuild are
+ * folded into a single further rebuild.
+ */
+@Component
+public class CatalogSnapshot {
+
+  /**
+   * One immutable encoding of the catalog. The byte arrays are shared between requests and must
+   * not be modified.
+   */
+  public static final class Snapshot {
+
+    private final byte[] json;
+    private final byte[] gzip;
+    private final String etag;
+    private final int size;
+
+    private Snapshot(byte[] json, byte[] gzip, int size) {
+      this.json = json;
+      this.gzip = gzip;
+      this.size = size;
+      // derived from the content, so equal on every instance and across restarts
+      this.etag = DigestUtils.md5DigestAsHex(json);
+    }
+
+    public byte[] getJson() {
+      return json;
+    }
+
+    public byte[] getGzip() {
+      return gzip;
+    }
+
+    /**
+     * @return the strong entity tag of the JSON encoding, quoted.
+     */
+    public String getEtag() {
+      return "\"" + etag + "\"";
+    }
+
+    /**
+     * @return the strong entity tag of the gzip encoding, quoted; distinct from the JSON one, as
+     * the two encodings are different representations.
+     */
+    public String getGzipEtag() {
+      return "\"" + etag + "-gzip\"";
+    }
+
+    public int getSize() {
+      return size;
+    }
+  }
+
+  private final Logger logger = LoggerFactory.getLogger(CatalogSnapshot.class);
+
+  private final AtomicBoolean rebuildPending = new AtomicBoolean();
+  private volatile Snapshot snapshot;
+  private ExecutorService rebuildExecutor;
+
+  @Autowired
+  private TourRepository tourRepository;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @PostConstruct
+  public void startRebuildExecutor() {
+    rebuildExecutor = Executors.newSingleThreadExecutor(
+        runnable -> new Thread(runnable, "catalog-snapshot"));
+  }
+
+  @PreDestroy
+  public void stopRebuildExecutor() {
+    rebuildExecutor.shutdownNow();
+  }
+
+  /**
+   * @return the latest snapshot, built on the calling thread only if none was built yet.
+   */
+  public Snapshot current() {
+    Snapshot current = snapshot;
+    if (current == null) {
+      synchronized (this) {
+        if (snapshot == null) {
+          snapshot = build();
+        }
+        current = snapshot;
+      }
+    }
+    return current;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void buildInitialSnapshot() {
+    scheduleRebuild();
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onTourChanged(TourChangedEvent event) {
+    scheduleRebuild();
+  }
+
+  private void scheduleRebuild() {
+    if (rebuildPending.compareAndSet(false, true)) {
+      rebuildExecutor.execute(() -> {
+        // cleared first, so that a change committed while building schedules another rebuild
+        rebuildPending.set(false);
+        try {
+          snapshot = build();
+        } catch (RuntimeException e) {
+          logger.error("Could not rebuild the catalog snapshot, serving the previous one", e);
+        }
+      });
+    }
+  }
+
+  private Snapshot build() {
+    List<Tour> tours = tourRepository.findByIsActiveTrue(Sort.by(ID_ATTRIBUTE));
+    try {
+      byte[] json = objectMapper.writeValueAsBytes(tours);
+      ByteArrayOutputStream gzip = new ByteArrayOutputStream(json.length / 4 + 64);
+      try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+        out.write(json);
+      }
+      return new Snapshot(json, gzip.toByteArray(), tours.size());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package com.example.ecommerce.services;
+
+import static com.example.ecommerce.constants.StringConstants.TOUR_QUERIES_CACHE;
+
+import com.example.ecommerce.repositories.TourRepository;
+import java.util.concurrent.atomic.AtomicReference;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class tags the catalog responses with a strong ETag that changes whenever any Tour does.
+ * Clients and CDNs revalidate with If-None-Match and get a 304 without the catalog being queried.
+ *
+ * <p>The tag is derived from the stored catalog by one aggregate query (see
+ * TourRepository.findCatalogState), so it follows the writes of every instance and of restarts,
+ * not only those made through this one. When it changes without this instance having written,
+ * the cached catalog queries predate the new tag and are dropped before they can be served with
+ * it.
+ */
+@Component
+public class CatalogVersion {
+
+  private final AtomicReference<String> lastEtag = new AtomicReference<>();
+
+  @Autowired
+  private TourRepository tourRepository;
+
+  @Autowired
+  private CacheManager cacheManager;
+
+  /**
+   * Read before querying the catalog: a change committed in between makes the response carry an
+   * older tag than its content, which only costs the client one more full response.
+   *
+   * @return the strong entity tag of the current catalog, quoted.
+   */
+  public String etag() {
+    Object[] state = tourRepository.findCatalogState().get(0);
+    StringBuilder etag = new StringBuilder("\"");
+    for (Object value : state) {
+      if (etag.length() > 1) {
+        etag.append('-');
+      }
+      etag.append(Long.toString(((Number) value).longValue(), Character.MAX_RADIX));
+    }
+    String currentEtag = etag.append('"').toString();
+    if (!currentEtag.equals(lastEtag.getAndSet(currentEtag))) {
+      cacheManager.getCache(TOUR_QUERIES_CACHE).clear();
+    }
+    return currentEtag;
+  }
+}
@@ -0,0 +1,38 @@
+package com.example.ecommerce.services;
+
+import static com.example.ecommerce.constants.StringConstants.NOT_FOUND;
+
+import com.example.ecommerce.exceptions.PreconditionFailed;
+import com.example.ecommerce.exceptions.ResourceNotFound;
+import com.example.ecommerce.repositories.ExtendedRepository;
+
+/**
+ * This class contains the outcome check shared by the update methods of the services, which
+ * update an entity with a single statement that is conditional on its version (If-Match).
+ */
+final class ConditionalUpdates {
+
+  private ConditionalUpdates() {
+  }
+
+  /**
+   * Turns the row count of an update into its outcome. A conditional update that matched nothing
+   * costs a second query, to tell a changed entity (412) from a missing one (404); so does an
+   * unconditional update that matched, to read back the version it wrote for the ETag.
+   *
+   * @param updatedRows the number of rows the update changed.
+   * @param version     the version the update was conditional on, or null.
+   * @return the new version of the entity.
+   */
+  static Long checkUpdated(int updatedRows, ExtendedRepository<?> repository, Long id,
+      Long version, String resource) {
+    if (updatedRows > 0) {
+      return version == null ? repository.findVersionById(id) : version + 1;
+    }
+    if (version != null && repository.existsById(id)) {
+      throw new PreconditionFailed(resource + " with id " + id
+          + " is no longer at the version of If-Match");
+    }
+    throw new ResourceNotFound(NOT_FOUND + resource + " with id " + id);
+  }
+}
@@ -0,0 +1,110 @@
+package com.example.ecommerce.services;
+
+import static com.example.ecommerce.constants.StringConstants.MAX_COMPLETIONS;
+
+import com.example.ecommerce.repositories.CustomerRepository;
+import com.example.ecommerce.utils.CompletionTrie;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * This class completes prefixes with the names of the Customers, from any word of the name on, so
+ * that "smi" finds "John Smith". Names shared by more Customers rank first. The names are loaded
+ * from the database once the application is ready and kept current by the CustomerService on
+ * every insert, update and delete.
+ */
+@Component
+public class CustomerNameCompletions {
+
+  // ends the word a key starts at, before the whole name that makes the key unique
+  private static final char KEY_SEPARATOR = '\u0000';
+
+  private final Logger logger = LoggerFactory.getLogger(CustomerNameCompletions.class);
+
+  private final CompletionTrie trie = new CompletionTrie(MAX_COMPLETIONS);
+  private final Map<Long, String> namesById = new HashMap<>();
+  private final Map<String, Integer> customersByKey = new HashMap<>();
+
+  @Autowired
+  private CustomerRepository customerRepository;
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional(readOnly = true)
+  public void load() {
+    try (Stream<Object[]> names = customerRepository.streamAllNames()) {
+      names.forEach(row -> put((Long) row[0], (String) row[1]));
+    }
+    logger.info("Loaded the names of " + namesById.size() + " customers for completion");
+  }
+
+  /**
+   * Adds the name of a Customer, or replaces it.
+   *
+   * @param id   the id of the Customer.
+   * @param name the name of the Customer.
+   */
+  public synchronized void put(Long id, String name) {
+    remove(id);
+    if (name == null || name.isBlank()) {
+      return;
+    }
+    String displayName = name.strip();
+    for (String key : keys(displayName)) {
+      trie.put(key, displayName, customersByKey.merge(key, 1, Integer::sum));
+    }
+    namesById.put(id, displayName);
+  }
+
+  public synchronized void remove(Long id) {
+    String displayName = namesById.remove(id);
+    if (displayName == null) {
+      return;
+    }
+    for (String key : keys(displayName)) {
+      Integer customers = customersByKey.merge(key, -1, Integer::sum);
+      if (customers == 0) {
+        customersByKey.remove(key);
+        trie.remove(key);
+      } else {
+        trie.put(key, displayName, customers);
+      }
+    }
+  }
+
+  /**
+   * Completes a prefix of a name, or of any of its later words.
+   *
+   * @param prefix the text typed so far.
+   * @param limit  the maximum number of completions.
+   * @return the best matching names, most common first.
+   */
+  public List<String> complete(String prefix, int limit) {
+    return trie.complete(normalize(prefix), limit);
+  }
+
+  // the whole name, and the name from each later word on followed by the whole name
+  private static List<String> keys(String name) {
+    String normalized = normalize(name);
+    List<String> keys = new ArrayList<>();
+    keys.add(normalized);
+    for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+      keys.add(normalized.substring(i + 1) + KEY_SEPARATOR + normalized);
+    }
+    return keys;
+  }
+
+  private static String normalize(String text) {
+    return text.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+  }
+}
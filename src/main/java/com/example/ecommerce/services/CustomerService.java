@@ -1,20 +1,29 @@
 package com.example.ecommerce.services;
 
+import com.example.ecommerce.models.CursorPage;
 import com.example.ecommerce.models.Customer;
+import com.example.ecommerce.models.CustomerFilter;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This interface contains the methods which are implemented in the CustomerServiceImpl class.
  */
 public interface CustomerService {
 
-  List<Customer> queryCustomers(Customer customer);
+  List<Customer> queryCustomers(CustomerFilter filter);
+
+  CursorPage<Customer> queryCustomers(CustomerFilter filter, Long after, int limit);
 
   Customer getCustomerById(Long id);
 
+  List<String> completeCustomerNames(String prefix, int limit);
+
   Customer addCustomer(Customer customer);
 
-  Customer updateCustomerById(Long id, Customer customer);
+  Customer updateCustomerById(Long id, Customer customer, Long version);
+
+  Long patchCustomerById(Long id, Map<String, Object> patch, Long version);
 
   void deleteCustomerById(Long id);
 
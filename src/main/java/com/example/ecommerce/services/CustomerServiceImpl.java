@@ -1,20 +1,29 @@
 package com.example.ecommerce.services;
 
+import static com.example.ecommerce.constants.StringConstants.ID_ATTRIBUTE;
+import static com.example.ecommerce.constants.StringConstants.MAX_COMPLETIONS;
+import static com.example.ecommerce.constants.StringConstants.MAX_PAGE_LIMIT;
 import static com.example.ecommerce.constants.StringConstants.NOT_FOUND;
 
 import com.example.ecommerce.exceptions.BadDataResponse;
 import com.example.ecommerce.exceptions.Conflict;
 import com.example.ecommerce.exceptions.ResourceNotFound;
 import com.example.ecommerce.exceptions.ServiceUnavailable;
+import com.example.ecommerce.models.CursorPage;
 import com.example.ecommerce.models.Customer;
+import com.example.ecommerce.models.CustomerFilter;
 import com.example.ecommerce.repositories.CustomerRepository;
-import java.util.Comparator;
+import com.example.ecommerce.repositories.FilterSpecifications;
+import com.example.ecommerce.services.UniqueValueFilters.UniqueKey;
 import java.util.List;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Example;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * This class contains the methods that are called by the CustomerController, and implemented from
@@ -28,17 +37,20 @@ public class CustomerServiceImpl implements CustomerService {
   @Autowired
   private CustomerRepository customerRepository;
 
+  @Autowired
+  private UniqueValueFilters uniqueValueFilters;
+
+  @Autowired
+  private PartialUpdates partialUpdates;
+
+  @Autowired
+  private CustomerNameCompletions customerNameCompletions;
+
   @Override
-  public List<Customer> queryCustomers(Customer customer) {
+  @Transactional(readOnly = true)
+  public List<Customer> queryCustomers(CustomerFilter filter) {
     try {
-      if (customer.isEmpty()) {
-        List<Customer> customers = customerRepository.findAll();
-        customers.sort(Comparator.comparing(Customer::getId));
-        return customers;
-      } else {
-        Example<Customer> customerExample = Example.of(customer);
-        return customerRepository.findAll(customerExample);
-      }
+      return customerRepository.findAll(FilterSpecifications.of(filter), Sort.by(ID_ATTRIBUTE));
     } catch (Exception e) {
       logger.error(e.getMessage());
       throw new ServiceUnavailable(e);
@@ -46,6 +58,24 @@ public class CustomerServiceImpl implements CustomerService {
   }
 
   @Override
+  @Transactional(readOnly = true)
+  public CursorPage<Customer> queryCustomers(CustomerFilter filter, Long after, int limit) {
+    if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+      throw new BadDataResponse("limit must be between 1 and " + MAX_PAGE_LIMIT);
+    }
+    if (after != null && after < 0) {
+      throw new BadDataResponse("after must not be negative");
+    }
+    try {
+      return customerRepository.findPageAfter(FilterSpecifications.of(filter), after, limit);
+    } catch (Exception e) {
+      logger.error(e.getMessage());
+      throw new ServiceUnavailable(e);
+    }
+  }
+
+  @Override
+  @Transactional(readOnly = true)
   public Customer getCustomerById(Long id) {
     if (id < 1) {
       throw new BadDataResponse("id must be positive and cannot be zero");
@@ -62,51 +92,119 @@ public class CustomerServiceImpl implements CustomerService {
     throw new ResourceNotFound(NOT_FOUND + " customer with id " + id);
   }
 
+  /**
+   * Completes a customer name from memory, without querying the database.
+   */
+  @Override
+  public List<String> completeCustomerNames(String prefix, int limit) {
+    if (prefix == null || prefix.isBlank()) {
+      throw new BadDataResponse("prefix must not be blank");
+    }
+    if (limit < 1 || limit > MAX_COMPLETIONS) {
+      throw new BadDataResponse("limit must be between 1 and " + MAX_COMPLETIONS);
+    }
+    return customerNameCompletions.complete(prefix, limit);
+  }
+
   @Override
+  @Transactional
   public Customer addCustomer(Customer customer) {
-    boolean emailAlreadyExists = customerRepository.existsByEmail(customer.getEmail());
-    if (emailAlreadyExists) {
+    if (emailAlreadyExists(customer.getEmail())) {
       throw new Conflict(" Email already in use!");
     }
+    Customer savedCustomer;
     try {
-      return customerRepository.save(customer);
+      // ids are pre-allocated, so flush now for a duplicate email to surface here
+      savedCustomer = customerRepository.saveAndFlush(customer);
+    } catch (DataIntegrityViolationException e) {
+      throw new Conflict(" Email already in use!");
     } catch (Exception e) {
       throw new ServiceUnavailable(e);
     }
+    uniqueValueFilters.add(UniqueKey.CUSTOMER_EMAIL, savedCustomer.getEmail());
+    customerNameCompletions.put(savedCustomer.getId(), savedCustomer.getName());
+    return savedCustomer;
   }
 
+  /**
+   * Replaces a Customer with a single UPDATE statement, conditional on its version when one is
+   * given.
+   */
   @Override
-  public Customer updateCustomerById(Long id, Customer customer) {
+  @Transactional
+  public Customer updateCustomerById(Long id, Customer customer, Long version) {
     if (id < 1) {
       throw new BadDataResponse("id must be positive and cannot be zero");
     }
-    Customer updatedCustomer = null;
-    if (!customerRepository.existsById(id)) {
-      throw new ResourceNotFound(NOT_FOUND + "customer with id " + id);
+    if (emailAlreadyExists(customer.getEmail())) {
+      throw new Conflict(" Email already in use!");
     }
-    boolean emailAlreadyExists = customerRepository.existsByEmail(customer.getEmail());
-    if (emailAlreadyExists) {
+    int updatedRows;
+    try {
+      updatedRows = customerRepository.replaceById(id, version, customer);
+    } catch (DataIntegrityViolationException e) {
       throw new Conflict(" Email already in use!");
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
     }
+    customer.setId(id);
+    customer.setVersion(
+        ConditionalUpdates.checkUpdated(updatedRows, customerRepository, id, version, "customer"));
+    uniqueValueFilters.add(UniqueKey.CUSTOMER_EMAIL, customer.getEmail());
+    customerNameCompletions.put(id, customer.getName());
+    return customer;
+  }
+
+  /**
+   * Changes only the given fields of a Customer, with a single UPDATE statement. A taken email is
+   * rejected by the unique constraint instead of a separate query.
+   */
+  @Override
+  @Transactional
+  public Long patchCustomerById(Long id, Map<String, Object> patch, Long version) {
+    if (id < 1) {
+      throw new BadDataResponse("id must be positive and cannot be zero");
+    }
+    Map<String, Object> changes = partialUpdates.toChanges(Customer.class, patch);
+    int updatedRows;
     try {
-      customer.setId(id);
-      updatedCustomer = customerRepository.save(customer);
+      updatedRows = customerRepository.updateById(id, version, changes);
+    } catch (DataIntegrityViolationException e) {
+      throw new Conflict(" Email already in use!");
     } catch (Exception e) {
       throw new ServiceUnavailable(e);
     }
-    return updatedCustomer;
+    Long newVersion = ConditionalUpdates.checkUpdated(updatedRows, customerRepository, id, version,
+        "customer");
+    uniqueValueFilters.add(UniqueKey.CUSTOMER_EMAIL, (String) changes.get("email"));
+    if (changes.containsKey("name")) {
+      customerNameCompletions.put(id, (String) changes.get("name"));
+    }
+    return newVersion;
   }
 
   @Override
+  @Transactional
   public void deleteCustomerById(Long id) {
     if (id < 1) {
       throw new BadDataResponse("id must be positive and cannot be zero");
     }
-    getCustomerById(id);
+    int deletedRows;
     try {
-      customerRepository.deleteById(id);
+      deletedRows = customerRepository.deleteOneById(id);
     } catch (Exception e) {
       throw new ServiceUnavailable("Something went wrong");
     }
+    if (deletedRows == 0) {
+      throw new ResourceNotFound(NOT_FOUND + " customer with id " + id);
+    }
+    // the email is not read back, so it stays in the filter as a harmless probable hit
+    customerNameCompletions.remove(id);
+  }
+
+  private boolean emailAlreadyExists(String email) {
+    // a definite miss in the filter means no customer can have this email
+    return uniqueValueFilters.mightContain(UniqueKey.CUSTOMER_EMAIL, email)
+        && customerRepository.existsByEmail(email);
   }
 }
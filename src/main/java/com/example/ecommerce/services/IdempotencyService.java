@@ -0,0 +1,11 @@
+package com.example.ecommerce.services;
+
+import java.util.function.Supplier;
+import org.springframework.http.ResponseEntity;
+
+public interface IdempotencyService {
+
+  <T> ResponseEntity<T> execute(String scope, String idempotencyKey, Object requestBody,
+      Supplier<ResponseEntity<T>> action);
+
+}
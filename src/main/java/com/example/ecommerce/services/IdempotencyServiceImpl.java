@@ -0,0 +1,193 @@
+package com.example.ecommerce.services;
+
+import static com.example.ecommerce.constants.StringConstants.IDEMPOTENCY_CACHE;
+import static com.example.ecommerce.constants.StringConstants.IDEMPOTENCY_KEY_HEADER;
+import static com.example.ecommerce.constants.StringConstants.IDEMPOTENT_REPLAYED_HEADER;
+
+import com.example.ecommerce.exceptions.BadCredentialsException;
+import com.example.ecommerce.exceptions.BadDataResponse;
+import com.example.ecommerce.exceptions.BadRequest;
+import com.example.ecommerce.exceptions.Conflict;
+import com.example.ecommerce.exceptions.PreconditionFailed;
+import com.example.ecommerce.exceptions.ResourceNotFound;
+import com.example.ecommerce.exceptions.ServiceUnavailable;
+import com.example.ecommerce.exceptions.UniqueFieldViolation;
+import com.example.ecommerce.exceptions.UnprocessableEntity;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+/**
+ * This class makes create requests safe to retry. The first request with a given Idempotency-Key
+ * runs; its response (or its client error) is kept in the bounded, TTL-evicted idempotencyKeys
+ * cache and replayed to every retry without touching the database. Duplicates that arrive while
+ * the first request is still running wait for its outcome instead of running again.
+ *
+ * <p>Keys are scoped to the endpoint and the authenticated user, and bound to a fingerprint of
+ * the request body, so a key reused with a different body is rejected. Only client errors are
+ * kept: any other failure, including an Error, forgets the key, so the client can retry it.
+ */
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+  private static final int MAX_KEY_LENGTH = 255;
+  private static final long DUPLICATE_WAIT_SECONDS = 30;
+  // the exceptions the ExceptionController answers with a 4xx status
+  private static final List<Class<? extends RuntimeException>> CLIENT_ERRORS = List.of(
+      BadCredentialsException.class, BadDataResponse.class, BadRequest.class, Conflict.class,
+      PreconditionFailed.class, ResourceNotFound.class, UniqueFieldViolation.class,
+      UnprocessableEntity.class);
+
+  private final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+  @Autowired
+  private CacheManager cacheManager;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  /**
+   * Runs a create action at most once per idempotency key.
+   *
+   * @param scope          the endpoint the key belongs to.
+   * @param idempotencyKey the client's key, or null to simply run the action.
+   * @param requestBody    the request body, fingerprinted to detect a reused key.
+   * @param action         creates the resource and builds the response.
+   * @return the response of the first request with this key.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> ResponseEntity<T> execute(String scope, String idempotencyKey, Object requestBody,
+      Supplier<ResponseEntity<T>> action) {
+    if (idempotencyKey == null) {
+      return action.get();
+    }
+    if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+      throw new BadRequest(IDEMPOTENCY_KEY_HEADER + " must be 1 to " + MAX_KEY_LENGTH
+          + " characters");
+    }
+    Cache<Object, Object> responses = (Cache<Object, Object>) cacheManager
+        .getCache(IDEMPOTENCY_CACHE).getNativeCache();
+    String key = scope + ":" + currentUsername() + ":" + idempotencyKey;
+    byte[] fingerprint = fingerprint(requestBody);
+
+    CompletableFuture<StoredResponse> created = new CompletableFuture<>();
+    CompletableFuture<StoredResponse> stored =
+        (CompletableFuture<StoredResponse>) responses.get(key, k -> created);
+    if (stored != created) {
+      return (ResponseEntity<T>) replay(stored, fingerprint);
+    }
+
+    ResponseEntity<T> response;
+    try {
+      response = action.get();
+    } catch (Throwable e) {
+      if (isClientError(e)) {
+        created.complete(new StoredResponse(fingerprint, null, (RuntimeException) e));
+      } else {
+        forget(responses, key, created, e);
+      }
+      throw e;
+    }
+    if (response.getStatusCode().is5xxServerError()) {
+      forget(responses, key, created, new ServiceUnavailable(
+          "A request with this " + IDEMPOTENCY_KEY_HEADER + " failed and may be retried"));
+    } else {
+      created.complete(new StoredResponse(fingerprint, response, null));
+    }
+    return response;
+  }
+
+  private boolean isClientError(Throwable e) {
+    return CLIENT_ERRORS.stream().anyMatch(clientError -> clientError.isInstance(e));
+  }
+
+  // may succeed on retry, so it is not kept; duplicates already waiting fail with the same error
+  private void forget(Cache<Object, Object> responses, String key,
+      CompletableFuture<StoredResponse> created, Throwable e) {
+    responses.asMap().remove(key, created);
+    created.completeExceptionally(e);
+  }
+
+  private ResponseEntity<?> replay(CompletableFuture<StoredResponse> stored, byte[] fingerprint) {
+    StoredResponse storedResponse;
+    try {
+      storedResponse = stored.get(DUPLICATE_WAIT_SECONDS, TimeUnit.SECONDS);
+    } catch (TimeoutException e) {
+      throw new Conflict("A request with this " + IDEMPOTENCY_KEY_HEADER + " is still running");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ServiceUnavailable(e);
+    } catch (ExecutionException e) {
+      // the coalesced request failed with a server error, or an Error
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      if (e.getCause() instanceof Error cause) {
+        throw cause;
+      }
+      throw new ServiceUnavailable(e);
+    }
+    if (!Arrays.equals(storedResponse.fingerprint, fingerprint)) {
+      throw new UnprocessableEntity(IDEMPOTENCY_KEY_HEADER
+          + " was already used with a different request body");
+    }
+    if (storedResponse.error != null) {
+      throw storedResponse.error;
+    }
+    HttpHeaders headers = new HttpHeaders();
+    headers.addAll(storedResponse.response.getHeaders());
+    headers.set(IDEMPOTENT_REPLAYED_HEADER, "true");
+    return new ResponseEntity<>(storedResponse.response.getBody(), headers,
+        storedResponse.response.getStatusCode());
+  }
+
+  private String currentUsername() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    return authentication == null ? "" : authentication.getName();
+  }
+
+  private byte[] fingerprint(Object requestBody) {
+    try {
+      return MessageDigest.getInstance("SHA-256")
+          .digest(objectMapper.writeValueAsBytes(requestBody));
+    } catch (JsonProcessingException e) {
+      logger.error(e.getMessage());
+      throw new BadRequest("Request body can not be fingerprinted");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e); // every JVM is required to provide SHA-256
+    }
+  }
+
+  private static final class StoredResponse {
+
+    private final byte[] fingerprint;
+    private final ResponseEntity<?> response;
+    private final RuntimeException error;
+
+    private StoredResponse(byte[] fingerprint, ResponseEntity<?> response,
+        RuntimeException error) {
+      this.fingerprint = fingerprint;
+      this.response = response;
+      this.error = error;
+    }
+  }
+}
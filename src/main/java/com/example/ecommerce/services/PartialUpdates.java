@@ -0,0 +1,112 @@
+package com.example.ecommerce.services;
+
+import static com.example.ecommerce.constants.StringConstants.ID_ATTRIBUTE;
+
+import com.example.ecommerce.exceptions.BadDataResponse;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import java.lang.reflect.Field;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.persistence.Embeddable;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * This class turns the JSON body of a PATCH request into the attribute changes of an entity, for
+ * ExtendedRepository.updateById. Only the fields present in the body are changed; each is bound
+ * with the entity's own Jackson mapping and checked against its own constraints. Fields of an
+ * embedded object (e.g. a Customer's address) can be patched one by one.
+ */
+@Component
+public class PartialUpdates {
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private Validator validator;
+
+  /**
+   * Binds and validates a patch.
+   *
+   * @param type  the entity class.
+   * @param patch the fields to change, as sent by the client.
+   * @return the new values by attribute path, e.g. {@code address.city}.
+   */
+  public <T> Map<String, Object> toChanges(Class<T> type, Map<String, Object> patch) {
+    if (patch == null || patch.isEmpty()) {
+      throw new BadDataResponse("a patch must change at least one field");
+    }
+    if (patch.containsKey(ID_ATTRIBUTE)) {
+      throw new BadDataResponse("id can not be changed");
+    }
+    T probe;
+    try {
+      probe = objectMapper.convertValue(patch, type);
+    } catch (IllegalArgumentException e) {
+      throw new BadDataResponse("patch contains a value of the wrong type or format");
+    }
+    Map<String, Object> changes = new LinkedHashMap<>();
+    collectChanges(type, patch, probe, "", changes);
+    return changes;
+  }
+
+  private void collectChanges(Class<?> type, Map<?, ?> patch, Object probe, String prefix,
+      Map<String, Object> changes) {
+    Map<String, BeanPropertyDefinition> properties = jsonProperties(type);
+    for (Map.Entry<?, ?> entry : patch.entrySet()) {
+      String name = String.valueOf(entry.getKey());
+      BeanPropertyDefinition property = properties.get(name);
+      Field field = property == null ? null : fieldOf(type, property);
+      if (field == null) {
+        throw new BadDataResponse("unknown field " + prefix + name);
+      }
+      Object value = probe == null ? null
+          : PropertyAccessorFactory.forDirectFieldAccess(probe).getPropertyValue(field.getName());
+      if (field.getType().isAnnotationPresent(Embeddable.class)) {
+        if (!(entry.getValue() instanceof Map)) {
+          throw new BadDataResponse(prefix + name + " must be an object");
+        }
+        collectChanges(field.getType(), (Map<?, ?>) entry.getValue(), value,
+            prefix + field.getName() + ".", changes);
+        continue;
+      }
+      List<String> errors = validator.validateValue(type, field.getName(), value).stream()
+          .map(ConstraintViolation::getMessage)
+          .collect(Collectors.toList());
+      if (!errors.isEmpty()) {
+        throw new BadDataResponse(String.join(", ", errors));
+      }
+      changes.put(prefix + field.getName(), value);
+    }
+  }
+
+  private Map<String, BeanPropertyDefinition> jsonProperties(Class<?> type) {
+    BeanDescription description = objectMapper.getDeserializationConfig()
+        .introspect(objectMapper.constructType(type));
+    return description.findProperties().stream()
+        .filter(BeanPropertyDefinition::couldDeserialize)
+        .collect(Collectors.toMap(BeanPropertyDefinition::getName, property -> property));
+  }
+
+  // the mapped field behind a JSON property; boolean fields named isX are exposed as "x"
+  private Field fieldOf(Class<?> type, BeanPropertyDefinition property) {
+    if (property.getField() != null) {
+      return property.getField().getAnnotated();
+    }
+    Field field = ReflectionUtils.findField(type, property.getInternalName());
+    if (field == null) {
+      field = ReflectionUtils.findField(type, "is" + StringUtils.capitalize(property.getName()));
+    }
+    return field;
+  }
+}
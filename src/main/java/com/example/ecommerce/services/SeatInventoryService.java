@@ -0,0 +1,22 @@
+package com.example.ecommerce.services;
+
+import com.example.ecommerce.models.SeatAvailability;
+import com.example.ecommerce.models.Tour;
+import java.time.LocalDate;
+import java.util.Date;
+
+public interface SeatInventoryService {
+
+  void reserveSeats(Long tourId, Date reservedDate, int seats);
+
+  void releaseSeats(Long tourId, Date reservedDate, int seats);
+
+  void moveSeats(Long fromTourId, Date fromDate, Long toTourId, Date toDate, int seats);
+
+  SeatAvailability getAvailability(Long tourId, LocalDate reservedDate);
+
+  void resizeTour(Tour tour);
+
+  void deleteTour(Long tourId);
+
+}
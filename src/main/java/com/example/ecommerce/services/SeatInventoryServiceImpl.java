@@ -0,0 +1,385 @@
+package com.example.ecommerce.services;
+
+import static com.example.ecommerce.constants.StringConstants.AVAILABILITY_CACHE;
+import static com.example.ecommerce.constants.StringConstants.NOT_FOUND;
+
+import com.example.ecommerce.exceptions.BadDataResponse;
+import com.example.ecommerce.exceptions.Conflict;
+import com.example.ecommerce.exceptions.ResourceNotFound;
+import com.example.ecommerce.exceptions.ServiceUnavailable;
+import com.example.ecommerce.models.SeatAvailability;
+import com.example.ecommerce.models.Tour;
+import com.example.ecommerce.models.TourInventory;
+import com.example.ecommerce.repositories.TourBookingRepository;
+import com.example.ecommerce.repositories.TourInventoryRepository;
+import com.example.ecommerce.repositories.TourRepository;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * This class keeps the seat inventory of every tour date. Each date has its own in-memory counter,
+ * so a burst of bookings for one popular date contends on a single compare-and-set instead of a
+ * lock. The tour_inventory row stays the source of truth: every seat taken in memory is also
+ * taken by a conditional UPDATE, a counter that disagrees with its row is dropped and reloaded,
+ * and a date is only rejected as sold out once a reloaded counter agrees.
+ *
+ * <p>Rows are created lazily, the first time a date is booked, under one of a fixed set of
+ * striped locks. They start from the bookings already stored for that date. Only bookings add
+ * counters, so that probing dates cannot grow the map; availability checks of dates that were
+ * never booked are answered from the database and kept in the bounded, TTL-evicted availability
+ * cache, so repeated probes of the same date read it once per TTL.
+ */
+@Service
+public class SeatInventoryServiceImpl implements SeatInventoryService {
+
+  private static final int LOCK_STRIPES = 64;
+
+  private final Logger logger = LoggerFactory.getLogger(SeatInventoryService.class);
+
+  private final Map<SlotKey, Slot> slots = new ConcurrentHashMap<>();
+  private final Object[] locks = new Object[LOCK_STRIPES];
+
+  @Value("${wildlife-tours.inventory.default-capacity}")
+  private int defaultCapacity;
+
+  @Value("${wildlife-tours.inventory.availability-horizon}")
+  private Duration availabilityHorizon;
+
+  @Autowired
+  private TourInventoryRepository tourInventoryRepository;
+
+  @Autowired
+  private TourRepository tourRepository;
+
+  @Autowired
+  private TourBookingRepository tourBookingRepository;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  private CacheManager cacheManager;
+
+  public SeatInventoryServiceImpl() {
+    for (int i = 0; i < LOCK_STRIPES; i++) {
+      locks[i] = new Object();
+    }
+  }
+
+  /**
+   * Takes seats from a tour date. When called inside a transaction, the in-memory counter is
+   * restored if that transaction rolls back.
+   *
+   * @param tourId       the id of the booked Tour.
+   * @param reservedDate the reserved date, as stored on the TourBooking.
+   * @param seats        the number of seats to take.
+   */
+  @Override
+  public void reserveSeats(Long tourId, Date reservedDate, int seats) {
+    SlotKey key = new SlotKey(tourId, toLocalDate(reservedDate));
+    Slot slot = slotFor(key);
+    if (!slot.tryTake(seats)) {
+      // the counter can lag behind its row, e.g. after a release on another instance
+      slot = reloadSlot(key, slot);
+      if (!slot.tryTake(seats)) {
+        throw new Conflict(soldOut(key));
+      }
+    }
+    int updatedRows;
+    Slot takenSlot = slot;
+    try {
+      persist(key, slot);
+      updatedRows = tourInventoryRepository.reserveSeats(tourId, key.reservedDate, seats);
+    } catch (Exception e) {
+      slot.give(seats);
+      logger.error(e.getMessage());
+      throw new ServiceUnavailable(e);
+    }
+    if (updatedRows == 0) {
+      // the row was booked elsewhere (e.g. by another instance): resync from it on the next call
+      slots.remove(key, slot);
+      cacheManager.getCache(AVAILABILITY_CACHE).evictIfPresent(key);
+      throw new Conflict(soldOut(key));
+    }
+    afterRollback(() -> takenSlot.give(seats));
+  }
+
+  /**
+   * Gives seats back to a tour date, e.g. when a booking is cancelled.
+   *
+   * @param tourId       the id of the booked Tour.
+   * @param reservedDate the reserved date, as stored on the TourBooking.
+   * @param seats        the number of seats to give back.
+   */
+  @Override
+  public void releaseSeats(Long tourId, Date reservedDate, int seats) {
+    SlotKey key = new SlotKey(tourId, toLocalDate(reservedDate));
+    int updatedRows;
+    try {
+      updatedRows = tourInventoryRepository.releaseSeats(tourId, key.reservedDate, seats);
+    } catch (Exception e) {
+      logger.error(e.getMessage());
+      throw new ServiceUnavailable(e);
+    }
+    Slot slot = slots.get(key);
+    if (updatedRows > 0 && slot != null) {
+      slot.give(seats);
+      afterRollback(() -> slot.give(-seats));
+    }
+  }
+
+  /**
+   * Moves seats from one tour date to another, e.g. when a booking is rescheduled. Nothing
+   * happens when both refer to the same tour date.
+   */
+  @Override
+  public void moveSeats(Long fromTourId, Date fromDate, Long toTourId, Date toDate, int seats) {
+    if (new SlotKey(fromTourId, toLocalDate(fromDate))
+        .equals(new SlotKey(toTourId, toLocalDate(toDate)))) {
+      return;
+    }
+    reserveSeats(toTourId, toDate, seats);
+    releaseSeats(fromTourId, fromDate, seats);
+  }
+
+  /**
+   * Retrieves the seats left on a tour date, from its in-memory counter if the date was booked,
+   * or else from the availability cache or the database, without keeping a counter for it. An
+   * answer from the cache may miss bookings made by other instances within the cache's TTL.
+   *
+   * @param tourId       the id of the Tour.
+   * @param reservedDate the date to check, from today up to the availability horizon.
+   * @return the capacity and remaining seats of the tour on that date.
+   */
+  @Override
+  public SeatAvailability getAvailability(Long tourId, LocalDate reservedDate) {
+    if (tourId < 1) {
+      throw new BadDataResponse("id must be positive and cannot be zero");
+    }
+    LocalDate today = LocalDate.now(ZoneOffset.UTC);
+    if (reservedDate.isBefore(today)) {
+      throw new BadDataResponse("date must not be in the past");
+    }
+    if (reservedDate.isAfter(today.plusDays(availabilityHorizon.toDays()))) {
+      throw new BadDataResponse(
+          "date must be at most " + availabilityHorizon.toDays() + " days ahead");
+    }
+    SlotKey key = new SlotKey(tourId, reservedDate);
+    Slot slot = slots.get(key);
+    if (slot != null) {
+      return availabilityOf(key, slot);
+    }
+    Cache availabilityCache = cacheManager.getCache(AVAILABILITY_CACHE);
+    SeatAvailability availability = availabilityCache.get(key, SeatAvailability.class);
+    if (availability == null) {
+      availability = availabilityOf(key, loadSlot(key));
+      availabilityCache.put(key, availability);
+    }
+    return availability;
+  }
+
+  /**
+   * Applies the capacity of an updated tour to all of its dates.
+   *
+   * @param tour the updated Tour.
+   */
+  @Override
+  public void resizeTour(Tour tour) {
+    try {
+      tourInventoryRepository.resizeTour(tour.getId(), capacityOf(tour));
+    } catch (Exception e) {
+      logger.error(e.getMessage());
+      throw new ServiceUnavailable(e);
+    }
+    afterCommit(() -> forgetTour(tour.getId()));
+  }
+
+  /**
+   * Drops the inventory of a deleted tour.
+   *
+   * @param tourId the id of the deleted Tour.
+   */
+  @Override
+  public void deleteTour(Long tourId) {
+    try {
+      tourInventoryRepository.deleteByTourId(tourId);
+    } catch (Exception e) {
+      logger.error(e.getMessage());
+      throw new ServiceUnavailable(e);
+    }
+    afterCommit(() -> forgetTour(tourId));
+  }
+
+  private Slot slotFor(SlotKey key) {
+    Slot slot = slots.get(key);
+    if (slot != null) {
+      return slot;
+    }
+    synchronized (lockFor(key)) {
+      slot = slots.get(key);
+      if (slot == null) {
+        slot = loadSlot(key);
+        slots.put(key, slot);
+      }
+      return slot;
+    }
+  }
+
+  // replaces a counter with one reloaded from its row, unless another call already did
+  private Slot reloadSlot(SlotKey key, Slot staleSlot) {
+    synchronized (lockFor(key)) {
+      Slot slot = slots.get(key);
+      if (slot != null && slot != staleSlot) {
+        return slot;
+      }
+      slot = loadSlot(key);
+      slots.put(key, slot);
+      return slot;
+    }
+  }
+
+  private Slot loadSlot(SlotKey key) {
+    Optional<TourInventory> inventory =
+        tourInventoryRepository.findByTourIdAndReservedDate(key.tourId, key.reservedDate);
+    if (inventory.isPresent()) {
+      return new Slot(inventory.get().getCapacity(), inventory.get().getRemaining(), true);
+    }
+    Tour tour = tourRepository.findById(key.tourId).orElseThrow(
+        () -> new ResourceNotFound(NOT_FOUND + " tour with id " + key.tourId));
+    int capacity = capacityOf(tour);
+    Date from = Date.from(key.reservedDate.atStartOfDay(ZoneOffset.UTC).toInstant());
+    Date to = Date.from(key.reservedDate.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+    long booked = tourBookingRepository.countByTourIdAndReservedDateIn(key.tourId, from, to);
+    return new Slot(capacity, capacity - (int) booked, false);
+  }
+
+  private void persist(SlotKey key, Slot slot) {
+    if (slot.persisted) {
+      return;
+    }
+    synchronized (lockFor(key)) {
+      if (slot.persisted) {
+        return;
+      }
+      // committed on its own, so that a rolled back booking does not take the row with it
+      TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+      transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+      try {
+        transactionTemplate.executeWithoutResult(status -> tourInventoryRepository.save(
+            new TourInventory(key.tourId, key.reservedDate, slot.capacity, slot.seeded)));
+      } catch (DataIntegrityViolationException e) {
+        logger.info("Inventory of " + key + " was created concurrently");
+      }
+      slot.persisted = true;
+    }
+  }
+
+  // the cache cannot be searched by tour, and tours are resized or deleted rarely
+  private void forgetTour(Long tourId) {
+    slots.keySet().removeIf(key -> key.tourId.equals(tourId));
+    cacheManager.getCache(AVAILABILITY_CACHE).invalidate();
+  }
+
+  private SeatAvailability availabilityOf(SlotKey key, Slot slot) {
+    return new SeatAvailability(key.tourId, key.reservedDate, slot.capacity,
+        Math.max(0, slot.remaining.get()));
+  }
+
+  private int capacityOf(Tour tour) {
+    return tour.getCapacity() == null ? defaultCapacity : tour.getCapacity();
+  }
+
+  private Object lockFor(SlotKey key) {
+    return locks[Math.floorMod(key.hashCode(), LOCK_STRIPES)];
+  }
+
+  // a counter dropped before the commit could be reloaded from the old row in between
+  private void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
+  }
+
+  private void afterRollback(Runnable compensation) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          if (status == STATUS_ROLLED_BACK) {
+            compensation.run();
+          }
+        }
+      });
+    }
+  }
+
+  private String soldOut(SlotKey key) {
+    return "Tour " + key.tourId + " is sold out on " + key.reservedDate;
+  }
+
+  // reserved dates are stored as UTC midnights, as serialized by Jackson
+  private LocalDate toLocalDate(Date date) {
+    return Instant.ofEpochMilli(date.getTime()).atZone(ZoneOffset.UTC).toLocalDate();
+  }
+
+  private record SlotKey(Long tourId, LocalDate reservedDate) {
+
+  }
+
+  private static final class Slot {
+
+    private final int capacity;
+    private final int seeded;
+    private final AtomicInteger remaining;
+    private volatile boolean persisted;
+
+    private Slot(int capacity, int remaining, boolean persisted) {
+      this.capacity = capacity;
+      this.seeded = remaining;
+      this.remaining = new AtomicInteger(remaining);
+      this.persisted = persisted;
+    }
+
+    private boolean tryTake(int seats) {
+      int current;
+      do {
+        current = remaining.get();
+        if (current < seats) {
+          return false;
+        }
+      } while (!remaining.compareAndSet(current, current - seats));
+      return true;
+    }
+
+    private void give(int seats) {
+      remaining.addAndGet(seats);
+    }
+  }
+}
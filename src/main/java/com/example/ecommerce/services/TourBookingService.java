@@ -1,17 +1,39 @@
 package com.example.ecommerce.services;
 
+import com.example.ecommerce.models.BulkResult;
+import com.example.ecommerce.models.CursorPage;
 import com.example.ecommerce.models.TourBooking;
+import com.example.ecommerce.models.TourBookingDetails;
+import com.example.ecommerce.models.TourBookingFilter;
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 public interface TourBookingService {
 
-  List<TourBooking> queryTourBookings(TourBooking tourBooking);
+  List<TourBooking> queryTourBookings(TourBookingFilter filter);
+
+  CursorPage<TourBooking> queryTourBookings(TourBookingFilter filter, Long after, int limit);
+
+  CursorPage<TourBookingDetails> queryTourBookingDetails(TourBookingFilter filter, Long after,
+      int limit);
+
+  CursorPage<TourBooking> queryTourBookingsOfTour(Long tourId, LocalDate from, LocalDate to,
+      Long after, int limit);
 
   TourBooking getTourBookingById(Long id);
 
   TourBooking addTourBooking(TourBooking tourBooking);
 
-  TourBooking updateTourBookingById(Long id, TourBooking tourBooking);
+  BulkResult<TourBooking> addTourBookings(List<TourBooking> tourBookings);
+
+  TourBooking updateTourBookingById(Long id, TourBooking tourBooking, Long version);
+
+  Long patchTourBookingById(Long id, Map<String, Object> patch, Long version);
   TourBooking getTourBookingByTourCode(String tourCode);
   void deleteTourBookingById(Long id);
+
+  void exportTourBookings(LocalDate from, LocalDate to, String format,
+      OutputStream outputStream);
 }
@@ -1,47 +1,190 @@
 package com.example.ecommerce.services;
 
+import static com.example.ecommerce.constants.StringConstants.EXPORT_FORMAT_CSV;
+import static com.example.ecommerce.constants.StringConstants.ID_ATTRIBUTE;
+import static com.example.ecommerce.constants.StringConstants.MAX_PAGE_LIMIT;
 import static com.example.ecommerce.constants.StringConstants.NOT_FOUND;
 
 import com.example.ecommerce.exceptions.BadDataResponse;
 import com.example.ecommerce.exceptions.Conflict;
+import com.example.ecommerce.exceptions.PreconditionFailed;
 import com.example.ecommerce.exceptions.ResourceNotFound;
 import com.example.ecommerce.exceptions.ServiceUnavailable;
+import com.example.ecommerce.models.BulkItemResult;
+import com.example.ecommerce.models.BulkResult;
+import com.example.ecommerce.models.Contact;
+import com.example.ecommerce.models.CursorPage;
 import com.example.ecommerce.models.TourBooking;
+import com.example.ecommerce.models.TourBookingDetails;
+import com.example.ecommerce.models.TourBookingFilter;
+import com.example.ecommerce.models.TourSummary;
+import com.example.ecommerce.repositories.FilterSpecifications;
 import com.example.ecommerce.repositories.TourBookingRepository;
-import java.util.Comparator;
+import com.example.ecommerce.repositories.TourRepository;
+import com.example.ecommerce.services.UniqueValueFilters.UniqueKey;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.util.StdConverter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.Validator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Example;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class TourBookingServiceImpl implements TourBookingService {
 
   private final Logger logger = LoggerFactory.getLogger(TourBookingService.class);
 
+  private static final LocalDate EARLIEST_DATE = LocalDate.of(1970, 1, 1);
+  private static final LocalDate LATEST_DATE = LocalDate.of(9999, 12, 31);
+  private static final int SEATS_PER_BOOKING = 1;
+  private static final String CSV_HEADER =
+      "id,tourId,tourCode,reservedDate,firstName,lastName,phoneNo,email,cardNo";
+  // a spreadsheet evaluates a cell that starts with one of these as a formula
+  private static final String CSV_FORMULA_PREFIXES = "=+-@\t\r";
+  private static final int CARD_NO_VISIBLE_DIGITS = 4;
+
   @Autowired
   private TourBookingRepository tourBookingRepository;
 
+  @Autowired
+  private TourRepository tourRepository;
+
+  @Autowired
+  private SeatInventoryService seatInventoryService;
+
+  @Autowired
+  private UniqueValueFilters uniqueValueFilters;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private Validator validator;
+
+  @Autowired
+  private PartialUpdates partialUpdates;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
   @Override
-  public List<TourBooking> queryTourBookings(TourBooking tourBooking) {
+  @Transactional(readOnly = true)
+  public List<TourBooking> queryTourBookings(TourBookingFilter filter) {
     try {
-      if (tourBooking.isEmpty()) {
-        List<TourBooking> tourBookings = tourBookingRepository.findAll();
-        tourBookings.sort(Comparator.comparing(TourBooking::getId));
-        return tourBookings;
-      } else {
-        Example<TourBooking> tourBookingExample = Example.of(tourBooking);
-        return tourBookingRepository.findAll(tourBookingExample);
-      }
+      return tourBookingRepository.findAll(FilterSpecifications.of(filter), Sort.by(ID_ATTRIBUTE));
+    } catch (Exception e) {
+      logger.error(e.getMessage());
+      throw new ServiceUnavailable(e);
+    }
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public CursorPage<TourBooking> queryTourBookings(TourBookingFilter filter, Long after,
+      int limit) {
+    validatePage(after, limit);
+    try {
+      return tourBookingRepository.findPageAfter(FilterSpecifications.of(filter), after, limit);
+    } catch (Exception e) {
+      logger.error(e.getMessage());
+      throw new ServiceUnavailable(e);
+    }
+  }
+
+  /**
+   * Pages through the TourBookings like queryTourBookings, with a summary of the Tour of each.
+   * The Tours are fetched by the same query as the TourBookings, through the WITH_TOUR entity
+   * graph, so a page takes one query whatever its size.
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public CursorPage<TourBookingDetails> queryTourBookingDetails(TourBookingFilter filter,
+      Long after, int limit) {
+    validatePage(after, limit);
+    CursorPage<TourBooking> page;
+    try {
+      page = tourBookingRepository.findPageAfter(FilterSpecifications.of(filter), after, limit,
+          TourBooking.WITH_TOUR);
     } catch (Exception e) {
       logger.error(e.getMessage());
       throw new ServiceUnavailable(e);
     }
+    List<TourBookingDetails> items = page.getItems().stream()
+        .map(tourBooking -> new TourBookingDetails(tourBooking,
+            new TourSummary(tourBooking.getTour())))
+        .collect(Collectors.toList());
+    return new CursorPage<>(items, page.getNextCursor(), limit);
   }
 
+  /**
+   * Pages through the TourBookings of one Tour with the same keyset query as queryTourBookings,
+   * which the index on (tourId, reservedDate) narrows to the bookings of the Tour in the date
+   * range. Whether the Tour exists is only checked when there are no bookings to return.
+   */
   @Override
+  @Transactional(readOnly = true)
+  public CursorPage<TourBooking> queryTourBookingsOfTour(Long tourId, LocalDate from,
+      LocalDate to, Long after, int limit) {
+    if (tourId < 1) {
+      throw new BadDataResponse("id must be positive and cannot be zero");
+    }
+    if (from != null && to != null && from.isAfter(to)) {
+      throw new BadDataResponse("from must not be after to");
+    }
+    TourBookingFilter filter = new TourBookingFilter();
+    filter.setTourId(tourId);
+    filter.setReservedFrom(from);
+    filter.setReservedTo(to);
+    CursorPage<TourBooking> page = queryTourBookings(filter, after, limit);
+    if (page.getItems().isEmpty() && !tourRepository.existsById(tourId)) {
+      throw new ResourceNotFound(NOT_FOUND + " tour with id " + tourId);
+    }
+    return page;
+  }
+
+  private static void validatePage(Long after, int limit) {
+    if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+      throw new BadDataResponse("limit must be between 1 and " + MAX_PAGE_LIMIT);
+    }
+    if (after != null && after < 0) {
+      throw new BadDataResponse("after must not be negative");
+    }
+  }
+
+  @Override
+  @Transactional(readOnly = true)
   public TourBooking getTourBookingById(Long id) {
     if (id < 1) {
       throw new BadDataResponse("id must be positive and cannot be zero");
@@ -59,20 +202,81 @@ public class TourBookingServiceImpl implements TourBookingService {
   }
 
   @Override
+  @Transactional
   public TourBooking addTourBooking(TourBooking tourBooking) {
-    boolean tourCodeAlreadyExists = tourBookingRepository.existsByTourCode(tourBooking.getTourCode());
-
-    if (tourCodeAlreadyExists) {
+    if (tourCodeAlreadyExists(tourBooking.getTourCode())) {
+      throw new Conflict(" Tour code already in use!");
+    }
+    seatInventoryService.reserveSeats(tourBooking.getTourId(), tourBooking.getReservedDate(),
+        SEATS_PER_BOOKING);
+    TourBooking savedTourBooking;
+    try {
+      // ids are pre-allocated, so flush now for a duplicate tour code to surface here
+      savedTourBooking = tourBookingRepository.saveAndFlush(tourBooking);
+    } catch (DataIntegrityViolationException e) {
       throw new Conflict(" Tour code already in use!");
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
     }
+    uniqueValueFilters.add(UniqueKey.TOUR_CODE, savedTourBooking.getTourCode());
+    return savedTourBooking;
+  }
+
+  /**
+   * Creates many TourBookings in one transaction. Every item is validated and checked for a free
+   * tour code (with one IN query for the codes the filter cannot rule out) and a free seat; the
+   * accepted items are then inserted in JDBC batches. Rejected items do not stop the others.
+   *
+   * @param tourBookings the TourBookings to create.
+   * @return the outcome of every item, in request order.
+   */
+  @Override
+  @Transactional
+  public BulkResult<TourBooking> addTourBookings(List<TourBooking> tourBookings) {
+    BulkRequests.checkSize(tourBookings);
+    List<BulkItemResult<TourBooking>> results =
+        new ArrayList<>(Collections.nCopies(tourBookings.size(), null));
+    Map<Integer, TourBooking> accepted = new LinkedHashMap<>();
+    Set<String> requestedTourCodes = new HashSet<>();
+    for (int i = 0; i < tourBookings.size(); i++) {
+      TourBooking tourBooking = tourBookings.get(i);
+      List<String> errors = BulkRequests.violationsOf(validator, tourBooking);
+      if (!errors.isEmpty()) {
+        results.set(i, BulkItemResult.rejected(i, HttpStatus.BAD_REQUEST.value(), errors));
+      } else if (!requestedTourCodes.add(tourBooking.getTourCode())) {
+        results.set(i, BulkItemResult.rejected(i, HttpStatus.CONFLICT.value(),
+            List.of(" Tour code repeated in request!")));
+      } else {
+        accepted.put(i, tourBooking);
+      }
+    }
+    Set<String> existingTourCodes = findExistingTourCodes(accepted.values());
+    accepted.entrySet().removeIf(entry -> {
+      if (!existingTourCodes.contains(entry.getValue().getTourCode())) {
+        return false;
+      }
+      results.set(entry.getKey(), BulkItemResult.rejected(entry.getKey(),
+          HttpStatus.CONFLICT.value(), List.of(" Tour code already in use!")));
+      return true;
+    });
+    reserveSeats(accepted, results);
     try {
-      return tourBookingRepository.save(tourBooking);
+      tourBookingRepository.saveAll(accepted.values());
+      tourBookingRepository.flush();
+    } catch (DataIntegrityViolationException e) {
+      throw new Conflict(" Tour code already in use!");
     } catch (Exception e) {
       throw new ServiceUnavailable(e);
     }
+    accepted.forEach((index, tourBooking) -> {
+      uniqueValueFilters.add(UniqueKey.TOUR_CODE, tourBooking.getTourCode());
+      results.set(index, BulkItemResult.created(index, tourBooking));
+    });
+    return new BulkResult<>(results);
   }
 
   @Override
+  @Transactional(readOnly = true)
   public TourBooking getTourBookingByTourCode(String tourCode){
     TourBooking tourBookingLookUpResult;
     try {
@@ -86,39 +290,266 @@ public class TourBookingServiceImpl implements TourBookingService {
     throw new ResourceNotFound(NOT_FOUND + " tourBooking with id " + tourCode);
   }
 
+  /**
+   * Replaces a TourBooking with a single UPDATE statement, conditional on its version when one is
+   * given. The booking is still read first, to move its seat; a stale version is rejected before
+   * the seat is moved.
+   */
   @Override
-  public TourBooking updateTourBookingById(Long id, TourBooking tourBooking) {
+  @Transactional
+  public TourBooking updateTourBookingById(Long id, TourBooking tourBooking, Long version) {
     if (id < 1) {
       throw new BadDataResponse("id must be positive and cannot be zero");
     }
-    boolean tourCodeAlreadyExists = tourBookingRepository.existsByTourCode(tourBooking.getTourCode());
-
-    if (tourCodeAlreadyExists) {
+    if (tourCodeAlreadyExists(tourBooking.getTourCode())) {
       throw new Conflict(" Tour code already in use!");
     }
-    TourBooking updatedTourBooking = null;
-    if (!tourBookingRepository.existsById(id)) {
-      throw new ResourceNotFound(NOT_FOUND + "tourBooking with id " + id);
+    TourBooking previousTourBooking = getTourBookingById(id);
+    if (version != null && !version.equals(previousTourBooking.getVersion())) {
+      throw new PreconditionFailed("tourBooking with id " + id
+          + " is no longer at the version of If-Match");
     }
+    seatInventoryService.moveSeats(previousTourBooking.getTourId(),
+        previousTourBooking.getReservedDate(), tourBooking.getTourId(),
+        tourBooking.getReservedDate(), SEATS_PER_BOOKING);
+    int updatedRows;
     try {
-      tourBooking.setId(id);
-      updatedTourBooking = tourBookingRepository.save(tourBooking);
+      updatedRows = tourBookingRepository.replaceById(id, version, tourBooking);
+    } catch (DataIntegrityViolationException e) {
+      throw new Conflict(" Tour code already in use!");
     } catch (Exception e) {
       throw new ServiceUnavailable(e);
     }
-    return updatedTourBooking;
+    tourBooking.setId(id);
+    tourBooking.setVersion(ConditionalUpdates.checkUpdated(updatedRows, tourBookingRepository,
+        id, version, "tourBooking"));
+    uniqueValueFilters.add(UniqueKey.TOUR_CODE, tourBooking.getTourCode());
+    uniqueValueFilters.remove(UniqueKey.TOUR_CODE, previousTourBooking.getTourCode());
+    return tourBooking;
   }
 
+  /**
+   * Changes only the given fields of a TourBooking, with a single UPDATE statement. A taken tour
+   * code is rejected by the unique constraint instead of a separate query. Moving the booking to
+   * another tour or date, or changing its tour code, also loads it first, to move its seat or
+   * forget its old tour code; a stale version is then rejected before the seat is moved.
+   */
   @Override
+  @Transactional
+  public Long patchTourBookingById(Long id, Map<String, Object> patch, Long version) {
+    if (id < 1) {
+      throw new BadDataResponse("id must be positive and cannot be zero");
+    }
+    Map<String, Object> changes = partialUpdates.toChanges(TourBooking.class, patch);
+    TourBooking previousTourBooking = null;
+    if (changes.containsKey("tourId") || changes.containsKey("reservedDate")
+        || changes.containsKey("tourCode")) {
+      previousTourBooking = getTourBookingById(id);
+      if (version != null && !version.equals(previousTourBooking.getVersion())) {
+        throw new PreconditionFailed("tourBooking with id " + id
+            + " is no longer at the version of If-Match");
+      }
+    }
+    if (changes.containsKey("tourId") || changes.containsKey("reservedDate")) {
+      seatInventoryService.moveSeats(previousTourBooking.getTourId(),
+          previousTourBooking.getReservedDate(),
+          (Long) changes.getOrDefault("tourId", previousTourBooking.getTourId()),
+          (Date) changes.getOrDefault("reservedDate", previousTourBooking.getReservedDate()),
+          SEATS_PER_BOOKING);
+    }
+    int updatedRows;
+    try {
+      updatedRows = tourBookingRepository.updateById(id, version, changes);
+    } catch (DataIntegrityViolationException e) {
+      throw new Conflict(" Tour code already in use!");
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
+    }
+    Long newVersion = ConditionalUpdates.checkUpdated(updatedRows, tourBookingRepository, id,
+        version, "tourBooking");
+    if (changes.containsKey("tourCode")) {
+      uniqueValueFilters.add(UniqueKey.TOUR_CODE, (String) changes.get("tourCode"));
+      uniqueValueFilters.remove(UniqueKey.TOUR_CODE, previousTourBooking.getTourCode());
+    }
+    return newVersion;
+  }
+
+  @Override
+  @Transactional
   public void deleteTourBookingById(Long id) {
     if (id < 1) {
       throw new BadDataResponse("id must be positive and cannot be zero");
     }
-    getTourBookingById(id);
+    // read first: the seat to give back and the tour code to forget are only known from the row
+    TourBooking tourBooking = getTourBookingById(id);
+    int deletedRows;
     try {
-      tourBookingRepository.deleteById(id);
+      deletedRows = tourBookingRepository.deleteOneById(id);
     } catch (Exception e) {
       throw new ServiceUnavailable("Something went wrong");
     }
+    if (deletedRows == 0) {
+      throw new ResourceNotFound(NOT_FOUND + " tourBooking with id " + id);
+    }
+    seatInventoryService.releaseSeats(tourBooking.getTourId(), tourBooking.getReservedDate(),
+        SEATS_PER_BOOKING);
+    uniqueValueFilters.remove(UniqueKey.TOUR_CODE, tourBooking.getTourCode());
+  }
+
+  private Set<String> findExistingTourCodes(Collection<TourBooking> tourBookings) {
+    List<String> probablyTaken = tourBookings.stream()
+        .map(TourBooking::getTourCode)
+        .filter(tourCode -> uniqueValueFilters.mightContain(UniqueKey.TOUR_CODE, tourCode))
+        .collect(Collectors.toList());
+    if (probablyTaken.isEmpty()) {
+      return Set.of();
+    }
+    try {
+      return new HashSet<>(tourBookingRepository.findExistingTourCodes(probablyTaken));
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
+    }
+  }
+
+  // takes the seats of each tour date at once, falling back to one booking at a time when the
+  // date can not seat the whole group, so that the bookings that still fit are kept
+  private void reserveSeats(Map<Integer, TourBooking> accepted,
+      List<BulkItemResult<TourBooking>> results) {
+    Map<List<Object>, List<Integer>> indexesBySlot = new LinkedHashMap<>();
+    accepted.forEach((index, tourBooking) -> indexesBySlot.computeIfAbsent(
+        List.of(tourBooking.getTourId(), tourBooking.getReservedDate()),
+        slot -> new ArrayList<>()).add(index));
+    for (List<Integer> indexes : indexesBySlot.values()) {
+      TourBooking first = accepted.get(indexes.get(0));
+      try {
+        seatInventoryService.reserveSeats(first.getTourId(), first.getReservedDate(),
+            SEATS_PER_BOOKING * indexes.size());
+        continue;
+      } catch (Conflict e) {
+        // not enough seats for the whole group
+      } catch (ResourceNotFound e) {
+        rejectAll(indexes, HttpStatus.NOT_FOUND, e.getMessage(), accepted, results);
+        continue;
+      }
+      for (int i = 0; i < indexes.size(); i++) {
+        try {
+          seatInventoryService.reserveSeats(first.getTourId(), first.getReservedDate(),
+              SEATS_PER_BOOKING);
+        } catch (Conflict e) {
+          rejectAll(indexes.subList(i, indexes.size()), HttpStatus.CONFLICT, e.getMessage(),
+              accepted, results);
+          break;
+        }
+      }
+    }
+  }
+
+  private void rejectAll(List<Integer> indexes, HttpStatus status, String error,
+      Map<Integer, TourBooking> accepted, List<BulkItemResult<TourBooking>> results) {
+    for (Integer index : indexes) {
+      accepted.remove(index);
+      results.set(index, BulkItemResult.rejected(index, status.value(), List.of(error)));
+    }
+  }
+
+  private boolean tourCodeAlreadyExists(String tourCode) {
+    // a definite miss in the filter means no booking can have this tour code
+    return uniqueValueFilters.mightContain(UniqueKey.TOUR_CODE, tourCode)
+        && tourBookingRepository.existsByTourCode(tourCode);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public void exportTourBookings(LocalDate from, LocalDate to, String format,
+      OutputStream outputStream) {
+    Date lowerBound = toDate(from == null ? EARLIEST_DATE : from);
+    Date upperBound = toDate(to == null ? LATEST_DATE : to);
+    boolean csv = EXPORT_FORMAT_CSV.equals(format);
+    String lineSeparator = csv ? "\r\n" : "\n";
+    ObjectWriter jsonWriter = objectMapper.copy()
+        .addMixIn(TourBooking.class, MaskedCardNo.class).writerFor(TourBooking.class);
+    // reserved dates are serialized as UTC days by Jackson, so the CSV uses the same zone
+    SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+    dateFormat.setTimeZone(TimeZone.getTimeZone(ZoneOffset.UTC));
+
+    Writer writer = new BufferedWriter(
+        new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    try (Stream<TourBooking> tourBookings = tourBookingRepository
+        .streamByReservedDateBetweenOrderByIdAsc(lowerBound, upperBound)) {
+      if (csv) {
+        writer.write(CSV_HEADER + lineSeparator);
+      }
+      Iterator<TourBooking> iterator = tourBookings.iterator();
+      while (iterator.hasNext()) {
+        TourBooking tourBooking = iterator.next();
+        writer.write(csv ? toCsvRow(tourBooking, dateFormat)
+            : jsonWriter.writeValueAsString(tourBooking));
+        writer.write(lineSeparator);
+        // rows are never re-read, so detaching keeps the persistence context (and heap) flat
+        entityManager.detach(tourBooking);
+      }
+      writer.flush();
+    } catch (IOException e) {
+      logger.error(e.getMessage());
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private Date toDate(LocalDate localDate) {
+    return Date.from(localDate.atStartOfDay(ZoneOffset.UTC).toInstant());
+  }
+
+  private String toCsvRow(TourBooking tourBooking, SimpleDateFormat dateFormat) {
+    Contact contact = tourBooking.getContact() == null ? new Contact() : tourBooking.getContact();
+    String reservedDate = tourBooking.getReservedDate() == null ? null
+        : dateFormat.format(tourBooking.getReservedDate());
+    return String.join(",",
+        toCsvField(tourBooking.getId()),
+        toCsvField(tourBooking.getTourId()),
+        toCsvField(tourBooking.getTourCode()),
+        toCsvField(reservedDate),
+        toCsvField(contact.getFirstName()),
+        toCsvField(contact.getLastName()),
+        toCsvField(contact.getPhoneNo()),
+        toCsvField(contact.getEmail()),
+        toCsvField(maskCardNo(tourBooking.getCardNo())));
+  }
+
+  private String toCsvField(Object value) {
+    if (value == null) {
+      return "";
+    }
+    String field = value.toString();
+    if (!field.isEmpty() && CSV_FORMULA_PREFIXES.indexOf(field.charAt(0)) >= 0) {
+      field = "'" + field;
+    }
+    if (field.contains(",") || field.contains("\"") || field.contains("\n")
+        || field.contains("\r")) {
+      return "\"" + field.replace("\"", "\"\"") + "\"";
+    }
+    return field;
+  }
+
+  // exported files leave the application, so they only show the last digits of a card number
+  private static String maskCardNo(String cardNo) {
+    if (cardNo == null) {
+      return null;
+    }
+    int hidden = Math.max(cardNo.length() - CARD_NO_VISIBLE_DIGITS, 0);
+    return "*".repeat(hidden) + cardNo.substring(hidden);
+  }
+
+  private abstract static class MaskedCardNo {
+
+    @JsonSerialize(converter = CardNoMask.class)
+    abstract String getCardNo();
+  }
+
+  private static class CardNoMask extends StdConverter<String, String> {
+
+    @Override
+    public String convert(String cardNo) {
+      return maskCardNo(cardNo);
+    }
   }
 }
@@ -0,0 +1,29 @@
+package com.example.ecommerce.services;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * This event is published by the TourService after Tours are created, updated or deleted, so that
+ * state derived from the catalog (e.g. the search index) can follow. Listeners that must only
+ * see committed data use @TransactionalEventListener.
+ */
+public class TourChangedEvent {
+
+  private final List<Long> tourIds;
+
+  public TourChangedEvent(Collection<Long> tourIds) {
+    this.tourIds = List.copyOf(tourIds);
+  }
+
+  public List<Long> getTourIds() {
+    return tourIds;
+  }
+
+  @Override
+  public String toString() {
+    return "TourChangedEvent{" +
+        "tourIds=" + tourIds +
+        '}';
+  }
+}
@@ -0,0 +1,393 @@
+package com.example.ecommerce.services;
+
+import static com.example.ecommerce.constants.StringConstants.FACET_NUMBER_OF_DAYS;
+import static com.example.ecommerce.constants.StringConstants.FACET_PRICE;
+import static com.example.ecommerce.constants.StringConstants.FACET_RATING;
+import static com.example.ecommerce.constants.StringConstants.FACET_VACCINATIONS;
+import static com.example.ecommerce.constants.StringConstants.ID_ATTRIBUTE;
+
+import com.example.ecommerce.models.CursorPage;
+import com.example.ecommerce.models.FacetedTours;
+import com.example.ecommerce.models.Tour;
+import com.example.ecommerce.repositories.TourRepository;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * This class keeps a columnar view of the active Tours for faceted filtering: every Tour has a
+ * slot, and every value of a facet (a price band, a number of days, a rating or a required
+ * vaccination) has a bitset of the slots that have it. A filter is an OR of the selected values
+ * within a facet and an AND across facets, and every count is the cardinality of such an
+ * intersection, so no Tour is looked at one by one.
+ *
+ * <p>Slots follow the order of the tour ids, so that a page is read by walking the matching bits
+ * from the cursor on. Changes are applied in place from the committed TourChangedEvents; the
+ * slots are compacted once deleted ones outnumber the live ones, or when a new Tour has a lower id
+ * than the last one.
+ *
+ * <p>The required vaccinations of every slot are also kept as a bitmask over a dictionary of
+ * vaccine ids, so that the Tours open to a traveler are found with a subset test per slot: a Tour
+ * is eligible if its mask has no bit outside the traveler's. Vaccine ids are never reused, so the
+ * dictionary only grows with new vaccine names.
+ */
+@Component
+public class TourFacets {
+
+  private static final List<String> FACETS = List.of(FACET_PRICE, FACET_NUMBER_OF_DAYS,
+      FACET_RATING, FACET_VACCINATIONS);
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final long[] NO_VACCINES = new long[0];
+  // numeric order for the positive whole numbers of the number of days and the rating, which
+  // unlike parsing can not fail on a filter value that is no number
+  private static final Comparator<String> NUMERIC_ORDER =
+      Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder());
+
+  private final Logger logger = LoggerFactory.getLogger(TourFacets.class);
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<String, SortedMap<String, BitSet>> valueSlots = new HashMap<>();
+  private final Map<Long, Integer> slotsById = new HashMap<>();
+  private final BitSet liveSlots = new BitSet();
+  private final Map<String, Integer> vaccineIds = new HashMap<>();
+  private Tour[] tours = new Tour[INITIAL_CAPACITY];
+  private long[] ids = new long[INITIAL_CAPACITY];
+  private long[][] requiredVaccines = new long[INITIAL_CAPACITY][];
+  private int slotCount;
+
+  // upper bounds of the price bands, ascending, and the labels of all bands
+  @Value("${wildlife-tours.facets.price-bands}")
+  private BigDecimal[] priceBands;
+  private List<String> priceBandLabels;
+
+  @Autowired
+  private TourRepository tourRepository;
+
+  @PostConstruct
+  public void initFacets() {
+    Arrays.sort(priceBands);
+    priceBandLabels = new ArrayList<>();
+    BigDecimal lowerBound = BigDecimal.ZERO;
+    for (BigDecimal upperBound : priceBands) {
+      priceBandLabels.add(lowerBound.stripTrailingZeros().toPlainString() + "-"
+          + upperBound.stripTrailingZeros().toPlainString());
+      lowerBound = upperBound;
+    }
+    priceBandLabels.add(lowerBound.stripTrailingZeros().toPlainString() + "+");
+    valueSlots.put(FACET_PRICE,
+        new TreeMap<>(Comparator.comparingInt(priceBandLabels::indexOf)));
+    valueSlots.put(FACET_NUMBER_OF_DAYS, new TreeMap<>(NUMERIC_ORDER));
+    valueSlots.put(FACET_RATING, new TreeMap<>(NUMERIC_ORDER));
+    valueSlots.put(FACET_VACCINATIONS, new TreeMap<>());
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional(readOnly = true)
+  public void load() {
+    List<Tour> activeTours = tourRepository.findByIsActiveTrue(Sort.by(ID_ATTRIBUTE));
+    lock.writeLock().lock();
+    try {
+      activeTours.forEach(this::put);
+    } finally {
+      lock.writeLock().unlock();
+    }
+    logger.info("Loaded " + activeTours.size() + " active tours into the tour facets");
+  }
+
+  // the changed Tours that are no longer found were deleted; inactive ones are left out
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onTourChanged(TourChangedEvent event) {
+    Set<Long> removedIds = new HashSet<>(event.getTourIds());
+    List<Tour> changedTours = tourRepository.findAllById(event.getTourIds());
+    lock.writeLock().lock();
+    try {
+      boolean outOfOrder = false;
+      for (Tour tour : changedTours) {
+        if (tour.isActive()) {
+          outOfOrder |= put(tour);
+          removedIds.remove(tour.getId());
+        }
+      }
+      removedIds.forEach(this::remove);
+      if (outOfOrder || slotCount - liveSlots.cardinality() > Math.max(liveSlots.cardinality(),
+          INITIAL_CAPACITY)) {
+        compact();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Filters the active Tours by facet values.
+   *
+   * @param filters the selected values by facet; a Tour must have one of the selected values of
+   *                every facet that has any. Values that no Tour has match nothing.
+   *                Vaccinations match regardless of case and of surrounding blanks, and are
+   *                counted under their lowercase names.
+   * @param after   the id of the last Tour of the previous page, if any.
+   * @param limit   the maximum number of Tours to return.
+   * @return one page of the matching Tours, ordered by id, with the facet counts.
+   */
+  public FacetedTours query(Map<String, ? extends Collection<String>> filters, Long after,
+      int limit) {
+    lock.readLock().lock();
+    try {
+      Map<String, BitSet> selections = new HashMap<>();
+      for (String facet : FACETS) {
+        Collection<String> selectedValues = filters.get(facet);
+        if (selectedValues != null && !selectedValues.isEmpty()) {
+          BitSet selection = new BitSet();
+          for (String value : selectedValues) {
+            if (FACET_VACCINATIONS.equals(facet) && value != null) {
+              value = vaccineKey(value);
+            }
+            BitSet slots = valueSlots.get(facet).get(value);
+            if (slots != null) {
+              selection.or(slots);
+            }
+          }
+          selections.put(facet, selection);
+        }
+      }
+      BitSet matches = (BitSet) liveSlots.clone();
+      selections.values().forEach(matches::and);
+
+      Map<String, Map<String, Integer>> facetCounts = new LinkedHashMap<>();
+      for (String facet : FACETS) {
+        facetCounts.put(facet, countValues(facet, selections));
+      }
+
+      List<Tour> items = new ArrayList<>();
+      int slot = matches.nextSetBit(after == null ? 0 : firstSlotAfter(after));
+      for (; slot >= 0 && items.size() < limit; slot = matches.nextSetBit(slot + 1)) {
+        items.add(tours[slot]);
+      }
+      Long nextCursor = slot >= 0 ? items.get(items.size() - 1).getId() : null;
+      return new FacetedTours(items, nextCursor, limit, matches.cardinality(), facetCounts);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Finds the active Tours whose required vaccinations a traveler all has. Vaccinations match
+   * regardless of case and of surrounding blanks.
+   *
+   * @param vaccinations the vaccinations of the traveler; ones that no Tour requires are ignored.
+   * @param after        the id of the last Tour of the previous page, if any.
+   * @param limit        the maximum number of Tours to return.
+   * @return one page of the eligible Tours, ordered by id.
+   */
+  public CursorPage<Tour> eligible(Collection<String> vaccinations, Long after, int limit) {
+    lock.readLock().lock();
+    try {
+      BitSet held = new BitSet();
+      for (String vaccination : vaccinations) {
+        Integer vaccineId = vaccineIds.get(vaccineKey(vaccination));
+        if (vaccineId != null) {
+          held.set(vaccineId);
+        }
+      }
+      long[] heldMask = held.toLongArray();
+
+      List<Tour> items = new ArrayList<>();
+      int slot = nextEligibleSlot(after == null ? 0 : firstSlotAfter(after), heldMask);
+      for (; slot >= 0 && items.size() < limit; slot = nextEligibleSlot(slot + 1, heldMask)) {
+        items.add(tours[slot]);
+      }
+      Long nextCursor = slot >= 0 ? items.get(items.size() - 1).getId() : null;
+      return new CursorPage<>(items, nextCursor, limit);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private int nextEligibleSlot(int from, long[] heldMask) {
+    for (int slot = liveSlots.nextSetBit(from); slot >= 0; slot = liveSlots.nextSetBit(slot + 1)) {
+      if (isSubset(requiredVaccines[slot], heldMask)) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean isSubset(long[] mask, long[] ofMask) {
+    for (int word = 0; word < mask.length; word++) {
+      long held = word < ofMask.length ? ofMask[word] : 0L;
+      if ((mask[word] & ~held) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // each value is counted under the filters of the other facets, as selecting it widens its own
+  private Map<String, Integer> countValues(String facet, Map<String, BitSet> selections) {
+    BitSet others = null;
+    for (Map.Entry<String, BitSet> selection : selections.entrySet()) {
+      if (!selection.getKey().equals(facet)) {
+        if (others == null) {
+          others = (BitSet) liveSlots.clone();
+        }
+        others.and(selection.getValue());
+      }
+    }
+    Map<String, Integer> counts = new LinkedHashMap<>();
+    for (Map.Entry<String, BitSet> value : valueSlots.get(facet).entrySet()) {
+      if (others == null) {
+        // the value bitsets only hold live slots, so without filters the count is precomputed
+        counts.put(value.getKey(), value.getValue().cardinality());
+      } else {
+        BitSet intersection = (BitSet) value.getValue().clone();
+        intersection.and(others);
+        counts.put(value.getKey(), intersection.cardinality());
+      }
+    }
+    return counts;
+  }
+
+  private int firstSlotAfter(long id) {
+    int slot = Arrays.binarySearch(ids, 0, slotCount, id);
+    return slot >= 0 ? slot + 1 : -slot - 1;
+  }
+
+  // indexes or re-indexes a Tour; true if it was appended out of id order
+  private boolean put(Tour tour) {
+    Integer slot = slotsById.get(tour.getId());
+    if (slot != null) {
+      setValues(tours[slot], slot, false);
+      tours[slot] = tour;
+      requiredVaccines[slot] = vaccineMaskOf(tour);
+      setValues(tour, slot, true);
+      return false;
+    }
+    if (slotCount == tours.length) {
+      tours = Arrays.copyOf(tours, slotCount * 2);
+      ids = Arrays.copyOf(ids, slotCount * 2);
+      requiredVaccines = Arrays.copyOf(requiredVaccines, slotCount * 2);
+    }
+    boolean outOfOrder = slotCount > 0 && tour.getId() < ids[slotCount - 1];
+    tours[slotCount] = tour;
+    ids[slotCount] = tour.getId();
+    requiredVaccines[slotCount] = vaccineMaskOf(tour);
+    slotsById.put(tour.getId(), slotCount);
+    liveSlots.set(slotCount);
+    setValues(tour, slotCount, true);
+    slotCount++;
+    return outOfOrder;
+  }
+
+  // a removed slot keeps its id, so that the ids stay sorted for the cursor search
+  private void remove(Long id) {
+    Integer slot = slotsById.remove(id);
+    if (slot != null) {
+      setValues(tours[slot], slot, false);
+      tours[slot] = null;
+      requiredVaccines[slot] = null;
+      liveSlots.clear(slot);
+    }
+  }
+
+  private void compact() {
+    List<Tour> liveTours = new ArrayList<>(slotsById.size());
+    for (int slot = liveSlots.nextSetBit(0); slot >= 0; slot = liveSlots.nextSetBit(slot + 1)) {
+      liveTours.add(tours[slot]);
+    }
+    liveTours.sort(Comparator.comparing(Tour::getId));
+    valueSlots.values().forEach(Map::clear);
+    slotsById.clear();
+    liveSlots.clear();
+    Arrays.fill(tours, null);
+    Arrays.fill(requiredVaccines, null);
+    slotCount = 0;
+    liveTours.forEach(this::put);
+  }
+
+  private void setValues(Tour tour, int slot, boolean set) {
+    for (String facet : FACETS) {
+      SortedMap<String, BitSet> values = valueSlots.get(facet);
+      for (String value : valuesOf(tour, facet)) {
+        if (set) {
+          values.computeIfAbsent(value, v -> new BitSet()).set(slot);
+        } else {
+          BitSet slots = values.get(value);
+          slots.clear(slot);
+          if (slots.isEmpty()) {
+            values.remove(value);
+          }
+        }
+      }
+    }
+  }
+
+  private Collection<String> valuesOf(Tour tour, String facet) {
+    switch (facet) {
+      case FACET_PRICE:
+        return tour.getPrice() == null ? List.of() : List.of(priceBandOf(tour.getPrice()));
+      case FACET_NUMBER_OF_DAYS:
+        return List.of(String.valueOf(tour.getNumberOfDays()));
+      case FACET_RATING:
+        return List.of(String.valueOf(tour.getRating()));
+      default:
+        // filed under the same keys as the eligibility index, so "TB" and "tb " are one value
+        return tour.getVaccinations() == null ? List.of()
+            : Arrays.stream(tour.getVaccinations()).filter(Objects::nonNull)
+                .map(TourFacets::vaccineKey).collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+  }
+
+  // dictionary-encodes the required vaccinations, giving new names the next free id
+  private long[] vaccineMaskOf(Tour tour) {
+    if (tour.getVaccinations() == null || tour.getVaccinations().length == 0) {
+      return NO_VACCINES;
+    }
+    BitSet mask = new BitSet();
+    for (String vaccination : tour.getVaccinations()) {
+      if (vaccination != null) {
+        mask.set(vaccineIds.computeIfAbsent(vaccineKey(vaccination), key -> vaccineIds.size()));
+      }
+    }
+    return mask.toLongArray();
+  }
+
+  private static String vaccineKey(String vaccination) {
+    return vaccination.strip().toLowerCase(Locale.ROOT);
+  }
+
+  private String priceBandOf(BigDecimal price) {
+    int band = 0;
+    while (band < priceBands.length && price.compareTo(priceBands[band]) >= 0) {
+      band++;
+    }
+    return priceBandLabels.get(band);
+  }
+}
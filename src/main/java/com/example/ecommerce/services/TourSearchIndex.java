@@ -0,0 +1,86 @@
+package com.example.ecommerce.services;
+
+import com.example.ecommerce.repositories.TourRepository;
+import com.example.ecommerce.utils.Bm25Index;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * This class keeps a BM25 full-text index of the tour descriptions in memory, along with the
+ * type-ahead completions of their words. Both are filled from the database once the application is
+ * ready, and every committed TourChangedEvent re-reads the descriptions of just the changed Tours,
+ * so a change is searchable as soon as its request returns.
+ */
+@Component
+public class TourSearchIndex {
+
+  private final Logger logger = LoggerFactory.getLogger(TourSearchIndex.class);
+
+  private final Bm25Index index = new Bm25Index();
+  private final TourTermCompletions completions = new TourTermCompletions();
+
+  @Autowired
+  private TourRepository tourRepository;
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional(readOnly = true)
+  public void load() {
+    try (Stream<Object[]> descriptions = tourRepository.streamAllDescriptions()) {
+      descriptions.forEach(this::add);
+    }
+    logger.info("Indexed the descriptions of " + index.size() + " tours");
+  }
+
+  // the changed Tours that are no longer found were deleted
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onTourChanged(TourChangedEvent event) {
+    Set<Long> deletedIds = new HashSet<>(event.getTourIds());
+    for (Object[] row : tourRepository.findDescriptionsByIdIn(event.getTourIds())) {
+      add(row);
+      deletedIds.remove((Long) row[0]);
+    }
+    for (Long id : deletedIds) {
+      index.remove(id);
+      completions.remove(id);
+    }
+  }
+
+  /**
+   * Searches the tour descriptions.
+   *
+   * @param query the keywords; a Tour matches if its description contains any of them.
+   * @param limit the maximum number of ids to return.
+   * @return the ids of the best matching Tours, best match first.
+   */
+  public List<Long> search(String query, int limit) {
+    return index.search(query, limit);
+  }
+
+  /**
+   * Completes the word being typed into a search.
+   *
+   * @param prefix the text typed so far; only its last word is completed.
+   * @param limit  the maximum number of completions.
+   * @return the words of the tour descriptions that start like the last word of the prefix, from
+   * the best rated Tours first.
+   */
+  public List<String> complete(String prefix, int limit) {
+    return completions.complete(prefix, limit);
+  }
+
+  // a [id, description, rating] row
+  private void add(Object[] row) {
+    index.add((Long) row[0], (String) row[1]);
+    completions.put((Long) row[0], (String) row[1], (Integer) row[2]);
+  }
+}
@@ -1,17 +1,38 @@
 package com.example.ecommerce.services;
 
+import com.example.ecommerce.models.BulkResult;
+import com.example.ecommerce.models.CursorPage;
+import com.example.ecommerce.models.FacetedTours;
 import com.example.ecommerce.models.Tour;
+import com.example.ecommerce.models.TourFilter;
 import java.util.List;
+import java.util.Map;
 
 public interface TourService {
 
-  List<Tour> queryTours(Tour tour);
+  List<Tour> queryTours(TourFilter filter);
+
+  CursorPage<Tour> queryTours(TourFilter filter, Long after, int limit);
+
+  void validateQuery(TourFilter filter, Long after, int limit);
+
+  FacetedTours queryTourFacets(Map<String, List<String>> filters, Long after, int limit);
+
+  CursorPage<Tour> queryEligibleTours(List<String> vaccinations, Long after, int limit);
+
+  List<Tour> searchTours(String query, int limit);
+
+  List<String> completeTourTerms(String prefix, int limit);
 
   Tour getTourById(Long id);
 
   Tour addTour(Tour tour);
 
-  Tour updateTourById(Long id, Tour tour);
+  BulkResult<Tour> addTours(List<Tour> tours);
+
+  Tour updateTourById(Long id, Tour tour, Long version);
+
+  Long patchTourById(Long id, Map<String, Object> patch, Long version);
 
   void deleteTourById(Long id);
 }
@@ -1,20 +1,52 @@
 package com.example.ecommerce.services;
 
+import static com.example.ecommerce.constants.StringConstants.FACET_VACCINATIONS;
+import static com.example.ecommerce.constants.StringConstants.ID_ATTRIBUTE;
+import static com.example.ecommerce.constants.StringConstants.MAX_COMPLETIONS;
+import static com.example.ecommerce.constants.StringConstants.MAX_PAGE_LIMIT;
 import static com.example.ecommerce.constants.StringConstants.NOT_FOUND;
+import static com.example.ecommerce.constants.StringConstants.TOURS_CACHE;
+import static com.example.ecommerce.constants.StringConstants.TOUR_QUERIES_CACHE;
 
 import com.example.ecommerce.exceptions.BadDataResponse;
+import com.example.ecommerce.exceptions.Conflict;
 import com.example.ecommerce.exceptions.ResourceNotFound;
 import com.example.ecommerce.exceptions.ServiceUnavailable;
+import com.example.ecommerce.models.BulkItemResult;
+import com.example.ecommerce.models.BulkResult;
+import com.example.ecommerce.models.CursorPage;
+import com.example.ecommerce.models.FacetedTours;
 import com.example.ecommerce.models.Tour;
+import com.example.ecommerce.models.TourFilter;
+import com.example.ecommerce.repositories.FilterSpecifications;
 import com.example.ecommerce.repositories.TourRepository;
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Example;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+/**
+ * This class contains the methods that are called by the TourController, and implemented from the
+ * TourService interface. Reads are served through the tours and tourQueries caches; every write
+ * refreshes or evicts the affected entries, and publishes a TourChangedEvent.
+ */
 @Service
 public class TourServiceImpl implements TourService {
 
@@ -23,17 +55,31 @@ public class TourServiceImpl implements TourService {
   @Autowired
   private TourRepository tourRepository;
 
+  @Autowired
+  private SeatInventoryService seatInventoryService;
+
+  @Autowired
+  private Validator validator;
+
+  @Autowired
+  private PartialUpdates partialUpdates;
+
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @Autowired
+  private TourSearchIndex tourSearchIndex;
+
+  @Autowired
+  private TourFacets tourFacets;
+
   @Override
-  public List<Tour> queryTours(Tour tour) {
+  @Transactional(readOnly = true)
+  @Cacheable(cacheNames = TOUR_QUERIES_CACHE)
+  public List<Tour> queryTours(TourFilter filter) {
+    validateFilter(filter);
     try {
-      if (tour.isEmpty()) {
-        List<Tour> tours = tourRepository.findAll();
-        tours.sort(Comparator.comparing(Tour::getId));
-        return tours;
-      } else {
-        Example<Tour> tourExample = Example.of(tour);
-        return tourRepository.findAll(tourExample);
-      }
+      return tourRepository.findAll(FilterSpecifications.of(filter), Sort.by(ID_ATTRIBUTE));
     } catch (Exception e) {
       logger.error(e.getMessage());
       throw new ServiceUnavailable(e);
@@ -41,6 +87,132 @@ public class TourServiceImpl implements TourService {
   }
 
   @Override
+  @Transactional(readOnly = true)
+  @Cacheable(cacheNames = TOUR_QUERIES_CACHE)
+  public CursorPage<Tour> queryTours(TourFilter filter, Long after, int limit) {
+    validateQuery(filter, after, limit);
+    try {
+      return tourRepository.findPageAfter(FilterSpecifications.of(filter), after, limit);
+    } catch (Exception e) {
+      logger.error(e.getMessage());
+      throw new ServiceUnavailable(e);
+    }
+  }
+
+  /**
+   * Rejects a Tour query with an invalid page or inverted filter bounds, without reading anything,
+   * so that the TourController can check a query before answering it with a 304.
+   */
+  @Override
+  public void validateQuery(TourFilter filter, Long after, int limit) {
+    if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+      throw new BadDataResponse("limit must be between 1 and " + MAX_PAGE_LIMIT);
+    }
+    if (after != null && after < 0) {
+      throw new BadDataResponse("after must not be negative");
+    }
+    validateFilter(filter);
+  }
+
+  private void validateFilter(TourFilter filter) {
+    validateRange("Price", filter.getMinPrice(), filter.getMaxPrice());
+    validateRange("NumberOfDays", filter.getMinNumberOfDays(), filter.getMaxNumberOfDays());
+    validateRange("Rating", filter.getMinRating(), filter.getMaxRating());
+  }
+
+  private <T extends Comparable<T>> void validateRange(String name, T min, T max) {
+    if (min != null && max != null && min.compareTo(max) > 0) {
+      throw new BadDataResponse("min" + name + " must not be greater than max" + name);
+    }
+  }
+
+  /**
+   * Filters the active Tours by facet values, and counts the Tours of every facet value, from the
+   * in-memory TourFacets in a single pass over bitsets.
+   */
+  @Override
+  public FacetedTours queryTourFacets(Map<String, List<String>> filters, Long after, int limit) {
+    if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+      throw new BadDataResponse("limit must be between 1 and " + MAX_PAGE_LIMIT);
+    }
+    if (after != null && after < 0) {
+      throw new BadDataResponse("after must not be negative");
+    }
+    return tourFacets.query(filters, after, limit);
+  }
+
+  /**
+   * Finds the active Tours open to a traveler with a subset test over the vaccination bitmasks of
+   * the in-memory TourFacets. The traveler's vaccinations are validated like those of a Tour.
+   */
+  @Override
+  public CursorPage<Tour> queryEligibleTours(List<String> vaccinations, Long after, int limit) {
+    if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+      throw new BadDataResponse("limit must be between 1 and " + MAX_PAGE_LIMIT);
+    }
+    if (after != null && after < 0) {
+      throw new BadDataResponse("after must not be negative");
+    }
+    List<String> travelerVaccinations = vaccinations == null ? List.of() : vaccinations;
+    List<String> errors = validator.validateValue(Tour.class, FACET_VACCINATIONS,
+        travelerVaccinations.toArray(new String[0])).stream()
+        .map(ConstraintViolation::getMessage)
+        .collect(Collectors.toList());
+    if (!errors.isEmpty()) {
+      throw new BadDataResponse(String.join(", ", errors));
+    }
+    return tourFacets.eligible(travelerVaccinations, after, limit);
+  }
+
+  /**
+   * Searches the tour descriptions with the in-memory TourSearchIndex, and loads the best matching
+   * Tours by id in one query.
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public List<Tour> searchTours(String query, int limit) {
+    if (query == null || query.isBlank()) {
+      throw new BadDataResponse("q must not be blank");
+    }
+    if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+      throw new BadDataResponse("limit must be between 1 and " + MAX_PAGE_LIMIT);
+    }
+    List<Long> rankedIds = tourSearchIndex.search(query, limit);
+    if (rankedIds.isEmpty()) {
+      return List.of();
+    }
+    Map<Long, Tour> toursById;
+    try {
+      toursById = tourRepository.findAllById(rankedIds).stream()
+          .collect(Collectors.toMap(Tour::getId, Function.identity()));
+    } catch (Exception e) {
+      logger.error(e.getMessage());
+      throw new ServiceUnavailable(e);
+    }
+    // a Tour deleted since the search is left out
+    return rankedIds.stream()
+        .map(toursById::get)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Completes the word being typed into a tour search from memory, without querying the database.
+   */
+  @Override
+  public List<String> completeTourTerms(String prefix, int limit) {
+    if (prefix == null || prefix.isBlank()) {
+      throw new BadDataResponse("prefix must not be blank");
+    }
+    if (limit < 1 || limit > MAX_COMPLETIONS) {
+      throw new BadDataResponse("limit must be between 1 and " + MAX_COMPLETIONS);
+    }
+    return tourSearchIndex.complete(prefix, limit);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  @Cacheable(cacheNames = TOURS_CACHE, key = "#id")
   public Tour getTourById(Long id) {
     if (id < 1) {
       throw new BadDataResponse("id must be positive and cannot be zero");
@@ -58,42 +230,139 @@ public class TourServiceImpl implements TourService {
   }
 
   @Override
+  @Transactional
+  @Caching(put = @CachePut(cacheNames = TOURS_CACHE, key = "#result.id"),
+      evict = @CacheEvict(cacheNames = TOUR_QUERIES_CACHE, allEntries = true))
   public Tour addTour(Tour tour) {
+    Tour savedTour;
+    try {
+      // ids are pre-allocated, so flush now for a failed insert to surface here
+      savedTour = tourRepository.saveAndFlush(tour);
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
+    }
+    eventPublisher.publishEvent(new TourChangedEvent(List.of(savedTour.getId())));
+    return savedTour;
+  }
+
+  /**
+   * Creates many Tours in one transaction. Every item is validated on its own; the valid ones are
+   * inserted in JDBC batches, and the invalid ones are reported without stopping the others.
+   *
+   * @param tours the Tours to create.
+   * @return the outcome of every item, in request order.
+   */
+  @Override
+  @Transactional
+  @CacheEvict(cacheNames = TOUR_QUERIES_CACHE, allEntries = true)
+  public BulkResult<Tour> addTours(List<Tour> tours) {
+    BulkRequests.checkSize(tours);
+    List<BulkItemResult<Tour>> results = new ArrayList<>(tours.size());
+    List<Tour> accepted = new ArrayList<>(tours.size());
+    for (int i = 0; i < tours.size(); i++) {
+      List<String> errors = BulkRequests.violationsOf(validator, tours.get(i));
+      if (errors.isEmpty()) {
+        accepted.add(tours.get(i));
+        results.add(BulkItemResult.created(i, tours.get(i)));
+      } else {
+        results.add(BulkItemResult.rejected(i, HttpStatus.BAD_REQUEST.value(), errors));
+      }
+    }
     try {
-      return tourRepository.save(tour);
+      tourRepository.saveAll(accepted);
+      tourRepository.flush();
     } catch (Exception e) {
       throw new ServiceUnavailable(e);
     }
+    if (!accepted.isEmpty()) {
+      eventPublisher.publishEvent(new TourChangedEvent(
+          accepted.stream().map(Tour::getId).collect(Collectors.toList())));
+    }
+    return new BulkResult<>(results);
   }
 
+  /**
+   * Replaces a Tour with a single UPDATE statement, conditional on its version when one is given.
+   * The cached Tour is evicted rather than replaced, as the new version is only known for a
+   * conditional update.
+   */
   @Override
-  public Tour updateTourById(Long id, Tour tour) {
+  @Transactional
+  @Caching(evict = {
+      @CacheEvict(cacheNames = TOURS_CACHE, key = "#id"),
+      @CacheEvict(cacheNames = TOUR_QUERIES_CACHE, allEntries = true)})
+  public Tour updateTourById(Long id, Tour tour, Long version) {
     if (id < 1) {
       throw new BadDataResponse("id must be positive and cannot be zero");
     }
-    Tour updatedTour = null;
-    if (!tourRepository.existsById(id)) {
-      throw new ResourceNotFound(NOT_FOUND + "tour with id " + id);
+    int updatedRows;
+    try {
+      updatedRows = tourRepository.replaceById(id, version, tour);
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
+    }
+    tour.setId(id);
+    tour.setVersion(ConditionalUpdates.checkUpdated(updatedRows, tourRepository, id, version,
+        "tour"));
+    seatInventoryService.resizeTour(tour);
+    eventPublisher.publishEvent(new TourChangedEvent(List.of(id)));
+    return tour;
+  }
+
+  /**
+   * Changes only the given fields of a Tour, with a single UPDATE statement. A new capacity is
+   * applied to the seat inventory of the Tour.
+   */
+  @Override
+  @Transactional
+  @Caching(evict = {
+      @CacheEvict(cacheNames = TOURS_CACHE, key = "#id"),
+      @CacheEvict(cacheNames = TOUR_QUERIES_CACHE, allEntries = true)})
+  public Long patchTourById(Long id, Map<String, Object> patch, Long version) {
+    if (id < 1) {
+      throw new BadDataResponse("id must be positive and cannot be zero");
     }
+    Map<String, Object> changes = partialUpdates.toChanges(Tour.class, patch);
+    int updatedRows;
     try {
-      tour.setId(id);
-      updatedTour = tourRepository.save(tour);
+      updatedRows = tourRepository.updateById(id, version, changes);
     } catch (Exception e) {
       throw new ServiceUnavailable(e);
     }
-    return updatedTour;
+    Long newVersion = ConditionalUpdates.checkUpdated(updatedRows, tourRepository, id, version,
+        "tour");
+    if (changes.containsKey("capacity")) {
+      Tour resizedTour = new Tour();
+      resizedTour.setId(id);
+      resizedTour.setCapacity((Integer) changes.get("capacity"));
+      seatInventoryService.resizeTour(resizedTour);
+    }
+    eventPublisher.publishEvent(new TourChangedEvent(List.of(id)));
+    return newVersion;
   }
 
   @Override
+  @Transactional
+  @Caching(evict = {
+      @CacheEvict(cacheNames = TOURS_CACHE, key = "#id"),
+      @CacheEvict(cacheNames = TOUR_QUERIES_CACHE, allEntries = true)})
   public void deleteTourById(Long id) {
     if (id < 1) {
       throw new BadDataResponse("id must be positive and cannot be zero");
     }
-    getTourById(id);
+    int deletedRows;
     try {
-      tourRepository.deleteById(id);
+      deletedRows = tourRepository.deleteOneById(id);
+    } catch (DataIntegrityViolationException e) {
+      // the foreign key of the bookings keeps a booked Tour from being deleted
+      throw new Conflict("Tour with id " + id + " has bookings");
     } catch (Exception e) {
       throw new ServiceUnavailable("Something went wrong");
     }
+    if (deletedRows == 0) {
+      throw new ResourceNotFound(NOT_FOUND + " tour with id " + id);
+    }
+    seatInventoryService.deleteTour(id);
+    eventPublisher.publishEvent(new TourChangedEvent(List.of(id)));
   }
 }
@@ -0,0 +1,99 @@
+package com.example.ecommerce.services;
+
+import static com.example.ecommerce.constants.StringConstants.MAX_COMPLETIONS;
+
+import com.example.ecommerce.utils.CompletionTrie;
+import com.example.ecommerce.utils.TextAnalyzer;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class completes prefixes with the words of the tour descriptions. A word ranks by the best
+ * rating of the Tours that use it, and then by how many Tours use it; the counts behind the ranks
+ * are kept per word and rating, so a changed Tour only re-ranks its own words.
+ */
+class TourTermCompletions {
+
+  private static final int MAX_RATING = 5;
+
+  private final CompletionTrie trie = new CompletionTrie(MAX_COMPLETIONS);
+  // the words and rating that each Tour was counted with
+  private final Map<Long, IndexedTour> toursById = new HashMap<>();
+  private final Map<String, int[]> tourCountsByRating = new HashMap<>();
+
+  synchronized void put(long id, String description, int rating) {
+    remove(id);
+    IndexedTour tour = new IndexedTour(new LinkedHashSet<>(TextAnalyzer.words(description)),
+        Math.max(0, Math.min(MAX_RATING, rating)));
+    for (String word : tour.words) {
+      int[] counts = tourCountsByRating.computeIfAbsent(word, w -> new int[MAX_RATING + 1]);
+      counts[tour.rating]++;
+      trie.put(word, word, weight(counts));
+    }
+    toursById.put(id, tour);
+  }
+
+  synchronized void remove(long id) {
+    IndexedTour tour = toursById.remove(id);
+    if (tour == null) {
+      return;
+    }
+    for (String word : tour.words) {
+      int[] counts = tourCountsByRating.get(word);
+      counts[tour.rating]--;
+      long weight = weight(counts);
+      if (weight == 0) {
+        tourCountsByRating.remove(word);
+        trie.remove(word);
+      } else {
+        trie.put(word, word, weight);
+      }
+    }
+  }
+
+  /**
+   * Completes the word being typed, i.e. the last word of a prefix.
+   *
+   * @param prefix the text typed so far.
+   * @param limit  the maximum number of completions.
+   * @return the best words that start like the last word of the prefix, best first.
+   */
+  List<String> complete(String prefix, int limit) {
+    int start = prefix.length();
+    while (start > 0 && Character.isLetterOrDigit(prefix.charAt(start - 1))) {
+      start--;
+    }
+    if (start == prefix.length()) {
+      return List.of();
+    }
+    return trie.complete(prefix.substring(start).toLowerCase(Locale.ROOT), limit);
+  }
+
+  // the best rating in the high half, the number of Tours in the low half; 0 for an unused word
+  private static long weight(int[] counts) {
+    int tours = 0;
+    int bestRating = 0;
+    for (int rating = 0; rating <= MAX_RATING; rating++) {
+      tours += counts[rating];
+      if (counts[rating] > 0) {
+        bestRating = rating;
+      }
+    }
+    return tours == 0 ? 0 : ((long) bestRating << 32) | tours;
+  }
+
+  private static final class IndexedTour {
+
+    private final Set<String> words;
+    private final int rating;
+
+    private IndexedTour(Set<String> words, int rating) {
+      this.words = words;
+      this.rating = rating;
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package com.example.ecommerce.services;
+
+import com.example.ecommerce.repositories.CustomerRepository;
+import com.example.ecommerce.repositories.TourBookingRepository;
+import com.example.ecommerce.repositories.UserAccountRepository;
+import com.example.ecommerce.repositories.UserRepository;
+import com.example.ecommerce.utils.CountingBloomFilter;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * This class keeps a counting Bloom filter per unique field, so that the services only run their
+ * existsBy query for values that may already be taken. The filters are filled from the database
+ * once the application is ready and kept current by the services on every insert, update and
+ * delete. A value is only ever reported as free when it definitely is; the unique constraints in
+ * the database remain the final arbiter for the rest.
+ */
+@Component
+public class UniqueValueFilters {
+
+  /**
+   * The unique fields that have a filter.
+   */
+  public enum UniqueKey {
+    TOUR_CODE, CUSTOMER_EMAIL, USER_EMAIL, USERNAME
+  }
+
+  private final Logger logger = LoggerFactory.getLogger(UniqueValueFilters.class);
+
+  private final Map<UniqueKey, CountingBloomFilter> filters = new EnumMap<>(UniqueKey.class);
+  private volatile boolean loaded;
+
+  @Value("${wildlife-tours.unique-filters.expected-insertions}")
+  private long expectedInsertions;
+
+  @Value("${wildlife-tours.unique-filters.false-positive-rate}")
+  private double falsePositiveRate;
+
+  @Autowired
+  private TourBookingRepository tourBookingRepository;
+
+  @Autowired
+  private CustomerRepository customerRepository;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private UserAccountRepository userAccountRepository;
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional(readOnly = true)
+  public void load() {
+    load(UniqueKey.TOUR_CODE, tourBookingRepository.count(),
+        tourBookingRepository.streamAllTourCodes());
+    load(UniqueKey.CUSTOMER_EMAIL, customerRepository.count(),
+        customerRepository.streamAllEmails());
+    load(UniqueKey.USER_EMAIL, userRepository.count(), userRepository.streamAllEmails());
+    load(UniqueKey.USERNAME, userAccountRepository.count(),
+        userAccountRepository.streamAllUsernames());
+    loaded = true;
+  }
+
+  /**
+   * Tells whether a value may already be taken.
+   *
+   * @param key   the unique field.
+   * @param value the candidate value.
+   * @return false only if no stored row can have this value; always true until the filters are
+   * loaded.
+   */
+  public boolean mightContain(UniqueKey key, String value) {
+    return !loaded || filters.get(key).mightContain(value);
+  }
+
+  public void add(UniqueKey key, String value) {
+    CountingBloomFilter filter = filters.get(key);
+    if (filter != null) {
+      filter.add(value);
+    }
+  }
+
+  /**
+   * Removes a value that is no longer stored. Inside a transaction the removal waits for the
+   * commit, since a rolled back delete must not leave the value reported as free.
+   *
+   * @param key   the unique field.
+   * @param value the value that was deleted or replaced.
+   */
+  public void remove(UniqueKey key, String value) {
+    CountingBloomFilter filter = filters.get(key);
+    if (filter == null) {
+      return;
+    }
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          filter.remove(value);
+        }
+      });
+    } else {
+      filter.remove(value);
+    }
+  }
+
+  private void load(UniqueKey key, long rows, Stream<String> values) {
+    // sized with headroom for growth; past it the false positive rate slowly rises
+    CountingBloomFilter filter = CountingBloomFilter.create(
+        Math.max(expectedInsertions, rows * 2), falsePositiveRate);
+    try (values) {
+      values.forEach(filter::add);
+    }
+    filters.put(key, filter);
+    logger.info("Loaded " + rows + " values into the " + key + " filter");
+  }
+}
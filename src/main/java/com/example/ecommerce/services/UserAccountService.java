@@ -1,17 +1,24 @@
 package com.example.ecommerce.services;
 
+import com.example.ecommerce.models.CursorPage;
 import com.example.ecommerce.models.UserAccount;
+import com.example.ecommerce.models.UserAccountFilter;
 import java.util.List;
+import java.util.Map;
 
 public interface UserAccountService {
 
-  List<UserAccount> queryUserAccounts(UserAccount user);
+  List<UserAccount> queryUserAccounts(UserAccountFilter filter);
+
+  CursorPage<UserAccount> queryUserAccounts(UserAccountFilter filter, Long after, int limit);
 
   UserAccount getUserAccountById(Long id);
 
   UserAccount addUserAccount(UserAccount user);
 
-  UserAccount updateUserAccountById(Long id, UserAccount user);
+  UserAccount updateUserAccountById(Long id, UserAccount user, Long version);
+
+  Long patchUserAccountById(Long id, Map<String, Object> patch, Long version);
 
   UserAccount findUserAccountByUserName(String userName);
 
@@ -1,21 +1,31 @@
 package com.example.ecommerce.services;
 
+import static com.example.ecommerce.constants.StringConstants.ID_ATTRIBUTE;
+import static com.example.ecommerce.constants.StringConstants.MAX_PAGE_LIMIT;
 import static com.example.ecommerce.constants.StringConstants.NOT_FOUND;
 
+import com.example.ecommerce.config.CachedUserDetailsService;
 import com.example.ecommerce.exceptions.BadDataResponse;
 import com.example.ecommerce.exceptions.Conflict;
 import com.example.ecommerce.exceptions.ResourceNotFound;
 import com.example.ecommerce.exceptions.ServiceUnavailable;
+import com.example.ecommerce.models.CursorPage;
 import com.example.ecommerce.models.UserAccount;
+import com.example.ecommerce.models.UserAccountFilter;
+import com.example.ecommerce.repositories.FilterSpecifications;
 import com.example.ecommerce.repositories.UserAccountRepository;
-import java.util.Comparator;
+import com.example.ecommerce.security.AccountStatusRegistry;
+import com.example.ecommerce.services.UniqueValueFilters.UniqueKey;
 import java.util.List;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
-import org.springframework.data.domain.Example;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class UserAccountServiceImpl implements UserAccountService {
@@ -25,17 +35,41 @@ public class UserAccountServiceImpl implements UserAccountService {
   @Autowired
   private UserAccountRepository userRepository;
 
+  @Autowired
+  private AccountStatusRegistry accountStatusRegistry;
+
+  @Autowired
+  private UniqueValueFilters uniqueValueFilters;
+
+  @Autowired
+  private PartialUpdates partialUpdates;
+
+  @Autowired
+  private CachedUserDetailsService userDetailsService;
+
   @Override
-  public List<UserAccount> queryUserAccounts(UserAccount user) {
+  @Transactional(readOnly = true)
+  public List<UserAccount> queryUserAccounts(UserAccountFilter filter) {
     try {
-      if (user.isEmpty()) {
-        List<UserAccount> users = userRepository.findAll();
-        users.sort(Comparator.comparing(UserAccount::getId));
-        return users;
-      } else {
-        Example<UserAccount> userExample = Example.of(user);
-        return userRepository.findAll(userExample);
-      }
+      return userRepository.findAll(FilterSpecifications.of(filter), Sort.by(ID_ATTRIBUTE));
+    } catch (Exception e) {
+      logger.error(e.getMessage());
+      throw new ServiceUnavailable(e);
+    }
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public CursorPage<UserAccount> queryUserAccounts(UserAccountFilter filter, Long after,
+      int limit) {
+    if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+      throw new BadDataResponse("limit must be between 1 and " + MAX_PAGE_LIMIT);
+    }
+    if (after != null && after < 0) {
+      throw new BadDataResponse("after must not be negative");
+    }
+    try {
+      return userRepository.findPageAfter(FilterSpecifications.of(filter), after, limit);
     } catch (Exception e) {
       logger.error(e.getMessage());
       throw new ServiceUnavailable(e);
@@ -43,6 +77,7 @@ public class UserAccountServiceImpl implements UserAccountService {
   }
 
   @Override
+  @Transactional(readOnly = true)
   public UserAccount getUserAccountById(Long id) {
     if (id < 1) {
       throw new BadDataResponse("id must be positive and cannot be zero");
@@ -60,43 +95,94 @@ public class UserAccountServiceImpl implements UserAccountService {
   }
 
   @Override
+  @Transactional
   public UserAccount addUserAccount(UserAccount user) {
-
-    boolean emailAlreadyExists = userRepository.existsByUsername(user.getUsername());
-
-    if (emailAlreadyExists) {
+    if (usernameAlreadyExists(user.getUsername())) {
       throw new Conflict(" Username already in use!");
     }
+    UserAccount savedUserAccount;
     try {
-      return userRepository.save(user);
+      // ids are pre-allocated, so flush now for a duplicate username to surface here
+      savedUserAccount = userRepository.saveAndFlush(user);
+    } catch (DataIntegrityViolationException e) {
+      throw new Conflict(" Username already in use!");
     } catch (Exception e) {
       throw new ServiceUnavailable(e);
     }
+    uniqueValueFilters.add(UniqueKey.USERNAME, savedUserAccount.getUsername());
+    accountStatusRegistry.update(null, savedUserAccount);
+    return savedUserAccount;
   }
 
+  /**
+   * Replaces a UserAccount with a single UPDATE statement, conditional on its version when one is
+   * given.
+   */
   @Override
-  public UserAccount updateUserAccountById(Long id, UserAccount user) {
+  @Transactional
+  public UserAccount updateUserAccountById(Long id, UserAccount user, Long version) {
     if (id < 1) {
       throw new BadDataResponse("id must be positive and cannot be zero");
     }
-    UserAccount updatedUserAccount = null;
-    if (!userRepository.existsById(id)) {
-      throw new ResourceNotFound(NOT_FOUND + "user with id " + id);
+    if (usernameAlreadyExists(user.getUsername())) {
+      throw new Conflict(" Username already in use!");
     }
-    boolean userNameAlreadyExists = userRepository.existsByUsername(user.getUsername());
-    if (userNameAlreadyExists) {
+    String previousUsername;
+    int updatedRows;
+    try {
+      previousUsername = userRepository.findUsernameById(id);
+      updatedRows = userRepository.replaceById(id, version, user);
+    } catch (DataIntegrityViolationException e) {
       throw new Conflict(" Username already in use!");
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
+    }
+    user.setId(id);
+    user.setVersion(ConditionalUpdates.checkUpdated(updatedRows, userRepository, id, version,
+        "user"));
+    uniqueValueFilters.add(UniqueKey.USERNAME, user.getUsername());
+    userDetailsService.evict(previousUsername);
+    userDetailsService.evict(user.getUsername());
+    accountStatusRegistry.update(previousUsername, user);
+    return user;
+  }
+
+  /**
+   * Changes only the given fields of a UserAccount, with a single UPDATE statement. A taken
+   * username is rejected by the unique constraint instead of a separate query. The cached account
+   * status and UserDetails are evicted once the transaction commits, so the next request reads the
+   * patched account.
+   */
+  @Override
+  @Transactional
+  public Long patchUserAccountById(Long id, Map<String, Object> patch, Long version) {
+    if (id < 1) {
+      throw new BadDataResponse("id must be positive and cannot be zero");
     }
+    Map<String, Object> changes = partialUpdates.toChanges(UserAccount.class, patch);
+    String previousUsername;
+    int updatedRows;
     try {
-      user.setId(id);
-      updatedUserAccount = userRepository.save(user);
+      previousUsername = userRepository.findUsernameById(id);
+      updatedRows = userRepository.updateById(id, version, changes);
+    } catch (DataIntegrityViolationException e) {
+      throw new Conflict(" Username already in use!");
     } catch (Exception e) {
       throw new ServiceUnavailable(e);
     }
-    return updatedUserAccount;
+    Long newVersion = ConditionalUpdates.checkUpdated(updatedRows, userRepository, id, version,
+        "user");
+    String username = (String) changes.getOrDefault("username", previousUsername);
+    userDetailsService.evict(previousUsername);
+    userDetailsService.evict(username);
+    accountStatusRegistry.evict(previousUsername);
+    accountStatusRegistry.evict(username);
+    uniqueValueFilters.add(UniqueKey.USERNAME, (String) changes.get("username"));
+    return newVersion;
   }
 
   @Override
+  @Transactional(readOnly = true)
   public UserAccount findUserAccountByUserName(String userName) {
     UserAccount foundUserAccount = null;
 
@@ -110,16 +196,32 @@ public class UserAccountServiceImpl implements UserAccountService {
   }
 
   @Override
+  @Transactional
   public void deleteUserAccountById(Long id) {
     if (id < 1) {
       throw new BadDataResponse("id must be positive and cannot be zero");
     }
-    getUserAccountById(id);
+    String username;
+    int deletedRows;
     try {
-      userRepository.deleteById(id);
+      username = userRepository.findUsernameById(id);
+      deletedRows = userRepository.deleteOneById(id);
     } catch (Exception e) {
       throw new ServiceUnavailable("Something went wrong");
     }
+    if (deletedRows == 0) {
+      throw new ResourceNotFound(NOT_FOUND + " user with id " + id);
+    }
+    accountStatusRegistry.evict(username);
+    if (username != null) {
+      userDetailsService.evict(username);
+      uniqueValueFilters.remove(UniqueKey.USERNAME, username);
+    }
   }
 
+  private boolean usernameAlreadyExists(String username) {
+    // a definite miss in the filter means no account can have this username
+    return uniqueValueFilters.mightContain(UniqueKey.USERNAME, username)
+        && userRepository.existsByUsername(username);
+  }
 }
@@ -1,20 +1,27 @@
 package com.example.ecommerce.services;
 
+import com.example.ecommerce.models.CursorPage;
 import com.example.ecommerce.models.User;
+import com.example.ecommerce.models.UserFilter;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This interface contains the methods which are implemented in the UserServiceImpl class.
  */
 public interface UserService {
 
-  List<User> queryUsers(User user);
+  List<User> queryUsers(UserFilter filter);
+
+  CursorPage<User> queryUsers(UserFilter filter, Long after, int limit);
 
   User getUserById(Long id);
 
   User addUser(User user);
 
-  User updateUserById(Long id, User user);
+  User updateUserById(Long id, User user, Long version);
+
+  Long patchUserById(Long id, Map<String, Object> patch, Long version);
 
   User findUserByEmail(String email);
 
@@ -1,21 +1,29 @@
 package com.example.ecommerce.services;
 
+import static com.example.ecommerce.constants.StringConstants.ID_ATTRIBUTE;
+import static com.example.ecommerce.constants.StringConstants.MAX_PAGE_LIMIT;
 import static com.example.ecommerce.constants.StringConstants.NOT_FOUND;
 
 import com.example.ecommerce.exceptions.BadDataResponse;
 import com.example.ecommerce.exceptions.Conflict;
 import com.example.ecommerce.exceptions.ResourceNotFound;
 import com.example.ecommerce.exceptions.ServiceUnavailable;
+import com.example.ecommerce.models.CursorPage;
 import com.example.ecommerce.models.User;
+import com.example.ecommerce.models.UserFilter;
+import com.example.ecommerce.repositories.FilterSpecifications;
 import com.example.ecommerce.repositories.UserRepository;
-import java.util.Comparator;
+import com.example.ecommerce.services.UniqueValueFilters.UniqueKey;
 import java.util.List;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
-import org.springframework.data.domain.Example;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * This class contains the methods that are called by the UserController, and implemented from the
@@ -29,17 +37,34 @@ public class UserServiceImpl implements UserService {
   @Autowired
   private UserRepository userRepository;
 
+  @Autowired
+  private UniqueValueFilters uniqueValueFilters;
+
+  @Autowired
+  private PartialUpdates partialUpdates;
+
   @Override
-  public List<User> queryUsers(User user) {
+  @Transactional(readOnly = true)
+  public List<User> queryUsers(UserFilter filter) {
     try {
-      if (user.isEmpty()) {
-        List<User> users = userRepository.findAll();
-        users.sort(Comparator.comparing(User::getId));
-        return users;
-      } else {
-        Example<User> userExample = Example.of(user);
-        return userRepository.findAll(userExample);
-      }
+      return userRepository.findAll(FilterSpecifications.of(filter), Sort.by(ID_ATTRIBUTE));
+    } catch (Exception e) {
+      logger.error(e.getMessage());
+      throw new ServiceUnavailable(e);
+    }
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public CursorPage<User> queryUsers(UserFilter filter, Long after, int limit) {
+    if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+      throw new BadDataResponse("limit must be between 1 and " + MAX_PAGE_LIMIT);
+    }
+    if (after != null && after < 0) {
+      throw new BadDataResponse("after must not be negative");
+    }
+    try {
+      return userRepository.findPageAfter(FilterSpecifications.of(filter), after, limit);
     } catch (Exception e) {
       logger.error(e.getMessage());
       throw new ServiceUnavailable(e);
@@ -47,6 +72,7 @@ public class UserServiceImpl implements UserService {
   }
 
   @Override
+  @Transactional(readOnly = true)
   public User getUserById(Long id) {
     if (id < 1) {
       throw new BadDataResponse("id must be positive and cannot be zero");
@@ -64,43 +90,80 @@ public class UserServiceImpl implements UserService {
   }
 
   @Override
+  @Transactional
   public User addUser(User user) {
 
-    boolean emailAlreadyExists = userRepository.existsByEmail(user.getEmail());
-
-    if (emailAlreadyExists) {
+    if (emailAlreadyExists(user.getEmail())) {
       throw new Conflict(" Email already in use!");
     }
+    User savedUser;
     try {
-      return userRepository.save(user);
+      // ids are pre-allocated, so flush now for a duplicate email to surface here
+      savedUser = userRepository.saveAndFlush(user);
+    } catch (DataIntegrityViolationException e) {
+      throw new Conflict(" Email already in use!");
     } catch (Exception e) {
       throw new ServiceUnavailable(e);
     }
+    uniqueValueFilters.add(UniqueKey.USER_EMAIL, savedUser.getEmail());
+    return savedUser;
   }
 
+  /**
+   * Replaces a User with a single UPDATE statement, conditional on its version when one is
+   * given.
+   */
   @Override
-  public User updateUserById(Long id, User user) {
+  @Transactional
+  public User updateUserById(Long id, User user, Long version) {
     if (id < 1) {
       throw new BadDataResponse("id must be positive and cannot be zero");
     }
-    User updatedUser = null;
-    if (!userRepository.existsById(id)) {
-      throw new ResourceNotFound(NOT_FOUND + "user with id " + id);
+    if (emailAlreadyExists(user.getEmail())) {
+      throw new Conflict(" Email already in use!");
     }
-    boolean emailAlreadyExists = userRepository.existsByEmail(user.getEmail());
-    if (emailAlreadyExists) {
+    int updatedRows;
+    try {
+      updatedRows = userRepository.replaceById(id, version, user);
+    } catch (DataIntegrityViolationException e) {
       throw new Conflict(" Email already in use!");
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
     }
+    user.setId(id);
+    user.setVersion(
+        ConditionalUpdates.checkUpdated(updatedRows, userRepository, id, version, "user"));
+    uniqueValueFilters.add(UniqueKey.USER_EMAIL, user.getEmail());
+    return user;
+  }
+
+  /**
+   * Changes only the given fields of a User, with a single UPDATE statement. A taken email is
+   * rejected by the unique constraint instead of a separate query.
+   */
+  @Override
+  @Transactional
+  public Long patchUserById(Long id, Map<String, Object> patch, Long version) {
+    if (id < 1) {
+      throw new BadDataResponse("id must be positive and cannot be zero");
+    }
+    Map<String, Object> changes = partialUpdates.toChanges(User.class, patch);
+    int updatedRows;
     try {
-      user.setId(id);
-      updatedUser = userRepository.save(user);
+      updatedRows = userRepository.updateById(id, version, changes);
+    } catch (DataIntegrityViolationException e) {
+      throw new Conflict(" Email already in use!");
     } catch (Exception e) {
       throw new ServiceUnavailable(e);
     }
-    return updatedUser;
+    Long newVersion = ConditionalUpdates.checkUpdated(updatedRows, userRepository, id, version,
+        "user");
+    uniqueValueFilters.add(UniqueKey.USER_EMAIL, (String) changes.get("email"));
+    return newVersion;
   }
 
   @Override
+  @Transactional(readOnly = true)
   public User findUserByEmail(String email) {
     User foundUser = null;
 
@@ -114,15 +177,26 @@ public class UserServiceImpl implements UserService {
   }
 
   @Override
+  @Transactional
   public void deleteUserById(Long id) {
     if (id < 1) {
       throw new BadDataResponse("id must be positive and cannot be zero");
     }
-    getUserById(id);
+    int deletedRows;
     try {
-      userRepository.deleteById(id);
+      deletedRows = userRepository.deleteOneById(id);
     } catch (Exception e) {
       throw new ServiceUnavailable("Something went wrong");
     }
+    if (deletedRows == 0) {
+      throw new ResourceNotFound(NOT_FOUND + " user with id " + id);
+    }
+    // the email is not read back, so it stays in the filter as a harmless probable hit
+  }
+
+  private boolean emailAlreadyExists(String email) {
+    // a definite miss in the filter means no user can have this email
+    return uniqueValueFilters.mightContain(UniqueKey.USER_EMAIL, email)
+        && userRepository.existsByEmail(email);
   }
 }
@@ -0,0 +1,236 @@
+package com.example.ecommerce.utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class is a thread-safe in-memory inverted index of documents identified by a long id,
+ * ranked with Okapi BM25. Texts are analyzed with the TextAnalyzer, and a document can be added,
+ * replaced or removed at any time without rebuilding the index.
+ *
+ * <p>Every document is given an int slot, and each term keeps its postings as parallel arrays of
+ * slots and term frequencies, so a query only walks the postings of its own terms and adds their
+ * scores into a float per slot. Searches share a read lock; changes take the write lock, after
+ * the text is analyzed.
+ */
+public class Bm25Index {
+
+  // the usual BM25 parameters: term frequency saturation and document length normalization
+  private static final float K1 = 1.2f;
+  private static final float B = 0.75f;
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<String, Postings> postings = new HashMap<>();
+  private final Map<Long, Integer> slots = new HashMap<>();
+
+  private long[] ids = new long[INITIAL_CAPACITY];
+  private int[] lengths = new int[INITIAL_CAPACITY];
+  // the distinct terms of the document in each slot, to find its postings again on removal
+  private String[][] slotTerms = new String[INITIAL_CAPACITY][];
+  private int[] freeSlots = new int[INITIAL_CAPACITY];
+  private int freeSlotCount;
+  private int slotCount;
+  private long totalLength;
+
+  /**
+   * Indexes a document, replacing its previous text if it was already indexed.
+   *
+   * @param id   the id of the document.
+   * @param text the text to index; a text without any term removes the document.
+   */
+  public void add(long id, String text) {
+    Map<String, Integer> frequencies = new LinkedHashMap<>();
+    List<String> terms = TextAnalyzer.terms(text);
+    for (String term : terms) {
+      frequencies.merge(term, 1, Integer::sum);
+    }
+    lock.writeLock().lock();
+    try {
+      removeLocked(id);
+      if (frequencies.isEmpty()) {
+        return;
+      }
+      int slot = allocateSlot();
+      ids[slot] = id;
+      lengths[slot] = terms.size();
+      slotTerms[slot] = frequencies.keySet().toArray(new String[0]);
+      for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+        postings.computeIfAbsent(entry.getKey(), term -> new Postings())
+            .add(slot, entry.getValue());
+      }
+      slots.put(id, slot);
+      totalLength += terms.size();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(long id) {
+    lock.writeLock().lock();
+    try {
+      removeLocked(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return slots.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Finds the documents that contain any term of a query, best match first. Documents with equal
+   * scores are ordered by id.
+   *
+   * @param query the query text, analyzed like the documents.
+   * @param limit the maximum number of ids to return.
+   * @return the ids of the best matching documents.
+   */
+  public List<Long> search(String query, int limit) {
+    List<String> terms = TextAnalyzer.terms(query);
+    if (terms.isEmpty() || limit < 1) {
+      return Collections.emptyList();
+    }
+    lock.readLock().lock();
+    try {
+      int documents = slots.size();
+      if (documents == 0) {
+        return Collections.emptyList();
+      }
+      float averageLength = (float) totalLength / documents;
+      float[] scores = new float[slotCount];
+      for (String term : new HashSet<>(terms)) {
+        Postings termPostings = postings.get(term);
+        if (termPostings != null) {
+          termPostings.score(scores, idf(documents, termPostings.size), averageLength);
+        }
+      }
+      return topIds(scores, limit);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // the non-negative variant of the BM25 idf, so that very common terms still add to the score
+  private static float idf(int documents, int documentFrequency) {
+    return (float) Math.log(1 + (documents - documentFrequency + 0.5)
+        / (documentFrequency + 0.5));
+  }
+
+  private List<Long> topIds(float[] scores, int limit) {
+    // a min-heap of the best slots so far, with the worst one on top
+    PriorityQueue<Integer> best = new PriorityQueue<>(Math.min(limit, INITIAL_CAPACITY) + 1,
+        (a, b) -> scores[a] != scores[b] ? Float.compare(scores[a], scores[b])
+            : Long.compare(ids[b], ids[a]));
+    for (int slot = 0; slot < scores.length; slot++) {
+      if (scores[slot] <= 0) {
+        continue;
+      }
+      if (best.size() < limit) {
+        best.add(slot);
+        continue;
+      }
+      // most matches rank below the worst of a full heap, and are skipped without touching it
+      int worst = best.peek();
+      if (scores[slot] > scores[worst]
+          || (scores[slot] == scores[worst] && ids[slot] < ids[worst])) {
+        best.poll();
+        best.add(slot);
+      }
+    }
+    Long[] ranked = new Long[best.size()];
+    for (int i = ranked.length - 1; i >= 0; i--) {
+      ranked[i] = ids[best.poll()];
+    }
+    return Arrays.asList(ranked);
+  }
+
+  private void removeLocked(long id) {
+    Integer slot = slots.remove(id);
+    if (slot == null) {
+      return;
+    }
+    for (String term : slotTerms[slot]) {
+      Postings termPostings = postings.get(term);
+      termPostings.remove(slot);
+      if (termPostings.size == 0) {
+        postings.remove(term);
+      }
+    }
+    totalLength -= lengths[slot];
+    slotTerms[slot] = null;
+    if (freeSlotCount == freeSlots.length) {
+      freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+    }
+    freeSlots[freeSlotCount++] = slot;
+  }
+
+  private int allocateSlot() {
+    if (freeSlotCount > 0) {
+      return freeSlots[--freeSlotCount];
+    }
+    if (slotCount == ids.length) {
+      ids = Arrays.copyOf(ids, slotCount * 2);
+      lengths = Arrays.copyOf(lengths, slotCount * 2);
+      slotTerms = Arrays.copyOf(slotTerms, slotCount * 2);
+    }
+    return slotCount++;
+  }
+
+  /**
+   * The documents that contain one term, in no particular order.
+   */
+  private class Postings {
+
+    private int[] postingSlots = new int[4];
+    private int[] frequencies = new int[4];
+    private int size;
+
+    void add(int slot, int frequency) {
+      if (size == postingSlots.length) {
+        postingSlots = Arrays.copyOf(postingSlots, size * 2);
+        frequencies = Arrays.copyOf(frequencies, size * 2);
+      }
+      postingSlots[size] = slot;
+      frequencies[size] = frequency;
+      size++;
+    }
+
+    // moves the last posting into the gap, as the order does not matter
+    void remove(int slot) {
+      for (int i = 0; i < size; i++) {
+        if (postingSlots[i] == slot) {
+          size--;
+          postingSlots[i] = postingSlots[size];
+          frequencies[i] = frequencies[size];
+          return;
+        }
+      }
+    }
+
+    void score(float[] scores, float idf, float averageLength) {
+      float weight = idf * (K1 + 1);
+      float fixedNorm = K1 * (1 - B);
+      float lengthNorm = K1 * B / averageLength;
+      for (int i = 0; i < size; i++) {
+        int slot = postingSlots[i];
+        float frequency = frequencies[i];
+        scores[slot] += weight * frequency / (frequency + fixedNorm + lengthNorm * lengths[slot]);
+      }
+    }
+  }
+}
@@ -0,0 +1,239 @@
+package com.example.ecommerce.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class is a thread-safe prefix tree for type-ahead completion. Every key holds a completion
+ * and a weight, and every node caches the best completions of its subtree, so completing a prefix
+ * only walks the prefix and copies a cached list, however many keys start with it.
+ *
+ * <p>A change keeps the cached lists current along the path of its key: a list that held the
+ * changed key is rebuilt from the lists of its children, and any other list only takes the key in
+ * if it now ranks high enough. Children are kept in arrays sorted by character rather than in a
+ * map per node.
+ */
+public class CompletionTrie {
+
+  private static final char[] NO_LABELS = new char[0];
+  private static final Node[] NO_NODES = new Node[0];
+
+  // best first: higher weight, then the completion in alphabetical order
+  private static final Comparator<Node> BEST_FIRST = Comparator
+      .comparingLong((Node node) -> -node.weight)
+      .thenComparing(node -> node.completion);
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Node root = new Node();
+  private final int maxCompletions;
+  private int size;
+
+  /**
+   * Creates an empty trie.
+   *
+   * @param maxCompletions the number of completions cached per node, and so the most that a
+   *                       prefix can be completed with.
+   */
+  public CompletionTrie(int maxCompletions) {
+    if (maxCompletions < 1) {
+      throw new IllegalArgumentException("maxCompletions must be positive");
+    }
+    this.maxCompletions = maxCompletions;
+  }
+
+  /**
+   * Adds a key, or changes its completion and weight.
+   *
+   * @param key        the key that prefixes are matched against.
+   * @param completion the text returned for the key.
+   * @param weight     the rank of the completion; higher weights are returned first.
+   */
+  public void put(String key, String completion, long weight) {
+    lock.writeLock().lock();
+    try {
+      Node[] path = new Node[key.length() + 1];
+      path[0] = root;
+      for (int i = 0; i < key.length(); i++) {
+        path[i + 1] = path[i].childOrCreate(key.charAt(i));
+      }
+      Node node = path[key.length()];
+      if (node.completion == null) {
+        size++;
+      }
+      node.completion = completion;
+      node.weight = weight;
+      for (int i = path.length - 1; i >= 0; i--) {
+        if (path[i].holds(node)) {
+          path[i].best = rebuild(path[i]);
+        } else {
+          path[i].best = admit(path[i].best, node);
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(String key) {
+    lock.writeLock().lock();
+    try {
+      Node[] path = new Node[key.length() + 1];
+      path[0] = root;
+      for (int i = 0; i < key.length(); i++) {
+        path[i + 1] = path[i].child(key.charAt(i));
+        if (path[i + 1] == null) {
+          return;
+        }
+      }
+      Node node = path[key.length()];
+      if (node.completion == null) {
+        return;
+      }
+      size--;
+      node.completion = null;
+      for (int i = path.length - 1; i >= 0; i--) {
+        if (path[i].holds(node)) {
+          path[i].best = rebuild(path[i]);
+        }
+      }
+      // drop the nodes that no longer lead to any key
+      for (int i = path.length - 1; i > 0 && path[i].isEmpty(); i--) {
+        path[i - 1].removeChild(key.charAt(i - 1));
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return size;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Completes a prefix. A completion held by several keys under the prefix is returned once.
+   *
+   * @param prefix the start of the keys to complete.
+   * @param limit  the maximum number of completions, at most maxCompletions.
+   * @return the completions of the best keys that start with the prefix, best first.
+   */
+  public List<String> complete(String prefix, int limit) {
+    lock.readLock().lock();
+    try {
+      Node node = root;
+      for (int i = 0; i < prefix.length() && node != null; i++) {
+        node = node.child(prefix.charAt(i));
+      }
+      if (node == null) {
+        return Collections.emptyList();
+      }
+      Set<String> completions = new LinkedHashSet<>();
+      for (int i = 0; i < node.best.length && completions.size() < limit; i++) {
+        completions.add(node.best[i].completion);
+      }
+      return new ArrayList<>(completions);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private Node[] rebuild(Node node) {
+    List<Node> candidates = new ArrayList<>();
+    if (node.completion != null) {
+      candidates.add(node);
+    }
+    for (Node child : node.children) {
+      candidates.addAll(Arrays.asList(child.best));
+    }
+    candidates.sort(BEST_FIRST);
+    return candidates.subList(0, Math.min(maxCompletions, candidates.size()))
+        .toArray(NO_NODES);
+  }
+
+  // adds a node to a list that does not hold it, if it ranks among the best
+  private Node[] admit(Node[] best, Node node) {
+    int position = 0;
+    while (position < best.length && BEST_FIRST.compare(best[position], node) < 0) {
+      position++;
+    }
+    if (position == maxCompletions) {
+      return best;
+    }
+    Node[] admitted = new Node[Math.min(maxCompletions, best.length + 1)];
+    System.arraycopy(best, 0, admitted, 0, position);
+    admitted[position] = node;
+    System.arraycopy(best, position, admitted, position + 1, admitted.length - position - 1);
+    return admitted;
+  }
+
+  private static final class Node {
+
+    private char[] labels = NO_LABELS;
+    private Node[] children = NO_NODES;
+    private Node[] best = NO_NODES;
+    private String completion;
+    private long weight;
+
+    Node child(char label) {
+      int index = Arrays.binarySearch(labels, label);
+      return index < 0 ? null : children[index];
+    }
+
+    Node childOrCreate(char label) {
+      int index = Arrays.binarySearch(labels, label);
+      if (index >= 0) {
+        return children[index];
+      }
+      int insertion = -index - 1;
+      Node child = new Node();
+      char[] newLabels = new char[labels.length + 1];
+      Node[] newChildren = new Node[children.length + 1];
+      System.arraycopy(labels, 0, newLabels, 0, insertion);
+      System.arraycopy(children, 0, newChildren, 0, insertion);
+      newLabels[insertion] = label;
+      newChildren[insertion] = child;
+      System.arraycopy(labels, insertion, newLabels, insertion + 1, labels.length - insertion);
+      System.arraycopy(children, insertion, newChildren, insertion + 1,
+          children.length - insertion);
+      labels = newLabels;
+      children = newChildren;
+      return child;
+    }
+
+    void removeChild(char label) {
+      int index = Arrays.binarySearch(labels, label);
+      char[] newLabels = new char[labels.length - 1];
+      Node[] newChildren = new Node[children.length - 1];
+      System.arraycopy(labels, 0, newLabels, 0, index);
+      System.arraycopy(children, 0, newChildren, 0, index);
+      System.arraycopy(labels, index + 1, newLabels, index, labels.length - index - 1);
+      System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+      labels = newLabels;
+      children = newChildren;
+    }
+
+    boolean holds(Node node) {
+      for (Node candidate : best) {
+        if (candidate == node) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    boolean isEmpty() {
+      return completion == null && children.length == 0;
+    }
+  }
+}
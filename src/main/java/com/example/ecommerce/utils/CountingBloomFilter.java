@@ -0,0 +1,133 @@
+package com.example.ecommerce.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class is a thread-safe counting Bloom filter over strings. A miss is definite, so callers
+ * can skip an existence query for it, while a hit is only probable and must still be confirmed.
+ * Each position holds a 4-bit counter instead of a bit, so values can be removed again; a counter
+ * that saturates at 15 is never decremented, which keeps the filter conservative.
+ *
+ * <p>Positions are derived from a single 64-bit hash with double hashing, and counters are
+ * updated with compare-and-set on the packed words, so readers and writers never block.
+ */
+public class CountingBloomFilter {
+
+  private static final int COUNTERS_PER_WORD = 16;
+  private static final long COUNTER_MASK = 0xFL;
+  private static final int MAX_COUNT = 15;
+
+  private final AtomicLongArray words;
+  private final int counters;
+  private final int hashFunctions;
+
+  private CountingBloomFilter(int counters, int hashFunctions) {
+    this.counters = counters;
+    this.hashFunctions = hashFunctions;
+    this.words = new AtomicLongArray((counters + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD);
+  }
+
+  /**
+   * Creates a filter sized for a number of values and a false positive probability.
+   *
+   * @param expectedInsertions the number of values the filter should hold.
+   * @param falsePositiveRate  the probability that a value never added is reported as present.
+   * @return an empty filter.
+   */
+  public static CountingBloomFilter create(long expectedInsertions, double falsePositiveRate) {
+    if (expectedInsertions < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+      throw new IllegalArgumentException(
+          "expectedInsertions must be positive and falsePositiveRate between 0 and 1");
+    }
+    double ln2 = Math.log(2);
+    long counters = (long) Math.ceil(
+        -expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2));
+    int hashFunctions = (int) Math.max(1, Math.round((double) counters / expectedInsertions * ln2));
+    return new CountingBloomFilter((int) Math.min(Integer.MAX_VALUE - COUNTERS_PER_WORD, counters),
+        hashFunctions);
+  }
+
+  /**
+   * Tells whether a value may have been added.
+   *
+   * @param value the value to check; null is always reported as present.
+   * @return false only if the value has definitely not been added.
+   */
+  public boolean mightContain(String value) {
+    if (value == null) {
+      return true;
+    }
+    long hash = hash(value);
+    for (int i = 0; i < hashFunctions; i++) {
+      if (counterAt(position(hash, i)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public void add(String value) {
+    if (value != null) {
+      long hash = hash(value);
+      for (int i = 0; i < hashFunctions; i++) {
+        update(position(hash, i), true);
+      }
+    }
+  }
+
+  /**
+   * Removes a value. Must only be called for a value that was added, or it may cause a false
+   * negative for another value.
+   *
+   * @param value the value to remove.
+   */
+  public void remove(String value) {
+    if (value != null) {
+      long hash = hash(value);
+      for (int i = 0; i < hashFunctions; i++) {
+        update(position(hash, i), false);
+      }
+    }
+  }
+
+  private int position(long hash, int i) {
+    int first = (int) hash;
+    int second = (int) (hash >>> 32);
+    return Math.floorMod(first + i * second, counters);
+  }
+
+  private int counterAt(int position) {
+    int shift = (position % COUNTERS_PER_WORD) * 4;
+    return (int) ((words.get(position / COUNTERS_PER_WORD) >>> shift) & COUNTER_MASK);
+  }
+
+  private void update(int position, boolean increment) {
+    int word = position / COUNTERS_PER_WORD;
+    int shift = (position % COUNTERS_PER_WORD) * 4;
+    long current;
+    long next;
+    do {
+      current = words.get(word);
+      int count = (int) ((current >>> shift) & COUNTER_MASK);
+      if (count == MAX_COUNT || (!increment && count == 0)) {
+        return; // saturated counters stay put, empty ones can not go lower
+      }
+      next = increment ? current + (1L << shift) : current - (1L << shift);
+    } while (!words.compareAndSet(word, current, next));
+  }
+
+  // 64-bit FNV-1a over the UTF-16 chars, finished with the MurmurHash3 mixer
+  private static long hash(String value) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -0,0 +1,212 @@
+package com.example.ecommerce.utils;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class runs tasks after a delay using a hierarchical timing wheel, so that scheduling and
+ * cancelling are O(1) and a large number of outstanding timeouts cost one small object each and a
+ * single worker thread, instead of one scheduled task per timeout.
+ *
+ * <p>Level 0 has one bucket per tick. Each higher level has buckets that span a full revolution
+ * of the level below, and its entries cascade down a level whenever the lower wheel wraps. Only
+ * the worker thread touches the buckets: new timeouts are handed over through a lock-free queue
+ * and cancelled ones are dropped when their bucket comes up. Expired tasks run on the given
+ * executor, so slow tasks never delay the clock.
+ */
+public class HierarchicalTimerWheel implements AutoCloseable {
+
+  private final Logger logger = LoggerFactory.getLogger(HierarchicalTimerWheel.class);
+
+  private final long tickNanos;
+  private final int bitsPerLevel;
+  private final int mask;
+  private final int levels;
+  private final Queue<Timeout>[][] buckets;
+  private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+  private final Executor executor;
+  private final Thread worker;
+  private final long startNanos;
+  private long currentTick;
+  private volatile boolean running = true;
+
+  /**
+   * Creates and starts a timer wheel.
+   *
+   * @param tick      the resolution of the wheel; timeouts fire on the first tick at or after
+   *                  their deadline.
+   * @param tickUnit  the unit of the tick.
+   * @param wheelSize the number of buckets per level, rounded up to a power of two.
+   * @param levels    the number of levels; the wheel spans wheelSize^levels ticks, and longer
+   *                  delays are parked in the top level until they come within range.
+   * @param executor  runs the expired tasks.
+   * @param name      the name of the worker thread.
+   */
+  @SuppressWarnings("unchecked")
+  public HierarchicalTimerWheel(long tick, TimeUnit tickUnit, int wheelSize, int levels,
+      Executor executor, String name) {
+    if (tick <= 0 || wheelSize < 2 || levels < 1) {
+      throw new IllegalArgumentException("tick, wheelSize and levels must be positive");
+    }
+    this.tickNanos = tickUnit.toNanos(tick);
+    this.bitsPerLevel = 32 - Integer.numberOfLeadingZeros(wheelSize - 1);
+    this.mask = (1 << bitsPerLevel) - 1;
+    this.levels = levels;
+    this.buckets = new Queue[levels][1 << bitsPerLevel];
+    for (int level = 0; level < levels; level++) {
+      for (int index = 0; index <= mask; index++) {
+        buckets[level][index] = new ArrayDeque<>();
+      }
+    }
+    this.executor = executor;
+    this.startNanos = System.nanoTime();
+    this.worker = new Thread(this::run, name);
+    this.worker.setDaemon(true);
+    this.worker.start();
+  }
+
+  /**
+   * Schedules a task.
+   *
+   * @param task  the task to run once the delay has passed.
+   * @param delay the delay, zero or negative to run on the next tick.
+   * @param unit  the unit of the delay.
+   * @return a handle that can cancel the task before it runs.
+   */
+  public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+    if (!running) {
+      throw new IllegalStateException("Timer wheel is closed");
+    }
+    long deadlineNanos = System.nanoTime() + Math.max(0, unit.toNanos(delay));
+    long deadlineTick = Math.max(0, (deadlineNanos - startNanos + tickNanos - 1) / tickNanos);
+    Timeout timeout = new Timeout(task, deadlineTick);
+    pending.add(timeout);
+    return timeout;
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    worker.interrupt();
+  }
+
+  private void run() {
+    while (running) {
+      long nextTickNanos = startNanos + (currentTick + 1) * tickNanos;
+      long sleepNanos = nextTickNanos - System.nanoTime();
+      if (sleepNanos > 0) {
+        try {
+          TimeUnit.NANOSECONDS.sleep(sleepNanos);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+      currentTick++;
+      transferPending();
+      cascade();
+      expire(buckets[0][(int) (currentTick & mask)]);
+    }
+  }
+
+  private void transferPending() {
+    Timeout timeout;
+    while ((timeout = pending.poll()) != null) {
+      if (!timeout.cancelled) {
+        place(timeout);
+      }
+    }
+  }
+
+  // highest level first, so entries cascading through several levels on one tick land in time
+  private void cascade() {
+    for (int level = levels - 1; level > 0; level--) {
+      int shift = bitsPerLevel * level;
+      if ((currentTick & ((1L << shift) - 1)) == 0) {
+        Queue<Timeout> bucket = buckets[level][(int) ((currentTick >>> shift) & mask)];
+        int size = bucket.size();
+        for (int i = 0; i < size; i++) {
+          Timeout timeout = bucket.poll();
+          if (!timeout.cancelled) {
+            place(timeout);
+          }
+        }
+      }
+    }
+  }
+
+  private void place(Timeout timeout) {
+    long delta = timeout.deadlineTick - currentTick;
+    if (delta <= 0) {
+      buckets[0][(int) (currentTick & mask)].add(timeout); // overdue: runs on this tick
+      return;
+    }
+    for (int level = 0; level < levels; level++) {
+      int shift = bitsPerLevel * level;
+      if (level == levels - 1 || delta < (1L << (shift + bitsPerLevel))) {
+        long tick = Math.min(timeout.deadlineTick, currentTick + (1L << (shift + bitsPerLevel)) - 1);
+        buckets[level][(int) ((tick >>> shift) & mask)].add(timeout);
+        return;
+      }
+    }
+  }
+
+  private void expire(Queue<Timeout> bucket) {
+    int size = bucket.size();
+    for (int i = 0; i < size; i++) {
+      Timeout timeout = bucket.poll();
+      if (timeout.cancelled) {
+        continue;
+      }
+      if (timeout.deadlineTick > currentTick) {
+        place(timeout); // parked in the top level beyond the span of the wheel
+        continue;
+      }
+      timeout.expired = true;
+      try {
+        executor.execute(timeout.task);
+      } catch (RuntimeException e) {
+        logger.error("Could not run expired task: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * This class is the handle of a scheduled task.
+   */
+  public static final class Timeout {
+
+    private final Runnable task;
+    private final long deadlineTick;
+    private volatile boolean cancelled;
+    private volatile boolean expired;
+
+    private Timeout(Runnable task, long deadlineTick) {
+      this.task = task;
+      this.deadlineTick = deadlineTick;
+    }
+
+    /**
+     * Cancels the task, if it has not run yet.
+     *
+     * @return false if the task has already been handed to the executor.
+     */
+    public boolean cancel() {
+      cancelled = true;
+      return !expired;
+    }
+
+    public boolean isCancelled() {
+      return cancelled;
+    }
+
+    public boolean isExpired() {
+      return expired;
+    }
+  }
+}
@@ -0,0 +1,167 @@
+package com.example.ecommerce.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * This class turns free text into the terms of a full-text index. The text is split into lower
+ * case runs of letters and digits, common English stop words are dropped, and every word is
+ * stemmed, so that e.g. "hiking", "hikes" and "hiked" all become "hike". Documents and queries must
+ * go through the same analysis to match.
+ *
+ * <p>The stemmer is step 1 of the Porter algorithm: it folds plurals and the -ed, -ing and -y
+ * endings, but leaves derivational suffixes such as -ation or -ness alone.
+ */
+public final class TextAnalyzer {
+
+  private static final Set<String> STOP_WORDS = Set.of("a", "an", "and", "are", "as", "at", "be",
+      "by", "for", "from", "in", "into", "is", "it", "its", "of", "on", "or", "that", "the",
+      "this", "to", "was", "were", "will", "with");
+
+  private TextAnalyzer() {
+  }
+
+  /**
+   * Analyzes a text.
+   *
+   * @param text the text; null is treated as empty.
+   * @return the stemmed terms of the text, in order and with repetitions.
+   */
+  public static List<String> terms(String text) {
+    List<String> terms = words(text);
+    terms.replaceAll(TextAnalyzer::stem);
+    return terms;
+  }
+
+  /**
+   * Splits a text into words, for uses that show them back, such as type-ahead completion.
+   *
+   * @param text the text; null is treated as empty.
+   * @return the lower case words of the text that are not stop words, in order and with
+   * repetitions, not stemmed.
+   */
+  public static List<String> words(String text) {
+    List<String> words = new ArrayList<>();
+    if (text == null) {
+      return words;
+    }
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+      if (wordChar && start < 0) {
+        start = i;
+      } else if (!wordChar && start >= 0) {
+        String word = text.substring(start, i).toLowerCase(Locale.ROOT);
+        if (!STOP_WORDS.contains(word)) {
+          words.add(word);
+        }
+        start = -1;
+      }
+    }
+    return words;
+  }
+
+  /**
+   * Stems a lower case word with step 1 of the Porter algorithm.
+   *
+   * @param word the word.
+   * @return the stem; words of up to two letters are returned as they are.
+   */
+  public static String stem(String word) {
+    if (word.length() <= 2) {
+      return word;
+    }
+    String stem = word;
+    // step 1a: plurals
+    if (stem.endsWith("sses") || stem.endsWith("ies")) {
+      stem = chop(stem, 2);
+    } else if (stem.endsWith("s") && !stem.endsWith("ss")) {
+      stem = chop(stem, 1);
+    }
+    // step 1b: -eed, -ed and -ing
+    if (stem.endsWith("eed")) {
+      if (measure(stem, stem.length() - 3) > 0) {
+        stem = chop(stem, 1);
+      }
+    } else {
+      int suffix = stem.endsWith("ed") ? 2 : stem.endsWith("ing") ? 3 : 0;
+      if (suffix > 0 && hasVowel(stem, stem.length() - suffix)) {
+        stem = chop(stem, suffix);
+        if (stem.endsWith("at") || stem.endsWith("bl") || stem.endsWith("iz")) {
+          stem = stem + "e";
+        } else if (endsWithDoubleConsonant(stem) && !stem.endsWith("l") && !stem.endsWith("s")
+            && !stem.endsWith("z")) {
+          stem = chop(stem, 1);
+        } else if (measure(stem, stem.length()) == 1 && endsWithCvc(stem)) {
+          stem = stem + "e";
+        }
+      }
+    }
+    // step 1c: a final y after a vowel in the stem becomes i
+    if (stem.endsWith("y") && hasVowel(stem, stem.length() - 1)) {
+      stem = chop(stem, 1) + "i";
+    }
+    return stem;
+  }
+
+  private static String chop(String word, int letters) {
+    return word.substring(0, word.length() - letters);
+  }
+
+  // y is a consonant at the start of a word and after a vowel, and a vowel after a consonant
+  private static boolean isConsonant(String word, int i) {
+    switch (word.charAt(i)) {
+      case 'a':
+      case 'e':
+      case 'i':
+      case 'o':
+      case 'u':
+        return false;
+      case 'y':
+        return i == 0 || !isConsonant(word, i - 1);
+      default:
+        return true;
+    }
+  }
+
+  // the number of vowel-consonant sequences in the first end letters of a word
+  private static int measure(String word, int end) {
+    int measure = 0;
+    boolean afterVowel = false;
+    for (int i = 0; i < end; i++) {
+      boolean consonant = isConsonant(word, i);
+      if (consonant && afterVowel) {
+        measure++;
+      }
+      afterVowel = !consonant;
+    }
+    return measure;
+  }
+
+  private static boolean hasVowel(String word, int end) {
+    for (int i = 0; i < end; i++) {
+      if (!isConsonant(word, i)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean endsWithDoubleConsonant(String word) {
+    int last = word.length() - 1;
+    return last > 0 && word.charAt(last) == word.charAt(last - 1) && isConsonant(word, last);
+  }
+
+  // consonant-vowel-consonant, where the last consonant is not w, x or y
+  private static boolean endsWithCvc(String word) {
+    int last = word.length() - 1;
+    if (last < 2 || !isConsonant(word, last) || isConsonant(word, last - 1)
+        || !isConsonant(word, last - 2)) {
+      return false;
+    }
+    char c = word.charAt(last);
+    return c != 'w' && c != 'x' && c != 'y';
+  }
+}
@@ -1,10 +1,23 @@
 package com.example.ecommerce.validators;
 
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
 import javax.validation.Constraint;
+import javax.validation.Payload;
 
+@Target({FIELD, PARAMETER})
+@Retention(RUNTIME)
 @Constraint(validatedBy = VaccinesValidator.class)
 public @interface Vaccinations {
 
   String message() default "Vaccines must be at least 2 characters in length";
 
+  Class<?>[] groups() default {};
+
+  Class<? extends Payload>[] payload() default {};
+
 }
@@ -13,11 +13,11 @@ public class VaccinesValidator implements ConstraintValidator<Vaccinations, Stri
 
   @Override
   public boolean isValid(String[] strings, ConstraintValidatorContext constraintValidatorContext) {
-    if (strings.length == 0) { // empty vaccinations list means no vaccines required
+    if (strings == null || strings.length == 0) { // no vaccinations list means none required
       return true;
     }
     return Arrays.stream(strings)
-        .allMatch(l -> l.length() >= 2); // check if all are greater than two or not
+        .allMatch(l -> l != null && l.length() >= 2); // check if all are greater than two or not
   }
   // might change this to a string array of vaccine names, possibly
 }
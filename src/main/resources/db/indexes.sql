@@ -0,0 +1,15 @@
+-- Secondary indexes of the wildlife tours schema (MySQL), as declared by the @Index annotations of
+-- the Tour, TourBooking and BookingHold entities. Hibernate creates them along with the tables
+-- while spring.jpa.hibernate.ddl-auto is create; run this script once against a database whose
+-- tables are managed otherwise, and keep it in step with the annotations.
+
+-- typed range filters of the tour catalog (see FilterSpecifications)
+CREATE INDEX tours_active_price_idx ON tours (is_active, price);
+CREATE INDEX tours_number_of_days_idx ON tours (number_of_days);
+CREATE INDEX tours_rating_idx ON tours (rating);
+
+-- bookings of one tour within a date range, and the seat counts per tour date
+CREATE INDEX tour_bookings_tour_id_reserved_date_idx ON tour_bookings (tour_id, reserved_date);
+
+-- outstanding holds of one user, counted against the per-user cap
+CREATE INDEX booking_holds_username_expires_at_idx ON booking_holds (username, expires_at);
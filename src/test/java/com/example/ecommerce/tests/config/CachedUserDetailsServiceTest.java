@@ -0,0 +1,82 @@
+package com.example.ecommerce.tests.config;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.ecommerce.config.CacheConfig;
+import com.example.ecommerce.config.CachedUserDetailsService;
+import com.example.ecommerce.config.MyAppUserDetailsService;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+/**
+ * Contains the unit tests for the CachedUserDetailsService, on the CacheManager of CacheConfig.
+ */
+class CachedUserDetailsServiceTest {
+
+  private static final String CACHE_SPEC = "maximumSize=10";
+
+  @Mock
+  private MyAppUserDetailsService myAppUserDetailsService;
+  private AutoCloseable closeable;
+
+  @InjectMocks
+  CachedUserDetailsService cachedUserDetailsService;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    closeable = MockitoAnnotations.openMocks(this);
+    CacheConfig cacheConfig = new CacheConfig();
+    for (String field : List.of("toursCacheSpec", "tourQueriesCacheSpec",
+        "verifiedTokensCacheSpec", "userDetailsCacheSpec", "idempotencyKeysCacheSpec",
+        "accountStatusCacheSpec", "availabilityCacheSpec")) {
+      ReflectionTestUtils.setField(cacheConfig, field, CACHE_SPEC);
+    }
+    ReflectionTestUtils.setField(cachedUserDetailsService, "cacheManager",
+        cacheConfig.cacheManager());
+    when(myAppUserDetailsService.loadUserByUsername("user")).thenReturn(
+        new User("user", "password", List.of(new SimpleGrantedAuthority("admin"))));
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    closeable.close();
+  }
+
+  @Test
+  public void evictOutsideTransactionTakesEffectAtOnce() {
+    cachedUserDetailsService.loadUserByUsername("user");
+    cachedUserDetailsService.evict("user");
+    cachedUserDetailsService.loadUserByUsername("user");
+    verify(myAppUserDetailsService, times(2)).loadUserByUsername("user");
+  }
+
+  @Test
+  public void evictInTransactionWaitsForCommit() {
+    cachedUserDetailsService.loadUserByUsername("user");
+    TransactionSynchronizationManager.initSynchronization();
+
+    cachedUserDetailsService.evict("user");
+    cachedUserDetailsService.loadUserByUsername("user");
+    verify(myAppUserDetailsService, times(1)).loadUserByUsername("user");
+
+    TransactionSynchronizationUtils.triggerAfterCommit();
+    TransactionSynchronizationManager.clearSynchronization();
+    cachedUserDetailsService.loadUserByUsername("user");
+    verify(myAppUserDetailsService, times(2)).loadUserByUsername("user");
+  }
+}
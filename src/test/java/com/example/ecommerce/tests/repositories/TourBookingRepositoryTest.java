@@ -0,0 +1,100 @@
+package com.example.ecommerce.tests.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.ecommerce.models.Contact;
+import com.example.ecommerce.models.CursorPage;
+import com.example.ecommerce.models.Tour;
+import com.example.ecommerce.models.TourBooking;
+import com.example.ecommerce.repositories.TourBookingRepository;
+import java.math.BigDecimal;
+import java.util.Date;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+
+/**
+ * Contains the tests of the association between TourBooking and Tour, which count the SQL
+ * statements run to read a page of TourBookings with their Tours. The database is an in-memory
+ * one behind the application's own connection pool, whose connections come with auto-commit off
+ * as the Hibernate settings expect.
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:tour_booking_repository_test;DB_CLOSE_DELAY=-1",
+    "spring.datasource.driverClassName=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.database=H2",
+    "spring.jpa.properties.hibernate.generate_statistics=true"})
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+class TourBookingRepositoryTest {
+
+  private static final int TOURS = 30;
+  private static final int PAGE_LIMIT = 25;
+  private static final Date RESERVED_DATE = new Date(1660867200000L);
+
+  @Autowired
+  private TestEntityManager entityManager;
+  @Autowired
+  private TourBookingRepository tourBookingRepository;
+  private Statistics statistics;
+
+  @BeforeEach
+  public void setUp() {
+    // one booking per tour, so that every booking of a page has a different tour to load
+    for (int i = 0; i < TOURS; i++) {
+      Tour tour = entityManager.persist(new Tour(10, null, "Wildlife tour " + i,
+          new BigDecimal("2099.99"), 5, true));
+      entityManager.persist(tourBooking("WUC-" + i, tour.getId()));
+    }
+    entityManager.flush();
+    entityManager.clear();
+    statistics = entityManager.getEntityManager().getEntityManagerFactory()
+        .unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+  }
+
+  private TourBooking tourBooking(String tourCode, Long tourId) {
+    return new TourBooking(new Contact("Bobby", "Hill", "5128865120", "bhill@student.uml.edu"),
+        "79927398713", tourCode, RESERVED_DATE, tourId);
+  }
+
+  @Test
+  public void findPageAfterWithTourGraphReadsThePageAndItsToursInOneStatement() {
+    CursorPage<TourBooking> page = tourBookingRepository.findPageAfter(null, null, PAGE_LIMIT,
+        TourBooking.WITH_TOUR);
+
+    assertEquals(PAGE_LIMIT, page.getItems().size());
+    for (TourBooking tourBooking : page.getItems()) {
+      assertTrue(Hibernate.isInitialized(tourBooking.getTour()));
+      assertEquals(tourBooking.getTourId(), tourBooking.getTour().getId());
+      assertTrue(tourBooking.getTour().getDescription().startsWith("Wildlife tour"));
+    }
+    assertEquals(1, statistics.getPrepareStatementCount());
+  }
+
+  @Test
+  public void findPageAfterWithoutGraphLoadsEveryTourOnItsOwn() {
+    CursorPage<TourBooking> page = tourBookingRepository.findPageAfter(null, null, PAGE_LIMIT);
+    assertEquals(1, statistics.getPrepareStatementCount());
+
+    page.getItems().forEach(tourBooking -> tourBooking.getTour().getDescription());
+    assertEquals(1 + PAGE_LIMIT, statistics.getPrepareStatementCount());
+  }
+
+  @Test
+  public void saveBookingOfMissingTourViolatesTheForeignKey() {
+    assertThrows(DataIntegrityViolationException.class,
+        () -> tourBookingRepository.saveAndFlush(tourBooking("WUC-X", 999_999L)));
+  }
+}
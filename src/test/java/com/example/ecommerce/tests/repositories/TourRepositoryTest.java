@@ -0,0 +1,86 @@
+package com.example.ecommerce.tests.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import com.example.ecommerce.models.Tour;
+import com.example.ecommerce.repositories.TourRepository;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+/**
+ * Contains the tests of the catalog state behind the CatalogVersion, which must change with every
+ * write to the tours table, whichever instance or code path makes it.
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:tour_repository_test;DB_CLOSE_DELAY=-1",
+    "spring.datasource.driverClassName=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.database=H2"})
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+class TourRepositoryTest {
+
+  @Autowired
+  private TestEntityManager entityManager;
+  @Autowired
+  private TourRepository tourRepository;
+  private Tour firstTour;
+  private Tour secondTour;
+
+  @BeforeEach
+  public void setUp() {
+    firstTour = entityManager.persist(tour("Wildlife tour 1"));
+    secondTour = entityManager.persist(tour("Wildlife tour 2"));
+    entityManager.flush();
+    entityManager.clear();
+  }
+
+  private Tour tour(String description) {
+    return new Tour(10, null, description, new BigDecimal("2099.99"), 5, true);
+  }
+
+  private List<Object> catalogState() {
+    entityManager.flush();
+    entityManager.clear();
+    return Arrays.asList(tourRepository.findCatalogState().get(0));
+  }
+
+  @Test
+  public void catalogStateChangesWithEveryWrite() {
+    Set<List<Object>> states = new HashSet<>();
+    states.add(catalogState());
+
+    tourRepository.updateById(firstTour.getId(), null, Map.of("rating", 4));
+    states.add(catalogState());
+    Tour tour = tourRepository.findById(secondTour.getId()).orElseThrow();
+    tour.setDescription("Wildlife safari tour");
+    tourRepository.save(tour);
+    states.add(catalogState());
+    tourRepository.deleteById(firstTour.getId());
+    states.add(catalogState());
+    entityManager.persist(tour("Wildlife tour 3"));
+    states.add(catalogState());
+
+    assertEquals(5, states.size());
+  }
+
+  @Test
+  public void catalogStateOfEmptyCatalog() {
+    tourRepository.deleteAll();
+    List<Object> state = catalogState();
+    assertFalse(state.contains(null));
+    assertEquals(0L, ((Number) state.get(0)).longValue());
+  }
+}
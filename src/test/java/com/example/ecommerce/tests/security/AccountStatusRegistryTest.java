@@ -0,0 +1,101 @@
+package com.example.ecommerce.tests.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.ecommerce.config.CacheConfig;
+import com.example.ecommerce.models.UserAccount;
+import com.example.ecommerce.repositories.UserAccountRepository;
+import com.example.ecommerce.security.AccountStatusRegistry;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+/**
+ * Contains the unit tests for the AccountStatusRegistry, on the CacheManager of CacheConfig.
+ */
+class AccountStatusRegistryTest {
+
+  private static final String CACHE_SPEC = "maximumSize=10";
+
+  @Mock
+  private UserAccountRepository userAccountRepository;
+  private AutoCloseable closeable;
+
+  @InjectMocks
+  AccountStatusRegistry accountStatusRegistry;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    closeable = MockitoAnnotations.openMocks(this);
+    CacheConfig cacheConfig = new CacheConfig();
+    for (String field : List.of("toursCacheSpec", "tourQueriesCacheSpec",
+        "verifiedTokensCacheSpec", "userDetailsCacheSpec", "idempotencyKeysCacheSpec",
+        "accountStatusCacheSpec", "availabilityCacheSpec")) {
+      ReflectionTestUtils.setField(cacheConfig, field, CACHE_SPEC);
+    }
+    ReflectionTestUtils.setField(accountStatusRegistry, "cacheManager",
+        cacheConfig.cacheManager());
+    when(userAccountRepository.findByUsername("user")).thenReturn(
+        new UserAccount("user", "password", true, "admin"));
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    closeable.close();
+  }
+
+  @Test
+  public void missReadsAccountOnce() {
+    assertTrue(accountStatusRegistry.isActive("user"));
+    assertEquals("admin", accountStatusRegistry.roleOf("user"));
+    verify(userAccountRepository, times(1)).findByUsername("user");
+  }
+
+  @Test
+  public void unknownAccountIsInactiveAndNotCached() {
+    assertFalse(accountStatusRegistry.isActive("nobody"));
+    assertNull(accountStatusRegistry.roleOf("nobody"));
+    verify(userAccountRepository, times(2)).findByUsername("nobody");
+  }
+
+  @Test
+  public void updateInTransactionWaitsForCommit() {
+    accountStatusRegistry.isActive("user");
+    TransactionSynchronizationManager.initSynchronization();
+
+    accountStatusRegistry.update("user", new UserAccount("user", "password", false, "admin"));
+    assertTrue(accountStatusRegistry.isActive("user"));
+
+    TransactionSynchronizationUtils.triggerAfterCommit();
+    TransactionSynchronizationManager.clearSynchronization();
+    assertFalse(accountStatusRegistry.isActive("user"));
+    verify(userAccountRepository, times(1)).findByUsername("user");
+  }
+
+  @Test
+  public void evictReadsAccountAgain() {
+    accountStatusRegistry.isActive("user");
+    when(userAccountRepository.findByUsername("user")).thenReturn(
+        new UserAccount("user", "password", true, "employee"));
+
+    accountStatusRegistry.evict("user");
+    assertEquals("employee", accountStatusRegistry.roleOf("user"));
+    verify(userAccountRepository, times(2)).findByUsername("user");
+  }
+}
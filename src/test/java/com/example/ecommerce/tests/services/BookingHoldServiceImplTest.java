@@ -0,0 +1,213 @@
+package com.example.ecommerce.tests.services;
+
+import static com.example.ecommerce.constants.StringConstants.BASIC_USER;
+import static com.example.ecommerce.constants.StringConstants.EMPLOYEE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.ecommerce.exceptions.Conflict;
+import com.example.ecommerce.exceptions.ResourceNotFound;
+import com.example.ecommerce.models.BookingHold;
+import com.example.ecommerce.models.Contact;
+import com.example.ecommerce.models.TourBooking;
+import com.example.ecommerce.repositories.BookingHoldRepository;
+import com.example.ecommerce.repositories.TourBookingRepository;
+import com.example.ecommerce.security.RoleAuthorities;
+import com.example.ecommerce.services.BookingHoldServiceImpl;
+import com.example.ecommerce.services.SeatInventoryService;
+import com.example.ecommerce.services.UniqueValueFilters;
+import com.example.ecommerce.utils.HierarchicalTimerWheel.Timeout;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+/**
+ * Contains the unit tests for the BookingHoldServiceImpl.
+ */
+class BookingHoldServiceImplTest {
+
+  private static final Date RESERVED_DATE = new Date(1660867200000L);
+
+  @Mock
+  private BookingHoldRepository bookingHoldRepository;
+  @Mock
+  private TourBookingRepository tourBookingRepository;
+  @Mock
+  private SeatInventoryService seatInventoryService;
+  @Mock
+  private UniqueValueFilters uniqueValueFilters;
+  @Mock
+  private PlatformTransactionManager transactionManager;
+  private AutoCloseable closeable;
+
+  @InjectMocks
+  BookingHoldServiceImpl bookingHoldServiceImpl;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    closeable = MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(bookingHoldServiceImpl, "holdTtl", Duration.ofMinutes(10));
+    ReflectionTestUtils.setField(bookingHoldServiceImpl, "maxHoldsPerUser", 2L);
+    bookingHoldServiceImpl.startTimerWheel();
+    authenticate("bobby", BASIC_USER);
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    SecurityContextHolder.clearContext();
+    bookingHoldServiceImpl.stopTimerWheel();
+    closeable.close();
+  }
+
+  private void authenticate(String username, String role) {
+    SecurityContextHolder.getContext().setAuthentication(
+        new UsernamePasswordAuthenticationToken(username, null, RoleAuthorities.of(role)));
+  }
+
+  private BookingHold placeHold() {
+    when(bookingHoldRepository.save(any(BookingHold.class))).thenAnswer(invocation -> {
+      BookingHold bookingHold = invocation.getArgument(0);
+      bookingHold.setId(1L);
+      return bookingHold;
+    });
+    BookingHold bookingHold = bookingHoldServiceImpl.placeHold(
+        new BookingHold(1L, RESERVED_DATE, null));
+    when(bookingHoldRepository.findById(1L)).thenReturn(Optional.of(bookingHold));
+    when(bookingHoldRepository.deleteHoldById(1L)).thenReturn(1);
+    return bookingHold;
+  }
+
+  private TourBooking tourBooking() {
+    return new TourBooking(new Contact("Bobby", "Hill", "5128865120", "bhill@student.uml.edu"),
+        "79927398713", "WUC-A1", RESERVED_DATE, 1L);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Timeout expiryOf(Long id) {
+    return ((Map<Long, Timeout>) ReflectionTestUtils.getField(bookingHoldServiceImpl,
+        "timeouts")).get(id);
+  }
+
+  @Test
+  public void confirmHoldCancelsExpiryAfterCommit() {
+    placeHold();
+    Timeout expiry = expiryOf(1L);
+    when(tourBookingRepository.saveAndFlush(any(TourBooking.class)))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+    TransactionSynchronizationManager.initSynchronization();
+
+    bookingHoldServiceImpl.confirmHold(1L, tourBooking());
+    assertFalse(expiry.isCancelled());
+
+    TransactionSynchronizationUtils.triggerAfterCommit();
+    assertTrue(expiry.isCancelled());
+  }
+
+  @Test
+  public void confirmHoldKeepsExpiryWhenBookingFails() {
+    placeHold();
+    Timeout expiry = expiryOf(1L);
+    when(tourBookingRepository.saveAndFlush(any(TourBooking.class)))
+        .thenThrow(new DataIntegrityViolationException("tour code"));
+    TransactionSynchronizationManager.initSynchronization();
+
+    assertThrows(Conflict.class, () -> bookingHoldServiceImpl.confirmHold(1L, tourBooking()));
+    TransactionSynchronizationUtils.triggerAfterCommit();
+    assertFalse(expiry.isCancelled());
+  }
+
+  @Test
+  public void confirmHoldRejectsExpiredHold() {
+    placeHold().setExpiresAt(new Date(System.currentTimeMillis() - 1000));
+
+    assertThrows(Conflict.class, () -> bookingHoldServiceImpl.confirmHold(1L, tourBooking()));
+    verify(bookingHoldRepository, never()).deleteHoldById(1L);
+    verify(tourBookingRepository, never()).saveAndFlush(any(TourBooking.class));
+  }
+
+  @Test
+  public void releaseHoldCancelsExpiryAfterCommit() {
+    placeHold();
+    Timeout expiry = expiryOf(1L);
+    TransactionSynchronizationManager.initSynchronization();
+
+    bookingHoldServiceImpl.releaseHold(1L);
+    verify(seatInventoryService).releaseSeats(1L, RESERVED_DATE, 1);
+    assertFalse(expiry.isCancelled());
+
+    TransactionSynchronizationUtils.triggerAfterCommit();
+    assertTrue(expiry.isCancelled());
+  }
+
+  @Test
+  public void placeHoldRecordsOwner() {
+    assertEquals("bobby", placeHold().getUsername());
+  }
+
+  @Test
+  public void placeHoldRejectsUserAtCap() {
+    when(bookingHoldRepository.countByUsernameAndExpiresAtAfter(eq("bobby"), any(Date.class)))
+        .thenReturn(2L);
+
+    assertThrows(Conflict.class,
+        () -> bookingHoldServiceImpl.placeHold(new BookingHold(1L, RESERVED_DATE, null)));
+    verify(seatInventoryService, never()).reserveSeats(anyLong(), any(Date.class), anyInt());
+    verify(bookingHoldRepository, never()).save(any(BookingHold.class));
+  }
+
+  @Test
+  public void confirmHoldOfAnotherUserIsNotFound() {
+    placeHold();
+    authenticate("hank", BASIC_USER);
+
+    assertThrows(ResourceNotFound.class,
+        () -> bookingHoldServiceImpl.confirmHold(1L, tourBooking()));
+    verify(bookingHoldRepository, never()).deleteHoldById(1L);
+    verify(tourBookingRepository, never()).saveAndFlush(any(TourBooking.class));
+  }
+
+  @Test
+  public void releaseHoldOfAnotherUserIsNotFound() {
+    placeHold();
+    authenticate("hank", BASIC_USER);
+
+    assertThrows(ResourceNotFound.class, () -> bookingHoldServiceImpl.releaseHold(1L));
+    verify(bookingHoldRepository, never()).deleteHoldById(1L);
+    verify(seatInventoryService, never()).releaseSeats(anyLong(), any(Date.class), anyInt());
+  }
+
+  @Test
+  public void employeeCanReleaseHoldOfAnotherUser() {
+    placeHold();
+    authenticate("hank", EMPLOYEE);
+
+    bookingHoldServiceImpl.releaseHold(1L);
+    verify(seatInventoryService).releaseSeats(1L, RESERVED_DATE, 1);
+  }
+}
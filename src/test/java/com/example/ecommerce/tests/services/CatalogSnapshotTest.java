@@ -0,0 +1,79 @@
+package com.example.ecommerce.tests.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.ecommerce.models.Tour;
+import com.example.ecommerce.repositories.TourRepository;
+import com.example.ecommerce.services.CatalogSnapshot;
+import com.example.ecommerce.services.CatalogSnapshot.Snapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Contains the unit tests for the CatalogSnapshot.
+ */
+class CatalogSnapshotTest {
+
+  @Mock
+  private TourRepository tourRepository;
+  @Spy
+  private ObjectMapper objectMapper = new ObjectMapper();
+  private AutoCloseable closeable;
+
+  @InjectMocks
+  CatalogSnapshot catalogSnapshot;
+
+  List<Tour> tours;
+
+  @BeforeEach
+  public void setUp() {
+    closeable = MockitoAnnotations.openMocks(this);
+    tours = List.of(
+        new Tour(3, new String[] {"TB"}, "description", new BigDecimal("1999.99"), 4, true),
+        new Tour(5, new String[0], "description", new BigDecimal("2099.99"), 5, true));
+    when(tourRepository.findByIsActiveTrue(any(Sort.class))).thenReturn(tours);
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    closeable.close();
+  }
+
+  @Test
+  public void currentEncodesTheActiveToursOnce() throws Exception {
+    Snapshot snapshot = catalogSnapshot.current();
+    assertArrayEquals(objectMapper.writeValueAsBytes(tours), snapshot.getJson());
+    assertEquals(2, snapshot.getSize());
+    assertSame(snapshot, catalogSnapshot.current());
+    verify(tourRepository, times(1)).findByIsActiveTrue(any(Sort.class));
+  }
+
+  @Test
+  public void gzipDecodesToTheJsonUnderItsOwnEtag() throws IOException {
+    Snapshot snapshot = catalogSnapshot.current();
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(snapshot.getGzip()))) {
+      assertArrayEquals(snapshot.getJson(), in.readAllBytes());
+    }
+    assertNotEquals(snapshot.getEtag(), snapshot.getGzipEtag());
+  }
+}
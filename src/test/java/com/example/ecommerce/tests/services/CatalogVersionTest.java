@@ -0,0 +1,94 @@
+package com.example.ecommerce.tests.services;
+
+import static com.example.ecommerce.constants.StringConstants.TOUR_QUERIES_CACHE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import com.example.ecommerce.config.CacheConfig;
+import com.example.ecommerce.repositories.TourRepository;
+import com.example.ecommerce.services.CatalogVersion;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Contains the unit tests for the CatalogVersion.
+ */
+class CatalogVersionTest {
+
+  private static final String CACHE_SPEC = "maximumSize=10";
+
+  @Mock
+  private TourRepository tourRepository;
+  private AutoCloseable closeable;
+  private Cache tourQueriesCache;
+
+  @InjectMocks
+  CatalogVersion catalogVersion;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    closeable = MockitoAnnotations.openMocks(this);
+    CacheConfig cacheConfig = new CacheConfig();
+    for (String field : List.of("toursCacheSpec", "tourQueriesCacheSpec",
+        "verifiedTokensCacheSpec", "userDetailsCacheSpec", "idempotencyKeysCacheSpec",
+        "accountStatusCacheSpec", "availabilityCacheSpec")) {
+      ReflectionTestUtils.setField(cacheConfig, field, CACHE_SPEC);
+    }
+    CacheManager cacheManager = cacheConfig.cacheManager();
+    ReflectionTestUtils.setField(catalogVersion, "cacheManager", cacheManager);
+    tourQueriesCache = cacheManager.getCache(TOUR_QUERIES_CACHE);
+    catalogState(2, 0, 2);
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    closeable.close();
+  }
+
+  private void catalogState(long count, long versions, long maxId) {
+    when(tourRepository.findCatalogState()).thenReturn(
+        Collections.singletonList(new Object[]{count, versions, maxId}));
+  }
+
+  @Test
+  public void etagIsStrongAndStableWithoutChanges() {
+    String etag = catalogVersion.etag();
+    assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+    assertEquals(etag, catalogVersion.etag());
+  }
+
+  @Test
+  public void etagFollowsChangesMadeOutsideThisInstance() {
+    String etag = catalogVersion.etag();
+    catalogState(2, 1, 2); // a Tour updated by another instance
+    String updatedEtag = catalogVersion.etag();
+    assertNotEquals(etag, updatedEtag);
+    catalogState(2, 1, 3); // one Tour deleted and another created
+    assertNotEquals(updatedEtag, catalogVersion.etag());
+  }
+
+  @Test
+  public void changedEtagDropsCachedCatalogQueries() {
+    catalogVersion.etag();
+    tourQueriesCache.put("query", List.of());
+    catalogVersion.etag();
+    assertNotNull(tourQueriesCache.get("query"));
+
+    catalogState(1, 0, 2);
+    catalogVersion.etag();
+    assertNull(tourQueriesCache.get("query"));
+  }
+}
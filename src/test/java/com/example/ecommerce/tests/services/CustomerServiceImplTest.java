@@ -1,23 +1,34 @@
 package com.example.ecommerce.tests.services;
 
+import static com.example.ecommerce.constants.StringConstants.MAX_PAGE_LIMIT;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.example.ecommerce.exceptions.BadDataResponse;
 import com.example.ecommerce.exceptions.Conflict;
+import com.example.ecommerce.exceptions.PreconditionFailed;
 import com.example.ecommerce.exceptions.ResourceNotFound;
 import com.example.ecommerce.exceptions.ServiceUnavailable;
 import com.example.ecommerce.models.Address;
+import com.example.ecommerce.models.CursorPage;
 import com.example.ecommerce.models.Customer;
+import com.example.ecommerce.models.CustomerFilter;
 import com.example.ecommerce.repositories.CustomerRepository;
+import com.example.ecommerce.services.CustomerNameCompletions;
 import com.example.ecommerce.services.CustomerService;
 import com.example.ecommerce.services.CustomerServiceImpl;
+import com.example.ecommerce.services.PartialUpdates;
+import com.example.ecommerce.services.UniqueValueFilters.UniqueKey;
+import com.example.ecommerce.services.UniqueValueFilters;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -25,7 +36,9 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.data.domain.Example;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 
 /**
  * Contains the unit tests for the CustomerServiceImpl.
@@ -36,6 +49,12 @@ class CustomerServiceImplTest {
   private CustomerRepository customerRepository;
   @Mock
   private CustomerService customerService;
+  @Mock
+  private UniqueValueFilters uniqueValueFilters;
+  @Mock
+  private PartialUpdates partialUpdates;
+  @Mock
+  private CustomerNameCompletions customerNameCompletions;
   private AutoCloseable closeable;
 
   @InjectMocks
@@ -48,6 +67,7 @@ class CustomerServiceImplTest {
   @BeforeEach
   public void setUp() throws Exception {
     closeable = MockitoAnnotations.openMocks(this);
+    when(uniqueValueFilters.mightContain(any(), any())).thenReturn(true);
     address = new Address("1 Test Street", "Testown", "TX", "11111");
     customer = new Customer("Test Testerton", "test@test.com", address);
   }
@@ -59,23 +79,57 @@ class CustomerServiceImplTest {
 
   @Test
   public void queryCustomersReturnsCorrectCustomers() {
-    when(customerRepository.findAll()).thenReturn(customerList);
-    List<Customer> result = customerServiceImpl.queryCustomers(new Customer());
+    when(customerRepository.findAll(any(Specification.class), any(Sort.class)))
+        .thenReturn(customerList);
+    List<Customer> result = customerServiceImpl.queryCustomers(new CustomerFilter());
     assertEquals(customerList, result);
   }
 
   @Test
-  public void queryCustomersByExample() {
-    when(customerRepository.findAll(any(Example.class))).thenReturn(customerList);
-    List<Customer> result = customerServiceImpl.queryCustomers(customer);
+  public void queryCustomersByFilter() {
+    CustomerFilter filter = new CustomerFilter();
+    filter.setName(customer.getName());
+    when(customerRepository.findAll(any(Specification.class), any(Sort.class)))
+        .thenReturn(customerList);
+    List<Customer> result = customerServiceImpl.queryCustomers(filter);
     assertEquals(customerList, result);
   }
 
   @Test
   public void queryCustomersThrowsServiceUnavailable() {
-    doThrow(ServiceUnavailable.class).when(customerRepository).findAll();
+    doThrow(ServiceUnavailable.class).when(customerRepository)
+        .findAll(any(Specification.class), any(Sort.class));
+    assertThrows(ServiceUnavailable.class,
+        () -> customerServiceImpl.queryCustomers(new CustomerFilter()));
+  }
+
+  @Test
+  public void queryCustomersPageReturnsCursorPage() {
+    CursorPage<Customer> page = new CursorPage<>(customerList, null, 10);
+    when(customerRepository.findPageAfter(any(), any(), anyInt())).thenReturn(page);
+    CursorPage<Customer> result = customerServiceImpl.queryCustomers(new CustomerFilter(), 5L, 10);
+    assertEquals(page, result);
+  }
+
+  @Test
+  public void queryCustomersPageWithInvalidLimitThrowsBadDataResponse() {
+    assertThrows(BadDataResponse.class,
+        () -> customerServiceImpl.queryCustomers(new CustomerFilter(), null, 0));
+    assertThrows(BadDataResponse.class,
+        () -> customerServiceImpl.queryCustomers(new CustomerFilter(), null, MAX_PAGE_LIMIT + 1));
+  }
+
+  @Test
+  public void queryCustomersPageWithNegativeCursorThrowsBadDataResponse() {
+    assertThrows(BadDataResponse.class,
+        () -> customerServiceImpl.queryCustomers(new CustomerFilter(), -1L, 10));
+  }
+
+  @Test
+  public void queryCustomersPageThrowsServiceUnavailable() {
+    doThrow(ServiceUnavailable.class).when(customerRepository).findPageAfter(any(), any(), anyInt());
     assertThrows(ServiceUnavailable.class,
-        () -> customerServiceImpl.queryCustomers(new Customer()));
+        () -> customerServiceImpl.queryCustomers(new CustomerFilter(), null, 10));
   }
 
   @Test
@@ -105,7 +159,7 @@ class CustomerServiceImplTest {
 
   @Test
   public void postCustomerWithValidBodyCreatesSuccessfully() {
-    when(customerRepository.save(any(Customer.class))).thenReturn(customer);
+    when(customerRepository.saveAndFlush(any(Customer.class))).thenReturn(customer);
     Customer result = customerServiceImpl.addCustomer(new Customer());
     assertEquals(customer, result);
   }
@@ -116,61 +170,132 @@ class CustomerServiceImplTest {
     assertThrows(Conflict.class, () -> customerServiceImpl.addCustomer(customer));
   }
 
+  @Test
+  void postCustomerWithEmailMissingFromFilterSkipsExistsQuery() {
+    when(uniqueValueFilters.mightContain(UniqueKey.CUSTOMER_EMAIL, customer.getEmail())).thenReturn(false);
+    when(customerRepository.saveAndFlush(any(Customer.class))).thenReturn(customer);
+    customerServiceImpl.addCustomer(customer);
+    verify(customerRepository, never()).existsByEmail(any());
+    verify(uniqueValueFilters).add(UniqueKey.CUSTOMER_EMAIL, customer.getEmail());
+  }
+
+  @Test
+  void postCustomerRejectedByUniqueConstraintThrowsConflict409() {
+    when(customerRepository.saveAndFlush(any(Customer.class))).thenThrow(DataIntegrityViolationException.class);
+    assertThrows(Conflict.class, () -> customerServiceImpl.addCustomer(customer));
+  }
+
   @Test
   public void postCustomerThrowsServiceUnavailable() {
-    doThrow(ServiceUnavailable.class).when(customerRepository).save(any(Customer.class));
+    doThrow(ServiceUnavailable.class).when(customerRepository).saveAndFlush(any(Customer.class));
     assertThrows(ServiceUnavailable.class,
         () -> customerServiceImpl.addCustomer(new Customer()));
   }
 
   @Test
   public void updateCustomerWithValidIdAndBodyReturnsCustomerSuccessfully() {
-    when(customerRepository.existsById(any(Long.class))).thenReturn(true);
-    when(customerRepository.findById(any(Long.class))).thenReturn(Optional.of(customer));
-    when(customerRepository.save(any(Customer.class))).thenReturn(customer);
-    Customer result = customerServiceImpl.updateCustomerById(1L, new Customer());
-    assertEquals(customer, result);
+    when(customerRepository.replaceById(1L, null, customer)).thenReturn(1);
+    Customer result = customerServiceImpl.updateCustomerById(1L, customer, null);
+    assertEquals(1L, result.getId());
+    verify(customerRepository, never()).existsById(any());
+    verify(customerRepository, never()).saveAndFlush(any());
+  }
+
+  @Test
+  public void updateCustomerWithoutVersionReturnsTheVersionWritten() {
+    when(customerRepository.replaceById(1L, null, customer)).thenReturn(1);
+    when(customerRepository.findVersionById(1L)).thenReturn(5L);
+    Customer result = customerServiceImpl.updateCustomerById(1L, customer, null);
+    assertEquals(5L, result.getVersion());
+  }
+
+  @Test
+  public void updateCustomerWithMatchingVersionReturnsNextVersion() {
+    when(customerRepository.replaceById(1L, 3L, customer)).thenReturn(1);
+    Customer result = customerServiceImpl.updateCustomerById(1L, customer, 3L);
+    assertEquals(4L, result.getVersion());
+  }
+
+  @Test
+  public void updateCustomerWithStaleVersionThrowsPreconditionFailed412() {
+    when(customerRepository.replaceById(1L, 3L, customer)).thenReturn(0);
+    when(customerRepository.existsById(1L)).thenReturn(true);
+    assertThrows(PreconditionFailed.class,
+        () -> customerServiceImpl.updateCustomerById(1L, customer, 3L));
   }
 
   @Test
   public void updateCustomerWithNonExistentIdThrowsNotFound() {
-    when(customerRepository.existsById(any(Long.class))).thenReturn(false);
+    when(customerRepository.replaceById(any(), any(), any())).thenReturn(0);
     assertThrows(ResourceNotFound.class,
-        () -> customerServiceImpl.updateCustomerById(999L, new Customer()));
+        () -> customerServiceImpl.updateCustomerById(999L, new Customer(), null));
   }
 
   @Test
   public void updateCustomerWithNegativeIdThrowsBadDataResponse() {
     assertThrows(BadDataResponse.class,
-        () -> customerServiceImpl.updateCustomerById(-8L, new Customer()));
+        () -> customerServiceImpl.updateCustomerById(-8L, new Customer(), null));
   }
 
   @Test
   public void updateCustomerThrowsServiceUnavailable() {
-    when(customerRepository.existsById(any(Long.class))).thenReturn(true);
-    when(customerRepository.findById(any(Long.class))).thenReturn(Optional.of(customer));
-    doThrow(ServiceUnavailable.class).when(customerRepository).save(any(Customer.class));
+    doThrow(ServiceUnavailable.class).when(customerRepository).replaceById(any(), any(), any());
     assertThrows(ServiceUnavailable.class,
-        () -> customerServiceImpl.updateCustomerById(1L, new Customer()));
+        () -> customerServiceImpl.updateCustomerById(1L, new Customer(), null));
   }
 
   @Test
   public void updateCustomerWithEmailThatAlreadyExistsThrowsConflict409() {
-    when(customerRepository.existsById(any(Long.class))).thenReturn(true);
     when(customerRepository.existsByEmail(any(String.class))).thenReturn(true);
-    assertThrows(Conflict.class, () -> customerServiceImpl.updateCustomerById(1L, customer));
+    assertThrows(Conflict.class, () -> customerServiceImpl.updateCustomerById(1L, customer, null));
+  }
+
+  @Test
+  public void patchCustomerUpdatesOnlyTheGivenFields() {
+    Map<String, Object> changes = Map.of("email", "new@test.com");
+    when(partialUpdates.toChanges(Customer.class, changes)).thenReturn(changes);
+    when(customerRepository.updateById(1L, null, changes)).thenReturn(1);
+    customerServiceImpl.patchCustomerById(1L, changes, null);
+    verify(customerRepository, never()).existsByEmail(any());
+    verify(uniqueValueFilters).add(UniqueKey.CUSTOMER_EMAIL, "new@test.com");
+  }
+
+  @Test
+  public void patchCustomerWithStaleVersionThrowsPreconditionFailed412() {
+    when(partialUpdates.toChanges(any(), any())).thenReturn(Map.of("name", "Test"));
+    when(customerRepository.updateById(any(), any(), any())).thenReturn(0);
+    when(customerRepository.existsById(1L)).thenReturn(true);
+    assertThrows(PreconditionFailed.class,
+        () -> customerServiceImpl.patchCustomerById(1L, Map.of("name", "Test"), 3L));
+  }
+
+  @Test
+  public void patchCustomerWithNonExistentIdThrowsNotFound() {
+    when(partialUpdates.toChanges(any(), any())).thenReturn(Map.of("name", "Test"));
+    when(customerRepository.updateById(any(), any(), any())).thenReturn(0);
+    assertThrows(ResourceNotFound.class,
+        () -> customerServiceImpl.patchCustomerById(999L, Map.of("name", "Test"), null));
+  }
+
+  @Test
+  public void patchCustomerWithEmailThatAlreadyExistsThrowsConflict409() {
+    when(partialUpdates.toChanges(any(), any())).thenReturn(Map.of("email", "test@test.com"));
+    when(customerRepository.updateById(any(), any(), any())).thenThrow(DataIntegrityViolationException.class);
+    assertThrows(Conflict.class,
+        () -> customerServiceImpl.patchCustomerById(1L, Map.of("email", "test@test.com"), null));
   }
 
   @Test
   public void deleteCustomerByExistentIdReturns204NoContent() {
-    when(customerRepository.findById(any(Long.class))).thenReturn(Optional.of(customer));
+    when(customerRepository.deleteOneById(any(Long.class))).thenReturn(1);
     customerServiceImpl.deleteCustomerById(1L);
-    verify(customerRepository).deleteById(any());
+    verify(customerRepository).deleteOneById(1L);
+    verify(customerRepository, never()).findById(any());
   }
 
   @Test
   public void deleteCustomerByNonExistentIdThrows404NotFound() {
-    when(customerRepository.findById(any(Long.class))).thenReturn(Optional.empty());
+    when(customerRepository.deleteOneById(any(Long.class))).thenReturn(0);
     assertThrows(ResourceNotFound.class, () -> customerServiceImpl.deleteCustomerById(999L));
   }
 
@@ -181,15 +306,13 @@ class CustomerServiceImplTest {
 
   @Test
   public void deleteCustomerThrowsServiceUnavailable() {
-    when(customerRepository.existsById(any(Long.class))).thenReturn(true);
-    when(customerRepository.findById(any(Long.class))).thenReturn(Optional.of(customer));
-    doThrow(ServiceUnavailable.class).when(customerRepository).deleteById(any(Long.class));
+    doThrow(ServiceUnavailable.class).when(customerRepository).deleteOneById(any(Long.class));
     assertThrows(ServiceUnavailable.class, () -> customerServiceImpl.deleteCustomerById(1L));
   }
 
   @Test
   public void deleteEmptyCustomerThrowsResourceNotFound() {
-    when(customerRepository.findById(any(Long.class))).thenReturn(Optional.empty());
+    when(customerRepository.deleteOneById(any(Long.class))).thenReturn(0);
     assertThrows(ResourceNotFound.class, () -> customerServiceImpl.deleteCustomerById(40L));
   }
 }
\ No newline at end of file
@@ -0,0 +1,183 @@
+package com.example.ecommerce.tests.services;
+
+import static com.example.ecommerce.constants.StringConstants.IDEMPOTENCY_CACHE;
+import static com.example.ecommerce.constants.StringConstants.IDEMPOTENT_REPLAYED_HEADER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.example.ecommerce.exceptions.Conflict;
+import com.example.ecommerce.exceptions.ServiceUnavailable;
+import com.example.ecommerce.exceptions.UnprocessableEntity;
+import com.example.ecommerce.models.Address;
+import com.example.ecommerce.models.Customer;
+import com.example.ecommerce.services.IdempotencyServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Contains the unit tests for the IdempotencyServiceImpl.
+ */
+class IdempotencyServiceImplTest {
+
+  IdempotencyServiceImpl idempotencyServiceImpl;
+  Customer customer;
+  AtomicInteger executions;
+
+  @BeforeEach
+  public void setUp() {
+    CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+    cacheManager.registerCustomCache(IDEMPOTENCY_CACHE, Caffeine.newBuilder().build());
+    idempotencyServiceImpl = new IdempotencyServiceImpl();
+    ReflectionTestUtils.setField(idempotencyServiceImpl, "cacheManager", cacheManager);
+    ReflectionTestUtils.setField(idempotencyServiceImpl, "objectMapper", new ObjectMapper());
+    customer = new Customer("Test Testerton", "test@test.com",
+        new Address("1 Test Street", "Testown", "TX", "11111"));
+    executions = new AtomicInteger();
+  }
+
+  private ResponseEntity<Customer> create() {
+    executions.incrementAndGet();
+    return new ResponseEntity<>(customer, HttpStatus.CREATED);
+  }
+
+  @Test
+  public void executeWithoutKeyAlwaysRuns() {
+    idempotencyServiceImpl.execute("/customers", null, customer, this::create);
+    idempotencyServiceImpl.execute("/customers", null, customer, this::create);
+    assertEquals(2, executions.get());
+  }
+
+  @Test
+  public void executeReplaysStoredResponse() {
+    ResponseEntity<Customer> first =
+        idempotencyServiceImpl.execute("/customers", "k1", customer, this::create);
+    ResponseEntity<Customer> replayed =
+        idempotencyServiceImpl.execute("/customers", "k1", customer, this::create);
+    assertEquals(1, executions.get());
+    assertNull(first.getHeaders().getFirst(IDEMPOTENT_REPLAYED_HEADER));
+    assertEquals("true", replayed.getHeaders().getFirst(IDEMPOTENT_REPLAYED_HEADER));
+    assertEquals(HttpStatus.CREATED, replayed.getStatusCode());
+    assertSame(first.getBody(), replayed.getBody());
+  }
+
+  @Test
+  public void executeRejectsKeyReusedWithDifferentBody() {
+    idempotencyServiceImpl.execute("/customers", "k1", customer, this::create);
+    Customer other = new Customer("Other Person", "other@test.com", customer.getAddress());
+    assertThrows(UnprocessableEntity.class,
+        () -> idempotencyServiceImpl.execute("/customers", "k1", other, this::create));
+  }
+
+  @Test
+  public void executeReplaysClientErrors() {
+    assertThrows(Conflict.class, () -> idempotencyServiceImpl.execute("/customers", "k1",
+        customer, () -> {
+          executions.incrementAndGet();
+          throw new Conflict(" Email already in use!");
+        }));
+    assertThrows(Conflict.class,
+        () -> idempotencyServiceImpl.execute("/customers", "k1", customer, this::create));
+    assertEquals(1, executions.get());
+  }
+
+  @Test
+  public void executeDoesNotKeepServerErrors() {
+    assertThrows(ServiceUnavailable.class, () -> idempotencyServiceImpl.execute("/customers",
+        "k1", customer, () -> {
+          throw new ServiceUnavailable("database down");
+        }));
+    idempotencyServiceImpl.execute("/customers", "k1", customer, this::create);
+    assertEquals(1, executions.get());
+  }
+
+  @Test
+  public void executeDoesNotKeepUnexpectedErrors() {
+    assertThrows(IllegalStateException.class, () -> idempotencyServiceImpl.execute("/customers",
+        "k1", customer, () -> {
+          throw new IllegalStateException("bug");
+        }));
+    assertThrows(AssertionError.class, () -> idempotencyServiceImpl.execute("/customers",
+        "k1", customer, () -> {
+          throw new AssertionError("bug");
+        }));
+    idempotencyServiceImpl.execute("/customers", "k1", customer, this::create);
+    assertEquals(1, executions.get());
+  }
+
+  @Test
+  public void executeDoesNotKeepServerErrorResponses() {
+    idempotencyServiceImpl.execute("/customers", "k1", customer,
+        () -> new ResponseEntity<>(customer, HttpStatus.INTERNAL_SERVER_ERROR));
+    idempotencyServiceImpl.execute("/customers", "k1", customer, this::create);
+    assertEquals(1, executions.get());
+  }
+
+  @Test
+  public void executeFailsDuplicatesWaitingOnAnError() throws Exception {
+    AtomicReference<Throwable> duplicateError = new AtomicReference<>();
+    Thread duplicate = new Thread(() -> {
+      try {
+        idempotencyServiceImpl.execute("/customers", "k1", customer, this::create);
+      } catch (Throwable e) {
+        duplicateError.set(e);
+      }
+    });
+    assertThrows(OutOfMemoryError.class, () -> idempotencyServiceImpl.execute("/customers",
+        "k1", customer, () -> {
+          duplicate.start();
+          // the duplicate is waiting for this request's outcome
+          while (duplicate.getState() != Thread.State.TIMED_WAITING) {
+            Thread.onSpinWait();
+          }
+          throw new OutOfMemoryError("test");
+        }));
+    duplicate.join(5000);
+    assertInstanceOf(OutOfMemoryError.class, duplicateError.get());
+    idempotencyServiceImpl.execute("/customers", "k1", customer, this::create);
+    assertEquals(1, executions.get());
+  }
+
+  @Test
+  public void executeCoalescesConcurrentDuplicates() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<ResponseEntity<Customer>> first = executor.submit(() -> idempotencyServiceImpl
+          .execute("/customers", "k1", customer, () -> {
+            started.countDown();
+            try {
+              release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            return create();
+          }));
+      started.await(5, TimeUnit.SECONDS);
+      Future<ResponseEntity<Customer>> duplicate = executor.submit(() -> idempotencyServiceImpl
+          .execute("/customers", "k1", customer, this::create));
+      release.countDown();
+      assertSame(first.get(5, TimeUnit.SECONDS).getBody(),
+          duplicate.get(5, TimeUnit.SECONDS).getBody());
+      assertEquals(1, executions.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package com.example.ecommerce.tests.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.example.ecommerce.exceptions.BadDataResponse;
+import com.example.ecommerce.models.Customer;
+import com.example.ecommerce.models.Tour;
+import com.example.ecommerce.services.PartialUpdates;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.util.Map;
+import javax.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Contains the unit tests for PartialUpdates.
+ */
+class PartialUpdatesTest {
+
+  PartialUpdates partialUpdates;
+
+  @BeforeEach
+  public void setUp() {
+    partialUpdates = new PartialUpdates();
+    ReflectionTestUtils.setField(partialUpdates, "objectMapper", new ObjectMapper());
+    ReflectionTestUtils.setField(partialUpdates, "validator",
+        Validation.buildDefaultValidatorFactory().getValidator());
+  }
+
+  @Test
+  public void toChangesBindsTypedValuesByAttributePath() {
+    Map<String, Object> changes = partialUpdates.toChanges(Customer.class,
+        Map.of("email", "new@test.com", "address", Map.of("city", "Lowell")));
+    assertEquals(Map.of("email", "new@test.com", "address.city", "Lowell"), changes);
+  }
+
+  @Test
+  public void toChangesMapsJsonNamesToMappedFields() {
+    Map<String, Object> changes = partialUpdates.toChanges(Tour.class,
+        Map.of("active", false, "price", 12.5));
+    assertEquals(Map.of("isActive", false, "price", BigDecimal.valueOf(12.5)), changes);
+  }
+
+  @Test
+  public void toChangesWithInvalidValueThrowsBadDataResponse() {
+    assertThrows(BadDataResponse.class, () -> partialUpdates.toChanges(Customer.class,
+        Map.of("address", Map.of("zipcode", "abc"))));
+    assertThrows(BadDataResponse.class,
+        () -> partialUpdates.toChanges(Customer.class, Map.of("email", "")));
+  }
+
+  @Test
+  public void toChangesWithUnknownIdOrNoFieldThrowsBadDataResponse() {
+    assertThrows(BadDataResponse.class,
+        () -> partialUpdates.toChanges(Customer.class, Map.of("bogus", 1)));
+    assertThrows(BadDataResponse.class,
+        () -> partialUpdates.toChanges(Customer.class, Map.of("id", 5)));
+    assertThrows(BadDataResponse.class,
+        () -> partialUpdates.toChanges(Customer.class, Map.of()));
+  }
+}
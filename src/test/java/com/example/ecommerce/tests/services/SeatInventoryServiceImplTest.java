@@ -0,0 +1,204 @@
+package com.example.ecommerce.tests.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.ecommerce.config.CacheConfig;
+import com.example.ecommerce.exceptions.BadDataResponse;
+import com.example.ecommerce.exceptions.Conflict;
+import com.example.ecommerce.exceptions.ResourceNotFound;
+import com.example.ecommerce.models.Tour;
+import com.example.ecommerce.models.TourInventory;
+import com.example.ecommerce.repositories.TourBookingRepository;
+import com.example.ecommerce.repositories.TourInventoryRepository;
+import com.example.ecommerce.repositories.TourRepository;
+import com.example.ecommerce.services.SeatInventoryServiceImpl;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Contains the unit tests for the SeatInventoryServiceImpl.
+ */
+class SeatInventoryServiceImplTest {
+
+  private static final LocalDate DATE = LocalDate.now(ZoneOffset.UTC).plusDays(30);
+  private static final Date RESERVED_DATE =
+      Date.from(DATE.atStartOfDay(ZoneOffset.UTC).toInstant());
+  private static final String CACHE_SPEC = "maximumSize=10";
+
+  @Mock
+  private TourInventoryRepository tourInventoryRepository;
+  @Mock
+  private TourRepository tourRepository;
+  @Mock
+  private TourBookingRepository tourBookingRepository;
+  @Mock
+  private PlatformTransactionManager transactionManager;
+  private AutoCloseable closeable;
+
+  @InjectMocks
+  SeatInventoryServiceImpl seatInventoryServiceImpl;
+
+  Tour tour;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    closeable = MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(seatInventoryServiceImpl, "defaultCapacity", 20);
+    ReflectionTestUtils.setField(seatInventoryServiceImpl, "availabilityHorizon",
+        Duration.ofDays(730));
+    CacheConfig cacheConfig = new CacheConfig();
+    for (String field : List.of("toursCacheSpec", "tourQueriesCacheSpec",
+        "verifiedTokensCacheSpec", "userDetailsCacheSpec", "idempotencyKeysCacheSpec",
+        "accountStatusCacheSpec", "availabilityCacheSpec")) {
+      ReflectionTestUtils.setField(cacheConfig, field, CACHE_SPEC);
+    }
+    ReflectionTestUtils.setField(seatInventoryServiceImpl, "cacheManager",
+        cacheConfig.cacheManager());
+    tour = new Tour(10, new String[]{}, "description", BigDecimal.valueOf(2099.99), 5, true);
+    tour.setId(1L);
+    tour.setCapacity(5);
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    closeable.close();
+  }
+
+  @Test
+  public void reserveSeatsTakesSeatsWithConditionalUpdate() {
+    when(tourInventoryRepository.findByTourIdAndReservedDate(1L, DATE))
+        .thenReturn(Optional.of(new TourInventory(1L, DATE, 2, 2)));
+    when(tourInventoryRepository.reserveSeats(1L, DATE, 1)).thenReturn(1);
+    seatInventoryServiceImpl.reserveSeats(1L, RESERVED_DATE, 1);
+    verify(tourInventoryRepository).reserveSeats(1L, DATE, 1);
+    assertEquals(1, seatInventoryServiceImpl.getAvailability(1L, DATE).getRemaining());
+  }
+
+  @Test
+  public void reserveSeatsRejectsSoldOutDateWithoutUpdate() {
+    when(tourInventoryRepository.findByTourIdAndReservedDate(1L, DATE))
+        .thenReturn(Optional.of(new TourInventory(1L, DATE, 2, 0)));
+    assertThrows(Conflict.class, () -> seatInventoryServiceImpl.reserveSeats(1L, RESERVED_DATE, 1));
+    verify(tourInventoryRepository, never()).reserveSeats(any(), any(), anyInt());
+  }
+
+  @Test
+  public void reserveSeatsReloadsLowCounterBeforeRejecting() {
+    when(tourInventoryRepository.findByTourIdAndReservedDate(1L, DATE))
+        .thenReturn(Optional.of(new TourInventory(1L, DATE, 2, 0)))
+        .thenReturn(Optional.of(new TourInventory(1L, DATE, 2, 2)));
+    when(tourInventoryRepository.reserveSeats(1L, DATE, 1)).thenReturn(1);
+    seatInventoryServiceImpl.reserveSeats(1L, RESERVED_DATE, 1);
+    verify(tourInventoryRepository).reserveSeats(1L, DATE, 1);
+    assertEquals(1, seatInventoryServiceImpl.getAvailability(1L, DATE).getRemaining());
+  }
+
+  @Test
+  public void reserveSeatsReloadsCounterWhenRowIsSoldOut() {
+    when(tourInventoryRepository.findByTourIdAndReservedDate(1L, DATE))
+        .thenReturn(Optional.of(new TourInventory(1L, DATE, 2, 1)))
+        .thenReturn(Optional.of(new TourInventory(1L, DATE, 2, 0)));
+    when(tourInventoryRepository.reserveSeats(1L, DATE, 1)).thenReturn(0);
+    assertThrows(Conflict.class, () -> seatInventoryServiceImpl.reserveSeats(1L, RESERVED_DATE, 1));
+    assertEquals(0, seatInventoryServiceImpl.getAvailability(1L, DATE).getRemaining());
+  }
+
+  @Test
+  public void getAvailabilityOfBookedDateIsServedFromCounter() {
+    when(tourInventoryRepository.findByTourIdAndReservedDate(1L, DATE))
+        .thenReturn(Optional.of(new TourInventory(1L, DATE, 2, 2)));
+    when(tourInventoryRepository.reserveSeats(1L, DATE, 1)).thenReturn(1);
+    seatInventoryServiceImpl.reserveSeats(1L, RESERVED_DATE, 1);
+    seatInventoryServiceImpl.getAvailability(1L, DATE);
+    seatInventoryServiceImpl.getAvailability(1L, DATE);
+    verify(tourInventoryRepository, times(1)).findByTourIdAndReservedDate(1L, DATE);
+  }
+
+  @Test
+  public void getAvailabilityOfUnbookedDateReadsDatabaseOnce() {
+    when(tourInventoryRepository.findByTourIdAndReservedDate(1L, DATE))
+        .thenReturn(Optional.empty());
+    when(tourRepository.findById(1L)).thenReturn(Optional.of(tour));
+    for (int i = 0; i < 3; i++) {
+      assertEquals(5, seatInventoryServiceImpl.getAvailability(1L, DATE).getRemaining());
+    }
+    verify(tourInventoryRepository, times(1)).findByTourIdAndReservedDate(1L, DATE);
+    verify(tourRepository, times(1)).findById(1L);
+    verify(tourBookingRepository, times(1)).countByTourIdAndReservedDateIn(any(), any(), any());
+  }
+
+  @Test
+  public void getAvailabilityOfProbedDateFollowsLaterBooking() {
+    when(tourInventoryRepository.findByTourIdAndReservedDate(1L, DATE))
+        .thenReturn(Optional.of(new TourInventory(1L, DATE, 2, 2)));
+    when(tourInventoryRepository.reserveSeats(1L, DATE, 1)).thenReturn(1);
+    assertEquals(2, seatInventoryServiceImpl.getAvailability(1L, DATE).getRemaining());
+    seatInventoryServiceImpl.reserveSeats(1L, RESERVED_DATE, 1);
+    assertEquals(1, seatInventoryServiceImpl.getAvailability(1L, DATE).getRemaining());
+  }
+
+  @Test
+  public void getAvailabilityThrowsBadDataResponseForPastDate() {
+    LocalDate yesterday = LocalDate.now(ZoneOffset.UTC).minusDays(1);
+    assertThrows(BadDataResponse.class,
+        () -> seatInventoryServiceImpl.getAvailability(1L, yesterday));
+    verify(tourInventoryRepository, never()).findByTourIdAndReservedDate(any(), any());
+  }
+
+  @Test
+  public void getAvailabilityThrowsBadDataResponseBeyondHorizon() {
+    LocalDate farAhead = LocalDate.now(ZoneOffset.UTC).plusDays(731);
+    assertThrows(BadDataResponse.class,
+        () -> seatInventoryServiceImpl.getAvailability(1L, farAhead));
+    verify(tourInventoryRepository, never()).findByTourIdAndReservedDate(any(), any());
+  }
+
+  @Test
+  public void getAvailabilityCountsExistingBookings() {
+    when(tourInventoryRepository.findByTourIdAndReservedDate(1L, DATE))
+        .thenReturn(Optional.empty());
+    when(tourRepository.findById(1L)).thenReturn(Optional.of(tour));
+    when(tourBookingRepository.countByTourIdAndReservedDateIn(any(), any(), any()))
+        .thenReturn(2L);
+    assertEquals(3, seatInventoryServiceImpl.getAvailability(1L, DATE).getRemaining());
+  }
+
+  @Test
+  public void getAvailabilityThrowsResourceNotFound() {
+    when(tourInventoryRepository.findByTourIdAndReservedDate(1L, DATE))
+        .thenReturn(Optional.empty());
+    when(tourRepository.findById(1L)).thenReturn(Optional.empty());
+    assertThrows(ResourceNotFound.class, () -> seatInventoryServiceImpl.getAvailability(1L, DATE));
+  }
+
+  @Test
+  public void releaseSeatsGivesSeatsBack() {
+    when(tourInventoryRepository.findByTourIdAndReservedDate(1L, DATE))
+        .thenReturn(Optional.of(new TourInventory(1L, DATE, 2, 2)));
+    when(tourInventoryRepository.reserveSeats(1L, DATE, 1)).thenReturn(1);
+    when(tourInventoryRepository.releaseSeats(1L, DATE, 1)).thenReturn(1);
+    seatInventoryServiceImpl.reserveSeats(1L, RESERVED_DATE, 1);
+    seatInventoryServiceImpl.releaseSeats(1L, RESERVED_DATE, 1);
+    assertEquals(2, seatInventoryServiceImpl.getAvailability(1L, DATE).getRemaining());
+  }
+}
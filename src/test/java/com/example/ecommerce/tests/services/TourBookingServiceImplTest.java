@@ -0,0 +1,256 @@
+package com.example.ecommerce.tests.services;
+
+import static com.example.ecommerce.constants.StringConstants.EXPORT_FORMAT_CSV;
+import static com.example.ecommerce.constants.StringConstants.EXPORT_FORMAT_NDJSON;
+import static com.example.ecommerce.constants.StringConstants.MAX_BULK_SIZE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.ecommerce.exceptions.BadDataResponse;
+import com.example.ecommerce.exceptions.Conflict;
+import com.example.ecommerce.exceptions.PreconditionFailed;
+import com.example.ecommerce.exceptions.ResourceNotFound;
+import com.example.ecommerce.models.BulkResult;
+import com.example.ecommerce.models.Contact;
+import com.example.ecommerce.models.CursorPage;
+import com.example.ecommerce.models.Tour;
+import com.example.ecommerce.models.TourBooking;
+import com.example.ecommerce.models.TourBookingDetails;
+import com.example.ecommerce.models.TourBookingFilter;
+import com.example.ecommerce.repositories.TourBookingRepository;
+import com.example.ecommerce.repositories.TourRepository;
+import com.example.ecommerce.services.PartialUpdates;
+import com.example.ecommerce.services.SeatInventoryService;
+import com.example.ecommerce.services.TourBookingServiceImpl;
+import com.example.ecommerce.services.UniqueValueFilters;
+import com.example.ecommerce.services.UniqueValueFilters.UniqueKey;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Contains the unit tests for the bulk create, the partial update and the queries of the
+ * TourBookingServiceImpl.
+ */
+class TourBookingServiceImplTest {
+
+  private static final Date RESERVED_DATE = new Date(1660867200000L);
+
+  @Mock
+  private TourBookingRepository tourBookingRepository;
+  @Mock
+  private TourRepository tourRepository;
+  @Mock
+  private SeatInventoryService seatInventoryService;
+  @Mock
+  private UniqueValueFilters uniqueValueFilters;
+  @Mock
+  private EntityManager entityManager;
+  private AutoCloseable closeable;
+
+  @InjectMocks
+  TourBookingServiceImpl tourBookingServiceImpl;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    closeable = MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(tourBookingServiceImpl, "validator",
+        Validation.buildDefaultValidatorFactory().getValidator());
+    ReflectionTestUtils.setField(tourBookingServiceImpl, "objectMapper", new ObjectMapper());
+    PartialUpdates partialUpdates = new PartialUpdates();
+    ReflectionTestUtils.setField(partialUpdates, "objectMapper", new ObjectMapper());
+    ReflectionTestUtils.setField(partialUpdates, "validator",
+        Validation.buildDefaultValidatorFactory().getValidator());
+    ReflectionTestUtils.setField(tourBookingServiceImpl, "partialUpdates", partialUpdates);
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    closeable.close();
+  }
+
+  private TourBooking tourBooking(String tourCode) {
+    return new TourBooking(new Contact("Bobby", "Hill", "5128865120", "bhill@student.uml.edu"),
+        "79927398713", tourCode, RESERVED_DATE, 1L);
+  }
+
+  private void storedTourBooking(String tourCode, Long version) {
+    TourBooking tourBooking = tourBooking(tourCode);
+    tourBooking.setId(1L);
+    tourBooking.setVersion(version);
+    when(tourBookingRepository.findById(1L)).thenReturn(Optional.of(tourBooking));
+  }
+
+  @Test
+  public void patchWithStaleVersionFailsBeforeMovingSeat() {
+    storedTourBooking("WUC-A1", 3L);
+
+    assertThrows(PreconditionFailed.class, () -> tourBookingServiceImpl.patchTourBookingById(1L,
+        Map.of("reservedDate", "2022-08-20"), 2L));
+    verify(seatInventoryService, never()).moveSeats(any(), any(), any(), any(), anyInt());
+    verify(tourBookingRepository, never()).updateById(any(), any(), any());
+  }
+
+  @Test
+  public void patchTourCodeForgetsPreviousTourCode() {
+    storedTourBooking("WUC-A1", 3L);
+    when(tourBookingRepository.updateById(eq(1L), eq(3L), any())).thenReturn(1);
+
+    tourBookingServiceImpl.patchTourBookingById(1L, Map.of("tourCode", "WUC-B2"), 3L);
+    verify(uniqueValueFilters).add(UniqueKey.TOUR_CODE, "WUC-B2");
+    verify(uniqueValueFilters).remove(UniqueKey.TOUR_CODE, "WUC-A1");
+    verify(seatInventoryService, never()).moveSeats(any(), any(), any(), any(), anyInt());
+  }
+
+  @Test
+  public void exportAsCsvMasksCardNumbersAndEscapesFormulas() {
+    TourBooking tourBooking = new TourBooking(
+        new Contact("=HYPERLINK(\"http://x\")", "Hill", "+15128865120", "@bhill"),
+        "79927398713", "WUC-A1", RESERVED_DATE, 1L);
+    tourBooking.setId(7L);
+    when(tourBookingRepository.streamByReservedDateBetweenOrderByIdAsc(any(), any()))
+        .thenReturn(Stream.of(tourBooking));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    tourBookingServiceImpl.exportTourBookings(null, null, EXPORT_FORMAT_CSV, output);
+    String[] lines = output.toString(StandardCharsets.UTF_8).split("\r\n");
+    assertEquals("7,1,WUC-A1,2022-08-19,\"'=HYPERLINK(\"\"http://x\"\")\",Hill,'+15128865120,"
+        + "'@bhill,*******8713", lines[1]);
+  }
+
+  @Test
+  public void exportAsNdjsonMasksCardNumbers() {
+    when(tourBookingRepository.streamByReservedDateBetweenOrderByIdAsc(any(), any()))
+        .thenReturn(Stream.of(tourBooking("WUC-A1")));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    tourBookingServiceImpl.exportTourBookings(null, null, EXPORT_FORMAT_NDJSON, output);
+    String json = output.toString(StandardCharsets.UTF_8);
+    assertTrue(json.contains("\"cardNo\":\"*******8713\""));
+    assertFalse(json.contains("79927398713"));
+  }
+
+  @Test
+  public void queryTourBookingDetailsSummarizesTheFetchedTours() {
+    Tour tour = new Tour(10, null, "Wildlife tour", new BigDecimal("2099.99"), 5, true);
+    tour.setId(1L);
+    TourBooking tourBooking = tourBooking("WUC-A1");
+    ReflectionTestUtils.setField(tourBooking, "tour", tour);
+    when(tourBookingRepository.findPageAfter(any(), any(), anyInt(), eq(TourBooking.WITH_TOUR)))
+        .thenReturn(new CursorPage<>(List.of(tourBooking), 7L, 1));
+
+    CursorPage<TourBookingDetails> page =
+        tourBookingServiceImpl.queryTourBookingDetails(new TourBookingFilter(), null, 1);
+    assertEquals(7L, page.getNextCursor());
+    assertEquals(tourBooking, page.getItems().get(0).getTourBooking());
+    assertEquals("Wildlife tour", page.getItems().get(0).getTour().getDescription());
+  }
+
+  @Test
+  public void queryTourBookingsOfTourReturnsOnePageWithoutLookingUpTheTour() {
+    CursorPage<TourBooking> page = new CursorPage<>(List.of(tourBooking("WUC-A1")), 7L, 1);
+    when(tourBookingRepository.findPageAfter(any(), any(), anyInt())).thenReturn(page);
+    assertEquals(page, tourBookingServiceImpl.queryTourBookingsOfTour(1L,
+        LocalDate.of(2022, 8, 1), LocalDate.of(2022, 8, 31), null, 1));
+    verify(tourRepository, never()).existsById(anyLong());
+  }
+
+  @Test
+  public void queryTourBookingsOfUnknownTourThrowsResourceNotFound() {
+    when(tourBookingRepository.findPageAfter(any(), any(), anyInt()))
+        .thenReturn(new CursorPage<>(List.of(), null, 10));
+    when(tourRepository.existsById(99L)).thenReturn(false);
+    assertThrows(ResourceNotFound.class,
+        () -> tourBookingServiceImpl.queryTourBookingsOfTour(99L, null, null, null, 10));
+  }
+
+  @Test
+  public void queryTourBookingsOfTourWithInvalidArgumentsThrowsBadDataResponse() {
+    assertThrows(BadDataResponse.class,
+        () -> tourBookingServiceImpl.queryTourBookingsOfTour(0L, null, null, null, 10));
+    assertThrows(BadDataResponse.class, () -> tourBookingServiceImpl.queryTourBookingsOfTour(1L,
+        LocalDate.of(2022, 9, 1), LocalDate.of(2022, 8, 1), null, 10));
+    assertThrows(BadDataResponse.class,
+        () -> tourBookingServiceImpl.queryTourBookingsOfTour(1L, null, null, -1L, 10));
+    verify(tourBookingRepository, never()).findPageAfter(any(), any(), anyInt());
+  }
+
+  @Test
+  public void addTourBookingsReportsInvalidAndRepeatedItemsAndSavesTheRest() {
+    List<TourBooking> tourBookings = List.of(tourBooking("WUC-A1"), new TourBooking(),
+        tourBooking("WUC-A1"), tourBooking("WUC-B2"));
+    BulkResult<TourBooking> result = tourBookingServiceImpl.addTourBookings(tourBookings);
+    assertEquals(2, result.getCreated());
+    assertEquals(2, result.getRejected());
+    assertEquals(List.of(201, 400, 409, 201),
+        result.getResults().stream().map(item -> item.getStatus()).toList());
+    verify(tourBookingRepository, never()).findExistingTourCodes(anyCollection());
+    verify(seatInventoryService).reserveSeats(1L, RESERVED_DATE, 2);
+    verify(tourBookingRepository).saveAll(any());
+    assertEquals(tourBookings.get(3), result.getResults().get(3).getItem());
+  }
+
+  @Test
+  public void addTourBookingsChecksProbablyTakenCodesWithOneQuery() {
+    when(uniqueValueFilters.mightContain(any(), any())).thenReturn(true);
+    when(tourBookingRepository.findExistingTourCodes(anyCollection()))
+        .thenReturn(List.of("WUC-J7"));
+    BulkResult<TourBooking> result = tourBookingServiceImpl.addTourBookings(
+        List.of(tourBooking("WUC-J7"), tourBooking("WUC-K8"), tourBooking("WUC-L9")));
+    assertEquals(2, result.getCreated());
+    assertEquals(409, result.getResults().get(0).getStatus());
+    verify(tourBookingRepository, times(1)).findExistingTourCodes(anyCollection());
+  }
+
+  @Test
+  public void addTourBookingsKeepsTheBookingsThatFitWhenADateCanNotSeatTheGroup() {
+    doThrow(new Conflict("sold out")).when(seatInventoryService)
+        .reserveSeats(1L, RESERVED_DATE, 3);
+    doNothing().doThrow(new Conflict("sold out")).when(seatInventoryService)
+        .reserveSeats(1L, RESERVED_DATE, 1);
+    BulkResult<TourBooking> result = tourBookingServiceImpl.addTourBookings(
+        List.of(tourBooking("WUC-A1"), tourBooking("WUC-B2"), tourBooking("WUC-C3")));
+    assertEquals(List.of(201, 409, 409),
+        result.getResults().stream().map(item -> item.getStatus()).toList());
+  }
+
+  @Test
+  public void addTourBookingsWithNoOrTooManyItemsThrowsBadDataResponse() {
+    List<TourBooking> tooMany = new ArrayList<>(
+        Collections.nCopies(MAX_BULK_SIZE + 1, tourBooking("WUC-J7")));
+    assertThrows(BadDataResponse.class, () -> tourBookingServiceImpl.addTourBookings(List.of()));
+    assertThrows(BadDataResponse.class, () -> tourBookingServiceImpl.addTourBookings(tooMany));
+    verify(seatInventoryService, never()).reserveSeats(any(), any(), anyInt());
+  }
+}
@@ -0,0 +1,200 @@
+package com.example.ecommerce.tests.services;
+
+import static com.example.ecommerce.constants.StringConstants.FACET_NUMBER_OF_DAYS;
+import static com.example.ecommerce.constants.StringConstants.FACET_PRICE;
+import static com.example.ecommerce.constants.StringConstants.FACET_RATING;
+import static com.example.ecommerce.constants.StringConstants.FACET_VACCINATIONS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+import com.example.ecommerce.models.CursorPage;
+import com.example.ecommerce.models.FacetedTours;
+import com.example.ecommerce.models.Tour;
+import com.example.ecommerce.repositories.TourRepository;
+import com.example.ecommerce.services.TourChangedEvent;
+import com.example.ecommerce.services.TourFacets;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Contains the unit tests for the TourFacets.
+ */
+class TourFacetsTest {
+
+  @Mock
+  private TourRepository tourRepository;
+  private AutoCloseable closeable;
+
+  @InjectMocks
+  TourFacets tourFacets;
+
+  @BeforeEach
+  public void setUp() {
+    closeable = MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(tourFacets, "priceBands",
+        new BigDecimal[] {new BigDecimal("2000"), new BigDecimal("1000")});
+    tourFacets.initFacets();
+    when(tourRepository.findByIsActiveTrue(any(Sort.class))).thenReturn(List.of(
+        tour(1L, 3, 4, "899.99", "TB"),
+        tour(2L, 3, 5, "1500", "TB", "Yellow Fever"),
+        tour(3L, 10, 5, "2500"),
+        tour(4L, 10, 4, "1999.99", "Yellow Fever")));
+    tourFacets.load();
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    closeable.close();
+  }
+
+  @Test
+  public void withoutFiltersEveryActiveTourIsCounted() {
+    FacetedTours result = tourFacets.query(Map.of(), null, 10);
+    assertEquals(List.of(1L, 2L, 3L, 4L), ids(result));
+    assertEquals(4, result.getTotal());
+    assertEquals(Map.of("0-1000", 1, "1000-2000", 2, "2000+", 1),
+        result.getFacets().get(FACET_PRICE));
+    assertEquals(List.of("0-1000", "1000-2000", "2000+"),
+        List.copyOf(result.getFacets().get(FACET_PRICE).keySet()));
+    assertEquals(Map.of("3", 2, "10", 2), result.getFacets().get(FACET_NUMBER_OF_DAYS));
+    assertEquals(List.of("3", "10"),
+        List.copyOf(result.getFacets().get(FACET_NUMBER_OF_DAYS).keySet()));
+    assertEquals(Map.of("tb", 2, "yellow fever", 2), result.getFacets().get(FACET_VACCINATIONS));
+  }
+
+  @Test
+  public void vaccinationsAreFiledRegardlessOfCaseAndNullNamesSkipped() {
+    when(tourRepository.findAllById(anyList())).thenReturn(List.of(
+        tour(5L, 3, 4, "100", " tb", null, "Rabies")));
+    tourFacets.onTourChanged(new TourChangedEvent(List.of(5L)));
+    FacetedTours result = tourFacets.query(Map.of(FACET_VACCINATIONS, List.of("TB ")), null, 10);
+    assertEquals(List.of(1L, 2L, 5L), ids(result));
+    assertEquals(Map.of("tb", 3, "yellow fever", 2, "rabies", 1),
+        result.getFacets().get(FACET_VACCINATIONS));
+  }
+
+  @Test
+  public void valuesOfAFacetAreOredAndFacetsAreAnded() {
+    FacetedTours result = tourFacets.query(Map.of(
+        FACET_RATING, List.of("5"),
+        FACET_PRICE, List.of("1000-2000", "2000+")), null, 10);
+    assertEquals(List.of(2L, 3L), ids(result));
+    // each facet is counted under the filters of the others only
+    assertEquals(Map.of("0-1000", 0, "1000-2000", 1, "2000+", 1),
+        result.getFacets().get(FACET_PRICE));
+    assertEquals(Map.of("4", 1, "5", 2), result.getFacets().get(FACET_RATING));
+    assertEquals(Map.of("3", 1, "10", 1), result.getFacets().get(FACET_NUMBER_OF_DAYS));
+  }
+
+  @Test
+  public void pagesFollowTheCursor() {
+    FacetedTours first = tourFacets.query(Map.of(FACET_NUMBER_OF_DAYS, List.of("3", "10")),
+        null, 3);
+    assertEquals(List.of(1L, 2L, 3L), ids(first));
+    assertEquals(3L, first.getNextCursor());
+    FacetedTours second = tourFacets.query(Map.of(FACET_NUMBER_OF_DAYS, List.of("3", "10")),
+        first.getNextCursor(), 3);
+    assertEquals(List.of(4L), ids(second));
+    assertNull(second.getNextCursor());
+  }
+
+  @Test
+  public void changedToursAreRefiledAndDeactivatedOrDeletedOnesDropped() {
+    Tour deactivated = tour(1L, 3, 4, "899.99", "TB");
+    deactivated.setActive(false);
+    when(tourRepository.findAllById(anyList())).thenReturn(List.of(
+        deactivated, tour(2L, 7, 5, "1500"), tour(0L, 7, 1, "100")));
+    tourFacets.onTourChanged(new TourChangedEvent(List.of(0L, 1L, 2L, 4L)));
+    FacetedTours result = tourFacets.query(Map.of(FACET_NUMBER_OF_DAYS, List.of("7")), null, 10);
+    assertEquals(List.of(0L, 2L), ids(result));
+    assertEquals(Map.of("7", 2, "10", 1), result.getFacets().get(FACET_NUMBER_OF_DAYS));
+    assertEquals(Map.of(), result.getFacets().get(FACET_VACCINATIONS));
+  }
+
+  @Test
+  public void unknownValuesMatchNothing() {
+    FacetedTours result = tourFacets.query(Map.of(FACET_RATING, List.of("five")), null, 10);
+    assertEquals(List.of(), ids(result));
+    assertEquals(0, result.getTotal());
+  }
+
+  @Test
+  public void travelersAreEligibleForToursWhoseVaccinationsTheyAllHave() {
+    assertEquals(List.of(3L), ids(tourFacets.eligible(List.of(), null, 10)));
+    assertEquals(List.of(1L, 3L), ids(tourFacets.eligible(List.of(" tb", "Polio"), null, 10)));
+    assertEquals(List.of(1L, 2L, 3L, 4L),
+        ids(tourFacets.eligible(List.of("yellow fever", "TB"), null, 10)));
+    CursorPage<Tour> first = tourFacets.eligible(List.of("Yellow Fever"), null, 1);
+    assertEquals(List.of(3L), ids(first));
+    assertEquals(3L, first.getNextCursor());
+    CursorPage<Tour> second = tourFacets.eligible(List.of("Yellow Fever"), 3L, 1);
+    assertEquals(List.of(4L), ids(second));
+    assertNull(second.getNextCursor());
+  }
+
+  @Test
+  public void eligibilityFollowsChangedTours() {
+    when(tourRepository.findAllById(anyList())).thenReturn(List.of(tour(3L, 10, 5, "2500",
+        "Rabies")));
+    tourFacets.onTourChanged(new TourChangedEvent(List.of(3L, 4L)));
+    assertEquals(List.of(), ids(tourFacets.eligible(List.of(), null, 10)));
+    assertEquals(List.of(1L, 3L), ids(tourFacets.eligible(List.of("TB", "rabies"), null, 10)));
+  }
+
+  @Test
+  public void eligibilityMatchesASubsetTestOverManyVaccines() {
+    Random random = new Random(21);
+    List<Tour> tours = new ArrayList<>();
+    for (long id = 10; id < 300; id++) {
+      String[] vaccinations = new String[random.nextInt(4)];
+      for (int i = 0; i < vaccinations.length; i++) {
+        vaccinations[i] = "V" + random.nextInt(150);
+      }
+      tours.add(tour(id, 3, 4, "100", vaccinations));
+    }
+    when(tourRepository.findAllById(anyList())).thenReturn(tours);
+    tourFacets.onTourChanged(new TourChangedEvent(List.of(1L, 2L, 3L, 4L)));
+    for (int traveler = 0; traveler < 50; traveler++) {
+      List<String> held = new ArrayList<>();
+      for (int i = random.nextInt(120); i > 0; i--) {
+        held.add("v" + random.nextInt(150));
+      }
+      Set<String> heldKeys = Set.copyOf(held);
+      List<Long> expected = tours.stream()
+          .filter(tour -> Arrays.stream(tour.getVaccinations())
+              .allMatch(vaccination -> heldKeys.contains(vaccination.toLowerCase())))
+          .map(Tour::getId)
+          .collect(Collectors.toList());
+      assertEquals(expected, ids(tourFacets.eligible(held, null, 1000)));
+    }
+  }
+
+  private static Tour tour(Long id, int numberOfDays, int rating, String price,
+      String... vaccinations) {
+    Tour tour = new Tour(numberOfDays, vaccinations, "description", new BigDecimal(price), rating,
+        true);
+    tour.setId(id);
+    return tour;
+  }
+
+  private static List<Long> ids(CursorPage<Tour> result) {
+    return result.getItems().stream().map(Tour::getId).collect(Collectors.toList());
+  }
+}
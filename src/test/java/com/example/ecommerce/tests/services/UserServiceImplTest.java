@@ -1,23 +1,33 @@
 package com.example.ecommerce.tests.services;
 
 import static com.example.ecommerce.constants.StringConstants.EMPLOYEE;
+import static com.example.ecommerce.constants.StringConstants.MAX_PAGE_LIMIT;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.example.ecommerce.exceptions.BadDataResponse;
 import com.example.ecommerce.exceptions.Conflict;
+import com.example.ecommerce.exceptions.PreconditionFailed;
 import com.example.ecommerce.exceptions.ResourceNotFound;
 import com.example.ecommerce.exceptions.ServiceUnavailable;
+import com.example.ecommerce.models.CursorPage;
 import com.example.ecommerce.models.User;
+import com.example.ecommerce.models.UserFilter;
 import com.example.ecommerce.repositories.UserRepository;
+import com.example.ecommerce.services.PartialUpdates;
+import com.example.ecommerce.services.UniqueValueFilters.UniqueKey;
+import com.example.ecommerce.services.UniqueValueFilters;
 import com.example.ecommerce.services.UserService;
 import com.example.ecommerce.services.UserServiceImpl;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -25,7 +35,9 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.data.domain.Example;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 
 /**
  * Contains the unit tests for the UserServiceImpl.
@@ -36,6 +48,10 @@ class UserServiceImplTest {
   private UserRepository userRepository;
   @Mock
   private UserService userService;
+  @Mock
+  private UniqueValueFilters uniqueValueFilters;
+  @Mock
+  private PartialUpdates partialUpdates;
   private AutoCloseable closeable;
 
   @InjectMocks
@@ -47,6 +63,7 @@ class UserServiceImplTest {
   @BeforeEach
   public void setUp() throws Exception {
     closeable = MockitoAnnotations.openMocks(this);
+    when(uniqueValueFilters.mightContain(any(), any())).thenReturn(true);
     user = new User("Test Testerton", "employee", EMPLOYEE,
         "test@test.com",
         "password12345");
@@ -59,23 +76,55 @@ class UserServiceImplTest {
 
   @Test
   public void queryUsersReturnsCorrectUsers() {
-    when(userRepository.findAll()).thenReturn(userList);
-    List<User> result = userServiceImpl.queryUsers(new User());
+    when(userRepository.findAll(any(Specification.class), any(Sort.class))).thenReturn(userList);
+    List<User> result = userServiceImpl.queryUsers(new UserFilter());
     assertEquals(userList, result);
   }
 
   @Test
-  public void queryUsersByExample() {
-    when(userRepository.findAll(any(Example.class))).thenReturn(userList);
-    List<User> result = userServiceImpl.queryUsers(user);
+  public void queryUsersByFilter() {
+    UserFilter filter = new UserFilter();
+    filter.setName(user.getName());
+    when(userRepository.findAll(any(Specification.class), any(Sort.class))).thenReturn(userList);
+    List<User> result = userServiceImpl.queryUsers(filter);
     assertEquals(userList, result);
   }
 
   @Test
   public void queryUsersThrowsServiceUnavailable() {
-    doThrow(ServiceUnavailable.class).when(userRepository).findAll();
+    doThrow(ServiceUnavailable.class).when(userRepository)
+        .findAll(any(Specification.class), any(Sort.class));
+    assertThrows(ServiceUnavailable.class,
+        () -> userServiceImpl.queryUsers(new UserFilter()));
+  }
+
+  @Test
+  public void queryUsersPageReturnsCursorPage() {
+    CursorPage<User> page = new CursorPage<>(userList, null, 10);
+    when(userRepository.findPageAfter(any(), any(), anyInt())).thenReturn(page);
+    CursorPage<User> result = userServiceImpl.queryUsers(new UserFilter(), 5L, 10);
+    assertEquals(page, result);
+  }
+
+  @Test
+  public void queryUsersPageWithInvalidLimitThrowsBadDataResponse() {
+    assertThrows(BadDataResponse.class,
+        () -> userServiceImpl.queryUsers(new UserFilter(), null, 0));
+    assertThrows(BadDataResponse.class,
+        () -> userServiceImpl.queryUsers(new UserFilter(), null, MAX_PAGE_LIMIT + 1));
+  }
+
+  @Test
+  public void queryUsersPageWithNegativeCursorThrowsBadDataResponse() {
+    assertThrows(BadDataResponse.class,
+        () -> userServiceImpl.queryUsers(new UserFilter(), -1L, 10));
+  }
+
+  @Test
+  public void queryUsersPageThrowsServiceUnavailable() {
+    doThrow(ServiceUnavailable.class).when(userRepository).findPageAfter(any(), any(), anyInt());
     assertThrows(ServiceUnavailable.class,
-        () -> userServiceImpl.queryUsers(new User()));
+        () -> userServiceImpl.queryUsers(new UserFilter(), null, 10));
   }
 
   @Test
@@ -105,7 +154,7 @@ class UserServiceImplTest {
 
   @Test
   public void postUserWithValidBodyCreatesSuccessfully() {
-    when(userRepository.save(any(User.class))).thenReturn(user);
+    when(userRepository.saveAndFlush(any(User.class))).thenReturn(user);
     User result = userServiceImpl.addUser(new User());
     assertEquals(user, result);
   }
@@ -116,61 +165,124 @@ class UserServiceImplTest {
     assertThrows(Conflict.class, () -> userServiceImpl.addUser(user));
   }
 
+  @Test
+  void postUserWithEmailMissingFromFilterSkipsExistsQuery() {
+    when(uniqueValueFilters.mightContain(UniqueKey.USER_EMAIL, user.getEmail())).thenReturn(false);
+    when(userRepository.saveAndFlush(any(User.class))).thenReturn(user);
+    userServiceImpl.addUser(user);
+    verify(userRepository, never()).existsByEmail(any());
+    verify(uniqueValueFilters).add(UniqueKey.USER_EMAIL, user.getEmail());
+  }
+
+  @Test
+  void postUserRejectedByUniqueConstraintThrowsConflict409() {
+    when(userRepository.saveAndFlush(any(User.class))).thenThrow(DataIntegrityViolationException.class);
+    assertThrows(Conflict.class, () -> userServiceImpl.addUser(user));
+  }
+
   @Test
   public void postUserThrowsServiceUnavailable() {
-    doThrow(ServiceUnavailable.class).when(userRepository).save(any(User.class));
+    doThrow(ServiceUnavailable.class).when(userRepository).saveAndFlush(any(User.class));
     assertThrows(ServiceUnavailable.class,
         () -> userServiceImpl.addUser(new User()));
   }
 
   @Test
   public void updateUserWithValidIdAndBodyReturnsUserSuccessfully() {
-    when(userRepository.existsById(any(Long.class))).thenReturn(true);
-    when(userRepository.findById(any(Long.class))).thenReturn(Optional.of(user));
-    when(userRepository.save(any(User.class))).thenReturn(user);
-    User result = userServiceImpl.updateUserById(1L, new User());
-    assertEquals(user, result);
+    when(userRepository.replaceById(1L, null, user)).thenReturn(1);
+    User result = userServiceImpl.updateUserById(1L, user, null);
+    assertEquals(1L, result.getId());
+    verify(userRepository, never()).existsById(any());
+    verify(userRepository, never()).saveAndFlush(any());
+  }
+
+  @Test
+  public void updateUserWithMatchingVersionReturnsNextVersion() {
+    when(userRepository.replaceById(1L, 3L, user)).thenReturn(1);
+    User result = userServiceImpl.updateUserById(1L, user, 3L);
+    assertEquals(4L, result.getVersion());
+  }
+
+  @Test
+  public void updateUserWithStaleVersionThrowsPreconditionFailed412() {
+    when(userRepository.replaceById(1L, 3L, user)).thenReturn(0);
+    when(userRepository.existsById(1L)).thenReturn(true);
+    assertThrows(PreconditionFailed.class,
+        () -> userServiceImpl.updateUserById(1L, user, 3L));
   }
 
   @Test
   public void updateUserWithNonExistentIdThrowsNotFound() {
-    when(userRepository.existsById(any(Long.class))).thenReturn(false);
+    when(userRepository.replaceById(any(), any(), any())).thenReturn(0);
     assertThrows(ResourceNotFound.class,
-        () -> userServiceImpl.updateUserById(999L, new User()));
+        () -> userServiceImpl.updateUserById(999L, new User(), null));
   }
 
   @Test
   public void updateUserWithNegativeIdThrowsBadDataResponse() {
     assertThrows(BadDataResponse.class,
-        () -> userServiceImpl.updateUserById(-8L, new User()));
+        () -> userServiceImpl.updateUserById(-8L, new User(), null));
   }
 
   @Test
   public void updateUserThrowsServiceUnavailable() {
-    when(userRepository.existsById(any(Long.class))).thenReturn(true);
-    when(userRepository.findById(any(Long.class))).thenReturn(Optional.of(user));
-    doThrow(ServiceUnavailable.class).when(userRepository).save(any(User.class));
+    doThrow(ServiceUnavailable.class).when(userRepository).replaceById(any(), any(), any());
     assertThrows(ServiceUnavailable.class,
-        () -> userServiceImpl.updateUserById(1L, new User()));
+        () -> userServiceImpl.updateUserById(1L, new User(), null));
   }
 
   @Test
   public void updateUserWithEmailThatAlreadyExistsThrowsConflict409() {
-    when(userRepository.existsById(any(Long.class))).thenReturn(true);
     when(userRepository.existsByEmail(any(String.class))).thenReturn(true);
-    assertThrows(Conflict.class, () -> userServiceImpl.updateUserById(1L, user));
+    assertThrows(Conflict.class, () -> userServiceImpl.updateUserById(1L, user, null));
+  }
+
+  @Test
+  public void patchUserUpdatesOnlyTheGivenFields() {
+    Map<String, Object> changes = Map.of("email", "new@test.com");
+    when(partialUpdates.toChanges(User.class, changes)).thenReturn(changes);
+    when(userRepository.updateById(1L, null, changes)).thenReturn(1);
+    userServiceImpl.patchUserById(1L, changes, null);
+    verify(userRepository, never()).existsByEmail(any());
+    verify(uniqueValueFilters).add(UniqueKey.USER_EMAIL, "new@test.com");
+  }
+
+  @Test
+  public void patchUserWithStaleVersionThrowsPreconditionFailed412() {
+    when(partialUpdates.toChanges(any(), any())).thenReturn(Map.of("name", "Test"));
+    when(userRepository.updateById(any(), any(), any())).thenReturn(0);
+    when(userRepository.existsById(1L)).thenReturn(true);
+    assertThrows(PreconditionFailed.class,
+        () -> userServiceImpl.patchUserById(1L, Map.of("name", "Test"), 3L));
+  }
+
+  @Test
+  public void patchUserWithNonExistentIdThrowsNotFound() {
+    when(partialUpdates.toChanges(any(), any())).thenReturn(Map.of("name", "Test"));
+    when(userRepository.updateById(any(), any(), any())).thenReturn(0);
+    assertThrows(ResourceNotFound.class,
+        () -> userServiceImpl.patchUserById(999L, Map.of("name", "Test"), null));
+  }
+
+  @Test
+  public void patchUserWithEmailThatAlreadyExistsThrowsConflict409() {
+    when(partialUpdates.toChanges(any(), any())).thenReturn(Map.of("email", "test@test.com"));
+    when(userRepository.updateById(any(), any(), any())).thenThrow(DataIntegrityViolationException.class);
+    assertThrows(Conflict.class,
+        () -> userServiceImpl.patchUserById(1L, Map.of("email", "test@test.com"), null));
   }
 
   @Test
   public void deleteUserByExistentIdReturns204NoContent() {
-    when(userRepository.findById(any(Long.class))).thenReturn(Optional.of(user));
+    when(userRepository.deleteOneById(any(Long.class))).thenReturn(1);
     userServiceImpl.deleteUserById(1L);
-    verify(userRepository).deleteById(any());
+    verify(userRepository).deleteOneById(1L);
+    verify(userRepository, never()).findById(any());
   }
 
   @Test
   public void deleteUserByNonExistentIdThrows404NotFound() {
-    when(userRepository.findById(any(Long.class))).thenReturn(Optional.empty());
+    when(userRepository.deleteOneById(any(Long.class))).thenReturn(0);
     assertThrows(ResourceNotFound.class, () -> userServiceImpl.deleteUserById(999L));
   }
 
@@ -181,15 +293,13 @@ class UserServiceImplTest {
 
   @Test
   public void deleteUserThrowsServiceUnavailable() {
-    when(userRepository.existsById(any(Long.class))).thenReturn(true);
-    when(userRepository.findById(any(Long.class))).thenReturn(Optional.of(user));
-    doThrow(ServiceUnavailable.class).when(userRepository).deleteById(any(Long.class));
+    doThrow(ServiceUnavailable.class).when(userRepository).deleteOneById(any(Long.class));
     assertThrows(ServiceUnavailable.class, () -> userServiceImpl.deleteUserById(1L));
   }
 
   @Test
   public void deleteEmptyUserThrowsResourceNotFound() {
-    when(userRepository.findById(any(Long.class))).thenReturn(Optional.empty());
+    when(userRepository.deleteOneById(any(Long.class))).thenReturn(0);
     assertThrows(ResourceNotFound.class, () -> userServiceImpl.deleteUserById(40L));
   }
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.example.ecommerce.tests.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.ecommerce.utils.Bm25Index;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Contains the unit tests for the Bm25Index.
+ */
+class Bm25IndexTest {
+
+  @Test
+  public void rarerTermsAndShorterDocumentsRankHigher() {
+    Bm25Index index = new Bm25Index();
+    index.add(1, "A long walking tour through the savanna with lions, elephants and giraffes");
+    index.add(2, "Walking with lions");
+    index.add(3, "Boat tour on the river to watch hippos and crocodiles");
+    index.add(4, "Night tour to watch the stars over the savanna");
+    assertEquals(List.of(2L, 1L), index.search("lion walks", 10));
+    assertEquals(List.of(3L, 4L, 1L), index.search("hippo tours", 10));
+    assertEquals(List.of(3L), index.search("hippo tours", 1));
+  }
+
+  @Test
+  public void equalScoresAreOrderedById() {
+    Bm25Index index = new Bm25Index();
+    index.add(7, "Gorilla trekking");
+    index.add(5, "Gorilla trekking");
+    index.add(6, "Gorilla trekking");
+    assertEquals(List.of(5L, 6L, 7L), index.search("gorilla", 10));
+  }
+
+  @Test
+  public void replacedAndRemovedDocumentsNoLongerMatch() {
+    Bm25Index index = new Bm25Index();
+    index.add(1, "Bird watching at the lake");
+    index.add(2, "Bird ringing");
+    index.add(1, "Canoe safari");
+    assertEquals(List.of(2L), index.search("birds", 10));
+    assertEquals(List.of(1L), index.search("canoe", 10));
+    index.remove(2);
+    assertTrue(index.search("birds", 10).isEmpty());
+    index.add(3, "Birds of prey");
+    assertEquals(List.of(3L), index.search("bird", 10));
+    assertEquals(2, index.size());
+  }
+
+  @Test
+  public void queryWithoutTermsFindsNothing() {
+    Bm25Index index = new Bm25Index();
+    index.add(1, "The tour");
+    assertTrue(index.search("the of and", 10).isEmpty());
+    assertTrue(index.search(null, 10).isEmpty());
+  }
+}
@@ -0,0 +1,79 @@
+package com.example.ecommerce.tests.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.ecommerce.utils.CompletionTrie;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Contains the unit tests for the CompletionTrie.
+ */
+class CompletionTrieTest {
+
+  @Test
+  public void completesByWeightThenAlphabetically() {
+    CompletionTrie trie = new CompletionTrie(3);
+    trie.put("safari", "safari", 5);
+    trie.put("savanna", "savanna", 9);
+    trie.put("sahara", "sahara", 5);
+    trie.put("sable", "sable", 1);
+    trie.put("river", "river", 7);
+    assertEquals(List.of("savanna", "safari", "sahara"), trie.complete("s", 3));
+    assertEquals(List.of("savanna"), trie.complete("s", 1));
+    assertEquals(List.of("safari"), trie.complete("saf", 3));
+    assertTrue(trie.complete("x", 3).isEmpty());
+  }
+
+  @Test
+  public void reweightedAndRemovedKeysMoveOutOfTheCompletions() {
+    CompletionTrie trie = new CompletionTrie(2);
+    trie.put("lion", "lion", 3);
+    trie.put("lioness", "lioness", 2);
+    trie.put("lily", "lily", 1);
+    trie.put("lion", "lion", 0);
+    assertEquals(List.of("lioness", "lily"), trie.complete("li", 2));
+    trie.remove("lioness");
+    assertEquals(List.of("lily", "lion"), trie.complete("li", 2));
+    trie.remove("lily");
+    trie.remove("lion");
+    assertTrue(trie.complete("l", 2).isEmpty());
+    assertEquals(0, trie.size());
+  }
+
+  @Test
+  public void completionsMatchABruteForceRankingAfterRandomChanges() {
+    int maxCompletions = 5;
+    CompletionTrie trie = new CompletionTrie(maxCompletions);
+    Map<String, Long> weights = new HashMap<>();
+    Random random = new Random(7);
+    for (int i = 0; i < 5_000; i++) {
+      String key = Integer.toString(random.nextInt(2_000), 5);
+      if (random.nextInt(4) == 0) {
+        trie.remove(key);
+        weights.remove(key);
+      } else {
+        long weight = random.nextInt(50);
+        trie.put(key, key, weight);
+        weights.put(key, weight);
+      }
+    }
+    for (String prefix : List.of("", "1", "2", "13", "40", "123")) {
+      List<String> expected = weights.entrySet().stream()
+          .filter(entry -> entry.getKey().startsWith(prefix))
+          .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+              .thenComparing(Map.Entry.comparingByKey()))
+          .limit(maxCompletions)
+          .map(Map.Entry::getKey)
+          .collect(Collectors.toList());
+      assertEquals(expected, trie.complete(prefix, maxCompletions), "prefix " + prefix);
+    }
+    assertEquals(weights.size(), trie.size());
+  }
+}
@@ -0,0 +1,69 @@
+package com.example.ecommerce.tests.utils;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.ecommerce.utils.CountingBloomFilter;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Contains the unit tests for the CountingBloomFilter.
+ */
+class CountingBloomFilterTest {
+
+  private static final int VALUES = 10_000;
+
+  @Test
+  public void addedValuesAreNeverReportedMissing() {
+    CountingBloomFilter filter = CountingBloomFilter.create(VALUES, 0.01);
+    for (int i = 0; i < VALUES; i++) {
+      filter.add("user" + i + "@ecommerce.com");
+    }
+    for (int i = 0; i < VALUES; i++) {
+      assertTrue(filter.mightContain("user" + i + "@ecommerce.com"));
+    }
+  }
+
+  @Test
+  public void falsePositiveRateStaysNearTheConfiguredRate() {
+    CountingBloomFilter filter = CountingBloomFilter.create(VALUES, 0.01);
+    for (int i = 0; i < VALUES; i++) {
+      filter.add("TOUR-" + i);
+    }
+    int falsePositives = 0;
+    for (int i = VALUES; i < VALUES * 2; i++) {
+      if (filter.mightContain("TOUR-" + i)) {
+        falsePositives++;
+      }
+    }
+    assertTrue(falsePositives < VALUES * 0.02, falsePositives + " false positives");
+  }
+
+  @Test
+  public void removedValueIsReportedMissingWhileOthersStay() {
+    CountingBloomFilter filter = CountingBloomFilter.create(100, 0.001);
+    filter.add("WUC-J7");
+    filter.add("WUC-K8");
+    filter.remove("WUC-J7");
+    assertFalse(filter.mightContain("WUC-J7"));
+    assertTrue(filter.mightContain("WUC-K8"));
+  }
+
+  @Test
+  public void duplicateValueStaysUntilEveryCopyIsRemoved() {
+    CountingBloomFilter filter = CountingBloomFilter.create(100, 0.001);
+    filter.add("userTwo");
+    filter.add("userTwo");
+    filter.remove("userTwo");
+    assertTrue(filter.mightContain("userTwo"));
+    filter.remove("userTwo");
+    assertFalse(filter.mightContain("userTwo"));
+  }
+
+  @Test
+  public void invalidSizingThrowsIllegalArgument() {
+    assertThrows(IllegalArgumentException.class, () -> CountingBloomFilter.create(0, 0.01));
+    assertThrows(IllegalArgumentException.class, () -> CountingBloomFilter.create(100, 1));
+  }
+}
@@ -0,0 +1,72 @@
+package com.example.ecommerce.tests.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.ecommerce.utils.HierarchicalTimerWheel;
+import com.example.ecommerce.utils.HierarchicalTimerWheel.Timeout;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Contains the unit tests for the HierarchicalTimerWheel. The wheel is kept small (4 buckets, 3
+ * levels, 64 ticks in total) so that timeouts cascade through every level and beyond its span.
+ */
+class HierarchicalTimerWheelTest {
+
+  private HierarchicalTimerWheel timerWheel;
+
+  @BeforeEach
+  public void setUp() {
+    timerWheel = new HierarchicalTimerWheel(2, TimeUnit.MILLISECONDS, 4, 3, Runnable::run,
+        "timer-wheel-test");
+  }
+
+  @AfterEach
+  public void tearDown() {
+    timerWheel.close();
+  }
+
+  @Test
+  public void timeoutsFireInDeadlineOrderAcrossLevels() throws InterruptedException {
+    List<Long> fired = new CopyOnWriteArrayList<>();
+    long[] delays = {300, 5, 60, 20, 150};
+    CountDownLatch latch = new CountDownLatch(delays.length);
+    long start = System.nanoTime();
+    for (long delay : delays) {
+      timerWheel.schedule(() -> {
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= delay);
+        fired.add(delay);
+        latch.countDown();
+      }, delay, TimeUnit.MILLISECONDS);
+    }
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    assertEquals(List.of(5L, 20L, 60L, 150L, 300L), fired);
+  }
+
+  @Test
+  public void cancelledTimeoutDoesNotFire() throws InterruptedException {
+    AtomicBoolean ran = new AtomicBoolean();
+    CountDownLatch latch = new CountDownLatch(1);
+    Timeout timeout = timerWheel.schedule(() -> ran.set(true), 30, TimeUnit.MILLISECONDS);
+    timerWheel.schedule(latch::countDown, 100, TimeUnit.MILLISECONDS);
+    assertTrue(timeout.cancel());
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    assertFalse(ran.get());
+  }
+
+  @Test
+  public void overdueTimeoutFiresOnNextTick() throws InterruptedException {
+    CountDownLatch latch = new CountDownLatch(1);
+    Timeout timeout = timerWheel.schedule(latch::countDown, -10, TimeUnit.MILLISECONDS);
+    assertTrue(latch.await(1, TimeUnit.SECONDS));
+    assertTrue(timeout.isExpired());
+  }
+}
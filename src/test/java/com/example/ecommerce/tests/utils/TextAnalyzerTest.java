@@ -0,0 +1,32 @@
+package com.example.ecommerce.tests.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.example.ecommerce.utils.TextAnalyzer;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Contains the unit tests for the TextAnalyzer.
+ */
+class TextAnalyzerTest {
+
+  @Test
+  public void termsAreLowerCaseWordsWithoutStopWords() {
+    assertEquals(List.of("lion", "savanna", "2", "dai"),
+        TextAnalyzer.terms("Lions of the Savanna: 2-day, with a"));
+  }
+
+  @Test
+  public void inflectionsShareAStem() {
+    assertEquals("hike", TextAnalyzer.stem("hiking"));
+    assertEquals("hike", TextAnalyzer.stem("hikes"));
+    assertEquals("hike", TextAnalyzer.stem("hiked"));
+    assertEquals("walk", TextAnalyzer.stem("walking"));
+    assertEquals("run", TextAnalyzer.stem("running"));
+    assertEquals("famili", TextAnalyzer.stem("families"));
+    assertEquals("famili", TextAnalyzer.stem("family"));
+    assertEquals("safari", TextAnalyzer.stem("safaris"));
+    assertEquals("glass", TextAnalyzer.stem("glasses"));
+  }
+}